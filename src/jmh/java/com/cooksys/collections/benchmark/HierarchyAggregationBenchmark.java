@@ -0,0 +1,76 @@
+package com.cooksys.collections.benchmark;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.HierarchyReducer;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.HierarchyAggregator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures an org-wide headcount rollup done with a {@link HierarchyAggregator} on one and on all cores,
+ * against asking the hierarchy for each manager's headcount in turn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HierarchyAggregationBenchmark {
+    @Param({"INDEXED", "CONCRETE"})
+    public Implementation implementation;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"4", "16"})
+    public int fanOut;
+
+    @Param({"8"})
+    public int depth;
+
+    private ManagementHierarchy hierarchy;
+    private ForkJoinPool single;
+    private HierarchyAggregator sequential;
+    private HierarchyAggregator parallel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Employee> people = OrgGenerator.generate(size, fanOut, depth);
+        hierarchy = implementation.build(people);
+        single = new ForkJoinPool(1);
+        sequential = new HierarchyAggregator(single, Integer.MAX_VALUE);
+        parallel = new HierarchyAggregator();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        single.shutdown();
+    }
+
+    @Benchmark
+    public Map<Manager, Integer> headcountPerManager() {
+        Map<Manager, Integer> result = new HashMap<>();
+        for (Manager m : hierarchy.getManagers()) {
+            result.put(m, hierarchy.getHeadcount(m));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Map<Manager, Integer> sequentialAggregate() {
+        return sequential.aggregate(hierarchy, HierarchyReducer.headcount());
+    }
+
+    @Benchmark
+    public Map<Manager, Integer> parallelAggregate() {
+        return parallel.aggregate(hierarchy, HierarchyReducer.headcount());
+    }
+}
@@ -0,0 +1,44 @@
+package com.cooksys.collections.benchmark;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.ManagementHierarchy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ManagementHierarchy#addManager} and {@link ManagementHierarchy#addEmployee} by building a
+ * whole synthetic org tree per call. Run with {@code -prof gc} to see the bytes allocated per build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HierarchyBuildBenchmark {
+    @Param({"REFERENCE", "CONCRETE", "INDEXED", "CONCURRENT", "PERSISTENT", "COMPACT"})
+    public Implementation implementation;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"4", "16"})
+    public int fanOut;
+
+    @Param({"8"})
+    public int depth;
+
+    private List<Employee> people;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        people = OrgGenerator.generate(size, fanOut, depth);
+    }
+
+    @Benchmark
+    public ManagementHierarchy build() {
+        return implementation.build(people);
+    }
+}
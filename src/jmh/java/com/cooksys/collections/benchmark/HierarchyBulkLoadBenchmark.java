@@ -0,0 +1,44 @@
+package com.cooksys.collections.benchmark;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.assignment.HierarchyBulkLoader;
+import com.cooksys.collections.assignment.IndexedManagementHierarchy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a {@link HierarchyBulkLoader} build of the same trees as {@link HierarchyBuildBenchmark}, for
+ * comparison with adding the people one at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HierarchyBulkLoadBenchmark {
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"4", "16"})
+    public int fanOut;
+
+    @Param({"8"})
+    public int depth;
+
+    private List<Employee> people;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        people = OrgGenerator.generate(size, fanOut, depth);
+    }
+
+    @Benchmark
+    public IndexedManagementHierarchy bulkLoad() {
+        HierarchyBulkLoader loader = new HierarchyBulkLoader(people.size());
+        loader.addAll(people);
+        return loader.build();
+    }
+}
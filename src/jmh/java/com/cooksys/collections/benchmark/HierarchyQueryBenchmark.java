@@ -0,0 +1,138 @@
+package com.cooksys.collections.benchmark;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.HierarchySnapshot;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of every {@link ManagementHierarchy} query on a prebuilt synthetic org tree. The
+ * people passed as arguments are drawn from a fixed random sample of the hierarchy's own members, so every
+ * implementation sees the same sequence of lookups.
+ *
+ * Build with {@code mvn -P benchmark package} and run with, for example:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar HierarchyQueryBenchmark -prof gc
+ * java -jar target/benchmarks.jar HierarchyQueryBenchmark.getChainOfCommand -p implementation=INDEXED,COMPACT -p size=1000000
+ * </pre>
+ *
+ * The {@code gc} profiler reports the allocation rate of each benchmark as {@code gc.alloc.rate.norm}, the
+ * number of bytes allocated per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HierarchyQueryBenchmark {
+    private static final int SAMPLE_SIZE = 1024;
+
+    @Param
+    public Implementation implementation;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"4", "16"})
+    public int fanOut;
+
+    @Param({"8"})
+    public int depth;
+
+    private ManagementHierarchy hierarchy;
+    private Employee[] employees;
+    private Manager[] managers;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        hierarchy = implementation.build(OrgGenerator.generate(size, fanOut, depth));
+        Random random = new Random(42);
+        employees = sample(hierarchy.getEmployees(), random).toArray(new Employee[0]);
+        managers = sample(hierarchy.getManagers(), random).toArray(new Manager[0]);
+    }
+
+    private static <E> List<E> sample(Set<E> people, Random random) {
+        List<E> shuffled = new ArrayList<>(people);
+        Collections.shuffle(shuffled, random);
+        List<E> result = new ArrayList<>(SAMPLE_SIZE);
+        for (int i = 0; i < SAMPLE_SIZE && !shuffled.isEmpty(); i++) {
+            result.add(shuffled.get(i % shuffled.size()));
+        }
+        return result;
+    }
+
+    private Employee nextEmployee() {
+        return employees[cursor++ & (SAMPLE_SIZE - 1)];
+    }
+
+    private Manager nextManager() {
+        return managers[cursor++ & (SAMPLE_SIZE - 1)];
+    }
+
+    @Benchmark
+    public Set<Manager> getManagers() {
+        return hierarchy.getManagers();
+    }
+
+    @Benchmark
+    public boolean hasManager() {
+        return hierarchy.hasManager(nextManager());
+    }
+
+    @Benchmark
+    public Set<Employee> getUnderlings() {
+        return hierarchy.getUnderlings(nextManager());
+    }
+
+    @Benchmark
+    public Set<Employee> getEmployees() {
+        return hierarchy.getEmployees();
+    }
+
+    @Benchmark
+    public boolean hasEmployee() {
+        return hierarchy.hasEmployee(nextEmployee());
+    }
+
+    @Benchmark
+    public Map<Manager, Set<Employee>> getHierarchy() {
+        return hierarchy.getHierarchy();
+    }
+
+    @Benchmark
+    public List<Manager> getChainOfCommand() {
+        return hierarchy.getChainOfCommand(nextEmployee());
+    }
+
+    @Benchmark
+    public Manager lowestCommonManager() {
+        return hierarchy.lowestCommonManager(nextEmployee(), nextEmployee());
+    }
+
+    @Benchmark
+    public boolean isInChainOfCommand() {
+        return hierarchy.isInChainOfCommand(nextEmployee(), nextManager());
+    }
+
+    @Benchmark
+    public Set<Employee> getAllReports() {
+        return hierarchy.getAllReports(nextManager());
+    }
+
+    @Benchmark
+    public int getHeadcount() {
+        return hierarchy.getHeadcount(nextManager());
+    }
+
+    @Benchmark
+    public HierarchySnapshot snapshot() {
+        return hierarchy.snapshot();
+    }
+}
@@ -0,0 +1,90 @@
+package com.cooksys.collections.benchmark;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.assignment.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The {@link ManagementHierarchy} implementations under comparison, named so they can be chosen with
+ * JMH's {@code -p implementation=...} option.
+ */
+public enum Implementation {
+    REFERENCE {
+        @Override
+        ManagementHierarchy create(int expectedSize) {
+            return new ReferenceManagementHierarchy();
+        }
+    },
+    CONCRETE {
+        @Override
+        ManagementHierarchy create(int expectedSize) {
+            return new ConcreteManagementHierarchy();
+        }
+    },
+    INDEXED {
+        @Override
+        ManagementHierarchy create(int expectedSize) {
+            return new IndexedManagementHierarchy(expectedSize);
+        }
+    },
+    CONCURRENT {
+        @Override
+        ManagementHierarchy create(int expectedSize) {
+            return new ConcurrentManagementHierarchy();
+        }
+    },
+    PERSISTENT {
+        @Override
+        ManagementHierarchy create(int expectedSize) {
+            return new PersistentManagementHierarchy();
+        }
+    },
+    COMPACT {
+        @Override
+        ManagementHierarchy create(int expectedSize) {
+            return new CompactManagementHierarchy(new CompactHierarchy(expectedSize));
+        }
+    },
+    /**
+     * Read-only: the people are loaded into an {@link IndexedManagementHierarchy}, written to a temporary
+     * {@link HierarchyFile} and mapped back in.
+     */
+    MAPPED {
+        @Override
+        ManagementHierarchy create(int expectedSize) {
+            throw new UnsupportedOperationException("MappedManagementHierarchy is read-only");
+        }
+
+        @Override
+        ManagementHierarchy build(List<Employee> people) {
+            try {
+                Path file = Files.createTempFile("hierarchy", ".bin");
+                file.toFile().deleteOnExit();
+                HierarchyFile.write(INDEXED.build(people), file);
+                return MappedManagementHierarchy.open(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    };
+
+    /**
+     * @param expectedSize the number of people the hierarchy will hold, for implementations that can presize
+     * @return an empty hierarchy
+     */
+    abstract ManagementHierarchy create(int expectedSize);
+
+    /**
+     * @param people the people to add, in the order returned by {@link OrgGenerator#generate(int, int, int)}
+     * @return a hierarchy holding the given people
+     */
+    ManagementHierarchy build(List<Employee> people) {
+        return OrgGenerator.populate(create(people.size()), people);
+    }
+}
@@ -0,0 +1,86 @@
+package com.cooksys.collections.benchmark;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates synthetic org trees for the benchmarks. The tree is filled breadth first from a single root:
+ * every manager gets {@code fanOut} reports until the tree reaches {@code depth} levels. If the full tree is
+ * too small for the requested size, the remaining people are spread round robin over the people just above
+ * the last level, widening their teams. Everyone who ends up with reports is a {@link Manager}, everyone
+ * else a {@link Grunt}.
+ */
+public final class OrgGenerator {
+    private OrgGenerator() {
+    }
+
+    /**
+     * @param size   the number of people in the tree, root included
+     * @param fanOut the number of reports each manager gets before the last level is widened
+     * @param depth  the largest number of levels in the tree, root included
+     * @return the people in the tree in breadth-first order, so every manager comes before their reports. A
+     * depth of 1 yields only the root.
+     */
+    public static List<Employee> generate(int size, int fanOut, int depth) {
+        if (size < 1 || fanOut < 1 || depth < 1) {
+            throw new IllegalArgumentException("size, fanOut and depth must be positive");
+        }
+        int[] parent = new int[size];
+        parent[0] = -1;
+        int levelStart = 0;
+        int levelEnd = 1;
+        int next = 1;
+        for (int d = 1; d < depth && next < size; d++) {
+            int width = levelEnd - levelStart;
+            int end = d == depth - 1 ? size : (int) Math.min(size, next + (long) width * fanOut);
+            for (int i = 0; next < end; i++, next++) {
+                parent[next] = levelStart + (d == depth - 1 ? i % width : i / fanOut);
+            }
+            levelStart = levelEnd;
+            levelEnd = next;
+        }
+
+        boolean[] hasReports = new boolean[next];
+        for (int i = 1; i < next; i++) {
+            hasReports[parent[i]] = true;
+        }
+        int[] level = new int[next];
+        List<Employee> people = new ArrayList<>(next);
+        for (int i = 0; i < next; i++) {
+            Manager manager = i == 0 ? null : (Manager) people.get(parent[i]);
+            level[i] = i == 0 ? 0 : level[parent[i]] + 1;
+            String name = "Person " + i;
+            String title = "Level " + level[i];
+            people.add(hasReports[i] ? new Manager(name, title, manager) : new Grunt(name, title, manager));
+        }
+        return people;
+    }
+
+    /**
+     * Fills a hierarchy the way the tests do: every {@link Manager} is registered first, then everyone with a
+     * manager, managers included, is added as an employee. The root has no manager to be filed under and is
+     * only registered.
+     *
+     * @param hierarchy the hierarchy to fill
+     * @param people    the people to add, in the order returned by {@link #generate(int, int, int)}
+     * @return the hierarchy
+     */
+    public static ManagementHierarchy populate(ManagementHierarchy hierarchy, List<Employee> people) {
+        for (Employee e : people) {
+            if (e instanceof Manager) {
+                hierarchy.addManager((Manager) e);
+            }
+        }
+        for (Employee e : people) {
+            if (e.getManager() != null) {
+                hierarchy.addEmployee(e);
+            }
+        }
+        return hierarchy;
+    }
+}
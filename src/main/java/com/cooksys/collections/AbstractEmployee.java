@@ -0,0 +1,170 @@
+package com.cooksys.collections;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The state shared by {@link Grunt} and {@link Manager}: a stable id, the employee's name, title and manager,
+ * and the listeners to tell when any of those three change.
+ *
+ * Ids are handed out from a counter shared by every employee in the process, starting at 1. An employee
+ * created with an explicit id, for example when reading one back from storage, moves the counter past that
+ * id, so employees created afterwards never reuse it.
+ *
+ * The name, title and manager are volatile, so a change made on one thread, such as a client's reader thread
+ * refreshing a cached copy, is seen by readers on every other. The setters do not lock, so two threads
+ * changing the same field of the same employee at once have to coordinate between themselves.
+ *
+ * Listeners are held weakly, so that a hierarchy following its members can be collected once it is no
+ * longer used without having to unregister from each of them first. Whoever registers a listener has to
+ * keep it reachable for as long as it should be told about changes.
+ */
+public abstract class AbstractEmployee implements Employee {
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+    /**
+     * The most listeners found collected that {@link #addListener(EmployeeListener)} clears out in one call.
+     */
+    private static final int PURGE_LIMIT = 2;
+
+    private final long id;
+    private volatile String name;
+    private volatile String title;
+    private volatile Manager manager;
+    private ArrayDeque<WeakReference<EmployeeListener>> listeners;
+
+    /**
+     * Creates an employee with the next free id.
+     */
+    protected AbstractEmployee(String name, String title, Manager manager) {
+        this(NEXT_ID.getAndIncrement(), name, title, manager);
+    }
+
+    /**
+     * Creates an employee with the given id.
+     */
+    protected AbstractEmployee(long id, String name, String title, Manager manager) {
+        NEXT_ID.accumulateAndGet(id + 1, Math::max);
+        this.id = id;
+        this.name = name;
+        this.title = title;
+        this.manager = manager;
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(String name) {
+        String previous = this.name;
+        this.name = name;
+        if (!Objects.equals(previous, name)) {
+            for (EmployeeListener listener : liveListeners()) {
+                listener.nameChanged(this, previous);
+            }
+        }
+    }
+
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public void setTitle(String title) {
+        String previous = this.title;
+        this.title = title;
+        if (!Objects.equals(previous, title)) {
+            for (EmployeeListener listener : liveListeners()) {
+                listener.titleChanged(this, previous);
+            }
+        }
+    }
+
+    @Override
+    public Manager getManager() {
+        return manager;
+    }
+
+    @Override
+    public void setManager(Manager manager) {
+        Manager previous = this.manager;
+        this.manager = manager;
+        if (!Objects.equals(previous, manager)) {
+            for (EmployeeListener listener : liveListeners()) {
+                listener.managerChanged(this, previous);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void addListener(EmployeeListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener");
+        }
+        if (listeners == null) {
+            listeners = new ArrayDeque<>(2);
+        }
+        // the oldest listeners are the likeliest to have been collected
+        for (int i = 0; i < PURGE_LIMIT && !listeners.isEmpty() && listeners.peekFirst().get() == null; i++) {
+            listeners.pollFirst();
+        }
+        listeners.addLast(new WeakReference<>(listener));
+    }
+
+    @Override
+    public synchronized void removeListener(EmployeeListener listener) {
+        if (listeners == null) {
+            return;
+        }
+        for (Iterator<WeakReference<EmployeeListener>> i = listeners.iterator(); i.hasNext(); ) {
+            if (i.next().get() == listener) {
+                i.remove();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the listeners still registered, with any that have been collected cleared out
+     */
+    private synchronized List<EmployeeListener> liveListeners() {
+        List<EmployeeListener> result = new ArrayList<>(listeners == null ? 0 : listeners.size());
+        if (listeners != null) {
+            for (Iterator<WeakReference<EmployeeListener>> i = listeners.iterator(); i.hasNext(); ) {
+                EmployeeListener listener = i.next().get();
+                if (listener == null) {
+                    i.remove();
+                } else {
+                    result.add(listener);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the given object is an employee of the same class with the same id as this one, so a
+     * grunt and the manager they were promoted to are different employees
+     */
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o != null && o.getClass() == getClass() && ((Employee) o).getId() == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+}
@@ -0,0 +1,190 @@
+package com.cooksys.collections;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable chain of command, stored as a linked path from an employee's direct manager up to the top.
+ * A chain is its first manager followed by that manager's own chain, so the chains of everyone under the
+ * same manager, and of everyone further down, can all share the one path above them. Extending a chain
+ * downwards with {@link #under(Manager)} costs a single link, and {@link #above()} hands back the shared
+ * remainder without copying.
+ *
+ * Indexed access walks the path, so {@link #get(int)} takes time proportional to the index; iterate
+ * instead where possible. Searching and comparing walk the path once, and two chains stop being compared
+ * as soon as they reach a part of the path they share.
+ */
+public final class ChainOfCommand extends AbstractList<Manager> {
+    private static final ChainOfCommand EMPTY = new ChainOfCommand(null, null);
+
+    private final Manager manager;
+    private final ChainOfCommand above;
+    private final int size;
+
+    private ChainOfCommand(Manager manager, ChainOfCommand above) {
+        this.manager = manager;
+        this.above = above;
+        this.size = above == null ? 0 : above.size + 1;
+    }
+
+    /**
+     * @return the chain of command of an employee without a manager
+     */
+    public static ChainOfCommand empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates the chain of command of someone reporting to the given manager, when this is the manager's
+     * own chain. This chain is shared, not copied.
+     *
+     * @param manager the manager to put in front of this chain
+     * @return a chain starting with the given manager and continuing with this chain
+     */
+    public ChainOfCommand under(Manager manager) {
+        if (manager == null) {
+            throw new NullPointerException("manager");
+        }
+        return new ChainOfCommand(manager, this);
+    }
+
+    /**
+     * @return the first manager of this chain, or null if the chain is empty
+     */
+    public Manager first() {
+        return manager;
+    }
+
+    /**
+     * @return the chain of command of this chain's first manager, i.e. this chain without its first
+     * element; the empty chain is returned for itself
+     */
+    public ChainOfCommand above() {
+        return above == null ? this : above;
+    }
+
+    @Override
+    public Manager get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        ChainOfCommand chain = this;
+        for (int i = 0; i < index; i++) {
+            chain = chain.above;
+        }
+        return chain.manager;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Manager> iterator() {
+        return new Iterator<Manager>() {
+            private ChainOfCommand next = ChainOfCommand.this;
+
+            @Override
+            public boolean hasNext() {
+                return next.size > 0;
+            }
+
+            @Override
+            public Manager next() {
+                if (next.size == 0) {
+                    throw new NoSuchElementException();
+                }
+                Manager result = next.manager;
+                next = next.above;
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        for (ChainOfCommand chain = this; chain.size > 0; chain = chain.above) {
+            if (chain.manager.equals(o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        int index = 0;
+        for (ChainOfCommand chain = this; chain.size > 0; chain = chain.above) {
+            if (chain.manager.equals(o)) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        int last = -1;
+        int index = 0;
+        for (ChainOfCommand chain = this; chain.size > 0; chain = chain.above) {
+            if (chain.manager.equals(o)) {
+                last = index;
+            }
+            index++;
+        }
+        return last;
+    }
+
+    /**
+     * Compares two chains link by link, stopping early once both reach the same shared remainder.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof ChainOfCommand) {
+            ChainOfCommand other = (ChainOfCommand) o;
+            if (other.size != size) {
+                return false;
+            }
+            for (ChainOfCommand chain = this; chain != other; chain = chain.above, other = other.above) {
+                if (!chain.manager.equals(other.manager)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (!(o instanceof List)) {
+            return false;
+        }
+        List<?> other = (List<?>) o;
+        if (other.size() != size) {
+            return false;
+        }
+        ChainOfCommand chain = this;
+        for (Object m : other) {
+            if (chain.size == 0 || !chain.manager.equals(m)) {
+                return false;
+            }
+            chain = chain.above;
+        }
+        return chain.size == 0;
+    }
+
+    /**
+     * Returns the shared remainder of this chain when the range runs to its end.
+     */
+    @Override
+    public List<Manager> subList(int fromIndex, int toIndex) {
+        if (toIndex == size && fromIndex >= 0 && fromIndex <= size) {
+            ChainOfCommand chain = this;
+            for (int i = 0; i < fromIndex; i++) {
+                chain = chain.above;
+            }
+            return chain;
+        }
+        return super.subList(fromIndex, toIndex);
+    }
+}
@@ -1,6 +1,19 @@
 package com.cooksys.collections;
 
+/**
+ * A person in a management hierarchy. Every employee carries an id that never changes, and two employees of the
+ * same class are equal exactly when their ids are, so hash-based indexes keep finding them however their other
+ * fields change, and two objects standing for the same person are treated as one. A promotion keeps the
+ * person's id, so a grunt and the manager they became share it without being equal. Implementations must
+ * compare classes and ids in {@code equals} and return {@code Long.hashCode(getId())} from {@code hashCode},
+ * so that hierarchies can look people up by id alone.
+ */
 public interface Employee {
+    /**
+     * @return the id of this employee, fixed when the employee is created
+     */
+    long getId();
+
     void setName(String name);
 
     String getName();
@@ -12,4 +25,24 @@ public interface Employee {
     void setManager(Manager manager);
 
     Manager getManager();
+
+    /**
+     * Registers a listener to be told whenever this employee's name, title or manager is changed, so that
+     * hierarchies can keep their indexes up to date. This is an optional operation.
+     *
+     * @param listener the listener to register
+     * @throws UnsupportedOperationException if the employee does not report changes
+     */
+    default void addListener(EmployeeListener listener) {
+        throw new UnsupportedOperationException("addListener");
+    }
+
+    /**
+     * Unregisters a listener registered with {@link #addListener(EmployeeListener)}. Does nothing if the
+     * listener is not registered.
+     *
+     * @param listener the listener to unregister
+     */
+    default void removeListener(EmployeeListener listener) {
+    }
 }
@@ -0,0 +1,28 @@
+package com.cooksys.collections;
+
+/**
+ * Receives the changes made to an {@link Employee} it has been registered with. Each method is called after
+ * the employee has changed, on the thread that changed it, and only if the new value differs from the old.
+ */
+public interface EmployeeListener {
+    /**
+     * @param employee     the employee whose name changed
+     * @param previousName the name the employee had before
+     */
+    default void nameChanged(Employee employee, String previousName) {
+    }
+
+    /**
+     * @param employee      the employee whose title changed
+     * @param previousTitle the title the employee had before
+     */
+    default void titleChanged(Employee employee, String previousTitle) {
+    }
+
+    /**
+     * @param employee        the employee whose manager changed
+     * @param previousManager the manager the employee had before
+     */
+    default void managerChanged(Employee employee, Manager previousManager) {
+    }
+}
@@ -1,53 +1,25 @@
 package com.cooksys.collections;
 
-public class Grunt implements Employee {
-
-    private String name;
-    private String title;
-    private Manager manager;
+public class Grunt extends AbstractEmployee {
 
     public Grunt(String name, String title, Manager manager) {
-        this.name = name;
-        this.title = title;
-        this.manager = manager;
+        super(name, title, manager);
     }
 
-    @Override
-    public String getName() {
-        return name;
-    }
-
-    @Override
-    public void setName(String name) {
-        this.name = name;
-    }
-
-    @Override
-    public String getTitle() {
-        return title;
-    }
-
-    @Override
-    public void setTitle(String title) {
-        this.title = title;
-    }
-
-    @Override
-    public Manager getManager() {
-        return manager;
-    }
-
-    @Override
-    public void setManager(Manager manager) {
-        this.manager = manager;
+    /**
+     * Creates a grunt with a given id, such as one read back from storage.
+     */
+    public Grunt(long id, String name, String title, Manager manager) {
+        super(id, name, title, manager);
     }
 
     @Override
     public String toString() {
         return "Grunt{" +
-                "name='" + name + '\'' +
-                ", title='" + title + '\'' +
-                ", manager=" + manager +
+                "id=" + getId() +
+                ", name='" + getName() + '\'' +
+                ", title='" + getTitle() + '\'' +
+                ", manager=" + getManager() +
                 '}';
     }
 }
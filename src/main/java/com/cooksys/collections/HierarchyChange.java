@@ -0,0 +1,144 @@
+package com.cooksys.collections;
+
+/**
+ * One change to a {@link ManagementHierarchy}, as reported to a {@link HierarchyListener}. Changes are
+ * numbered by a sequence that starts at 1 and increases by one with every change the hierarchy makes, so a
+ * consumer that remembers the last sequence number it handled can resume from there with
+ * {@link ManagementHierarchy#subscribe(HierarchyListener, long)}.
+ */
+public final class HierarchyChange {
+    /**
+     * The kinds of change a hierarchy reports.
+     */
+    public enum Type {
+        /**
+         * The employee joined the hierarchy under {@link #getManager()}. Also reported when an employee who
+         * was already present is registered as a manager, in which case {@link #getPreviousManager()} is the
+         * same as {@link #getManager()}.
+         */
+        ADDED,
+        /**
+         * The employee left the hierarchy, from under {@link #getPreviousManager()}.
+         */
+        REMOVED,
+        /**
+         * The employee, together with everyone who reports to them, moved from under
+         * {@link #getPreviousManager()} to under {@link #getManager()}.
+         */
+        MOVED,
+        /**
+         * The employee's title changed from {@link #getPreviousTitle()} to {@link #getTitle()}.
+         */
+        TITLE_CHANGED,
+        /**
+         * The employee's name changed. Changes do not carry names; the employee's current name is
+         * {@link Employee#getName()}.
+         */
+        RENAMED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final Employee employee;
+    private final Manager previousManager;
+    private final Manager manager;
+    private final String previousTitle;
+    private final String title;
+    private final boolean registeredManager;
+
+    /**
+     * @param sequence          the change's sequence number
+     * @param type              the kind of change
+     * @param employee          the employee who changed
+     * @param previousManager   the employee's manager before the change, or null if they were not present
+     * @param manager           the employee's manager after the change, or null if they are no longer present
+     * @param previousTitle     the employee's title before the change, or null if they were not present
+     * @param title             the employee's title after the change
+     * @param registeredManager whether the employee is registered as a manager after the change
+     */
+    public HierarchyChange(long sequence, Type type, Employee employee, Manager previousManager, Manager manager,
+                           String previousTitle, String title, boolean registeredManager) {
+        this.sequence = sequence;
+        this.type = type;
+        this.employee = employee;
+        this.previousManager = previousManager;
+        this.manager = manager;
+        this.previousTitle = previousTitle;
+        this.title = title;
+        this.registeredManager = registeredManager;
+    }
+
+    /**
+     * @return the change's sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the kind of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the employee who changed
+     */
+    public Employee getEmployee() {
+        return employee;
+    }
+
+    /**
+     * @return the manager the employee was filed under before the change, or null if they were not present
+     * or had no manager
+     */
+    public Manager getPreviousManager() {
+        return previousManager;
+    }
+
+    /**
+     * @return the manager the employee is filed under after the change, or null if they were removed or
+     * have no manager
+     */
+    public Manager getManager() {
+        return manager;
+    }
+
+    /**
+     * @return the employee's title before the change, or null if they were not present
+     */
+    public String getPreviousTitle() {
+        return previousTitle;
+    }
+
+    /**
+     * @return the employee's title after the change
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return true if the employee is registered as a manager after the change. Together with
+     * {@link Type#ADDED} this tells {@link ManagementHierarchy#addManager(Manager)} apart from
+     * {@link ManagementHierarchy#addEmployee(Employee)}.
+     */
+    public boolean isRegisteredManager() {
+        return registeredManager;
+    }
+
+    @Override
+    public String toString() {
+        return "HierarchyChange{" +
+                "sequence=" + sequence +
+                ", type=" + type +
+                ", employee=" + employee +
+                ", previousManager=" + previousManager +
+                ", manager=" + manager +
+                ", previousTitle='" + previousTitle + '\'' +
+                ", title='" + title + '\'' +
+                ", registeredManager=" + registeredManager +
+                '}';
+    }
+}
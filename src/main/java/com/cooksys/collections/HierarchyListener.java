@@ -0,0 +1,17 @@
+package com.cooksys.collections;
+
+import java.util.List;
+
+/**
+ * Receives the changes made to a {@link ManagementHierarchy} it has subscribed to.
+ */
+@FunctionalInterface
+public interface HierarchyListener {
+    /**
+     * Called after the hierarchy has applied a batch of changes. The hierarchy already reflects every change
+     * in the batch when this is called, and batches arrive in sequence order without gaps.
+     *
+     * @param changes the changes, in sequence order. The list is never empty and must not be modified.
+     */
+    void onChanges(List<HierarchyChange> changes);
+}
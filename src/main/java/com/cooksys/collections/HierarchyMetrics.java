@@ -0,0 +1,74 @@
+package com.cooksys.collections;
+
+/**
+ * Receives a measurement of every call made through an instrumented {@link ManagementHierarchy}. This is the
+ * point where metrics leave the hierarchy, so it can be implemented to feed any monitoring system without
+ * the hierarchy depending on one.
+ *
+ * Measurements are reported on the calling thread straight after each call, so implementations must be
+ * thread-safe and should do as little as possible.
+ */
+public interface HierarchyMetrics {
+    /**
+     * Stands for a measurement that was not taken.
+     */
+    long UNKNOWN = -1;
+
+    /**
+     * The operations of a hierarchy that are measured. Overloads searching within a manager's organization,
+     * and the batch form of {@link ManagementHierarchy#getUnderlings(Manager)}, are measured separately.
+     */
+    enum Operation {
+        ADD_MANAGER,
+        GET_MANAGERS,
+        HAS_MANAGER,
+        GET_UNDERLINGS,
+        GET_UNDERLINGS_BATCH,
+        ADD_EMPLOYEE,
+        GET_EMPLOYEES,
+        GET_EMPLOYEE,
+        HAS_EMPLOYEE,
+        GET_HIERARCHY,
+        GET_CHAIN_OF_COMMAND,
+        GET_CHAINS_OF_COMMAND,
+        LOWEST_COMMON_MANAGER,
+        IS_IN_CHAIN_OF_COMMAND,
+        GET_ALL_REPORTS,
+        GET_HEADCOUNT,
+        FIND_BY_TITLE,
+        FIND_BY_TITLE_WITHIN,
+        FIND_BY_NAME_PREFIX,
+        FIND_BY_NAME_PREFIX_WITHIN,
+        EMPLOYEES,
+        UNDERLINGS,
+        ALL_REPORTS,
+        CHAIN_OF_COMMAND,
+        SNAPSHOT,
+        REMOVE_EMPLOYEE,
+        TRANSFER_EMPLOYEE,
+        PROMOTE_TO_MANAGER,
+        RETITLE_EMPLOYEE
+    }
+
+    /**
+     * Records a call that returned normally.
+     *
+     * @param operation      the operation called
+     * @param nanos          how long the call took
+     * @param resultSize     the number of elements in the collection or map returned, or {@link #UNKNOWN} if
+     *                       the call did not return one
+     * @param allocatedBytes the bytes allocated by the calling thread during the call, or {@link #UNKNOWN} if
+     *                       allocations are not being tracked
+     */
+    void record(Operation operation, long nanos, long resultSize, long allocatedBytes);
+
+    /**
+     * Records a call that threw. Ignored unless overridden.
+     *
+     * @param operation the operation called
+     * @param nanos     how long the call took
+     * @param failure   what the call threw
+     */
+    default void failed(Operation operation, long nanos, Throwable failure) {
+    }
+}
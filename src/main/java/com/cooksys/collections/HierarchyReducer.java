@@ -0,0 +1,149 @@
+package com.cooksys.collections;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Describes a rollup over the organization of every manager in a hierarchy. A manager's result is the
+ * {@link #combine(Object, Object) combination} of what each of their direct reports contributes, starting
+ * from the {@link #identity()}. A grunt contributes {@link #map(Employee)} of themselves; a manager
+ * contributes the combination of {@link #map(Employee)} of themselves and {@link #lift(Manager, Object)} of
+ * their own organization's result.
+ *
+ * {@code combine} must be associative and {@code identity} must be its identity element, since the reports
+ * of large organizations may be combined on different threads. Reports are always combined in the order the
+ * hierarchy lists them, so {@code combine} need not be commutative. None of the methods may modify their
+ * arguments, because results are shared between an organization and the one above it.
+ *
+ * @param <A> the type of the result computed for each manager
+ */
+public interface HierarchyReducer<A> {
+    /**
+     * @return the result of an organization with nobody in it
+     */
+    A identity();
+
+    /**
+     * @param employee an employee of the organization
+     * @return what the given employee contributes to their manager's organization on their own
+     */
+    A map(Employee employee);
+
+    /**
+     * @param left  the result of one part of an organization
+     * @param right the result of the part listed after it
+     * @return the result of both parts together
+     */
+    A combine(A left, A right);
+
+    /**
+     * Converts the result of a report's own organization into what it contributes to the organization
+     * above. Returns the result unchanged unless overridden.
+     *
+     * @param manager      the report whose organization is being lifted
+     * @param organization the result computed for the report's organization
+     * @return what the report's organization contributes to their manager's organization
+     */
+    default A lift(Manager manager, A organization) {
+        return organization;
+    }
+
+    /**
+     * Creates a reducer from its parts, lifting organizations unchanged.
+     *
+     * @param identity the result of an empty organization
+     * @param map      the contribution of a single employee
+     * @param combine  an associative operation joining two results
+     * @param <A>      the type of the result computed for each manager
+     * @return the reducer
+     */
+    static <A> HierarchyReducer<A> of(A identity, Function<? super Employee, ? extends A> map,
+                                      BinaryOperator<A> combine) {
+        return of(identity, map, combine, (m, organization) -> organization);
+    }
+
+    /**
+     * Creates a reducer from its parts.
+     *
+     * @param identity the result of an empty organization
+     * @param map      the contribution of a single employee
+     * @param combine  an associative operation joining two results
+     * @param lift     the contribution of a report's own organization
+     * @param <A>      the type of the result computed for each manager
+     * @return the reducer
+     */
+    static <A> HierarchyReducer<A> of(A identity, Function<? super Employee, ? extends A> map,
+                                      BinaryOperator<A> combine, BiFunction<? super Manager, A, A> lift) {
+        return new HierarchyReducer<A>() {
+            @Override
+            public A identity() {
+                return identity;
+            }
+
+            @Override
+            public A map(Employee employee) {
+                return map.apply(employee);
+            }
+
+            @Override
+            public A combine(A left, A right) {
+                return combine.apply(left, right);
+            }
+
+            @Override
+            public A lift(Manager manager, A organization) {
+                return lift.apply(manager, organization);
+            }
+        };
+    }
+
+    /**
+     * @return a reducer counting everyone who reports to each manager, directly or indirectly
+     */
+    static HierarchyReducer<Integer> headcount() {
+        return of(0, e -> 1, Integer::sum);
+    }
+
+    /**
+     * Counts each manager's direct reports. The results for a whole organization give its span-of-control
+     * statistics, e.g. through {@link java.util.IntSummaryStatistics}.
+     *
+     * @return a reducer counting the direct reports of each manager
+     */
+    static HierarchyReducer<Integer> directReports() {
+        return of(0, e -> 1, Integer::sum, (m, organization) -> 0);
+    }
+
+    /**
+     * @return a reducer finding the number of levels below each manager, 1 for a manager whose reports
+     * have no reports of their own and 0 for a manager without reports
+     */
+    static HierarchyReducer<Integer> depth() {
+        return of(0, e -> 1, Math::max, (m, organization) -> organization + 1);
+    }
+
+    /**
+     * @return a reducer counting the employees with each title in each manager's organization
+     */
+    static HierarchyReducer<Map<String, Integer>> titleCounts() {
+        return of(Collections.<String, Integer>emptyMap(),
+                e -> Collections.singletonMap(e.getTitle(), 1),
+                (left, right) -> {
+                    if (left.isEmpty()) {
+                        return right;
+                    }
+                    if (right.isEmpty()) {
+                        return left;
+                    }
+                    Map<String, Integer> result = new HashMap<>(left);
+                    for (Map.Entry<String, Integer> entry : right.entrySet()) {
+                        result.merge(entry.getKey(), entry.getValue(), Integer::sum);
+                    }
+                    return Collections.unmodifiableMap(result);
+                });
+    }
+}
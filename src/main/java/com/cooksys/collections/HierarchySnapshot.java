@@ -0,0 +1,265 @@
+package com.cooksys.collections;
+
+import com.cooksys.collections.persistent.PersistentHashMap;
+import com.cooksys.collections.persistent.PersistentHashSet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, versioned view of a management hierarchy. Every set and map returned by a snapshot is the
+ * snapshot's own persistent data structure, so reading is free of copying and the results can be shared
+ * freely between threads. {@link #withManager(Manager)} and {@link #withEmployee(Employee)} produce the
+ * next version by copying only the trie paths they change; everything else is shared with this version.
+ *
+ * Snapshots follow the {@link ManagementHierarchy} contract for queries. Their {@code add} methods throw
+ * {@link UnsupportedOperationException}.
+ */
+public final class HierarchySnapshot implements ManagementHierarchy {
+    private static final HierarchySnapshot EMPTY = new HierarchySnapshot(0, PersistentHashMap.<Employee, Manager>empty(),
+            PersistentHashMap.<Manager, Set<Employee>>empty(), PersistentHashMap.<Manager, Set<Employee>>empty());
+
+    private final long version;
+    private final PersistentHashMap<Employee, Manager> members;
+    private final PersistentHashMap<Manager, Set<Employee>> hierarchy;
+    private final PersistentHashMap<Manager, Set<Employee>> waiting;
+
+    private HierarchySnapshot(long version, PersistentHashMap<Employee, Manager> members,
+                              PersistentHashMap<Manager, Set<Employee>> hierarchy,
+                              PersistentHashMap<Manager, Set<Employee>> waiting) {
+        this.version = version;
+        this.members = members;
+        this.hierarchy = hierarchy;
+        this.waiting = waiting;
+    }
+
+    /**
+     * @return the snapshot of an empty hierarchy, at version 0
+     */
+    public static HierarchySnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Copies the current state of the given hierarchy into a snapshot.
+     *
+     * @param source the hierarchy to copy
+     * @return a snapshot with the same managers and employees as the given hierarchy
+     */
+    public static HierarchySnapshot of(ManagementHierarchy source) {
+        HierarchySnapshot result = EMPTY;
+        for (Manager m : source.getManagers()) {
+            result = result.withManager(m);
+        }
+        for (Employee e : source.getEmployees()) {
+            result = result.withEmployee(e);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of changes that led from the empty hierarchy to this snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param manager the manager to add
+     * @return the next version of this snapshot with the given manager added, following the rules of
+     * {@link #addManager(Manager)}, or this snapshot if that would leave the hierarchy unchanged
+     */
+    public HierarchySnapshot withManager(Manager manager) {
+        if (manager == null || hierarchy.containsKey(manager)) {
+            return this;
+        }
+        Set<Employee> reports = waiting.get(manager);
+        HierarchySnapshot result = new HierarchySnapshot(version + 1, members,
+                hierarchy.plus(manager, reports == null ? PersistentHashSet.<Employee>empty() : reports),
+                waiting.minus(manager));
+        return members.containsKey(manager) ? result : result.file(manager, result.version);
+    }
+
+    /**
+     * @param employee the employee to add
+     * @return the next version of this snapshot with the given employee added, following the rules of
+     * {@link #addEmployee(Employee)}, or this snapshot if that would leave the hierarchy unchanged
+     */
+    public HierarchySnapshot withEmployee(Employee employee) {
+        if (employee == null || !hasManager(employee.getManager()) || members.containsKey(employee)) {
+            return this;
+        }
+        return file(employee, version + 1);
+    }
+
+    /**
+     * @return this snapshot
+     */
+    @Override
+    public HierarchySnapshot snapshot() {
+        return this;
+    }
+
+    /**
+     * Snapshots are immutable; use {@link #withManager(Manager)} instead.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addManager(Manager manager) {
+        throw new UnsupportedOperationException("HierarchySnapshot is immutable");
+    }
+
+    /**
+     * Retrieves a set of all managers already included in the hierarchy.
+     *
+     * @return a set of the managers already added to the hierarchy. If no managers have been added yet,
+     * returns an empty set.
+     */
+    @Override
+    public Set<Manager> getManagers() {
+        return hierarchy.keySet();
+    }
+
+    /**
+     * Check if the given manager has been added to the hierarchy.
+     *
+     * @param manager the manager to check for presence in the hierarchy.
+     * @return true if the manager is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasManager(Manager manager) {
+        return hierarchy.containsKey(manager);
+    }
+
+    /**
+     * Given a manager, retrieve the set of employees who report directly to that manager.
+     *
+     * @param manager the manager whose underlings are to be retrieved.
+     * @return a set of employees in the hierarchy for which the given manager is their direct superior.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> getUnderlings(Manager manager) {
+        Set<Employee> result = hierarchy.get(manager);
+        return result == null ? PersistentHashSet.<Employee>empty() : result;
+    }
+
+    /**
+     * Snapshots are immutable; use {@link #withEmployee(Employee)} instead.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addEmployee(Employee employee) {
+        throw new UnsupportedOperationException("HierarchySnapshot is immutable");
+    }
+
+    /**
+     * @return the set of all employees in the hierarchy
+     */
+    @Override
+    public Set<Employee> getEmployees() {
+        return members.keySet();
+    }
+
+    /**
+     * Finds the member of the hierarchy with the given id.
+     *
+     * @param id the id of the employee to find
+     * @return the employee in the hierarchy with the given id, or null if there is none
+     */
+    @Override
+    public Employee getEmployee(long id) {
+        return members.keyOf(new IdKey(id));
+    }
+
+    /**
+     * Check if the given employee is present in the hierarchy. If the employee has been added as
+     * a manager or as an employee, return true. If not, return false.
+     *
+     * @param employee the employee to check for presence in the hierarchy
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasEmployee(Employee employee) {
+        return members.containsKey(employee);
+    }
+
+    /**
+     * Returns a representation of the management hierarchy as a map of managers to sets of employees,
+     * representing direct management relationships, i.e. all employees in a given manager's set should
+     * have that manager in its manager field.
+     *
+     * @return the entire management hierarchy as a map from managers to the set of employees directly under
+     * their supervision.
+     */
+    @Override
+    public Map<Manager, Set<Employee>> getHierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * Returns the chain of command for a given employee, represented by a list of managers. The first
+     * element of the list should be the given employee's direct manager, the second element should be
+     * that manager's direct manager, and so on.
+     *
+     * @param employee the employee whose chain of command is to be retrieved
+     * @return a list of managers that represents the chain of command for the given employee.
+     * If the employee is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    public List<Manager> getChainOfCommand(Employee employee) {
+        List<Manager> result = new ArrayList<>();
+        if (hasEmployee(employee)) {
+            Manager next = members.get(employee);
+            while (hasManager(next) && result.size() < hierarchy.size()) {
+                result.add(next);
+                next = members.get(next);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return a snapshot at the given version with the given employee recorded as a member and filed under
+     * its manager, or under the managers still waiting to join if its manager is not present
+     */
+    private HierarchySnapshot file(Employee employee, long newVersion) {
+        Manager manager = employee.getManager();
+        PersistentHashMap<Employee, Manager> newMembers = members.plus(employee, manager);
+        if (manager == null) {
+            return new HierarchySnapshot(newVersion, newMembers, hierarchy, waiting);
+        }
+        if (hierarchy.containsKey(manager)) {
+            return new HierarchySnapshot(newVersion, newMembers,
+                    hierarchy.plus(manager, ((PersistentHashSet<Employee>) hierarchy.get(manager)).plus(employee)), waiting);
+        }
+        PersistentHashSet<Employee> reports = (PersistentHashSet<Employee>) waiting.get(manager);
+        return new HierarchySnapshot(newVersion, newMembers, hierarchy,
+                waiting.plus(manager, (reports == null ? PersistentHashSet.<Employee>empty() : reports).plus(employee)));
+    }
+
+    /**
+     * Looks up a member by id: it hashes like an employee and equals any employee with its id.
+     */
+    private static final class IdKey {
+        private final long id;
+
+        IdKey(long id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Employee && ((Employee) o).getId() == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id);
+        }
+    }
+}
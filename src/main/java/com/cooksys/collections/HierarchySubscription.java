@@ -0,0 +1,13 @@
+package com.cooksys.collections;
+
+/**
+ * A listener's registration with a {@link ManagementHierarchy}. Closing the subscription stops further
+ * deliveries to the listener.
+ */
+public interface HierarchySubscription extends AutoCloseable {
+    /**
+     * Stops delivering changes to the listener. Closing a subscription more than once has no effect.
+     */
+    @Override
+    void close();
+}
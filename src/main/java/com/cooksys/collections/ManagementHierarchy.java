@@ -1,8 +1,20 @@
 package com.cooksys.collections;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface ManagementHierarchy {
 
@@ -41,6 +53,23 @@ public interface ManagementHierarchy {
      */
     Set<Employee> getUnderlings(Manager manager);
 
+    /**
+     * Retrieves the direct reports of many managers at once, asking for each distinct manager only once.
+     *
+     * @param managers the managers whose underlings are to be retrieved
+     * @return a map from each of the given managers to their underlings, as {@link #getUnderlings(Manager)}
+     * would list them
+     */
+    default Map<Manager, Set<Employee>> getUnderlings(Collection<? extends Manager> managers) {
+        Map<Manager, Set<Employee>> result = new HashMap<>(Math.max(16, (int) (managers.size() / 0.75f) + 1));
+        for (Manager manager : managers) {
+            if (!result.containsKey(manager)) {
+                result.put(manager, getUnderlings(manager));
+            }
+        }
+        return result;
+    }
+
     /**
      * Adds a given employee to the hierarchy. If the employee's manager is present in the hierarchy,
      * include the employee and return true. Otherwise, return false and leave the hierarchy unchanged.
@@ -55,6 +84,21 @@ public interface ManagementHierarchy {
      */
     Set<Employee> getEmployees();
 
+    /**
+     * Finds the member of the hierarchy with the given id.
+     *
+     * @param id the id of the employee to find
+     * @return the employee in the hierarchy with the given id, or null if there is none
+     */
+    default Employee getEmployee(long id) {
+        for (Employee e : getEmployees()) {
+            if (e.getId() == id) {
+                return e;
+            }
+        }
+        return null;
+    }
+
     /**
      * Check if the given employee is present in the hierarchy. If the employee has been added as
      * a manager or as an employee, return true. If not, return false.
@@ -85,4 +129,337 @@ public interface ManagementHierarchy {
      */
     List<Manager> getChainOfCommand(Employee employee);
 
+    /**
+     * Retrieves the chains of command of many employees at once. Each manager is looked at once per batch
+     * however many of the employees report to them, and the chains are {@link ChainOfCommand}s sharing the
+     * path above every manager they have in common, so a batch costs as much as the part of the hierarchy it
+     * touches rather than the sum of the chains' lengths.
+     *
+     * The chains follow the employees' manager fields up to the first manager not present in the hierarchy.
+     * Implementations keeping their own links between members override this to follow those instead.
+     *
+     * @param employees the employees whose chains of command are to be retrieved
+     * @return a map from each of the given employees to their chain of command, as
+     * {@link #getChainOfCommand(Employee)} would list it; employees not present in the hierarchy map to an
+     * empty chain
+     */
+    default Map<Employee, List<Manager>> getChainsOfCommand(Collection<? extends Employee> employees) {
+        Map<Employee, List<Manager>> result = new HashMap<>(Math.max(16, (int) (employees.size() / 0.75f) + 1));
+        // the chain of someone reporting to each manager reached so far, i.e. one starting with the manager
+        Map<Manager, ChainOfCommand> chains = new HashMap<>();
+        Deque<Manager> path = new ArrayDeque<>();
+        for (Employee employee : employees) {
+            if (result.containsKey(employee)) {
+                continue;
+            }
+            if (employee == null || !hasEmployee(employee)) {
+                result.put(employee, ChainOfCommand.empty());
+                continue;
+            }
+            ChainOfCommand chain = ChainOfCommand.empty();
+            for (Manager m = employee.getManager(); m != null; m = m.getManager()) {
+                ChainOfCommand known = chains.get(m);
+                if (known != null) {
+                    chain = known;
+                    break;
+                }
+                if (!hasManager(m)) {
+                    break;
+                }
+                // a manager already on the path means the manager fields loop; cut the chain there
+                chains.put(m, ChainOfCommand.empty());
+                path.push(m);
+            }
+            while (!path.isEmpty()) {
+                Manager m = path.pop();
+                chains.put(m, chain = chain.under(m));
+            }
+            result.put(employee, chain);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first manager shared by the chains of command of two employees, i.e. the closest manager
+     * that both employees ultimately report to.
+     *
+     * @param first  one of the employees
+     * @param second the other employee
+     * @return the lowest manager present in both chains of command, or null if the chains do not meet or
+     * either employee is not present in the hierarchy.
+     */
+    default Manager lowestCommonManager(Employee first, Employee second) {
+        Set<Manager> shared = new HashSet<>(getChainOfCommand(second));
+        for (Manager m : getChainOfCommand(first)) {
+            if (shared.contains(m)) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check if the given manager appears anywhere in the given employee's chain of command.
+     *
+     * @param employee the employee whose chain of command is to be searched
+     * @param manager  the manager to look for
+     * @return true if the employee reports to the manager, directly or indirectly, false otherwise.
+     */
+    default boolean isInChainOfCommand(Employee employee, Manager manager) {
+        return manager != null && getChainOfCommand(employee).contains(manager);
+    }
+
+    /**
+     * Given a manager, retrieve every employee who reports to that manager, directly or indirectly.
+     *
+     * @param manager the manager whose organization is to be retrieved.
+     * @return a set of employees in the hierarchy that have the given manager in their chain of command.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    default Set<Employee> getAllReports(Manager manager) {
+        Set<Employee> result = new HashSet<>();
+        Deque<Manager> pending = new ArrayDeque<>();
+        pending.push(manager);
+        while (!pending.isEmpty()) {
+            for (Employee e : getUnderlings(pending.pop())) {
+                if (result.add(e) && e instanceof Manager) {
+                    pending.push((Manager) e);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param manager the manager whose organization is to be counted.
+     * @return the number of employees who report to the given manager, directly or indirectly, or 0 if the
+     * manager is not present in the hierarchy.
+     */
+    default int getHeadcount(Manager manager) {
+        return getAllReports(manager).size();
+    }
+
+    /**
+     * Finds every employee in the hierarchy holding the given title.
+     *
+     * @param title the title to look for
+     * @return a set of the employees in the hierarchy whose title equals the given title
+     */
+    default Set<Employee> findByTitle(String title) {
+        Set<Employee> result = new HashSet<>();
+        for (Employee e : getEmployees()) {
+            if (Objects.equals(title, e.getTitle())) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds every employee in the given manager's organization holding the given title.
+     *
+     * @param title   the title to look for
+     * @param manager the manager whose organization is to be searched
+     * @return a set of the employees reporting to the manager, directly or indirectly, whose title equals
+     * the given title. If the manager is not present in the hierarchy, returns an empty set.
+     */
+    default Set<Employee> findByTitle(String title, Manager manager) {
+        Set<Employee> result = new HashSet<>();
+        for (Employee e : getAllReports(manager)) {
+            if (Objects.equals(title, e.getTitle())) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds every employee in the hierarchy whose name starts with the given prefix, ignoring case.
+     *
+     * @param prefix the start of the names to look for
+     * @return a list of the matching employees, ordered by name without regard to case
+     */
+    default List<Employee> findByNamePrefix(String prefix) {
+        return namesStartingWith(prefix, getEmployees());
+    }
+
+    /**
+     * Finds every employee in the given manager's organization whose name starts with the given prefix,
+     * ignoring case.
+     *
+     * @param prefix  the start of the names to look for
+     * @param manager the manager whose organization is to be searched
+     * @return a list of the matching employees reporting to the manager, directly or indirectly, ordered by
+     * name without regard to case. If the manager is not present in the hierarchy, returns an empty list.
+     */
+    default List<Employee> findByNamePrefix(String prefix, Manager manager) {
+        return namesStartingWith(prefix, getAllReports(manager));
+    }
+
+    /**
+     * @param prefix    the start of the names to look for
+     * @param employees the employees to search
+     * @return the given employees whose name starts with the given prefix, ignoring case, ordered by name
+     * without regard to case
+     */
+    static List<Employee> namesStartingWith(String prefix, Collection<? extends Employee> employees) {
+        List<Employee> result = new ArrayList<>();
+        for (Employee e : employees) {
+            String name = e.getName();
+            if (name != null && name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                result.add(e);
+            }
+        }
+        result.sort(Comparator.comparing(Employee::getName, String.CASE_INSENSITIVE_ORDER));
+        return result;
+    }
+
+    /**
+     * Streams every employee in the hierarchy, as {@link #getEmployees()} would list them. The stream reads
+     * the hierarchy as it is consumed, so the hierarchy must not change until the stream is done with.
+     *
+     * @return a stream of all employees in the hierarchy
+     */
+    default Stream<Employee> employees() {
+        return getEmployees().stream();
+    }
+
+    /**
+     * Streams the employees who report directly to the given manager, as {@link #getUnderlings(Manager)}
+     * would list them. The hierarchy must not change until the stream is done with.
+     *
+     * @param manager the manager whose underlings are to be streamed
+     * @return a stream of the manager's direct reports, empty if the manager is not present in the hierarchy
+     */
+    default Stream<Employee> underlings(Manager manager) {
+        return getUnderlings(manager).stream();
+    }
+
+    /**
+     * Streams every employee who reports to the given manager, directly or indirectly, as
+     * {@link #getAllReports(Manager)} would list them. The organization is walked as the stream is consumed,
+     * so short-circuiting operations such as {@code findFirst} or {@code limit} only visit what they need.
+     * The hierarchy must not change until the stream is done with.
+     *
+     * @param manager the manager whose organization is to be streamed
+     * @return a stream of the manager's organization, empty if the manager is not present in the hierarchy
+     */
+    default Stream<Employee> allReports(Manager manager) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new ReportIterator(this, manager),
+                Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Streams the chain of command of the given employee, starting with their direct manager, as
+     * {@link #getChainOfCommand(Employee)} would list it. The hierarchy must not change until the stream is
+     * done with.
+     *
+     * @param employee the employee whose chain of command is to be streamed
+     * @return an ordered stream of the employee's managers, empty if the employee is not present in the
+     * hierarchy
+     */
+    default Stream<Manager> chainOfCommand(Employee employee) {
+        return getChainOfCommand(employee).stream();
+    }
+
+    /**
+     * Captures the current state of the hierarchy as an immutable snapshot. Later changes to the hierarchy
+     * are not reflected in the snapshot.
+     *
+     * @return a snapshot of the managers and employees currently in the hierarchy
+     */
+    default HierarchySnapshot snapshot() {
+        return HierarchySnapshot.of(this);
+    }
+
+    /**
+     * Removes a given employee from the hierarchy. A manager can only be removed once nobody is filed
+     * under them any more; transfer their reports first. A removed manager is no longer registered.
+     * This is an optional operation.
+     *
+     * @param employee the employee to remove from the hierarchy
+     * @return true if the employee was removed, false if they were not present or still have reports.
+     * @throws UnsupportedOperationException if the hierarchy cannot remove employees
+     */
+    default boolean removeEmployee(Employee employee) {
+        throw new UnsupportedOperationException("removeEmployee");
+    }
+
+    /**
+     * Moves a given employee, together with everyone who reports to them, under a new manager, and records
+     * the new manager in the employee's manager field. The move is refused if the new manager reports to
+     * the employee, since the chain of command would then loop. This is an optional operation.
+     *
+     * @param employee   the employee to move
+     * @param newManager the manager the employee should report to from now on
+     * @return true if the employee was moved, false if either person is not present in the hierarchy, the
+     * employee already reports to the new manager, or the move would close a loop.
+     * @throws UnsupportedOperationException if the hierarchy cannot transfer employees
+     */
+    default boolean transferEmployee(Employee employee, Manager newManager) {
+        throw new UnsupportedOperationException("transferEmployee");
+    }
+
+    /**
+     * Replaces a given grunt with a new {@link Manager} of the same id, name, title and manager, registered as
+     * a manager in the same place in the hierarchy. The grunt itself is no longer present in the hierarchy
+     * afterwards. This is an optional operation.
+     *
+     * @param grunt the grunt to promote
+     * @return the manager that took the grunt's place, or null if the grunt is not present in the hierarchy.
+     * @throws UnsupportedOperationException if the hierarchy cannot promote employees
+     */
+    default Manager promoteToManager(Grunt grunt) {
+        throw new UnsupportedOperationException("promoteToManager");
+    }
+
+    /**
+     * Changes a given employee's title and reports the change to subscribers. This is an optional
+     * operation.
+     *
+     * @param employee the employee whose title is to be changed
+     * @param title    the new title
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     * @throws UnsupportedOperationException if the hierarchy cannot retitle employees
+     */
+    default boolean retitleEmployee(Employee employee, String title) {
+        throw new UnsupportedOperationException("retitleEmployee");
+    }
+
+    /**
+     * @return the sequence number of the last change made to the hierarchy, or 0 if nothing has changed
+     * @throws UnsupportedOperationException if the hierarchy does not report changes
+     */
+    default long getSequence() {
+        throw new UnsupportedOperationException("getSequence");
+    }
+
+    /**
+     * Registers a listener for every change made to the hierarchy from now on. This is an optional
+     * operation.
+     *
+     * @param listener the listener to call with each batch of changes
+     * @return the subscription, to be closed when the listener is no longer interested
+     * @throws UnsupportedOperationException if the hierarchy does not report changes
+     */
+    default HierarchySubscription subscribe(HierarchyListener listener) {
+        return subscribe(listener, getSequence());
+    }
+
+    /**
+     * Registers a listener for every change after the given sequence number. Changes the hierarchy still
+     * remembers are delivered before this method returns; later ones as they happen. This is an optional
+     * operation.
+     *
+     * @param listener      the listener to call with each batch of changes
+     * @param afterSequence the sequence number of the last change the listener has already seen
+     * @return the subscription, to be closed when the listener is no longer interested
+     * @throws IllegalArgumentException      if the sequence number is ahead of the hierarchy
+     * @throws IllegalStateException         if the hierarchy no longer remembers the changes after the given
+     *                                       sequence number; the listener has to start over from a snapshot
+     * @throws UnsupportedOperationException if the hierarchy does not report changes
+     */
+    default HierarchySubscription subscribe(HierarchyListener listener, long afterSequence) {
+        throw new UnsupportedOperationException("subscribe");
+    }
 }
@@ -0,0 +1,60 @@
+package com.cooksys.collections;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Walks a manager's organization depth first through {@link ManagementHierarchy#getUnderlings(Manager)},
+ * asking for each manager's reports only once the walk reaches them. Managers already visited are
+ * remembered, so the walk ends even if the reports of the hierarchy loop.
+ */
+final class ReportIterator implements Iterator<Employee> {
+    private final ManagementHierarchy hierarchy;
+    private final Deque<Iterator<Employee>> pending = new ArrayDeque<>();
+    private final Set<Manager> visited = new HashSet<>();
+    private Employee next;
+
+    ReportIterator(ManagementHierarchy hierarchy, Manager manager) {
+        this.hierarchy = hierarchy;
+        if (manager != null) {
+            visited.add(manager);
+            pending.push(hierarchy.getUnderlings(manager).iterator());
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !pending.isEmpty()) {
+            Iterator<Employee> reports = pending.peek();
+            if (!reports.hasNext()) {
+                pending.pop();
+                continue;
+            }
+            Employee e = reports.next();
+            if (!(e instanceof Manager)) {
+                next = e;
+            } else if (visited.add((Manager) e)) {
+                next = e;
+                Set<Employee> underlings = hierarchy.getUnderlings((Manager) e);
+                if (!underlings.isEmpty()) {
+                    pending.push(underlings.iterator());
+                }
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Employee next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Employee result = next;
+        next = null;
+        return result;
+    }
+}
@@ -0,0 +1,725 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.ChainOfCommand;
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.HierarchyChange;
+import com.cooksys.collections.HierarchyListener;
+import com.cooksys.collections.HierarchySnapshot;
+import com.cooksys.collections.HierarchySubscription;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ManagementHierarchy} decorator that remembers the results of {@link #getChainOfCommand(Employee)},
+ * {@link #getUnderlings(Manager)}, {@link #getAllReports(Manager)} and {@link #getHeadcount(Manager)}, so that
+ * repeated queries for the same people are answered without calling the decorated hierarchy or allocating.
+ * The cache holds a bounded number of results and evicts the least recently used one when it is full.
+ *
+ * Changes invalidate only the results they can affect. When an employee joins, leaves or moves, the decorator
+ * drops the cached chains of command that contain the employee, the direct reports of their old and new
+ * manager, and the organizations of everyone above the old and new position; every other result stays
+ * cached. A reverse index from each manager to the cached chains running through them keeps this
+ * proportional to the number of results dropped.
+ *
+ * If the decorated hierarchy reports its changes, the decorator subscribes to them and so also sees changes
+ * made to the decorated hierarchy directly. Otherwise every change must be made through the decorator.
+ * Changes made behind the hierarchy's back, such as calling {@link Employee#setManager(Manager)}, are never
+ * seen.
+ *
+ * Cached results are shared between callers and cannot be modified. The decorator is as thread-safe as the
+ * hierarchy it decorates.
+ */
+public class CachingManagementHierarchy implements ManagementHierarchy {
+    /**
+     * The number of results cached by {@link #CachingManagementHierarchy(ManagementHierarchy)}.
+     */
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private enum Kind {
+        CHAIN, UNDERLINGS, ALL_REPORTS, HEADCOUNT
+    }
+
+    private final ManagementHierarchy delegate;
+    private final int capacity;
+    private final LinkedHashMap<Key, Object> cache;
+    private final Map<Employee, Set<Key>> chainsThrough = new HashMap<>();
+    private final HierarchySubscription subscription;
+    private long version;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param delegate the hierarchy to decorate
+     */
+    public CachingManagementHierarchy(ManagementHierarchy delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param delegate the hierarchy to decorate
+     * @param capacity the largest number of results to keep cached
+     */
+    public CachingManagementHierarchy(ManagementHierarchy delegate, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.delegate = delegate;
+        this.capacity = capacity;
+        cache = new LinkedHashMap<Key, Object>(Math.min(capacity, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                if (size() <= CachingManagementHierarchy.this.capacity) {
+                    return false;
+                }
+                forget(eldest.getKey(), eldest.getValue());
+                evictions.increment();
+                return true;
+            }
+        };
+        HierarchySubscription observed;
+        try {
+            observed = delegate.subscribe(changes -> {
+                for (HierarchyChange change : changes) {
+                    invalidate(change);
+                }
+            });
+        } catch (UnsupportedOperationException e) {
+            observed = null;
+        }
+        subscription = observed;
+    }
+
+    /**
+     * @return the hierarchy behind this decorator
+     */
+    public ManagementHierarchy getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return the number of queries answered from the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of queries passed on to the decorated hierarchy
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of results dropped to make room for newer ones
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of results dropped because a change could have affected them
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @return the number of results currently cached
+     */
+    public synchronized int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public synchronized void clear() {
+        invalidations.add(cache.size());
+        cache.clear();
+        chainsThrough.clear();
+        version++;
+    }
+
+    /**
+     * Stops following the changes of the decorated hierarchy, which is then no longer referenced by it.
+     * The decorator must not be used afterwards.
+     */
+    public void close() {
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * Adds a given manager to the hierarchy. If the manager is already included in the hierarchy,
+     * return false and leave the hierarchy unchanged. Otherwise, include the manager in the hierarchy
+     * and return true.
+     *
+     * @param manager the manager to add to the hierarchy.
+     * @return true if the manager was successfully added to the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean addManager(Manager manager) {
+        boolean added = delegate.addManager(manager);
+        if (added && subscription == null) {
+            registered(manager);
+        }
+        return added;
+    }
+
+    /**
+     * Retrieves a set of all managers already included in the hierarchy.
+     *
+     * @return a set of the managers already added to the hierarchy. If no managers have been added yet,
+     * returns an empty set.
+     */
+    @Override
+    public Set<Manager> getManagers() {
+        return delegate.getManagers();
+    }
+
+    /**
+     * Check if the given manager has been added to the hierarchy.
+     *
+     * @param manager the manager to check for presence in the hierarchy.
+     * @return true if the manager is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasManager(Manager manager) {
+        return delegate.hasManager(manager);
+    }
+
+    /**
+     * Given a manager, retrieve the set of employees who report directly to that manager.
+     *
+     * @param manager the manager whose underlings are to be retrieved.
+     * @return a set of employees in the hierarchy for which the given manager is their direct superior.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<Employee> getUnderlings(Manager manager) {
+        if (manager == null) {
+            return delegate.getUnderlings((Manager) null);
+        }
+        Key key = new Key(Kind.UNDERLINGS, manager);
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (Set<Employee>) cached;
+        }
+        long seen = currentVersion();
+        Set<Employee> result = Collections.unmodifiableSet(new HashSet<>(delegate.getUnderlings(manager)));
+        store(key, result, seen);
+        return result;
+    }
+
+    /**
+     * Adds a given employee to the hierarchy. If the employee's manager is present in the hierarchy,
+     * include the employee and return true. Otherwise, return false and leave the hierarchy unchanged.
+     *
+     * @param employee the employee to add to the hierarchy
+     * @return true if the employee was added successfully, false otherwise.
+     */
+    @Override
+    public boolean addEmployee(Employee employee) {
+        boolean added = delegate.addEmployee(employee);
+        if (added && subscription == null) {
+            moved(employee, null, employee.getManager(), false);
+        }
+        return added;
+    }
+
+    /**
+     * @return the set of all employees in the hierarchy
+     */
+    @Override
+    public Set<Employee> getEmployees() {
+        return delegate.getEmployees();
+    }
+
+    /**
+     * Finds the member of the hierarchy with the given id.
+     *
+     * @param id the id of the employee to find
+     * @return the employee in the hierarchy with the given id, or null if there is none
+     */
+    @Override
+    public Employee getEmployee(long id) {
+        return delegate.getEmployee(id);
+    }
+
+    /**
+     * Check if the given employee is present in the hierarchy. If the employee has been added as
+     * a manager or as an employee, return true. If not, return false.
+     *
+     * @param employee the employee to check for presence in the hierarchy
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasEmployee(Employee employee) {
+        return delegate.hasEmployee(employee);
+    }
+
+    /**
+     * Returns a representation of the management hierarchy as a map of managers to sets of employees,
+     * representing direct management relationships, i.e. all employees in a given manager's set should
+     * have that manager in its manager field.
+     *
+     * @return the entire management hierarchy as a map from managers to the set of employees directly under
+     * their supervision.
+     */
+    @Override
+    public Map<Manager, Set<Employee>> getHierarchy() {
+        return delegate.getHierarchy();
+    }
+
+    /**
+     * Returns the chain of command for a given employee, represented by a list of managers. The first
+     * element of the list should be the given employee's direct manager, the second element should be
+     * that manager's direct manager, and so on.
+     *
+     * @param employee the employee whose chain of command is to be retrieved
+     * @return a list of managers that represents the chain of command for the given employee.
+     * If the employee is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Manager> getChainOfCommand(Employee employee) {
+        if (employee == null) {
+            return delegate.getChainOfCommand(null);
+        }
+        Key key = new Key(Kind.CHAIN, employee);
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (List<Manager>) cached;
+        }
+        long seen = currentVersion();
+        List<Manager> result = delegate.getChainOfCommand(employee);
+        if (!(result instanceof ChainOfCommand)) {
+            result = Collections.unmodifiableList(new ArrayList<>(result));
+        }
+        store(key, result, seen);
+        return result;
+    }
+
+    /**
+     * Retrieves the chains of command of many employees at once. Each manager is looked at once per batch
+     * however many of the employees report to them, and the chains share the path above every manager they
+     * have in common.
+     *
+     * @param employees the employees whose chains of command are to be retrieved
+     * @return a map from each of the given employees to their chain of command, as
+     * {@link #getChainOfCommand(Employee)} would list it; employees not present in the hierarchy map to an
+     * empty chain
+     */
+    @Override
+    public Map<Employee, List<Manager>> getChainsOfCommand(Collection<? extends Employee> employees) {
+        return delegate.getChainsOfCommand(employees);
+    }
+
+    /**
+     * Finds the first manager shared by the chains of command of two employees, i.e. the closest manager
+     * that both employees ultimately report to.
+     *
+     * @param first  one of the employees
+     * @param second the other employee
+     * @return the lowest manager present in both chains of command, or null if the chains do not meet or
+     * either employee is not present in the hierarchy.
+     */
+    @Override
+    public Manager lowestCommonManager(Employee first, Employee second) {
+        return delegate.lowestCommonManager(first, second);
+    }
+
+    /**
+     * Check if the given manager appears anywhere in the given employee's chain of command.
+     *
+     * @param employee the employee whose chain of command is to be searched
+     * @param manager  the manager to look for
+     * @return true if the employee reports to the manager, directly or indirectly, false otherwise.
+     */
+    @Override
+    public boolean isInChainOfCommand(Employee employee, Manager manager) {
+        return delegate.isInChainOfCommand(employee, manager);
+    }
+
+    /**
+     * Given a manager, retrieve every employee who reports to that manager, directly or indirectly.
+     *
+     * @param manager the manager whose organization is to be retrieved.
+     * @return a set of employees in the hierarchy that have the given manager in their chain of command.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<Employee> getAllReports(Manager manager) {
+        if (manager == null) {
+            return delegate.getAllReports(null);
+        }
+        Key key = new Key(Kind.ALL_REPORTS, manager);
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (Set<Employee>) cached;
+        }
+        long seen = currentVersion();
+        Set<Employee> result = Collections.unmodifiableSet(new HashSet<>(delegate.getAllReports(manager)));
+        store(key, result, seen);
+        return result;
+    }
+
+    /**
+     * @param manager the manager whose organization is to be counted.
+     * @return the number of employees who report to the given manager, directly or indirectly, or 0 if the
+     * manager is not present in the hierarchy.
+     */
+    @Override
+    public int getHeadcount(Manager manager) {
+        if (manager == null) {
+            return delegate.getHeadcount(null);
+        }
+        Key key = new Key(Kind.HEADCOUNT, manager);
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (Integer) cached;
+        }
+        long seen = currentVersion();
+        int result = delegate.getHeadcount(manager);
+        store(key, result, seen);
+        return result;
+    }
+
+    /**
+     * Captures the current state of the hierarchy as an immutable snapshot. Later changes to the hierarchy
+     * are not reflected in the snapshot.
+     *
+     * @return a snapshot of the managers and employees currently in the hierarchy
+     */
+    @Override
+    public HierarchySnapshot snapshot() {
+        return delegate.snapshot();
+    }
+
+    /**
+     * Finds every employee in the hierarchy holding the given title.
+     *
+     * @param title the title to look for
+     * @return a set of the employees in the hierarchy whose title equals the given title
+     */
+    @Override
+    public Set<Employee> findByTitle(String title) {
+        return delegate.findByTitle(title);
+    }
+
+    /**
+     * Finds every employee in the given manager's organization holding the given title.
+     *
+     * @param title   the title to look for
+     * @param manager the manager whose organization is to be searched
+     * @return a set of the employees reporting to the manager, directly or indirectly, whose title equals
+     * the given title. If the manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> findByTitle(String title, Manager manager) {
+        return delegate.findByTitle(title, manager);
+    }
+
+    /**
+     * Finds every employee in the hierarchy whose name starts with the given prefix, ignoring case.
+     *
+     * @param prefix the start of the names to look for
+     * @return a list of the matching employees, ordered by name without regard to case
+     */
+    @Override
+    public List<Employee> findByNamePrefix(String prefix) {
+        return delegate.findByNamePrefix(prefix);
+    }
+
+    /**
+     * Finds every employee in the given manager's organization whose name starts with the given prefix,
+     * ignoring case.
+     *
+     * @param prefix  the start of the names to look for
+     * @param manager the manager whose organization is to be searched
+     * @return a list of the matching employees reporting to the manager, directly or indirectly, ordered by
+     * name without regard to case. If the manager is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    public List<Employee> findByNamePrefix(String prefix, Manager manager) {
+        return delegate.findByNamePrefix(prefix, manager);
+    }
+
+    /**
+     * Removes a given employee from the hierarchy. A manager can only be removed once nobody is filed
+     * under them any more; transfer their reports first. A removed manager is no longer registered.
+     *
+     * @param employee the employee to remove from the hierarchy
+     * @return true if the employee was removed, false if they were not present or still have reports.
+     */
+    @Override
+    public boolean removeEmployee(Employee employee) {
+        Manager manager = filedUnder(employee);
+        boolean removed = delegate.removeEmployee(employee);
+        if (removed && subscription == null) {
+            moved(employee, manager, null, true);
+        }
+        return removed;
+    }
+
+    /**
+     * Moves a given employee, together with everyone who reports to them, under a new manager, and records
+     * the new manager in the employee's manager field. The move is refused if the new manager reports to
+     * the employee, since the chain of command would then loop.
+     *
+     * @param employee   the employee to move
+     * @param newManager the manager the employee should report to from now on
+     * @return true if the employee was moved, false if either person is not present in the hierarchy, the
+     * employee already reports to the new manager, or the move would close a loop.
+     */
+    @Override
+    public boolean transferEmployee(Employee employee, Manager newManager) {
+        Manager manager = filedUnder(employee);
+        boolean moved = delegate.transferEmployee(employee, newManager);
+        if (moved && subscription == null) {
+            moved(employee, manager, newManager, false);
+        }
+        return moved;
+    }
+
+    /**
+     * Replaces a given grunt with a new {@link Manager} of the same id, name, title and manager, registered as
+     * a manager in the same place in the hierarchy. The grunt itself is no longer present in the hierarchy
+     * afterwards.
+     *
+     * @param grunt the grunt to promote
+     * @return the manager that took the grunt's place, or null if the grunt is not present in the hierarchy.
+     */
+    @Override
+    public Manager promoteToManager(Grunt grunt) {
+        Manager manager = filedUnder(grunt);
+        Manager promoted = delegate.promoteToManager(grunt);
+        if (promoted != null && subscription == null) {
+            moved(grunt, manager, null, true);
+            registered(promoted);
+        }
+        return promoted;
+    }
+
+    /**
+     * Changes a given employee's title. Cached results hold employees rather than their titles, so nothing
+     * is invalidated.
+     *
+     * @param employee the employee whose title is to be changed
+     * @param title    the new title
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean retitleEmployee(Employee employee, String title) {
+        return delegate.retitleEmployee(employee, title);
+    }
+
+    /**
+     * @return the sequence number of the last change made to the decorated hierarchy
+     */
+    @Override
+    public long getSequence() {
+        return delegate.getSequence();
+    }
+
+    /**
+     * Registers a listener with the decorated hierarchy.
+     *
+     * @param listener      the listener to call with each batch of changes
+     * @param afterSequence the sequence number of the last change the listener has already seen
+     * @return the subscription, to be closed when the listener is no longer interested
+     */
+    @Override
+    public HierarchySubscription subscribe(HierarchyListener listener, long afterSequence) {
+        return delegate.subscribe(listener, afterSequence);
+    }
+
+    /**
+     * Finds the manager the decorated hierarchy has an employee filed under, which is the one whose cached
+     * results a change to the employee makes stale. Only needed when the decorated hierarchy does not report
+     * its changes, since otherwise they name the previous manager themselves. The employee's manager field is
+     * not used, as it may have been changed behind the hierarchy's back.
+     */
+    private Manager filedUnder(Employee employee) {
+        if (employee == null || subscription != null) {
+            return null;
+        }
+        List<Manager> chain = delegate.getChainOfCommand(employee);
+        return chain.isEmpty() ? null : chain.get(0);
+    }
+
+    private synchronized Object lookup(Key key) {
+        Object cached = cache.get(key);
+        if (cached != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return cached;
+    }
+
+    private synchronized long currentVersion() {
+        return version;
+    }
+
+    /**
+     * Caches a result computed while the cache was at the given version. If anything was invalidated in the
+     * meantime the result may already be stale, and is dropped.
+     */
+    private synchronized void store(Key key, Object value, long seen) {
+        if (version != seen) {
+            return;
+        }
+        Object previous = cache.put(key, value);
+        if (previous != null) {
+            forget(key, previous);
+        }
+        if (key.kind == Kind.CHAIN) {
+            link(key.person, key);
+            for (Object m : (List<?>) value) {
+                link((Employee) m, key);
+            }
+        }
+    }
+
+    private void invalidate(HierarchyChange change) {
+        switch (change.getType()) {
+            case ADDED:
+                if (change.isRegisteredManager()) {
+                    registered((Manager) change.getEmployee());
+                } else {
+                    moved(change.getEmployee(), null, change.getManager(), false);
+                }
+                break;
+            case REMOVED:
+                moved(change.getEmployee(), change.getPreviousManager(), null, true);
+                break;
+            case MOVED:
+                moved(change.getEmployee(), change.getPreviousManager(), change.getManager(), false);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Invalidates what an employee joining, leaving or moving can affect: chains of command through the
+     * employee, the direct reports of both managers, and the organizations above both positions.
+     *
+     * @param own whether the employee's own reports and organization are affected too
+     */
+    private synchronized void moved(Employee employee, Manager from, Manager to, boolean own) {
+        version++;
+        Set<Key> chains = chainsThrough.get(employee);
+        if (chains != null) {
+            for (Key key : new ArrayList<>(chains)) {
+                drop(key);
+            }
+        }
+        above(from);
+        above(to);
+        if (own && employee instanceof Manager) {
+            drop(new Key(Kind.UNDERLINGS, employee));
+            drop(new Key(Kind.ALL_REPORTS, employee));
+            drop(new Key(Kind.HEADCOUNT, employee));
+        }
+    }
+
+    /**
+     * Invalidates what registering a manager can affect: the manager's own results and position, and the
+     * chains of any reports who were waiting for the manager and are now attached below them.
+     */
+    private synchronized void registered(Manager manager) {
+        moved(manager, manager.getManager(), manager.getManager(), true);
+        for (Employee e : delegate.getUnderlings(manager)) {
+            moved(e, null, null, false);
+        }
+    }
+
+    private void above(Manager manager) {
+        if (manager == null) {
+            return;
+        }
+        drop(new Key(Kind.UNDERLINGS, manager));
+        drop(new Key(Kind.ALL_REPORTS, manager));
+        drop(new Key(Kind.HEADCOUNT, manager));
+        for (Manager m : delegate.getChainOfCommand(manager)) {
+            drop(new Key(Kind.ALL_REPORTS, m));
+            drop(new Key(Kind.HEADCOUNT, m));
+        }
+    }
+
+    private void drop(Key key) {
+        Object value = cache.remove(key);
+        if (value != null) {
+            forget(key, value);
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Removes a cached result from the reverse index.
+     */
+    private void forget(Key key, Object value) {
+        if (key.kind == Kind.CHAIN) {
+            unlink(key.person, key);
+            for (Object m : (List<?>) value) {
+                unlink((Employee) m, key);
+            }
+        }
+    }
+
+    private void link(Employee through, Key key) {
+        Set<Key> keys = chainsThrough.get(through);
+        if (keys == null) {
+            keys = new HashSet<>();
+            chainsThrough.put(through, keys);
+        }
+        keys.add(key);
+    }
+
+    private void unlink(Employee through, Key key) {
+        Set<Key> keys = chainsThrough.get(through);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            chainsThrough.remove(through);
+        }
+    }
+
+    private static final class Key {
+        final Kind kind;
+        final Employee person;
+
+        Key(Kind kind, Employee person) {
+            this.kind = kind;
+            this.person = person;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return kind == other.kind && person.equals(other.person);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * kind.hashCode() + person.hashCode();
+        }
+    }
+}
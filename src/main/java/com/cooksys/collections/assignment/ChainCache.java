@@ -0,0 +1,178 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.ChainOfCommand;
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.EmployeeListener;
+import com.cooksys.collections.Manager;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Remembers the chain of command of someone reporting to each manager, i.e. the manager followed by the
+ * manager's own chain, for hierarchies that find the manager above each manager either from their manager
+ * field or from where the hierarchy filed them. Every chain is built on
+ * the cached chain of the manager above, so all chains share their common part and a chain that has been
+ * looked up once is returned again without walking or allocating.
+ *
+ * A manager's chain stays cached until it is {@link #invalidate(Manager) invalidated}, which also drops the
+ * chains of everyone cached below them. The cache listens to the managers whose chains it holds and
+ * invalidates them itself when their manager field changes; the hierarchy invalidates a manager whenever it
+ * files them elsewhere or changes whether their chain stops at them, and {@link #forget(Manager) forgets} a
+ * manager who leaves it or is replaced.
+ *
+ * The cache relies on {@link EmployeeListener} to learn of changes made directly to a manager field, so it
+ * only caches the chains of managers who accept a listener. A manager whose implementation refuses one
+ * breaks the cache at that point: their chain, and every chain built below it, is walked afresh each time.
+ */
+final class ChainCache implements EmployeeListener {
+    private final Function<Manager, Manager> above;
+    private final Predicate<Manager> continues;
+    private final Map<Manager, ChainOfCommand> chains = new HashMap<>();
+    /**
+     * The managers whose cached chain was built on the chain of each manager, or cut short at them.
+     */
+    private final Map<Manager, Set<Manager>> dependents = new HashMap<>();
+    private final Set<Manager> watched = new HashSet<>();
+
+    /**
+     * @param above     gives the manager a given manager reports to, or null if they report to nobody
+     * @param continues tells whether a chain of command carries on through a given manager; a chain
+     *                  reaching a manager for whom it does not ends before them
+     */
+    ChainCache(Function<Manager, Manager> above, Predicate<Manager> continues) {
+        this.above = above;
+        this.continues = continues;
+    }
+
+    /**
+     * @param manager the manager of some employee, possibly null
+     * @return the employee's chain of command: the manager followed by the manager's own chain, or an empty
+     * chain if there is no manager or the chain does not continue through them
+     */
+    ChainOfCommand under(Manager manager) {
+        if (manager == null || !continues.test(manager)) {
+            return ChainOfCommand.empty();
+        }
+        ChainOfCommand chain = chains.get(manager);
+        if (chain != null) {
+            return chain;
+        }
+        Deque<Manager> path = new ArrayDeque<>();
+        Set<Manager> onPath = new HashSet<>();
+        chain = ChainOfCommand.empty();
+        boolean cacheable = true;
+        for (Manager m = manager; ; ) {
+            path.push(m);
+            onPath.add(m);
+            Manager next = above.apply(m);
+            if (next == null) {
+                break;
+            }
+            if (!continues.test(next) || onPath.contains(next)) {
+                // cut short here, so the chain changes should the manager above join or leave
+                depend(next, m);
+                break;
+            }
+            ChainOfCommand known = chains.get(next);
+            if (known != null) {
+                depend(next, m);
+                chain = known;
+                break;
+            }
+            m = next;
+        }
+        while (!path.isEmpty()) {
+            Manager m = path.pop();
+            chain = chain.under(m);
+            cacheable = cacheable && (watched.contains(m) || watch(m));
+            if (cacheable) {
+                chains.put(m, chain);
+                if (!path.isEmpty()) {
+                    depend(m, path.peek());
+                }
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * Drops the cached chain of the given manager and of everyone whose cached chain runs through them.
+     *
+     * @param manager the manager whose place in the hierarchy changed
+     */
+    void invalidate(Manager manager) {
+        Deque<Manager> pending = new ArrayDeque<>();
+        pending.push(manager);
+        while (!pending.isEmpty()) {
+            Manager m = pending.pop();
+            chains.remove(m);
+            Set<Manager> below = dependents.remove(m);
+            if (below != null) {
+                pending.addAll(below);
+            }
+        }
+    }
+
+    /**
+     * @return the number of managers whose chains are cached
+     */
+    int size() {
+        return chains.size();
+    }
+
+    /**
+     * Forgets every chain and stops listening to every manager, for a hierarchy replacing its contents.
+     */
+    void clear() {
+        for (Manager m : watched) {
+            m.removeListener(this);
+        }
+        watched.clear();
+        chains.clear();
+        dependents.clear();
+    }
+
+    /**
+     * Invalidates the given manager and stops listening to them, for a manager leaving the hierarchy.
+     *
+     * @param manager the manager to forget
+     */
+    void forget(Manager manager) {
+        invalidate(manager);
+        if (watched.remove(manager)) {
+            manager.removeListener(this);
+        }
+    }
+
+    @Override
+    public void managerChanged(Employee employee, Manager previousManager) {
+        if (employee instanceof Manager) {
+            invalidate((Manager) employee);
+        }
+    }
+
+    private void depend(Manager above, Manager below) {
+        Set<Manager> set = dependents.get(above);
+        if (set == null) {
+            set = new HashSet<>();
+            dependents.put(above, set);
+        }
+        set.add(below);
+    }
+
+    /**
+     * @return true if the manager accepted the cache as a listener
+     */
+    private boolean watch(Manager manager) {
+        try {
+            manager.addListener(this);
+        } catch (UnsupportedOperationException e) {
+            // changes to such managers would go unnoticed, so their chains are not cached
+            return false;
+        }
+        watched.add(manager);
+        return true;
+    }
+}
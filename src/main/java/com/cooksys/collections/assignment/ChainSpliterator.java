@@ -0,0 +1,59 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.Manager;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Walks a chain of command in {@link IndexedManagementHierarchy} upwards through the parent pointers of its
+ * nodes, starting at a given node and covering a given number of levels. Splitting jumps to the ancestor
+ * halfway up through the nodes' lifting tables, in O(log depth).
+ */
+final class ChainSpliterator implements Spliterator<Manager> {
+    private HierarchyNode position;
+    private int remaining;
+
+    /**
+     * @param first  the node of the first manager in the chain
+     * @param length the number of managers in the chain
+     */
+    ChainSpliterator(HierarchyNode first, int length) {
+        this.position = first;
+        this.remaining = length;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Manager> action) {
+        if (remaining == 0) {
+            return false;
+        }
+        HierarchyNode node = position;
+        position = node.parent;
+        remaining--;
+        action.accept((Manager) node.employee);
+        return true;
+    }
+
+    @Override
+    public Spliterator<Manager> trySplit() {
+        int half = remaining / 2;
+        if (half == 0) {
+            return null;
+        }
+        ChainSpliterator prefix = new ChainSpliterator(position, half);
+        position = position.ancestorAt(position.depth - half);
+        remaining -= half;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+    }
+}
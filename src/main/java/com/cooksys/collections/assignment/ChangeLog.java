@@ -0,0 +1,181 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.HierarchyChange;
+import com.cooksys.collections.HierarchyListener;
+import com.cooksys.collections.HierarchySubscription;
+import com.cooksys.collections.Manager;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Numbers, remembers and delivers the changes of one hierarchy. Changes recorded between {@link #begin()}
+ * and the matching {@link #end()} are delivered together as one batch once the outermost operation ends.
+ * The most recent changes are kept in a bounded history so that subscribers can resume from a sequence
+ * number.
+ *
+ * Listeners are called on the thread that ends the batch. A listener that changes the hierarchy from inside
+ * its callback has those changes delivered as the next batch, after every listener has seen the current one.
+ * A listener that throws does not stop the others from seeing the batch; once every batch has been
+ * delivered, the first failure is rethrown with any later ones attached as suppressed exceptions.
+ */
+final class ChangeLog {
+    /**
+     * The number of changes remembered for resuming subscribers.
+     */
+    static final int DEFAULT_HISTORY = 4096;
+
+    private final int historySize;
+    private final ArrayDeque<HierarchyChange> history = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private List<HierarchyChange> pending = new ArrayList<>();
+    private long sequence;
+    private int depth;
+    private boolean delivering;
+
+    ChangeLog() {
+        this(DEFAULT_HISTORY);
+    }
+
+    /**
+     * @param historySize the number of changes to remember for resuming subscribers
+     */
+    ChangeLog(int historySize) {
+        this.historySize = historySize;
+    }
+
+    /**
+     * @return the sequence number of the last change recorded
+     */
+    long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Opens a batch. Batches nest; only the outermost one delivers.
+     */
+    void begin() {
+        depth++;
+    }
+
+    /**
+     * Closes a batch, delivering its changes if it was the outermost one.
+     */
+    void end() {
+        if (--depth == 0) {
+            deliver();
+        }
+    }
+
+    void added(Employee employee, Manager manager, boolean registered) {
+        record(HierarchyChange.Type.ADDED, employee, null, manager, null, employee.getTitle(), registered);
+    }
+
+    void registered(Manager manager, Manager filedUnder) {
+        record(HierarchyChange.Type.ADDED, manager, filedUnder, filedUnder, manager.getTitle(), manager.getTitle(),
+                true);
+    }
+
+    void removed(Employee employee, Manager manager) {
+        record(HierarchyChange.Type.REMOVED, employee, manager, null, employee.getTitle(), employee.getTitle(),
+                false);
+    }
+
+    void moved(Employee employee, Manager from, Manager to, boolean registered) {
+        record(HierarchyChange.Type.MOVED, employee, from, to, employee.getTitle(), employee.getTitle(), registered);
+    }
+
+    void retitled(Employee employee, Manager manager, String from, String to, boolean registered) {
+        record(HierarchyChange.Type.TITLE_CHANGED, employee, manager, manager, from, to, registered);
+    }
+
+    void renamed(Employee employee, Manager manager, boolean registered) {
+        record(HierarchyChange.Type.RENAMED, employee, manager, manager, employee.getTitle(), employee.getTitle(),
+                registered);
+    }
+
+    HierarchySubscription subscribe(HierarchyListener listener, long afterSequence) {
+        if (listener == null) {
+            throw new NullPointerException("listener");
+        }
+        if (afterSequence > sequence) {
+            throw new IllegalArgumentException("Sequence " + afterSequence + " is ahead of " + sequence);
+        }
+        long oldest = history.isEmpty() ? sequence + 1 : history.peekFirst().getSequence();
+        if (afterSequence + 1 < oldest) {
+            throw new IllegalStateException("Changes after " + afterSequence + " are no longer available");
+        }
+        // changes still waiting for the current batch to end will be delivered with it
+        long delivered = sequence - pending.size();
+        List<HierarchyChange> missed = new ArrayList<>();
+        for (HierarchyChange change : history) {
+            if (change.getSequence() > afterSequence && change.getSequence() <= delivered) {
+                missed.add(change);
+            }
+        }
+        if (!missed.isEmpty()) {
+            listener.onChanges(Collections.unmodifiableList(missed));
+        }
+        Subscriber subscriber = new Subscriber(listener);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    private void record(HierarchyChange.Type type, Employee employee, Manager previousManager, Manager manager,
+                        String previousTitle, String title, boolean registered) {
+        HierarchyChange change = new HierarchyChange(++sequence, type, employee, previousManager, manager,
+                previousTitle, title, registered);
+        pending.add(change);
+        history.addLast(change);
+        if (history.size() > historySize) {
+            history.removeFirst();
+        }
+        if (depth == 0) {
+            deliver();
+        }
+    }
+
+    private void deliver() {
+        if (delivering) {
+            return;
+        }
+        delivering = true;
+        RuntimeException failure = null;
+        try {
+            while (!pending.isEmpty()) {
+                List<HierarchyChange> batch = Collections.unmodifiableList(pending);
+                pending = new ArrayList<>();
+                for (Subscriber subscriber : subscribers) {
+                    try {
+                        subscriber.listener.onChanges(batch);
+                    } catch (RuntimeException e) {
+                        if (failure == null) {
+                            failure = e;
+                        } else if (failure != e) {
+                            failure.addSuppressed(e);
+                        }
+                    }
+                }
+            }
+        } finally {
+            delivering = false;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private final class Subscriber implements HierarchySubscription {
+        private final HierarchyListener listener;
+
+        Subscriber(HierarchyListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void close() {
+            subscribers.remove(this);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Manager;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A memory-compact management hierarchy that works on dense {@code int} ids instead of objects. Every
+ * employee the hierarchy sees is interned to the next free id, and the tree itself lives in parallel
+ * primitive arrays: the manager each member was filed under, the resolved parent, and singly linked
+ * first-report/next-report lists. Apart from the employee objects themselves the hierarchy costs a few
+ * dozen bytes per person, and walking the tree touches only {@code int} arrays.
+ *
+ * Membership follows the same rules as {@link IndexedManagementHierarchy}: a member is filed under the
+ * manager recorded when it was added, and becomes attached to that manager once the manager is registered.
+ * Use {@link CompactManagementHierarchy} to work with this class through the
+ * {@link com.cooksys.collections.ManagementHierarchy} interface.
+ */
+public final class CompactHierarchy {
+    /**
+     * The id returned for employees that are not known to the hierarchy, and stored for missing links.
+     */
+    public static final int NONE = -1;
+
+    private Object[] keys;
+    private int[] slots;
+    private int idCount;
+
+    private Employee[] employees;
+    private int[] filedUnder;
+    private int[] parent;
+    private int[] firstReport;
+    private int[] nextReport;
+    private int[] reportCount;
+    private final BitSet members = new BitSet();
+    private final BitSet managers = new BitSet();
+    private int memberCount;
+    private int managerCount;
+
+    /**
+     * Creates an empty hierarchy.
+     */
+    public CompactHierarchy() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize the number of employees, managers included, the hierarchy is expected to hold
+     */
+    public CompactHierarchy(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        keys = new Object[tableSize];
+        slots = new int[tableSize];
+        employees = new Employee[capacity];
+        filedUnder = newLinks(capacity);
+        parent = newLinks(capacity);
+        firstReport = newLinks(capacity);
+        nextReport = newLinks(capacity);
+        reportCount = new int[capacity];
+    }
+
+    /**
+     * Registers the given manager, adding them as a member if they are not one already, and attaches any
+     * members that were filed under them while they were missing.
+     *
+     * @param manager the manager to register
+     * @return true if the manager was not registered before, false otherwise
+     */
+    public boolean addManager(Manager manager) {
+        if (manager == null) {
+            return false;
+        }
+        int id = intern(manager);
+        if (managers.get(id)) {
+            return false;
+        }
+        managers.set(id);
+        managerCount++;
+        if (!members.get(id)) {
+            join(id);
+        }
+        for (int r = firstReport[id]; r != NONE; r = nextReport[r]) {
+            if (parent[r] == NONE && !isAncestor(r, id)) {
+                parent[r] = id;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the given employee as a member under their manager, which must already be registered.
+     *
+     * @param employee the employee to add
+     * @return true if the employee was added, false if they were already a member or their manager is not
+     * registered
+     */
+    public boolean addEmployee(Employee employee) {
+        if (employee == null || !isManager(idOf(employee.getManager()))) {
+            return false;
+        }
+        int id = intern(employee);
+        if (members.get(id)) {
+            return false;
+        }
+        join(id);
+        return true;
+    }
+
+    /**
+     * @param employee the employee to look up
+     * @return the employee's id, or {@link #NONE} if the hierarchy has never seen the employee
+     */
+    public int idOf(Object employee) {
+        if (employee == null) {
+            return NONE;
+        }
+        int mask = keys.length - 1;
+        for (int i = hash(employee) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (employee.equals(keys[i])) {
+                return slots[i];
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @param id an id handed out by this hierarchy
+     * @return the employee with the given id
+     */
+    public Employee employee(int id) {
+        return employees[id];
+    }
+
+    /**
+     * @return the number of ids handed out so far. Every id is below this bound, but ids of people who are
+     * only known as someone's manager do not belong to members.
+     */
+    public int idCount() {
+        return idCount;
+    }
+
+    /**
+     * @param id an id, or {@link #NONE}
+     * @return true if the id belongs to a member of the hierarchy
+     */
+    public boolean isMember(int id) {
+        return id != NONE && members.get(id);
+    }
+
+    /**
+     * @param id an id, or {@link #NONE}
+     * @return true if the id belongs to a registered manager
+     */
+    public boolean isManager(int id) {
+        return id != NONE && managers.get(id);
+    }
+
+    /**
+     * @return the number of members
+     */
+    public int size() {
+        return memberCount;
+    }
+
+    /**
+     * @return the number of registered managers
+     */
+    public int managerCount() {
+        return managerCount;
+    }
+
+    /**
+     * @param id a member's id
+     * @return the id of the manager the member was filed under, whether registered or not, or {@link #NONE}
+     */
+    public int filedUnder(int id) {
+        return filedUnder[id];
+    }
+
+    /**
+     * @param id a member's id
+     * @return the id of the member's manager in the tree, or {@link #NONE} if the member is at the top
+     */
+    public int parent(int id) {
+        return parent[id];
+    }
+
+    /**
+     * @param id any id
+     * @return the first member filed under the given id, or {@link #NONE}
+     */
+    public int firstReport(int id) {
+        return firstReport[id];
+    }
+
+    /**
+     * @param id a member's id
+     * @return the next member filed under the same manager, or {@link #NONE}
+     */
+    public int nextReport(int id) {
+        return nextReport[id];
+    }
+
+    /**
+     * @param id any id
+     * @return the number of members filed under the given id
+     */
+    public int reportCount(int id) {
+        return reportCount[id];
+    }
+
+    /**
+     * @param id a member's id
+     * @return the number of managers above the member in the tree
+     */
+    public int depth(int id) {
+        int depth = 0;
+        for (int p = parent[id]; p != NONE; p = parent[p]) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * @param ancestor the id to look for
+     * @param id       a member's id
+     * @return true if the given ancestor is the member itself or appears above it in the tree
+     */
+    public boolean isAncestor(int ancestor, int id) {
+        for (int p = id; p != NONE; p = parent[p]) {
+            if (p == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the ids of all members, as a live view
+     */
+    BitSet members() {
+        return members;
+    }
+
+    /**
+     * @return the ids of all registered managers, as a live view
+     */
+    BitSet managers() {
+        return managers;
+    }
+
+    private void join(int id) {
+        members.set(id);
+        memberCount++;
+        Manager manager = employees[id].getManager();
+        if (manager == null) {
+            return;
+        }
+        int m = intern(manager);
+        filedUnder[id] = m;
+        nextReport[id] = firstReport[m];
+        firstReport[m] = id;
+        reportCount[m]++;
+        if (managers.get(m)) {
+            parent[id] = m;
+        }
+    }
+
+    private int intern(Employee employee) {
+        int mask = keys.length - 1;
+        int i = hash(employee) & mask;
+        for (; keys[i] != null; i = (i + 1) & mask) {
+            if (employee.equals(keys[i])) {
+                return slots[i];
+            }
+        }
+        int id = idCount++;
+        if (id == employees.length) {
+            grow();
+        }
+        employees[id] = employee;
+        keys[i] = employee;
+        slots[i] = id;
+        if (idCount * 2 > keys.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void grow() {
+        int capacity = employees.length * 2;
+        employees = Arrays.copyOf(employees, capacity);
+        filedUnder = growLinks(filedUnder, capacity);
+        parent = growLinks(parent, capacity);
+        firstReport = growLinks(firstReport, capacity);
+        nextReport = growLinks(nextReport, capacity);
+        reportCount = Arrays.copyOf(reportCount, capacity);
+    }
+
+    private void rehash() {
+        Object[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new Object[oldKeys.length * 2];
+        slots = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = hash(oldKeys[j]) & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                slots[i] = oldSlots[j];
+            }
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int[] newLinks(int capacity) {
+        int[] links = new int[capacity];
+        Arrays.fill(links, NONE);
+        return links;
+    }
+
+    private static int[] growLinks(int[] links, int capacity) {
+        int oldCapacity = links.length;
+        links = Arrays.copyOf(links, capacity);
+        Arrays.fill(links, oldCapacity, capacity, NONE);
+        return links;
+    }
+}
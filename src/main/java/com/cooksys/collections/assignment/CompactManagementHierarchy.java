@@ -0,0 +1,277 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+
+import java.util.*;
+
+/**
+ * A {@link ManagementHierarchy} backed by a {@link CompactHierarchy}. The adapter holds no state of its
+ * own: sets are read-only views that walk the compact core's arrays on demand, and chains of command are
+ * built by following the core's parent array.
+ */
+public class CompactManagementHierarchy implements ManagementHierarchy {
+    private final CompactHierarchy core;
+
+    /**
+     * Creates an empty hierarchy.
+     */
+    public CompactManagementHierarchy() {
+        this(new CompactHierarchy());
+    }
+
+    /**
+     * @param core the compact hierarchy to expose
+     */
+    public CompactManagementHierarchy(CompactHierarchy core) {
+        this.core = core;
+    }
+
+    /**
+     * @return the compact hierarchy behind this adapter
+     */
+    public CompactHierarchy getCore() {
+        return core;
+    }
+
+    /**
+     * Adds a given manager to the hierarchy. If the manager is already included in the hierarchy,
+     * return false and leave the hierarchy unchanged. Otherwise, include the manager in the hierarchy
+     * and return true.
+     *
+     * @param manager the manager to add to the hierarchy.
+     * @return true if the manager was successfully added to the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean addManager(Manager manager) {
+        return core.addManager(manager);
+    }
+
+    /**
+     * Retrieves a set of all managers already included in the hierarchy.
+     *
+     * @return a set of the managers already added to the hierarchy. If no managers have been added yet,
+     * returns an empty set.
+     */
+    @Override
+    public Set<Manager> getManagers() {
+        return new IdSet<Manager>(core.managers()) {
+            @Override
+            public int size() {
+                return core.managerCount();
+            }
+        };
+    }
+
+    /**
+     * Check if the given manager has been added to the hierarchy.
+     *
+     * @param manager the manager to check for presence in the hierarchy.
+     * @return true if the manager is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasManager(Manager manager) {
+        return core.isManager(core.idOf(manager));
+    }
+
+    /**
+     * Given a manager, retrieve the set of employees who report directly to that manager.
+     *
+     * @param manager the manager whose underlings are to be retrieved.
+     * @return a set of employees in the hierarchy for which the given manager is their direct superior.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> getUnderlings(Manager manager) {
+        int id = core.idOf(manager);
+        return core.isManager(id) ? new ReportSet(id) : Collections.<Employee>emptySet();
+    }
+
+    /**
+     * Adds a given employee to the hierarchy. If the employee's manager is present in the hierarchy,
+     * include the employee and return true. Otherwise, return false and leave the hierarchy unchanged.
+     *
+     * @param employee the employee to add to the hierarchy
+     * @return true if the employee was added successfully, false otherwise.
+     */
+    @Override
+    public boolean addEmployee(Employee employee) {
+        return core.addEmployee(employee);
+    }
+
+    /**
+     * @return the set of all employees in the hierarchy
+     */
+    @Override
+    public Set<Employee> getEmployees() {
+        return new IdSet<Employee>(core.members()) {
+            @Override
+            public int size() {
+                return core.size();
+            }
+        };
+    }
+
+    /**
+     * Finds the member of the hierarchy with the given id.
+     *
+     * @param id the id of the employee to find
+     * @return the employee in the hierarchy with the given id, or null if there is none
+     */
+    @Override
+    public Employee getEmployee(long id) {
+        int slot = core.idOf(new EmployeeKey(id));
+        return core.isMember(slot) ? core.employee(slot) : null;
+    }
+
+    /**
+     * Check if the given employee is present in the hierarchy. If the employee has been added as
+     * a manager or as an employee, return true. If not, return false.
+     *
+     * @param employee the employee to check for presence in the hierarchy
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasEmployee(Employee employee) {
+        return core.isMember(core.idOf(employee));
+    }
+
+    /**
+     * Returns a representation of the management hierarchy as a map of managers to sets of employees,
+     * representing direct management relationships, i.e. all employees in a given manager's set should
+     * have that manager in its manager field.
+     *
+     * @return the entire management hierarchy as a map from managers to the set of employees directly under
+     * their supervision.
+     */
+    @Override
+    public Map<Manager, Set<Employee>> getHierarchy() {
+        Map<Manager, Set<Employee>> result = new HashMap<>(core.managerCount() * 4 / 3 + 1);
+        BitSet managers = core.managers();
+        for (int id = managers.nextSetBit(0); id >= 0; id = managers.nextSetBit(id + 1)) {
+            result.put((Manager) core.employee(id), new ReportSet(id));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the chain of command for a given employee, represented by a list of managers. The first
+     * element of the list should be the given employee's direct manager, the second element should be
+     * that manager's direct manager, and so on.
+     *
+     * @param employee the employee whose chain of command is to be retrieved
+     * @return a list of managers that represents the chain of command for the given employee.
+     * If the employee is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    public List<Manager> getChainOfCommand(Employee employee) {
+        int id = core.idOf(employee);
+        if (!core.isMember(id)) {
+            return new ArrayList<>();
+        }
+        List<Manager> result = new ArrayList<>(core.depth(id));
+        for (int p = core.parent(id); p != CompactHierarchy.NONE; p = core.parent(p)) {
+            result.add((Manager) core.employee(p));
+        }
+        return result;
+    }
+
+    /**
+     * Check if the given manager appears anywhere in the given employee's chain of command.
+     *
+     * @param employee the employee whose chain of command is to be searched
+     * @param manager  the manager to look for
+     * @return true if the employee reports to the manager, directly or indirectly, false otherwise.
+     */
+    @Override
+    public boolean isInChainOfCommand(Employee employee, Manager manager) {
+        int id = core.idOf(employee);
+        int ancestor = core.idOf(manager);
+        return core.isMember(id) && core.isManager(ancestor) && id != ancestor && core.isAncestor(ancestor, id);
+    }
+
+    /**
+     * The employees whose ids are set in a bit set of the core.
+     */
+    private abstract class IdSet<E extends Employee> extends AbstractSet<E> {
+        private final BitSet ids;
+
+        IdSet(BitSet ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            int id = core.idOf(o);
+            return id != CompactHierarchy.NONE && ids.get(id);
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int next = ids.nextSetBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public E next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    E result = (E) core.employee(next);
+                    next = ids.nextSetBit(next + 1);
+                    return result;
+                }
+            };
+        }
+    }
+
+    /**
+     * The members filed under one manager, read from the core's report list.
+     */
+    private final class ReportSet extends AbstractSet<Employee> {
+        private final int manager;
+
+        ReportSet(int manager) {
+            this.manager = manager;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            int id = core.idOf(o);
+            return core.isMember(id) && core.filedUnder(id) == manager;
+        }
+
+        @Override
+        public Iterator<Employee> iterator() {
+            return new Iterator<Employee>() {
+                private int next = core.firstReport(manager);
+
+                @Override
+                public boolean hasNext() {
+                    return next != CompactHierarchy.NONE;
+                }
+
+                @Override
+                public Employee next() {
+                    if (next == CompactHierarchy.NONE) {
+                        throw new NoSuchElementException();
+                    }
+                    Employee result = core.employee(next);
+                    next = core.nextReport(next);
+                    return result;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return core.reportCount(manager);
+        }
+    }
+}
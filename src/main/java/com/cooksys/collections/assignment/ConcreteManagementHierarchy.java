@@ -1,10 +1,10 @@
 package com.cooksys.collections.assignment;
 
+import com.cooksys.collections.ChainOfCommand;
 import com.cooksys.collections.Employee;
 import com.cooksys.collections.ManagementHierarchy;
 import com.cooksys.collections.Manager;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -15,6 +15,12 @@ import java.util.Set;
 public class ConcreteManagementHierarchy implements ManagementHierarchy {
 	private HashSet<Manager> ms = new HashSet<>();
 	private HashSet<Employee> es = new HashSet<>();
+	/**
+	 * Chains follow the manager fields whether or not the managers were added,
+	 * so managers nobody reports to any more stay cached until the sets are
+	 * replaced or the cache outgrows the hierarchy, when it is cleared.
+	 */
+	private final ChainCache chains = new ChainCache(Manager::getManager, m -> true);
 
 	public HashSet<Manager> getHs() {
 		return ms;
@@ -22,6 +28,7 @@ public class ConcreteManagementHierarchy implements ManagementHierarchy {
 
 	public void setHs(HashSet<Manager> ms) {
 		this.ms = ms;
+		chains.clear();
 	}
 
 	public HashSet<Employee> getEs() {
@@ -30,6 +37,7 @@ public class ConcreteManagementHierarchy implements ManagementHierarchy {
 
 	public void setEs(HashSet<Employee> es) {
 		this.es = es;
+		chains.clear();
 	}
 
 	/**
@@ -122,6 +130,31 @@ public class ConcreteManagementHierarchy implements ManagementHierarchy {
 
 	}
 
+	/**
+	 * Finds the member of the hierarchy with the given id. The sets are
+	 * handed out to be changed directly, so there is no index to keep; this
+	 * scans them in place rather than copying them first.
+	 *
+	 * @param id
+	 *            the id of the employee to find
+	 * @return the employee in the hierarchy with the given id, or null if
+	 *         there is none
+	 */
+	@Override
+	public Employee getEmployee(long id) {
+		for (Employee person : es) {
+			if (person.getId() == id) {
+				return person;
+			}
+		}
+		for (Manager boss : ms) {
+			if (boss.getId() == id) {
+				return boss;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Check if the given employee is present in the hierarchy. If the employee
 	 * has been added as a manager or as an employee, return true. If not,
@@ -169,13 +202,12 @@ public class ConcreteManagementHierarchy implements ManagementHierarchy {
 	 */
 	@Override
 	public List<Manager> getChainOfCommand(Employee employee) {
-		ArrayList<Manager> chain = new ArrayList<>();
-		if (es.contains(employee)) {
-			while (employee.getManager() != null) {
-				chain.add(employee.getManager());
-				employee = employee.getManager();
-			}
+		if (!es.contains(employee)) {
+			return ChainOfCommand.empty();
+		}
+		if (chains.size() > 2 * (ms.size() + es.size())) {
+			chains.clear();
 		}
-		return chain;
+		return chains.under(employee.getManager());
 	}
 }
@@ -0,0 +1,264 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread-safe {@link ManagementHierarchy}. Queries never block: membership and direct reports live in
+ * concurrent maps and every member points at its manager through a volatile reference, so
+ * {@link #hasEmployee(Employee)}, {@link #getUnderlings(Manager)} and {@link #getChainOfCommand(Employee)}
+ * run without taking any lock. Updates lock only the stripe belonging to the manager whose reports they
+ * change, so writers working under different managers proceed in parallel.
+ *
+ * Sets returned by this class are unmodifiable, weakly consistent views: they reflect every update that
+ * completed before they were read and may or may not reflect updates made concurrently.
+ */
+public class ConcurrentManagementHierarchy implements ManagementHierarchy {
+    private final Set<Manager> managers = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<Employee, Node> nodes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Manager, Set<Employee>> reports = new ConcurrentHashMap<>();
+    private final Object[] stripes;
+    private final Object relinkLock = new Object();
+
+    /**
+     * Creates a hierarchy with a number of lock stripes suited to the available processors.
+     */
+    public ConcurrentManagementHierarchy() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * @param concurrencyLevel the expected number of concurrent writers; rounded up to a power of two
+     *                         to give the number of lock stripes
+     */
+    public ConcurrentManagementHierarchy(int concurrencyLevel) {
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+        }
+        int size = Integer.highestOneBit(Math.max(1, concurrencyLevel - 1)) << 1;
+        stripes = new Object[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Adds a given manager to the hierarchy. If the manager is already included in the hierarchy,
+     * return false and leave the hierarchy unchanged. Otherwise, include the manager in the hierarchy
+     * and return true.
+     *
+     * @param manager the manager to add to the hierarchy.
+     * @return true if the manager was successfully added to the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean addManager(Manager manager) {
+        if (manager == null || managers.contains(manager)) {
+            return false;
+        }
+        Manager boss = manager.getManager();
+        if (boss == null) {
+            nodes.putIfAbsent(manager, new Node(manager));
+        } else {
+            synchronized (stripeFor(boss)) {
+                index(manager);
+            }
+        }
+        synchronized (stripeFor(manager)) {
+            if (!managers.add(manager)) {
+                return false;
+            }
+            adoptWaitingReports(nodes.get(manager));
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves a set of all managers already included in the hierarchy.
+     *
+     * @return a set of the managers already added to the hierarchy. If no managers have been added yet,
+     * returns an empty set.
+     */
+    @Override
+    public Set<Manager> getManagers() {
+        return Collections.unmodifiableSet(managers);
+    }
+
+    /**
+     * Check if the given manager has been added to the hierarchy.
+     *
+     * @param manager the manager to check for presence in the hierarchy.
+     * @return true if the manager is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasManager(Manager manager) {
+        return manager != null && managers.contains(manager);
+    }
+
+    /**
+     * Given a manager, retrieve the set of employees who report directly to that manager.
+     *
+     * @param manager the manager whose underlings are to be retrieved.
+     * @return a set of employees in the hierarchy for which the given manager is their direct superior.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> getUnderlings(Manager manager) {
+        Set<Employee> underlings = hasManager(manager) ? reports.get(manager) : null;
+        return underlings == null ? Collections.<Employee>emptySet() : Collections.unmodifiableSet(underlings);
+    }
+
+    /**
+     * Adds a given employee to the hierarchy. If the employee's manager is present in the hierarchy,
+     * include the employee and return true. Otherwise, return false and leave the hierarchy unchanged.
+     *
+     * @param employee the employee to add to the hierarchy
+     * @return true if the employee was added successfully, false otherwise.
+     */
+    @Override
+    public boolean addEmployee(Employee employee) {
+        if (employee == null || employee.getManager() == null || nodes.containsKey(employee)) {
+            return false;
+        }
+        synchronized (stripeFor(employee.getManager())) {
+            return hasManager(employee.getManager()) && index(employee);
+        }
+    }
+
+    /**
+     * @return the set of all employees in the hierarchy
+     */
+    @Override
+    public Set<Employee> getEmployees() {
+        return Collections.unmodifiableSet(nodes.keySet());
+    }
+
+    /**
+     * Finds the member of the hierarchy with the given id.
+     *
+     * @param id the id of the employee to find
+     * @return the employee in the hierarchy with the given id, or null if there is none
+     */
+    @Override
+    public Employee getEmployee(long id) {
+        Node node = nodes.get(new EmployeeKey(id));
+        return node == null ? null : node.employee;
+    }
+
+    /**
+     * Check if the given employee is present in the hierarchy. If the employee has been added as
+     * a manager or as an employee, return true. If not, return false.
+     *
+     * @param employee the employee to check for presence in the hierarchy
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasEmployee(Employee employee) {
+        return employee != null && nodes.containsKey(employee);
+    }
+
+    /**
+     * Returns a representation of the management hierarchy as a map of managers to sets of employees,
+     * representing direct management relationships, i.e. all employees in a given manager's set should
+     * have that manager in its manager field.
+     *
+     * @return the entire management hierarchy as a map from managers to the set of employees directly under
+     * their supervision.
+     */
+    @Override
+    public Map<Manager, Set<Employee>> getHierarchy() {
+        Map<Manager, Set<Employee>> result = new HashMap<>();
+        for (Manager m : managers) {
+            result.put(m, getUnderlings(m));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the chain of command for a given employee, represented by a list of managers. The first
+     * element of the list should be the given employee's direct manager, the second element should be
+     * that manager's direct manager, and so on.
+     *
+     * @param employee the employee whose chain of command is to be retrieved
+     * @return a list of managers that represents the chain of command for the given employee.
+     * If the employee is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    public List<Manager> getChainOfCommand(Employee employee) {
+        List<Manager> result = new ArrayList<>();
+        Node node = employee == null ? null : nodes.get(employee);
+        if (node != null) {
+            for (Node next = node.parent; next != null; next = next.parent) {
+                result.add((Manager) next.employee);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Files the given employee under its manager. Must be called holding the stripe of that manager.
+     *
+     * @return true if the employee was not already a member
+     */
+    private boolean index(Employee employee) {
+        Node node = new Node(employee);
+        if (managers.contains(node.manager)) {
+            node.parent = nodes.get(node.manager);
+        }
+        if (nodes.putIfAbsent(employee, node) != null) {
+            return false;
+        }
+        reports.computeIfAbsent(node.manager, m -> ConcurrentHashMap.<Employee>newKeySet()).add(employee);
+        return true;
+    }
+
+    /**
+     * Hooks up any managers that were filed under the given manager before it joined the hierarchy.
+     * Must be called holding the stripe of the given manager. Reports that would close a loop in the
+     * chain of command are left where they are.
+     */
+    private void adoptWaitingReports(Node manager) {
+        Set<Employee> waiting = reports.get((Manager) manager.employee);
+        if (waiting == null) {
+            return;
+        }
+        synchronized (relinkLock) {
+            for (Employee e : waiting) {
+                Node child = nodes.get(e);
+                if (child.parent == null && !manager.hasAncestor(child)) {
+                    child.parent = manager;
+                }
+            }
+        }
+    }
+
+    private Object stripeFor(Manager manager) {
+        int h = manager.hashCode();
+        h ^= h >>> 16;
+        return stripes[h & (stripes.length - 1)];
+    }
+
+    private static final class Node {
+        final Employee employee;
+        final Manager manager;
+        volatile Node parent;
+
+        Node(Employee employee) {
+            this.employee = employee;
+            this.manager = employee.getManager();
+        }
+
+        boolean hasAncestor(Node ancestor) {
+            for (Node node = this; node != null; node = node.parent) {
+                if (node == ancestor) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.Employee;
+
+import java.util.*;
+
+/**
+ * The secondary indexes of {@link IndexedManagementHierarchy}: a multimap from title to the members holding
+ * it, and a sorted map from name to the members going by it, ordered without regard to case so that a
+ * name prefix selects one contiguous range. Each member is filed under the name and title its
+ * {@link HierarchyNode} remembers, so that it can be found again to be taken out even if the employee object
+ * has been changed behind the hierarchy's back. Title sets are kept once created, even when empty, since views
+ * of them may have been handed out.
+ */
+final class EmployeeIndex {
+    private final Map<String, Set<Employee>> byTitle = new HashMap<>();
+    private final TreeMap<String, Set<Employee>> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    void add(HierarchyNode node) {
+        node.name = node.employee.getName();
+        node.title = node.employee.getTitle();
+        put(byTitle, node.title, node.employee);
+        if (node.name != null) {
+            put(byName, node.name, node.employee);
+        }
+    }
+
+    void remove(HierarchyNode node) {
+        byTitle.get(node.title).remove(node.employee);
+        unname(node);
+    }
+
+    void rename(HierarchyNode node, String name) {
+        unname(node);
+        node.name = name;
+        if (name != null) {
+            put(byName, name, node.employee);
+        }
+    }
+
+    void retitle(HierarchyNode node, String title) {
+        byTitle.get(node.title).remove(node.employee);
+        node.title = title;
+        put(byTitle, title, node.employee);
+    }
+
+    /**
+     * @return the members holding the given title, as a live view
+     */
+    Set<Employee> withTitle(String title) {
+        Set<Employee> result = byTitle.get(title);
+        return result == null ? Collections.<Employee>emptySet() : Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * @return the members whose name starts with the given prefix, ignoring case, in name order. The range
+     * is walked as it is iterated, so stopping early skips the rest of it.
+     */
+    Iterable<Employee> withNamePrefix(String prefix) {
+        return () -> new Iterator<Employee>() {
+            private final Iterator<Map.Entry<String, Set<Employee>>> names =
+                    byName.tailMap(prefix, true).entrySet().iterator();
+            private Iterator<Employee> bucket = Collections.<Employee>emptySet().iterator();
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                while (!bucket.hasNext() && !done && names.hasNext()) {
+                    Map.Entry<String, Set<Employee>> entry = names.next();
+                    if (!entry.getKey().regionMatches(true, 0, prefix, 0, prefix.length())) {
+                        done = true;
+                        return false;
+                    }
+                    bucket = entry.getValue().iterator();
+                }
+                return bucket.hasNext();
+            }
+
+            @Override
+            public Employee next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return bucket.next();
+            }
+        };
+    }
+
+    private void unname(HierarchyNode node) {
+        if (node.name != null) {
+            Set<Employee> bucket = byName.get(node.name);
+            bucket.remove(node.employee);
+            if (bucket.isEmpty()) {
+                byName.remove(node.name);
+            }
+        }
+    }
+
+    private static void put(Map<String, Set<Employee>> index, String key, Employee employee) {
+        Set<Employee> bucket = index.get(key);
+        if (bucket == null) {
+            bucket = new HashSet<>(4);
+            index.put(key, bucket);
+        }
+        bucket.add(employee);
+    }
+}
@@ -0,0 +1,62 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Manager;
+
+/**
+ * Stands in for the employee with a given id when looking them up in a hash table keyed by employees. The
+ * key's own {@code equals} matches any employee with its id, whatever their class, so it finds whichever
+ * object the table holds for that person. The key is never stored, and its other fields are always empty.
+ */
+final class EmployeeKey implements Employee {
+    private final long id;
+
+    EmployeeKey(long id) {
+        this.id = id;
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public void setName(String name) {
+        throw new UnsupportedOperationException("setName");
+    }
+
+    @Override
+    public String getName() {
+        return null;
+    }
+
+    @Override
+    public void setTitle(String title) {
+        throw new UnsupportedOperationException("setTitle");
+    }
+
+    @Override
+    public String getTitle() {
+        return null;
+    }
+
+    @Override
+    public void setManager(Manager manager) {
+        throw new UnsupportedOperationException("setManager");
+    }
+
+    @Override
+    public Manager getManager() {
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Employee && ((Employee) o).getId() == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+}
@@ -0,0 +1,272 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.HierarchyReducer;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+
+import java.util.*;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Computes a {@link HierarchyReducer} for every manager of a hierarchy in one bottom-up pass. The hierarchy
+ * is read once through {@link ManagementHierarchy#getHierarchy()}, so the pass costs the same on every
+ * implementation, and each manager's result is built from the results of the managers reporting to them
+ * rather than by walking their organization again.
+ *
+ * Organizations larger than the sequential threshold are split by report, and their parts are reduced as
+ * separate tasks on a {@link ForkJoinPool}; smaller organizations are reduced on the thread that reaches
+ * them. A manager's result is completed by whichever thread finishes the last part of their organization,
+ * so deep hierarchies do not nest tasks on any thread's stack.
+ *
+ * Should the reports of registered managers loop, the loop is broken at one of its managers, whose
+ * organization is then left out of the organization of the manager they are filed under.
+ */
+public final class HierarchyAggregator {
+    /**
+     * The headcount up to which an organization is reduced by a single task.
+     */
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    private static final int NONE = -1;
+    private static final int[] NO_NODES = new int[0];
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * Creates an aggregator running on the common pool with the default threshold.
+     */
+    public HierarchyAggregator() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param pool      the pool to run the reduction on
+     * @param threshold the headcount up to which an organization is reduced by a single task
+     */
+    public HierarchyAggregator(ForkJoinPool pool, int threshold) {
+        if (pool == null) {
+            throw new NullPointerException("pool");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Negative threshold " + threshold);
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Reduces the organization of every manager in the given hierarchy. The hierarchy must not change
+     * while {@link ManagementHierarchy#getHierarchy()} is being read; the reduction itself works on a copy.
+     *
+     * @param hierarchy the hierarchy to reduce
+     * @param reducer   the rollup to compute
+     * @param <A>       the type of the result computed for each manager
+     * @return a new map from every manager in the hierarchy to the result for their organization
+     */
+    public <A> Map<Manager, A> aggregate(ManagementHierarchy hierarchy, HierarchyReducer<A> reducer) {
+        Tree tree = new Tree(hierarchy.getHierarchy());
+        Object[] results = new Object[tree.managers.length];
+        pool.invoke(new Reduction<>(tree, reducer, results, null, NONE));
+        Map<Manager, A> result = new HashMap<>(Math.max(16, (int) (results.length / 0.75f) + 1));
+        for (int i = 0; i < results.length; i++) {
+            @SuppressWarnings("unchecked")
+            A value = (A) results[i];
+            result.put(tree.managers[i], value);
+        }
+        return result;
+    }
+
+    /**
+     * The hierarchy's managers and their reports, copied into arrays indexed by manager.
+     */
+    private static final class Tree {
+        private final Manager[] managers;
+        private final Employee[][] reports;
+        /**
+         * For each report, the index of the manager whose organization they bring along, or NONE.
+         */
+        private final int[][] reportNodes;
+        /**
+         * The managers whose organizations are reduced as part of each manager's organization.
+         */
+        private final int[][] children;
+        private final int[] roots;
+        private final int[] headcount;
+
+        Tree(Map<Manager, Set<Employee>> hierarchy) {
+            int size = hierarchy.size();
+            managers = new Manager[size];
+            reports = new Employee[size][];
+            reportNodes = new int[size][];
+            children = new int[size][];
+            headcount = new int[size];
+            Map<Manager, Integer> ids = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+            int next = 0;
+            for (Map.Entry<Manager, Set<Employee>> entry : hierarchy.entrySet()) {
+                managers[next] = entry.getKey();
+                reports[next] = entry.getValue().toArray(new Employee[0]);
+                ids.put(entry.getKey(), next++);
+            }
+
+            boolean[] filed = new boolean[size];
+            for (Employee[] list : reports) {
+                for (Employee e : list) {
+                    Integer id = e instanceof Manager ? ids.get(e) : null;
+                    if (id != null) {
+                        filed[id] = true;
+                    }
+                }
+            }
+
+            // Number the managers breadth first from the top, so that every organization comes after its
+            // manager; managers on a loop are only reached once everything else has been numbered.
+            boolean[] reached = new boolean[size];
+            int[] order = new int[size];
+            int ordered = 0;
+            int rootCount = 0;
+            int[] rootIds = new int[size];
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 0; i < size; i++) {
+                    if (reached[i] || (pass == 0 && filed[i])) {
+                        continue;
+                    }
+                    reached[i] = true;
+                    rootIds[rootCount++] = i;
+                    order[ordered] = i;
+                    for (int end = ordered + 1; ordered < end; ordered++) {
+                        end = link(order[ordered], ids, reached, order, end);
+                    }
+                }
+            }
+            roots = Arrays.copyOf(rootIds, rootCount);
+
+            for (int k = size - 1; k >= 0; k--) {
+                int i = order[k];
+                int count = 0;
+                for (int j = 0; j < reports[i].length; j++) {
+                    int node = reportNodes[i][j];
+                    count += node == NONE ? 1 : 1 + headcount[node];
+                }
+                headcount[i] = count;
+            }
+        }
+
+        /**
+         * Claims the unreached managers among the reports of manager {@code i} as their children, appending
+         * them to the breadth first order.
+         *
+         * @return the new end of the order
+         */
+        private int link(int i, Map<Manager, Integer> ids, boolean[] reached, int[] order, int end) {
+            Employee[] list = reports[i];
+            int[] nodes = new int[list.length];
+            int childCount = 0;
+            for (int j = 0; j < list.length; j++) {
+                Integer id = list[j] instanceof Manager ? ids.get(list[j]) : null;
+                if (id != null && !reached[id]) {
+                    reached[id] = true;
+                    order[end++] = id;
+                    nodes[j] = id;
+                    childCount++;
+                } else {
+                    nodes[j] = NONE;
+                }
+            }
+            reportNodes[i] = nodes;
+            if (childCount == 0) {
+                children[i] = NO_NODES;
+            } else {
+                int[] claimed = new int[childCount];
+                for (int j = 0, k = 0; j < nodes.length; j++) {
+                    if (nodes[j] != NONE) {
+                        claimed[k++] = nodes[j];
+                    }
+                }
+                children[i] = claimed;
+            }
+            return end;
+        }
+    }
+
+    /**
+     * Reduces the organizations of the children of one manager, or of the top managers when the node is
+     * NONE, and then the manager's own. Children above the threshold get their own task.
+     */
+    private final class Reduction<A> extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final Tree tree;
+        private final HierarchyReducer<A> reducer;
+        private final Object[] results;
+        private final int node;
+
+        Reduction(Tree tree, HierarchyReducer<A> reducer, Object[] results, Reduction<A> parent, int node) {
+            super(parent);
+            this.tree = tree;
+            this.reducer = reducer;
+            this.results = results;
+            this.node = node;
+        }
+
+        @Override
+        public void compute() {
+            int[] children = node == NONE ? tree.roots : tree.children[node];
+            for (int child : children) {
+                if (tree.headcount[child] > threshold) {
+                    addToPendingCount(1);
+                    new Reduction<>(tree, reducer, results, this, child).fork();
+                }
+            }
+            for (int child : children) {
+                if (tree.headcount[child] <= threshold) {
+                    reduceAll(child);
+                }
+            }
+            tryComplete();
+        }
+
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            if (node != NONE) {
+                results[node] = reduce(node);
+            }
+        }
+
+        /**
+         * Reduces the whole organization of the given manager on this thread, children before parents.
+         */
+        private void reduceAll(int top) {
+            int[] preorder = new int[tree.headcount[top] + 1];
+            int count = 0;
+            preorder[count++] = top;
+            for (int k = 0; k < count; k++) {
+                for (int child : tree.children[preorder[k]]) {
+                    preorder[count++] = child;
+                }
+            }
+            for (int k = count - 1; k >= 0; k--) {
+                results[preorder[k]] = reduce(preorder[k]);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private A reduce(int i) {
+            Employee[] reports = tree.reports[i];
+            int[] nodes = tree.reportNodes[i];
+            A result = reducer.identity();
+            for (int j = 0; j < reports.length; j++) {
+                Employee e = reports[j];
+                A contribution = reducer.map(e);
+                if (e instanceof Manager) {
+                    A organization = nodes[j] == NONE ? reducer.identity() : (A) results[nodes[j]];
+                    contribution = reducer.combine(contribution, reducer.lift((Manager) e, organization));
+                }
+                result = reducer.combine(result, contribution);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Manager;
+
+import java.util.*;
+
+/**
+ * Builds an {@link IndexedManagementHierarchy} from a batch of employees given in any order. Every
+ * {@link Manager} in the batch is registered as a manager and everybody else is filed under their manager,
+ * so callers no longer have to add managers before their reports. {@link #build()} sizes the hierarchy's
+ * indexes up front and fills them in one linear pass instead of one {@code add} call per person.
+ *
+ * Employees whose manager is not part of the batch are reported by {@link #getOrphans()}. As with
+ * {@link IndexedManagementHierarchy#addManager(Manager)}, orphaned managers still join the hierarchy at the
+ * top of their own tree, while orphaned grunts are left out.
+ */
+public final class HierarchyBulkLoader {
+    private final List<Employee> employees;
+    private final Set<Employee> seen;
+    private final Set<Manager> managers = new HashSet<>();
+    private final Set<Employee> orphans = new HashSet<>();
+
+    /**
+     * Creates a loader for a batch of unknown size.
+     */
+    public HierarchyBulkLoader() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize the number of employees expected in the batch
+     */
+    public HierarchyBulkLoader(int expectedSize) {
+        employees = new ArrayList<>(expectedSize);
+        seen = new HashSet<>(Math.max(16, (int) (expectedSize / 0.75f) + 1));
+    }
+
+    /**
+     * Adds an employee to the batch. Employees already in the batch are ignored.
+     *
+     * @param employee the employee to add
+     * @return this loader
+     */
+    public HierarchyBulkLoader add(Employee employee) {
+        if (employee != null && seen.add(employee)) {
+            employees.add(employee);
+            if (employee instanceof Manager) {
+                managers.add((Manager) employee);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Adds every given employee to the batch.
+     *
+     * @param employees the employees to add, in any order
+     * @return this loader
+     */
+    public HierarchyBulkLoader addAll(Iterable<? extends Employee> employees) {
+        for (Employee e : employees) {
+            add(e);
+        }
+        return this;
+    }
+
+    /**
+     * Builds a hierarchy holding the whole batch, and records which employees were orphaned.
+     *
+     * @return a new hierarchy containing every manager in the batch and every employee whose manager is in
+     * the batch
+     */
+    public IndexedManagementHierarchy build() {
+        orphans.clear();
+        Map<Manager, List<Employee>> byManager = new HashMap<>(Math.max(16, (int) (managers.size() / 0.75f) + 1));
+        List<Employee> ordered = new ArrayList<>(employees.size());
+        for (Employee e : employees) {
+            Manager manager = e.getManager();
+            if (manager != null && managers.contains(manager)) {
+                List<Employee> reports = byManager.get(manager);
+                if (reports == null) {
+                    reports = new ArrayList<>();
+                    byManager.put(manager, reports);
+                }
+                reports.add(e);
+            } else {
+                if (manager != null) {
+                    orphans.add(e);
+                }
+                if (manager == null || e instanceof Manager) {
+                    ordered.add(e);
+                }
+            }
+        }
+
+        int next = appendReports(ordered, 0, byManager);
+        while (!byManager.isEmpty()) {
+            // Whatever is left hangs below a loop in the chain of command; break it at some manager on the loop.
+            Set<Manager> path = new HashSet<>();
+            Manager start = byManager.keySet().iterator().next();
+            while (path.add(start)) {
+                start = start.getManager();
+            }
+            byManager.get(start.getManager()).remove(start);
+            ordered.add(start);
+            next = appendReports(ordered, next, byManager);
+        }
+
+        IndexedManagementHierarchy hierarchy = new IndexedManagementHierarchy(ordered.size());
+        hierarchy.load(ordered, managers);
+        return hierarchy;
+    }
+
+    /**
+     * @return the employees of the last {@link #build()} whose manager was not part of the batch
+     */
+    public Set<Employee> getOrphans() {
+        return Collections.unmodifiableSet(orphans);
+    }
+
+    /**
+     * Appends the reports of every manager from position {@code from} onwards, breadth first, so that each
+     * manager comes before their reports.
+     *
+     * @return the size of the ordered list once no more reports can be reached
+     */
+    private static int appendReports(List<Employee> ordered, int from, Map<Manager, List<Employee>> byManager) {
+        for (int i = from; i < ordered.size(); i++) {
+            Employee e = ordered.get(i);
+            List<Employee> reports = e instanceof Manager ? byManager.remove(e) : null;
+            if (reports != null) {
+                ordered.addAll(reports);
+            }
+        }
+        return ordered.size();
+    }
+}
@@ -0,0 +1,186 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * The binary file format read by {@link MappedManagementHierarchy}. A file is laid out so that every query
+ * can be answered by reading it in place:
+ *
+ * <pre>
+ * header       int magic, int version, int count, int managerCount, int reportTotal, int poolSize
+ * employeeId   long[count]        each person's {@link Employee#getId() employee id}
+ * byEmployeeId int[count]         ids of everyone in order of employee id, for finding a person by binary search
+ * parent       int[count]         id of each person's manager in the tree, or -1
+ * reportStart  int[count + 1]     offsets into reports; person i's direct reports are
+ *                                 reports[reportStart[i] .. reportStart[i + 1])
+ * reports      int[reportTotal]   ids of direct reports, grouped by manager
+ * stringStart  int[2 * count + 1] offsets into the pool; person i's name is string 2i, their title 2i + 1
+ * flags        byte[count]        {@link #MANAGER}, {@link #MANAGER_TYPE}, {@link #NULL_NAME}, {@link #NULL_TITLE}
+ * pool         byte[poolSize]     UTF-8 text of every name and title
+ * </pre>
+ *
+ * All numbers are big-endian. The ids used within the file are dense, from 0 to count - 1, and are separate
+ * from the employees' own ids, which are stored so that people read back equal the ones written.
+ *
+ * Version 1 files had no employee ids; they are no longer opened and have to be written again.
+ */
+public final class HierarchyFile {
+    static final int MAGIC = 0x4D474D48;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 6 * 4;
+
+    /**
+     * Flag set for people registered as managers in the hierarchy.
+     */
+    static final byte MANAGER = 1;
+    /**
+     * Flag set for people who are {@link Manager} objects, registered or not.
+     */
+    static final byte MANAGER_TYPE = 2;
+    static final byte NULL_NAME = 4;
+    static final byte NULL_TITLE = 8;
+
+    private HierarchyFile() {
+    }
+
+    /**
+     * Writes the given hierarchy to a file, replacing any file already at that path.
+     *
+     * @param hierarchy the hierarchy to write
+     * @param path      the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(ManagementHierarchy hierarchy, Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            write(hierarchy, out);
+        }
+    }
+
+    /**
+     * Writes the given hierarchy to a stream in the hierarchy file format.
+     *
+     * @param hierarchy the hierarchy to write
+     * @param stream    the stream to write to, which is left open
+     * @throws IOException if the stream cannot be written
+     */
+    public static void write(ManagementHierarchy hierarchy, OutputStream stream) throws IOException {
+        Set<Employee> employees = hierarchy.getEmployees();
+        int count = employees.size();
+        Employee[] byId = new Employee[count];
+        Map<Employee, Integer> ids = new HashMap<>(count * 4 / 3 + 1);
+        for (Employee e : employees) {
+            byId[ids.size()] = e;
+            ids.put(e, ids.size());
+        }
+
+        long[] employeeIds = new long[count];
+        Integer[] byEmployeeId = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            employeeIds[i] = byId[i].getId();
+            byEmployeeId[i] = i;
+        }
+        Arrays.sort(byEmployeeId, (a, b) -> Long.compare(employeeIds[a], employeeIds[b]));
+
+        int[] parent = new int[count];
+        Arrays.fill(parent, -1);
+        int[] reportStart = new int[count + 1];
+        int[][] reportsById = new int[count][];
+        byte[] flags = new byte[count];
+        int managerCount = 0;
+        int reportTotal = 0;
+        for (Map.Entry<Manager, Set<Employee>> entry : hierarchy.getHierarchy().entrySet()) {
+            Integer m = ids.get(entry.getKey());
+            if (m == null) {
+                continue;
+            }
+            flags[m] |= MANAGER;
+            managerCount++;
+            int[] reports = new int[entry.getValue().size()];
+            int n = 0;
+            for (Employee e : entry.getValue()) {
+                Integer id = ids.get(e);
+                if (id != null) {
+                    parent[id] = m;
+                    reports[n++] = id;
+                }
+            }
+            reportStart[m + 1] = n;
+            reportTotal += n;
+            reportsById[m] = n == reports.length ? reports : Arrays.copyOf(reports, n);
+        }
+        for (int i = 0; i < count; i++) {
+            reportStart[i + 1] += reportStart[i];
+        }
+
+        byte[][] strings = new byte[2 * count][];
+        int poolSize = 0;
+        for (int i = 0; i < count; i++) {
+            Employee e = byId[i];
+            if (e instanceof Manager) {
+                flags[i] |= MANAGER_TYPE;
+            }
+            if (e.getName() == null) {
+                flags[i] |= NULL_NAME;
+            }
+            if (e.getTitle() == null) {
+                flags[i] |= NULL_TITLE;
+            }
+            strings[2 * i] = utf8(e.getName());
+            strings[2 * i + 1] = utf8(e.getTitle());
+            poolSize += strings[2 * i].length + strings[2 * i + 1].length;
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(count);
+        out.writeInt(managerCount);
+        out.writeInt(reportTotal);
+        out.writeInt(poolSize);
+        for (long id : employeeIds) {
+            out.writeLong(id);
+        }
+        for (int id : byEmployeeId) {
+            out.writeInt(id);
+        }
+        for (int p : parent) {
+            out.writeInt(p);
+        }
+        for (int start : reportStart) {
+            out.writeInt(start);
+        }
+        for (int[] reports : reportsById) {
+            if (reports != null) {
+                for (int r : reports) {
+                    out.writeInt(r);
+                }
+            }
+        }
+        int offset = 0;
+        out.writeInt(offset);
+        for (byte[] s : strings) {
+            offset += s.length;
+            out.writeInt(offset);
+        }
+        out.write(flags);
+        for (byte[] s : strings) {
+            out.write(s);
+        }
+        out.flush();
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,559 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.HierarchyChange;
+import com.cooksys.collections.HierarchySubscription;
+import com.cooksys.collections.Manager;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * A write-ahead journal that makes an {@link IndexedManagementHierarchy} survive restarts. The journal
+ * subscribes to the hierarchy's changes and appends every batch to a journal file as one checksummed frame,
+ * so any operation the hierarchy reports, present or future, is recorded without the journal having to know
+ * about it.
+ *
+ * Frames are forced to disk by group commit: appending only copies the frame into a buffer, and a background
+ * thread writes and forces everything buffered once per sync interval, so a burst of writes shares a single
+ * fsync. {@link #awaitDurable(long)} blocks until a given change is on disk. With a sync interval of 0 every
+ * batch is forced before the operation returns.
+ *
+ * Once the journal grows past the compaction threshold it is folded into a snapshot file holding just the
+ * current state, and a fresh journal is started. {@link #open(Path)} recovers by loading the snapshot and
+ * replaying the journal written after it. A torn frame at the end of the journal, left by a crash in the middle
+ * of a write, is detected by its checksum and discarded.
+ *
+ * People are identified in the files by ids local to the journal, assigned the first time a person appears
+ * and reassigned from scratch by every compaction. Each person's own {@link Employee#getId() id} is recorded
+ * along with them, so the employees recovered are equal to the ones that were written. A member is recovered
+ * under the manager the hierarchy filed them under, even if their manager field was since set directly to
+ * someone they could not be moved under. Files written by an
+ * earlier version, which did not record those ids, are still read, and compacted into the current format
+ * straight away.
+ *
+ * Like the hierarchy itself, the journal expects changes to come from one thread at a time; compaction runs on
+ * the thread that made the change. {@link #sync()} and {@link #awaitDurable(long)} may be called from any
+ * thread.
+ */
+public final class HierarchyJournal implements Closeable {
+    /**
+     * The default time between group commits, in milliseconds.
+     */
+    public static final long DEFAULT_SYNC_INTERVAL = 10;
+    /**
+     * The default journal size, in bytes, past which the journal is compacted into a snapshot.
+     */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 64L << 20;
+
+    static final String SNAPSHOT_FILE = "hierarchy.snapshot";
+    static final String JOURNAL_FILE = "hierarchy.journal";
+    static final int SNAPSHOT_MAGIC = 0x4D47534E;
+    static final int JOURNAL_MAGIC = 0x4D474A4C;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 4 + 4 + 8;
+
+    private static final byte DEFINE = 1;
+    private static final byte ADD = 2;
+    private static final byte REMOVE = 3;
+    private static final byte MOVE = 4;
+    private static final byte TITLE = 5;
+    private static final byte NAME = 6;
+    private static final int SNAPSHOT_FRAME_SIZE = 1 << 16;
+
+    private final Path directory;
+    private final IndexedManagementHierarchy hierarchy;
+    private final long compactionThreshold;
+    private final ScheduledExecutorService flusher;
+    private final Object writeLock = new Object();
+    private final HierarchySubscription subscription;
+
+    private Map<Employee, Integer> ids;
+    private FileChannel channel;
+    private long generation;
+    private long journalSize;
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+    private boolean outdated;
+
+    private HierarchyJournal(Path directory, long syncInterval, long compactionThreshold) throws IOException {
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold;
+        Files.createDirectories(directory);
+
+        hierarchy = new IndexedManagementHierarchy();
+        List<Employee> byId = new ArrayList<>();
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            generation = replay(snapshot, SNAPSHOT_MAGIC, -1, byId);
+            if (generation < 0) {
+                throw new IOException("Not a hierarchy snapshot: " + snapshot);
+            }
+        }
+        Path journal = directory.resolve(JOURNAL_FILE);
+        long end = -1;
+        if (Files.exists(journal)) {
+            end = replay(journal, JOURNAL_MAGIC, generation, byId);
+        }
+        ids = new HashMap<>(byId.size() * 4 / 3 + 1);
+        for (int id = 0; id < byId.size(); id++) {
+            if (byId.get(id) != null) {
+                ids.put(byId.get(id), id);
+            }
+        }
+        if (end < 0) {
+            startJournal(generation);
+        } else {
+            channel = FileChannel.open(journal, StandardOpenOption.WRITE);
+            channel.truncate(end);
+            channel.position(end);
+            journalSize = end - HEADER_SIZE;
+        }
+
+        appendedSequence = hierarchy.getSequence();
+        durableSequence = appendedSequence;
+        subscription = hierarchy.subscribe(this::append);
+        if (outdated) {
+            compact();
+        }
+        if (syncInterval > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "hierarchy-journal-" + directory.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Opens the journal in the given directory with the default sync interval and compaction threshold,
+     * recovering the hierarchy it holds.
+     *
+     * @param directory the directory holding the snapshot and journal files, created if missing
+     * @return the journal, already recording changes to {@link #getHierarchy()}
+     * @throws IOException if the files cannot be read or written
+     */
+    public static HierarchyJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SYNC_INTERVAL, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Opens the journal in the given directory, recovering the hierarchy it holds.
+     *
+     * @param directory           the directory holding the snapshot and journal files, created if missing
+     * @param syncInterval        the time between group commits in milliseconds, or 0 to force every batch of
+     *                            changes to disk before the operation that made it returns
+     * @param compactionThreshold the journal size in bytes past which it is compacted into a snapshot
+     * @return the journal, already recording changes to {@link #getHierarchy()}
+     * @throws IOException if the files cannot be read or written
+     */
+    public static HierarchyJournal open(Path directory, long syncInterval, long compactionThreshold)
+            throws IOException {
+        return new HierarchyJournal(directory, syncInterval, compactionThreshold);
+    }
+
+    /**
+     * @return the hierarchy recorded by this journal. Changes made to it are journaled until the journal is
+     * closed.
+     */
+    public IndexedManagementHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * Writes and forces every change recorded so far.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    public void sync() throws IOException {
+        synchronized (writeLock) {
+            byte[] data;
+            long sequence;
+            synchronized (this) {
+                if (failure != null) {
+                    throw failure;
+                }
+                data = pending.toByteArray();
+                pending.reset();
+                sequence = appendedSequence;
+            }
+            try {
+                if (data.length > 0) {
+                    writeFully(channel, data);
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                throw e;
+            }
+            synchronized (this) {
+                durableSequence = Math.max(durableSequence, sequence);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until the change with the given sequence number, and every change before it, is on disk. Callers
+     * waiting at the same time are released by the same group commit.
+     *
+     * @param sequence the sequence number of a change made to {@link #getHierarchy()}
+     * @throws IOException          if the journal cannot be written
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitDurable(long sequence) throws IOException, InterruptedException {
+        if (flusher == null) {
+            sync();
+            return;
+        }
+        synchronized (this) {
+            while (durableSequence < sequence && failure == null && !closed) {
+                wait();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the current state of the hierarchy and starts an empty journal. Called
+     * automatically once the journal passes its compaction threshold; must be called from the thread that
+     * changes the hierarchy.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    public void compact() throws IOException {
+        synchronized (writeLock) {
+            sync();
+            long next = generation + 1;
+            Map<Employee, Integer> fresh = new HashMap<>(ids.size());
+            Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(out, header(SNAPSHOT_MAGIC, next));
+                writeSnapshot(out, fresh);
+                out.force(true);
+            }
+            Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+            channel.close();
+            startJournal(next);
+            generation = next;
+            ids = fresh;
+        }
+    }
+
+    /**
+     * Stops recording changes, forces everything recorded so far and closes the journal file.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        subscription.close();
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        try {
+            sync();
+        } finally {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            synchronized (writeLock) {
+                channel.close();
+            }
+        }
+    }
+
+    private void append(List<HierarchyChange> changes) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (HierarchyChange change : changes) {
+                encode(change, out);
+            }
+            byte[] frame = frame(bytes);
+            synchronized (this) {
+                if (failure != null) {
+                    throw failure;
+                }
+                pending.write(frame);
+                appendedSequence = changes.get(changes.size() - 1).getSequence();
+            }
+            journalSize += frame.length;
+            if (flusher == null) {
+                sync();
+            }
+            if (journalSize > compactionThreshold) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            // kept in failure and rethrown to the next caller
+        }
+    }
+
+    private void encode(HierarchyChange change, DataOutputStream out) throws IOException {
+        int id = define(change.getEmployee(), ids, out);
+        switch (change.getType()) {
+            case ADDED:
+                int manager = change.getManager() == null ? -1 : define(change.getManager(), ids, out);
+                out.writeByte(ADD);
+                out.writeInt(id);
+                out.writeInt(manager);
+                out.writeBoolean(change.isRegisteredManager());
+                break;
+            case REMOVED:
+                out.writeByte(REMOVE);
+                out.writeInt(id);
+                break;
+            case MOVED:
+                int target = define(change.getManager(), ids, out);
+                out.writeByte(MOVE);
+                out.writeInt(id);
+                out.writeInt(target);
+                break;
+            case TITLE_CHANGED:
+                out.writeByte(TITLE);
+                out.writeInt(id);
+                writeString(out, change.getTitle());
+                break;
+            case RENAMED:
+                out.writeByte(NAME);
+                out.writeInt(id);
+                writeString(out, change.getEmployee().getName());
+                break;
+        }
+    }
+
+    /**
+     * Writes every member of the hierarchy as DEFINE and ADD records that rebuild it when replayed: registered
+     * managers first, in any order since the hierarchy adopts waiting reports, then everyone else.
+     */
+    private void writeSnapshot(FileChannel channel, Map<Employee, Integer> fresh) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(SNAPSHOT_FRAME_SIZE * 2);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int pass = 0; pass < 2; pass++) {
+            boolean registered = pass == 0;
+            for (Employee e : hierarchy.getEmployees()) {
+                if (hierarchy.getManagers().contains(e) != registered) {
+                    continue;
+                }
+                // the manager field may point somewhere the hierarchy refused to move them
+                Manager filed = hierarchy.filedUnder(e);
+                int id = define(e, fresh, out);
+                int manager = filed == null ? -1 : define(filed, fresh, out);
+                out.writeByte(ADD);
+                out.writeInt(id);
+                out.writeInt(manager);
+                out.writeBoolean(registered);
+                if (bytes.size() >= SNAPSHOT_FRAME_SIZE) {
+                    writeFully(channel, frame(bytes));
+                    bytes.reset();
+                }
+            }
+        }
+        if (bytes.size() > 0) {
+            writeFully(channel, frame(bytes));
+        }
+    }
+
+    private static int define(Employee employee, Map<Employee, Integer> ids, DataOutputStream out)
+            throws IOException {
+        Integer known = ids.get(employee);
+        if (known != null) {
+            return known;
+        }
+        int id = ids.size();
+        ids.put(employee, id);
+        out.writeByte(DEFINE);
+        out.writeInt(id);
+        out.writeBoolean(employee instanceof Manager);
+        out.writeLong(employee.getId());
+        writeString(out, employee.getName());
+        writeString(out, employee.getTitle());
+        return id;
+    }
+
+    /**
+     * Applies the frames of a snapshot or journal file to the hierarchy.
+     *
+     * @param expectedGeneration the generation the file must belong to, or -1 to accept any
+     * @return for a snapshot, its generation; for a journal, the offset just past its last intact frame.
+     * -1 if the file is not of the expected kind or generation.
+     */
+    private long replay(Path file, int magic, long expectedGeneration, List<Employee> byId) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        if (data.length < HEADER_SIZE) {
+            return -1;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long fileGeneration = buffer.getLong(8);
+        int version = buffer.getInt(4);
+        if (buffer.getInt(0) != magic || version < 1 || version > VERSION
+                || expectedGeneration >= 0 && fileGeneration != expectedGeneration) {
+            return -1;
+        }
+        outdated |= version < VERSION;
+        int offset = HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        while (offset + 8 <= data.length) {
+            int length = buffer.getInt(offset);
+            if (length < 0 || length > data.length - offset - 8) {
+                break;
+            }
+            crc.reset();
+            crc.update(data, offset + 8, length);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                break;
+            }
+            apply(new DataInputStream(new ByteArrayInputStream(data, offset + 8, length)), version, byId);
+            offset += 8 + length;
+        }
+        return magic == SNAPSHOT_MAGIC ? fileGeneration : offset;
+    }
+
+    private void apply(DataInputStream in, int version, List<Employee> byId) throws IOException {
+        while (in.available() > 0) {
+            byte op = in.readByte();
+            int id = in.readInt();
+            switch (op) {
+                case DEFINE:
+                    boolean manager = in.readBoolean();
+                    boolean identified = version >= 2;
+                    long employeeId = identified ? in.readLong() : 0;
+                    String name = readString(in);
+                    String title = readString(in);
+                    while (byId.size() <= id) {
+                        byId.add(null);
+                    }
+                    if (identified) {
+                        byId.set(id, manager ? new Manager(employeeId, name, title, null)
+                                : new Grunt(employeeId, name, title, null));
+                    } else {
+                        byId.set(id, manager ? new Manager(name, title, null) : new Grunt(name, title, null));
+                    }
+                    break;
+                case ADD:
+                    Employee employee = byId.get(id);
+                    int managerId = in.readInt();
+                    employee.setManager(managerId < 0 ? null : (Manager) byId.get(managerId));
+                    if (in.readBoolean()) {
+                        hierarchy.addManager((Manager) employee);
+                    } else {
+                        hierarchy.addEmployee(employee);
+                    }
+                    break;
+                case REMOVE:
+                    hierarchy.removeEmployee(byId.get(id));
+                    break;
+                case MOVE:
+                    hierarchy.transferEmployee(byId.get(id), (Manager) byId.get(in.readInt()));
+                    break;
+                case TITLE:
+                    hierarchy.retitleEmployee(byId.get(id), readString(in));
+                    break;
+                case NAME:
+                    byId.get(id).setName(readString(in));
+                    break;
+                default:
+                    throw new IOException("Unknown journal record " + op);
+            }
+        }
+    }
+
+    private void startJournal(long journalGeneration) throws IOException {
+        Path temp = directory.resolve(JOURNAL_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, header(JOURNAL_MAGIC, journalGeneration));
+            out.force(true);
+        }
+        Path journal = directory.resolve(JOURNAL_FILE);
+        Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        channel = FileChannel.open(journal, StandardOpenOption.WRITE);
+        channel.position(HEADER_SIZE);
+        journalSize = 0;
+    }
+
+    /**
+     * Makes the renames in the directory durable where the platform allows a directory to be forced.
+     */
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // not supported on every platform; the rename itself is still atomic
+        }
+    }
+
+    private static byte[] header(int magic, long generation) {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(magic).putInt(VERSION).putLong(generation).array();
+    }
+
+    private static byte[] frame(ByteArrayOutputStream payload) {
+        byte[] body = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        return ByteBuffer.allocate(8 + body.length).putInt(body.length).putInt((int) crc.getValue()).put(body)
+                .array();
+    }
+
+    private static void writeFully(FileChannel channel, byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
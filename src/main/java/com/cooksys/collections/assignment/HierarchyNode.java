@@ -0,0 +1,169 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.ChainOfCommand;
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Manager;
+
+/**
+ * Per-employee bookkeeping for {@link IndexedManagementHierarchy}. A node remembers the manager its employee
+ * was filed under and, once that manager is part of the hierarchy, a direct pointer to the manager's node
+ * together with the node's depth, so that walking up the tree never has to consult a hash table.
+ *
+ * Nodes also keep a binary lifting table, where {@code jumps[k]} is the ancestor {@code 2^k} levels up, so
+ * that any ancestor can be reached in O(log depth) steps.
+ *
+ * As a {@link TourToken} a node marks where its subtree starts in the Euler tour, {@link #end} marks where
+ * it stops, and {@link #headcount} counts the nodes in between.
+ */
+final class HierarchyNode extends TourToken {
+    private static final HierarchyNode[] NO_JUMPS = new HierarchyNode[0];
+
+    final Employee employee;
+    Manager manager;
+    HierarchyNode parent;
+    int depth;
+    HierarchyNode[] jumps = NO_JUMPS;
+    final TourToken end = new TourToken();
+    int headcount;
+    /**
+     * The name and title this node is filed under in the hierarchy's {@link EmployeeIndex}.
+     */
+    String name;
+    String title;
+    /**
+     * The chain of command of this manager's reports, built on the parent's when first asked for and dropped
+     * whenever the node is relinked or detached.
+     */
+    private ChainOfCommand chain;
+
+    HierarchyNode(Employee employee) {
+        this.employee = employee;
+        this.manager = employee.getManager();
+        next = end;
+        end.prev = this;
+    }
+
+    /**
+     * Moves this node's subtree, which must currently be a root, under its parent, and counts it towards
+     * the headcount of every new ancestor.
+     */
+    void attach() {
+        parent.end.spliceBefore(this, end);
+        for (HierarchyNode ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            ancestor.headcount += headcount + 1;
+        }
+    }
+
+    /**
+     * Cuts this node's subtree out of its parent's, leaving it a root, and takes it off the headcount of
+     * every former ancestor. The undo of {@link #attach()}.
+     */
+    void detach() {
+        for (HierarchyNode ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            ancestor.headcount -= headcount + 1;
+        }
+        if (prev != null) {
+            prev.next = end.next;
+        }
+        if (end.next != null) {
+            end.next.prev = prev;
+        }
+        prev = null;
+        end.next = null;
+        parent = null;
+        chain = null;
+    }
+
+    /**
+     * Sets this node's depth and lifting table from its parent, which must already be up to date.
+     */
+    void relink() {
+        chain = null;
+        if (parent == null) {
+            depth = 0;
+            jumps = NO_JUMPS;
+            return;
+        }
+        depth = parent.depth + 1;
+        jumps = new HierarchyNode[32 - Integer.numberOfLeadingZeros(depth)];
+        jumps[0] = parent;
+        for (int k = 1; k < jumps.length; k++) {
+            jumps[k] = jumps[k - 1].jumps[k - 1];
+        }
+    }
+
+    /**
+     * @return the managers of this node's ancestors, nearest first
+     */
+    ChainOfCommand chainOfCommand() {
+        return parent == null ? ChainOfCommand.empty() : parent.reportChain();
+    }
+
+    /**
+     * @return the chain of command of this manager's reports, shared by all of them and by the chains below
+     */
+    private ChainOfCommand reportChain() {
+        if (chain != null) {
+            return chain;
+        }
+        int count = 1;
+        HierarchyNode top = this;
+        while (top.parent != null && top.parent.chain == null) {
+            top = top.parent;
+            count++;
+        }
+        HierarchyNode[] path = new HierarchyNode[count];
+        for (HierarchyNode node = this; count > 0; node = node.parent) {
+            path[--count] = node;
+        }
+        ChainOfCommand above = top.parent == null ? ChainOfCommand.empty() : top.parent.chain;
+        for (HierarchyNode node : path) {
+            node.chain = above = above.under((Manager) node.employee);
+        }
+        return chain;
+    }
+
+    /**
+     * @param level the depth of the ancestor to find, no greater than this node's depth
+     * @return this node's ancestor at the given depth
+     */
+    HierarchyNode ancestorAt(int level) {
+        HierarchyNode node = this;
+        for (int distance = depth - level; distance > 0; distance &= distance - 1) {
+            node = node.jumps[Integer.numberOfTrailingZeros(distance)];
+        }
+        return node;
+    }
+
+    /**
+     * @param ancestor the node to look for
+     * @return true if the given node is this node or one of its ancestors
+     */
+    boolean isDescendantOf(HierarchyNode ancestor) {
+        return ancestor.depth <= depth && ancestorAt(ancestor.depth) == ancestor;
+    }
+
+    /**
+     * @param a one node
+     * @param b another node
+     * @return the deepest node that is an ancestor of, or equal to, both nodes, or null if they are in
+     * different trees
+     */
+    static HierarchyNode lowestCommonAncestor(HierarchyNode a, HierarchyNode b) {
+        if (a.depth > b.depth) {
+            a = a.ancestorAt(b.depth);
+        } else if (b.depth > a.depth) {
+            b = b.ancestorAt(a.depth);
+        }
+        if (a == b) {
+            return a;
+        }
+        for (int k = a.jumps.length - 1; k >= 0; k--) {
+            if (k < a.jumps.length && a.jumps[k] != b.jumps[k]) {
+                a = a.jumps[k];
+                b = b.jumps[k];
+            }
+        }
+        return a.parent == b.parent ? a.parent : null;
+    }
+}
@@ -0,0 +1,145 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.HierarchyMetrics;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link HierarchyMetrics} that keeps, for each operation, the number of calls and failures and
+ * {@link Histogram}s of latency, result size and allocated bytes. Statistics for an operation are only
+ * created once it is first called.
+ *
+ * {@link #writeTo(Appendable)} renders everything in the Prometheus text exposition format, so the
+ * statistics can be scraped as they are or read one by one through {@link #get(Operation)}.
+ */
+public final class HierarchyStatistics implements HierarchyMetrics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999, 1};
+
+    private final AtomicReferenceArray<OperationStatistics> operations =
+            new AtomicReferenceArray<>(Operation.values().length);
+
+    @Override
+    public void record(Operation operation, long nanos, long resultSize, long allocatedBytes) {
+        OperationStatistics statistics = get(operation);
+        statistics.latency.record(nanos);
+        if (resultSize != UNKNOWN) {
+            statistics.resultSizes.record(resultSize);
+        }
+        if (allocatedBytes != UNKNOWN) {
+            statistics.allocatedBytes.record(allocatedBytes);
+        }
+    }
+
+    @Override
+    public void failed(Operation operation, long nanos, Throwable failure) {
+        OperationStatistics statistics = get(operation);
+        statistics.latency.record(nanos);
+        statistics.failures.increment();
+    }
+
+    /**
+     * @param operation an operation
+     * @return the statistics of the given operation, which stay up to date as calls are recorded
+     */
+    public OperationStatistics get(Operation operation) {
+        OperationStatistics statistics = operations.get(operation.ordinal());
+        if (statistics == null) {
+            operations.compareAndSet(operation.ordinal(), null, new OperationStatistics());
+            statistics = operations.get(operation.ordinal());
+        }
+        return statistics;
+    }
+
+    /**
+     * Writes the statistics of every operation called so far in the Prometheus text exposition format.
+     * Latencies are in nanoseconds and allocations in bytes.
+     *
+     * @param out where to write the statistics
+     * @throws IOException if the statistics cannot be written
+     */
+    public void writeTo(Appendable out) throws IOException {
+        out.append("# TYPE hierarchy_call_failures_total counter\n");
+        for (Operation operation : Operation.values()) {
+            OperationStatistics statistics = operations.get(operation.ordinal());
+            if (statistics != null && statistics.getCalls() > 0) {
+                out.append("hierarchy_call_failures_total{operation=\"").append(operation.name()).append("\"} ")
+                        .append(Long.toString(statistics.getFailures())).append('\n');
+            }
+        }
+        summary(out, "hierarchy_call_nanos", 0);
+        summary(out, "hierarchy_result_size", 1);
+        summary(out, "hierarchy_allocated_bytes", 2);
+    }
+
+    private void summary(Appendable out, String name, int which) throws IOException {
+        out.append("# TYPE ").append(name).append(" summary\n");
+        for (Operation operation : Operation.values()) {
+            OperationStatistics statistics = operations.get(operation.ordinal());
+            Histogram histogram = statistics == null ? null
+                    : which == 0 ? statistics.latency : which == 1 ? statistics.resultSizes : statistics.allocatedBytes;
+            if (histogram == null || histogram.getCount() == 0) {
+                continue;
+            }
+            String label = "{operation=\"" + operation.name() + "\"";
+            for (double quantile : QUANTILES) {
+                out.append(name).append(label).append(",quantile=\"").append(Double.toString(quantile))
+                        .append("\"} ").append(Long.toString(histogram.getValueAtPercentile(quantile * 100)))
+                        .append('\n');
+            }
+            out.append(name).append("_sum").append(label).append("} ")
+                    .append(Long.toString(histogram.getTotal())).append('\n');
+            out.append(name).append("_count").append(label).append("} ")
+                    .append(Long.toString(histogram.getCount())).append('\n');
+        }
+    }
+
+    /**
+     * The statistics of one operation.
+     */
+    public static final class OperationStatistics {
+        private final Histogram latency = new Histogram();
+        private final Histogram resultSizes = new Histogram();
+        private final Histogram allocatedBytes = new Histogram();
+        private final LongAdder failures = new LongAdder();
+
+        private OperationStatistics() {
+        }
+
+        /**
+         * @return the number of calls made, whether they returned or threw
+         */
+        public long getCalls() {
+            return latency.getCount();
+        }
+
+        /**
+         * @return the number of calls that threw
+         */
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * @return the time each call took, in nanoseconds
+         */
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return the number of elements in each collection or map returned
+         */
+        public Histogram getResultSizes() {
+            return resultSizes;
+        }
+
+        /**
+         * @return the bytes allocated by each call that returned, if allocations are tracked
+         */
+        public Histogram getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.cooksys.collections.assignment;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values with a fixed relative precision, in the manner of an HDR histogram.
+ * Values are counted in buckets whose width doubles with every power of two, and each power of two is split
+ * into 32 equal sub-buckets, so any value is known to within about 3% however large it is. Recording a value
+ * is a handful of arithmetic instructions and one atomic increment, with no allocation.
+ *
+ * Values up to {@link #MAX_VALUE} are tracked, which is over four hours in nanoseconds; larger values are
+ * counted as {@code MAX_VALUE}. The histogram can be recorded into from any number of threads, and reads
+ * taken while values are being recorded reflect some but not necessarily all of them.
+ */
+public final class Histogram {
+    /**
+     * The largest value tracked.
+     */
+    public static final long MAX_VALUE = (1L << 44) - 1;
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private final AtomicLongArray counts = new AtomicLongArray(index(MAX_VALUE) + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value the value to count; negative values count as 0
+     */
+    public void record(long value) {
+        long clamped = value < 0 ? 0 : Math.min(value, MAX_VALUE);
+        counts.incrementAndGet(index(clamped));
+        count.increment();
+        total.add(clamped);
+        for (long seen = max.get(); clamped > seen && !max.compareAndSet(seen, clamped); seen = max.get()) {
+            // another thread raised the maximum; try again against theirs
+        }
+    }
+
+    /**
+     * @return the number of values recorded
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the sum of the values recorded
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * @return the largest value recorded, or 0 if there are none
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the mean of the values recorded, or 0 if there are none
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * @param percentile a percentage between 0 and 100
+     * @return a value at least as large as the given percentage of the values recorded, within the
+     * histogram's precision; 0 if there are none
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile out of range: " + percentile);
+        }
+        long recorded = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            recorded += counts.get(i);
+        }
+        if (recorded == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highest(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int index(long value) {
+        int bucket = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (bucket << SUB_BUCKET_BITS) + (int) (value >>> bucket);
+    }
+
+    /**
+     * @return the largest value counted at the given index
+     */
+    private static long highest(int index) {
+        int bucket = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        long lowest = (long) (index - (bucket << SUB_BUCKET_BITS)) << bucket;
+        return lowest + (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,48 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.ManagementHierarchy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A {@link ShardTransport} keeping every shard as a hierarchy in this process.
+ */
+public final class InProcessShardTransport implements ShardTransport {
+    private final Supplier<? extends ManagementHierarchy> factory;
+    private final List<ManagementHierarchy> shards = new ArrayList<>();
+
+    /**
+     * Creates a transport keeping each shard in a {@link ReferenceManagementHierarchy}.
+     */
+    public InProcessShardTransport() {
+        this(ReferenceManagementHierarchy::new);
+    }
+
+    /**
+     * @param factory creates the empty hierarchy held by each new shard
+     */
+    public InProcessShardTransport(Supplier<? extends ManagementHierarchy> factory) {
+        if (factory == null) {
+            throw new NullPointerException("factory");
+        }
+        this.factory = factory;
+    }
+
+    @Override
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    @Override
+    public ManagementHierarchy getShard(int index) {
+        return shards.get(index);
+    }
+
+    @Override
+    public int addShard() {
+        shards.add(factory.get());
+        return shards.size() - 1;
+    }
+}
@@ -0,0 +1,780 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.ChainOfCommand;
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.EmployeeListener;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.HierarchyChange;
+import com.cooksys.collections.HierarchyListener;
+import com.cooksys.collections.HierarchySubscription;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link ManagementHierarchy} that keeps a manager to direct-reports index up to date as people are added,
+ * so that {@link #getUnderlings(Manager)} is a constant-time lookup and {@link #getHierarchy()} is linear in
+ * the number of employees.
+ *
+ * Every member of the hierarchy is indexed under the manager recorded at the time it was added. A manager
+ * who is added before their own manager simply waits in that index until their manager joins the hierarchy.
+ * Sets returned by this class are unmodifiable views of the index rather than copies.
+ *
+ * Each member also carries a pointer to its manager's node and its depth in the tree, so
+ * {@link #getChainOfCommand(Employee)} runs in time proportional to the length of the chain the first time
+ * and is then kept as a {@link ChainOfCommand} shared with the chains below, until the member moves; and a
+ * binary lifting table that answers {@link #lowestCommonManager(Employee, Employee)} and
+ * {@link #isInChainOfCommand(Employee, Manager)} in O(log depth).
+ *
+ * Finally, members are threaded into an Euler tour of the tree in which each manager's organization is one
+ * contiguous run, and every node counts the members of that run. {@link #getHeadcount(Manager)} is a field
+ * read and {@link #getAllReports(Manager)} a single walk over the run. Adding someone costs O(depth) to keep
+ * the counts up to date.
+ *
+ * The hierarchy can also be reorganized in place. {@link #removeEmployee(Employee)} and
+ * {@link #promoteToManager(Grunt)} cost O(depth), and {@link #transferEmployee(Employee, Manager)} moves a
+ * whole organization in O(depth) plus O(log depth) for each person in it, to rebuild their lifting tables.
+ *
+ * Members are also indexed by title and by name, so {@link #findByTitle(String)} is a lookup and
+ * {@link #findByNamePrefix(String)} a walk over the matching range of names. Searches within a manager's
+ * organization check each match against the tour, or fall back to walking the organization when that is
+ * the smaller of the two.
+ *
+ * The stream queries are lazy: {@link #allReports(Manager)} walks the tour run itself and
+ * {@link #chainOfCommand(Employee)} the parent pointers, both knowing their exact size up front and splitting
+ * by subtree and by lifting table respectively.
+ *
+ * Every change is reported to subscribers as a {@link HierarchyChange}. Each operation is delivered as one
+ * batch, and {@link #batch(Runnable)} groups several operations into a single delivery.
+ */
+public class IndexedManagementHierarchy implements ManagementHierarchy {
+    private final Set<Manager> managers;
+    private final Map<Employee, HierarchyNode> nodes;
+    private final Map<Manager, Set<Employee>> reports;
+    private final EmployeeIndex lookup = new EmployeeIndex();
+    private final EmployeeListener watcher = new EmployeeListener() {
+        @Override
+        public void nameChanged(Employee employee, String previousName) {
+            followName(employee);
+        }
+
+        @Override
+        public void titleChanged(Employee employee, String previousTitle) {
+            followTitle(employee);
+        }
+
+        @Override
+        public void managerChanged(Employee employee, Manager previousManager) {
+            followManager(employee);
+        }
+    };
+    private final ChangeLog changes = new ChangeLog();
+
+    /**
+     * Creates an empty hierarchy.
+     */
+    public IndexedManagementHierarchy() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty hierarchy with room for the given number of people before its indexes need to grow.
+     *
+     * @param expectedSize the number of employees, managers included, the hierarchy is expected to hold
+     */
+    public IndexedManagementHierarchy(int expectedSize) {
+        int capacity = Math.max(16, (int) (expectedSize / 0.75f) + 1);
+        managers = new HashSet<>(capacity / 4);
+        nodes = new HashMap<>(capacity);
+        reports = new HashMap<>(capacity / 4);
+    }
+
+    /**
+     * Adds a given manager to the hierarchy. If the manager is already included in the hierarchy,
+     * return false and leave the hierarchy unchanged. Otherwise, include the manager in the hierarchy
+     * and return true.
+     *
+     * @param manager the manager to add to the hierarchy.
+     * @return true if the manager was successfully added to the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean addManager(Manager manager) {
+        if (manager == null || !managers.add(manager)) {
+            return false;
+        }
+        HierarchyNode node = nodes.get(manager);
+        boolean joined = node == null;
+        if (joined) {
+            node = index(manager);
+        }
+        adoptWaitingReports(node);
+        if (joined) {
+            changes.added(manager, node.manager, true);
+        } else {
+            changes.registered(manager, node.manager);
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves a set of all managers already included in the hierarchy.
+     *
+     * @return a set of the managers already added to the hierarchy. If no managers have been added yet,
+     * returns an empty set.
+     */
+    @Override
+    public Set<Manager> getManagers() {
+        return Collections.unmodifiableSet(managers);
+    }
+
+    /**
+     * Check if the given manager has been added to the hierarchy.
+     *
+     * @param manager the manager to check for presence in the hierarchy.
+     * @return true if the manager is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasManager(Manager manager) {
+        return manager != null && managers.contains(manager);
+    }
+
+    /**
+     * Given a manager, retrieve the set of employees who report directly to that manager.
+     *
+     * @param manager the manager whose underlings are to be retrieved.
+     * @return a set of employees in the hierarchy for which the given manager is their direct superior.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> getUnderlings(Manager manager) {
+        Set<Employee> underlings = hasManager(manager) ? reports.get(manager) : null;
+        return underlings == null ? Collections.<Employee>emptySet() : Collections.unmodifiableSet(underlings);
+    }
+
+    /**
+     * Finds the member of the hierarchy with the given id.
+     *
+     * @param id the id of the employee to find
+     * @return the employee in the hierarchy with the given id, or null if there is none
+     */
+    @Override
+    public Employee getEmployee(long id) {
+        HierarchyNode node = nodes.get(new EmployeeKey(id));
+        return node == null ? null : node.employee;
+    }
+
+    /**
+     * Adds a given employee to the hierarchy. If the employee's manager is present in the hierarchy,
+     * include the employee and return true. Otherwise, return false and leave the hierarchy unchanged.
+     *
+     * @param employee the employee to add to the hierarchy
+     * @return true if the employee was added successfully, false otherwise.
+     */
+    @Override
+    public boolean addEmployee(Employee employee) {
+        if (employee == null || !hasManager(employee.getManager()) || nodes.containsKey(employee)) {
+            return false;
+        }
+        index(employee);
+        changes.added(employee, employee.getManager(), false);
+        return true;
+    }
+
+    /**
+     * @return the set of all employees in the hierarchy
+     */
+    @Override
+    public Set<Employee> getEmployees() {
+        return Collections.unmodifiableSet(nodes.keySet());
+    }
+
+    /**
+     * Check if the given employee is present in the hierarchy. If the employee has been added as
+     * a manager or as an employee, return true. If not, return false.
+     *
+     * @param employee the employee to check for presence in the hierarchy
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasEmployee(Employee employee) {
+        return employee != null && nodes.containsKey(employee);
+    }
+
+    /**
+     * Returns a representation of the management hierarchy as a map of managers to sets of employees,
+     * representing direct management relationships, i.e. all employees in a given manager's set should
+     * have that manager in its manager field.
+     *
+     * @return the entire management hierarchy as a map from managers to the set of employees directly under
+     * their supervision.
+     */
+    @Override
+    public Map<Manager, Set<Employee>> getHierarchy() {
+        Map<Manager, Set<Employee>> result = new HashMap<>(managers.size() * 4 / 3 + 1);
+        for (Manager m : managers) {
+            result.put(m, getUnderlings(m));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the chain of command for a given employee, represented by a list of managers. The first
+     * element of the list should be the given employee's direct manager, the second element should be
+     * that manager's direct manager, and so on.
+     *
+     * @param employee the employee whose chain of command is to be retrieved
+     * @return a list of managers that represents the chain of command for the given employee.
+     * If the employee is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    public List<Manager> getChainOfCommand(Employee employee) {
+        HierarchyNode node = employee == null ? null : nodes.get(employee);
+        return node == null ? ChainOfCommand.empty() : node.chainOfCommand();
+    }
+
+    /**
+     * Retrieves the chains of command of many employees at once. Each manager is looked at once per batch
+     * however many of the employees report to them, and the chains share the path above every manager they
+     * have in common.
+     *
+     * @param employees the employees whose chains of command are to be retrieved
+     * @return a map from each of the given employees to their chain of command, as
+     * {@link #getChainOfCommand(Employee)} would list it; employees not present in the hierarchy map to an
+     * empty chain
+     */
+    @Override
+    public Map<Employee, List<Manager>> getChainsOfCommand(Collection<? extends Employee> employees) {
+        Map<Employee, List<Manager>> result = new HashMap<>(Math.max(16, (int) (employees.size() / 0.75f) + 1));
+        for (Employee employee : employees) {
+            if (!result.containsKey(employee)) {
+                result.put(employee, getChainOfCommand(employee));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first manager shared by the chains of command of two employees, i.e. the closest manager
+     * that both employees ultimately report to.
+     *
+     * @param first  one of the employees
+     * @param second the other employee
+     * @return the lowest manager present in both chains of command, or null if the chains do not meet or
+     * either employee is not present in the hierarchy.
+     */
+    @Override
+    public Manager lowestCommonManager(Employee first, Employee second) {
+        HierarchyNode a = first == null ? null : nodes.get(first);
+        HierarchyNode b = second == null ? null : nodes.get(second);
+        if (a == null || b == null || a.parent == null || b.parent == null) {
+            return null;
+        }
+        HierarchyNode shared = HierarchyNode.lowestCommonAncestor(a.parent, b.parent);
+        return shared == null ? null : (Manager) shared.employee;
+    }
+
+    /**
+     * Check if the given manager appears anywhere in the given employee's chain of command.
+     *
+     * @param employee the employee whose chain of command is to be searched
+     * @param manager  the manager to look for
+     * @return true if the employee reports to the manager, directly or indirectly, false otherwise.
+     */
+    @Override
+    public boolean isInChainOfCommand(Employee employee, Manager manager) {
+        HierarchyNode node = employee == null ? null : nodes.get(employee);
+        HierarchyNode ancestor = hasManager(manager) ? nodes.get(manager) : null;
+        return node != null && ancestor != null && node != ancestor && node.isDescendantOf(ancestor);
+    }
+
+    /**
+     * Given a manager, retrieve every employee who reports to that manager, directly or indirectly.
+     *
+     * @param manager the manager whose organization is to be retrieved.
+     * @return a set of employees in the hierarchy that have the given manager in their chain of command.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> getAllReports(Manager manager) {
+        if (!hasManager(manager)) {
+            return new HashSet<>();
+        }
+        HierarchyNode node = nodes.get(manager);
+        Set<Employee> result = new HashSet<>(node.headcount * 4 / 3 + 1);
+        for (TourToken t = node.next; t != node.end; t = t.next) {
+            if (t instanceof HierarchyNode) {
+                result.add(((HierarchyNode) t).employee);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param manager the manager whose organization is to be counted.
+     * @return the number of employees who report to the given manager, directly or indirectly, or 0 if the
+     * manager is not present in the hierarchy.
+     */
+    @Override
+    public int getHeadcount(Manager manager) {
+        return hasManager(manager) ? nodes.get(manager).headcount : 0;
+    }
+
+    /**
+     * Finds every employee in the hierarchy holding the given title.
+     *
+     * @param title the title to look for
+     * @return a set of the employees in the hierarchy whose title equals the given title
+     */
+    @Override
+    public Set<Employee> findByTitle(String title) {
+        return lookup.withTitle(title);
+    }
+
+    /**
+     * Finds every employee in the given manager's organization holding the given title.
+     *
+     * @param title   the title to look for
+     * @param manager the manager whose organization is to be searched
+     * @return a set of the employees reporting to the manager, directly or indirectly, whose title equals
+     * the given title. If the manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> findByTitle(String title, Manager manager) {
+        if (!hasManager(manager)) {
+            return new HashSet<>();
+        }
+        HierarchyNode top = nodes.get(manager);
+        Set<Employee> matches = lookup.withTitle(title);
+        Set<Employee> result = new HashSet<>();
+        if (matches.size() <= top.headcount) {
+            for (Employee e : matches) {
+                if (reportsTo(nodes.get(e), top)) {
+                    result.add(e);
+                }
+            }
+        } else {
+            for (TourToken t = top.next; t != top.end; t = t.next) {
+                if (t instanceof HierarchyNode && Objects.equals(title, ((HierarchyNode) t).title)) {
+                    result.add(((HierarchyNode) t).employee);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds every employee in the hierarchy whose name starts with the given prefix, ignoring case.
+     *
+     * @param prefix the start of the names to look for
+     * @return a list of the matching employees, ordered by name without regard to case
+     */
+    @Override
+    public List<Employee> findByNamePrefix(String prefix) {
+        List<Employee> result = new ArrayList<>();
+        for (Employee e : lookup.withNamePrefix(prefix)) {
+            result.add(e);
+        }
+        return result;
+    }
+
+    /**
+     * Finds every employee in the given manager's organization whose name starts with the given prefix,
+     * ignoring case.
+     *
+     * @param prefix  the start of the names to look for
+     * @param manager the manager whose organization is to be searched
+     * @return a list of the matching employees reporting to the manager, directly or indirectly, ordered by
+     * name without regard to case. If the manager is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    public List<Employee> findByNamePrefix(String prefix, Manager manager) {
+        if (!hasManager(manager)) {
+            return new ArrayList<>();
+        }
+        HierarchyNode top = nodes.get(manager);
+        List<Employee> result = new ArrayList<>();
+        // Check the matches one by one until that has cost as much as walking the organization would.
+        int budget = top.headcount;
+        for (Employee e : lookup.withNamePrefix(prefix)) {
+            if (budget-- == 0) {
+                List<Employee> organization = new ArrayList<>(top.headcount);
+                for (TourToken t = top.next; t != top.end; t = t.next) {
+                    if (t instanceof HierarchyNode) {
+                        organization.add(((HierarchyNode) t).employee);
+                    }
+                }
+                return ManagementHierarchy.namesStartingWith(prefix, organization);
+            }
+            if (reportsTo(nodes.get(e), top)) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Streams every employee who reports to the given manager, directly or indirectly, as
+     * {@link #getAllReports(Manager)} would list them. The organization is walked as the stream is consumed,
+     * so short-circuiting operations such as {@code findFirst} or {@code limit} only visit what they need.
+     * The hierarchy must not change until the stream is done with.
+     *
+     * @param manager the manager whose organization is to be streamed
+     * @return a stream of the manager's organization, empty if the manager is not present in the hierarchy
+     */
+    @Override
+    public Stream<Employee> allReports(Manager manager) {
+        if (!hasManager(manager)) {
+            return Stream.empty();
+        }
+        HierarchyNode node = nodes.get(manager);
+        return StreamSupport.stream(new TourSpliterator(node.next, node.headcount), false);
+    }
+
+    /**
+     * Streams the chain of command of the given employee, starting with their direct manager, as
+     * {@link #getChainOfCommand(Employee)} would list it. The hierarchy must not change until the stream is
+     * done with.
+     *
+     * @param employee the employee whose chain of command is to be streamed
+     * @return an ordered stream of the employee's managers, empty if the employee is not present in the
+     * hierarchy
+     */
+    @Override
+    public Stream<Manager> chainOfCommand(Employee employee) {
+        HierarchyNode node = employee == null ? null : nodes.get(employee);
+        if (node == null || node.parent == null) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(new ChainSpliterator(node.parent, node.depth), false);
+    }
+
+    /**
+     * Removes a given employee from the hierarchy. A manager can only be removed once nobody is filed
+     * under them any more; transfer their reports first. A removed manager is no longer registered.
+     *
+     * @param employee the employee to remove from the hierarchy
+     * @return true if the employee was removed, false if they were not present or still have reports.
+     */
+    @Override
+    public boolean removeEmployee(Employee employee) {
+        HierarchyNode node = employee == null ? null : nodes.get(employee);
+        if (node == null) {
+            return false;
+        }
+        Set<Employee> underlings = employee instanceof Manager ? reports.get(employee) : null;
+        if (underlings != null && !underlings.isEmpty()) {
+            return false;
+        }
+        node.detach();
+        unfile(node);
+        nodes.remove(employee);
+        lookup.remove(node);
+        node.employee.removeListener(watcher);
+        if (managers.remove(employee)) {
+            reports.remove(employee);
+        }
+        changes.removed(node.employee, node.manager);
+        return true;
+    }
+
+    /**
+     * Moves a given employee, together with everyone who reports to them, under a new manager, and records
+     * the new manager in the employee's manager field. The move is refused if the new manager reports to
+     * the employee, since the chain of command would then loop.
+     *
+     * @param employee   the employee to move
+     * @param newManager the manager the employee should report to from now on
+     * @return true if the employee was moved, false if either person is not present in the hierarchy, the
+     * employee already reports to the new manager, or the move would close a loop.
+     */
+    @Override
+    public boolean transferEmployee(Employee employee, Manager newManager) {
+        HierarchyNode node = employee == null ? null : nodes.get(employee);
+        HierarchyNode target = hasManager(newManager) ? nodes.get(newManager) : null;
+        if (node == null || target == null || node.parent == target || target.isDescendantOf(node)) {
+            return false;
+        }
+        move(node, target);
+        node.employee.setManager((Manager) target.employee);
+        return true;
+    }
+
+    /**
+     * Replaces a given grunt with a new {@link Manager} of the same id, name, title and manager, registered as
+     * a manager in the same place in the hierarchy. The grunt itself is no longer present in the hierarchy
+     * afterwards.
+     *
+     * @param grunt the grunt to promote
+     * @return the manager that took the grunt's place, or null if the grunt is not present in the hierarchy.
+     */
+    @Override
+    public Manager promoteToManager(Grunt grunt) {
+        HierarchyNode node = grunt == null ? null : nodes.get(grunt);
+        if (node == null) {
+            return null;
+        }
+        Manager manager = node.manager;
+        Manager promoted;
+        changes.begin();
+        try {
+            removeEmployee(grunt);
+            promoted = new Manager(grunt.getId(), grunt.getName(), grunt.getTitle(), manager);
+            addManager(promoted);
+        } finally {
+            changes.end();
+        }
+        return promoted;
+    }
+
+    /**
+     * Changes a given employee's title and reports the change to subscribers.
+     *
+     * @param employee the employee whose title is to be changed
+     * @param title    the new title
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean retitleEmployee(Employee employee, String title) {
+        HierarchyNode node = employee == null ? null : nodes.get(employee);
+        if (node == null) {
+            return false;
+        }
+        node.employee.setTitle(title);
+        followTitle(node.employee);
+        return true;
+    }
+
+    /**
+     * @return the sequence number of the last change made to the hierarchy, or 0 if nothing has changed
+     */
+    @Override
+    public long getSequence() {
+        return changes.sequence();
+    }
+
+    /**
+     * Registers a listener for every change after the given sequence number. Changes the hierarchy still
+     * remembers are delivered before this method returns; later ones as they happen.
+     *
+     * @param listener      the listener to call with each batch of changes
+     * @param afterSequence the sequence number of the last change the listener has already seen
+     * @return the subscription, to be closed when the listener is no longer interested
+     * @throws IllegalArgumentException if the sequence number is ahead of the hierarchy
+     * @throws IllegalStateException    if the hierarchy no longer remembers the changes after the given
+     *                                  sequence number; the listener has to start over from a snapshot
+     */
+    @Override
+    public HierarchySubscription subscribe(HierarchyListener listener, long afterSequence) {
+        return changes.subscribe(listener, afterSequence);
+    }
+
+    /**
+     * Runs the given operations on this hierarchy and delivers all of their changes to subscribers as a
+     * single batch once they are done.
+     *
+     * @param operations the operations to run
+     */
+    public void batch(Runnable operations) {
+        changes.begin();
+        try {
+            operations.run();
+        } finally {
+            changes.end();
+        }
+    }
+
+    /**
+     * Fills an empty hierarchy in a single pass. Every manager's node must come before the nodes of the
+     * people filed under it; a member whose manager comes later in the list is left unattached, exactly
+     * as if that link had closed a loop. Loading is not reported as changes: the loaded state is where the
+     * hierarchy's sequence starts.
+     *
+     * @param ordered     every member of the hierarchy, managers before their reports
+     * @param newManagers the members to register as managers
+     */
+    void load(List<Employee> ordered, Collection<Manager> newManagers) {
+        managers.addAll(newManagers);
+        HierarchyNode[] created = new HierarchyNode[ordered.size()];
+        for (int i = 0; i < created.length; i++) {
+            Employee employee = ordered.get(i);
+            HierarchyNode node = new HierarchyNode(employee);
+            nodes.put(employee, node);
+            lookup.add(node);
+            watch(employee);
+            created[i] = node;
+            if (node.manager == null) {
+                continue;
+            }
+            file(employee, node.manager);
+            HierarchyNode parent = managers.contains(node.manager) ? nodes.get(node.manager) : null;
+            if (parent != null) {
+                node.parent = parent;
+                node.relink();
+                parent.end.spliceBefore(node, node.end);
+            }
+        }
+        for (int i = created.length - 1; i >= 0; i--) {
+            HierarchyNode node = created[i];
+            if (node.parent != null) {
+                node.parent.headcount += node.headcount + 1;
+            }
+        }
+    }
+
+    /**
+     * @param employee a member of the hierarchy
+     * @return the manager the member is filed under, which can differ from their manager field after that was
+     * set directly to someone they could not be moved under, or null if they are not a member or are filed
+     * under nobody
+     */
+    Manager filedUnder(Employee employee) {
+        HierarchyNode node = employee == null ? null : nodes.get(employee);
+        return node == null ? null : node.manager;
+    }
+
+    /**
+     * Files a member under the manager of the given node and moves their organization along, reporting the
+     * move. The employee's own manager field is left for the caller.
+     */
+    private void move(HierarchyNode node, HierarchyNode target) {
+        Manager oldManager = node.manager;
+        Manager newManager = (Manager) target.employee;
+        node.detach();
+        unfile(node);
+        node.manager = newManager;
+        file(node.employee, newManager);
+        node.parent = target;
+        node.attach();
+        relinkSubtree(node);
+        changes.moved(node.employee, oldManager, newManager, managers.contains(node.employee));
+    }
+
+    /**
+     * Starts following changes made to the given member directly, if they report them.
+     */
+    private void watch(Employee employee) {
+        try {
+            employee.addListener(watcher);
+        } catch (UnsupportedOperationException e) {
+            // such employees are only kept up to date by the hierarchy's own methods
+        }
+    }
+
+    private void followName(Employee employee) {
+        HierarchyNode node = nodes.get(employee);
+        if (node != null && node.employee == employee && !Objects.equals(node.name, employee.getName())) {
+            lookup.rename(node, employee.getName());
+            changes.renamed(employee, node.manager, managers.contains(employee));
+        }
+    }
+
+    private void followTitle(Employee employee) {
+        HierarchyNode node = nodes.get(employee);
+        if (node != null && node.employee == employee && !Objects.equals(node.title, employee.getTitle())) {
+            String oldTitle = node.title;
+            lookup.retitle(node, employee.getTitle());
+            changes.retitled(employee, node.manager, oldTitle, employee.getTitle(), managers.contains(employee));
+        }
+    }
+
+    /**
+     * Moves a member whose manager field was changed directly to the new manager, provided
+     * {@link #transferEmployee(Employee, Manager)} would have allowed the move. Otherwise the member stays
+     * filed where they were.
+     */
+    private void followManager(Employee employee) {
+        HierarchyNode node = nodes.get(employee);
+        Manager newManager = employee.getManager();
+        if (node == null || node.employee != employee || Objects.equals(node.manager, newManager)) {
+            return;
+        }
+        HierarchyNode target = hasManager(newManager) ? nodes.get(newManager) : null;
+        if (target != null && target != node.parent && !target.isDescendantOf(node)) {
+            move(node, target);
+        }
+    }
+
+    private static boolean reportsTo(HierarchyNode node, HierarchyNode manager) {
+        return node != manager && node.isDescendantOf(manager);
+    }
+
+    private HierarchyNode index(Employee employee) {
+        HierarchyNode node = new HierarchyNode(employee);
+        nodes.put(employee, node);
+        lookup.add(node);
+        watch(employee);
+        if (node.manager != null) {
+            file(employee, node.manager);
+            if (managers.contains(node.manager)) {
+                node.parent = nodes.get(node.manager);
+                node.relink();
+                node.attach();
+            }
+        }
+        return node;
+    }
+
+    private void file(Employee employee, Manager manager) {
+        Set<Employee> underlings = reports.get(manager);
+        if (underlings == null) {
+            underlings = new HashSet<>();
+            reports.put(manager, underlings);
+        }
+        underlings.add(employee);
+    }
+
+    /**
+     * Takes a node out of the reports of the manager it was filed under. The report sets of registered
+     * managers are kept even when empty, since views of them may have been handed out.
+     */
+    private void unfile(HierarchyNode node) {
+        if (node.manager == null) {
+            return;
+        }
+        Set<Employee> underlings = reports.get(node.manager);
+        underlings.remove(node.employee);
+        if (underlings.isEmpty() && !managers.contains(node.manager)) {
+            reports.remove(node.manager);
+        }
+    }
+
+    /**
+     * Hooks up any managers that were filed under the given manager before it joined the hierarchy.
+     * Reports that would close a loop in the chain of command are left where they are.
+     */
+    private void adoptWaitingReports(HierarchyNode manager) {
+        Set<Employee> waiting = reports.get((Manager) manager.employee);
+        if (waiting == null) {
+            return;
+        }
+        for (Employee e : waiting) {
+            HierarchyNode child = nodes.get(e);
+            if (child.parent == null && !manager.isDescendantOf(child)) {
+                child.parent = manager;
+                child.attach();
+                relinkSubtree(child);
+            }
+        }
+    }
+
+    private void relinkSubtree(HierarchyNode root) {
+        Deque<HierarchyNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            HierarchyNode node = stack.pop();
+            node.relink();
+            Set<Employee> underlings = node.employee instanceof Manager ? reports.get(node.employee) : null;
+            if (underlings != null) {
+                for (Employee e : underlings) {
+                    HierarchyNode child = nodes.get(e);
+                    if (child.parent == node) {
+                        stack.push(child);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,758 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.HierarchyListener;
+import com.cooksys.collections.HierarchyMetrics;
+import com.cooksys.collections.HierarchyMetrics.Operation;
+import com.cooksys.collections.HierarchySnapshot;
+import com.cooksys.collections.HierarchySubscription;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A {@link ManagementHierarchy} decorator that measures every call it passes on to the decorated hierarchy
+ * and reports the measurements to a {@link HierarchyMetrics}. Each call is timed with
+ * {@link System#nanoTime()}, and the size of every collection or map returned is reported with it, so an
+ * operation that is linear in the size of the hierarchy shows up both as slow and as large.
+ *
+ * Optionally, the bytes the calling thread allocated during each call are measured too, on runtimes whose
+ * thread management bean can report them. This costs more than the timing itself and is off by default.
+ *
+ * Calls taking at least the slow-call threshold also commit a {@code com.cooksys.collections.SlowCall}
+ * event to the Flight Recorder, where it is available, carrying the same measurements. The event costs
+ * nothing unless a recording enables it.
+ *
+ * Streams are measured as they are created, not as they are consumed. The decorator is as thread-safe as
+ * the hierarchy it decorates and the metrics it reports to.
+ */
+public class InstrumentedManagementHierarchy implements ManagementHierarchy {
+    /**
+     * The slow-call threshold of {@link #InstrumentedManagementHierarchy(ManagementHierarchy, HierarchyMetrics)}.
+     */
+    public static final long DEFAULT_SLOW_CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final boolean FLIGHT_RECORDER = isPresent("jdk.jfr.Event");
+
+    private final ManagementHierarchy delegate;
+    private final HierarchyMetrics metrics;
+    private final long slowCallNanos;
+    private final com.sun.management.ThreadMXBean allocations;
+
+    /**
+     * Creates a decorator reporting calls of at least {@link #DEFAULT_SLOW_CALL_NANOS} to the Flight
+     * Recorder, without measuring allocations.
+     *
+     * @param delegate the hierarchy to decorate
+     * @param metrics  where to report the measurements
+     */
+    public InstrumentedManagementHierarchy(ManagementHierarchy delegate, HierarchyMetrics metrics) {
+        this(delegate, metrics, DEFAULT_SLOW_CALL_NANOS, false);
+    }
+
+    /**
+     * @param delegate          the hierarchy to decorate
+     * @param metrics           where to report the measurements
+     * @param slowCallNanos     the time from which a call is reported to the Flight Recorder
+     * @param trackAllocations  whether to measure the bytes allocated by each call, where the runtime allows
+     */
+    public InstrumentedManagementHierarchy(ManagementHierarchy delegate, HierarchyMetrics metrics,
+                                           long slowCallNanos, boolean trackAllocations) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        if (metrics == null) {
+            throw new NullPointerException("metrics");
+        }
+        if (slowCallNanos < 0) {
+            throw new IllegalArgumentException("Negative threshold " + slowCallNanos);
+        }
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.slowCallNanos = slowCallNanos;
+        this.allocations = trackAllocations ? allocationBean() : null;
+    }
+
+    /**
+     * @return the hierarchy behind this decorator
+     */
+    public ManagementHierarchy getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return where this decorator reports its measurements
+     */
+    public HierarchyMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return true if the bytes allocated by each call are being measured
+     */
+    public boolean isTrackingAllocations() {
+        return allocations != null;
+    }
+
+    /**
+     * Adds a given manager to the hierarchy. If the manager is already included in the hierarchy,
+     * return false and leave the hierarchy unchanged. Otherwise, include the manager in the hierarchy
+     * and return true.
+     *
+     * @param manager the manager to add to the hierarchy.
+     * @return true if the manager was successfully added to the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean addManager(Manager manager) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.ADD_MANAGER, start, allocated, delegate.addManager(manager));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.ADD_MANAGER, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves a set of all managers already included in the hierarchy.
+     *
+     * @return a set of the managers already added to the hierarchy. If no managers have been added yet,
+     * returns an empty set.
+     */
+    @Override
+    public Set<Manager> getManagers() {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.GET_MANAGERS, start, allocated, delegate.getManagers());
+        } catch (RuntimeException | Error e) {
+            failed(Operation.GET_MANAGERS, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Check if the given manager has been added to the hierarchy.
+     *
+     * @param manager the manager to check for presence in the hierarchy.
+     * @return true if the manager is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasManager(Manager manager) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.HAS_MANAGER, start, allocated, delegate.hasManager(manager));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.HAS_MANAGER, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Given a manager, retrieve the set of employees who report directly to that manager.
+     *
+     * @param manager the manager whose underlings are to be retrieved.
+     * @return a set of employees in the hierarchy for which the given manager is their direct superior.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> getUnderlings(Manager manager) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.GET_UNDERLINGS, start, allocated, delegate.getUnderlings(manager));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.GET_UNDERLINGS, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the direct reports of many managers at once, asking for each distinct manager only once.
+     *
+     * @param managers the managers whose underlings are to be retrieved
+     * @return a map from each of the given managers to their underlings, as {@link #getUnderlings(Manager)}
+     * would list them
+     */
+    @Override
+    public Map<Manager, Set<Employee>> getUnderlings(Collection<? extends Manager> managers) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.GET_UNDERLINGS_BATCH, start, allocated, delegate.getUnderlings(managers));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.GET_UNDERLINGS_BATCH, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Adds a given employee to the hierarchy. If the employee's manager is present in the hierarchy,
+     * include the employee and return true. Otherwise, return false and leave the hierarchy unchanged.
+     *
+     * @param employee the employee to add to the hierarchy
+     * @return true if the employee was added successfully, false otherwise.
+     */
+    @Override
+    public boolean addEmployee(Employee employee) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.ADD_EMPLOYEE, start, allocated, delegate.addEmployee(employee));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.ADD_EMPLOYEE, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the set of all employees in the hierarchy
+     */
+    @Override
+    public Set<Employee> getEmployees() {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.GET_EMPLOYEES, start, allocated, delegate.getEmployees());
+        } catch (RuntimeException | Error e) {
+            failed(Operation.GET_EMPLOYEES, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the member of the hierarchy with the given id.
+     *
+     * @param id the id of the employee to find
+     * @return the employee in the hierarchy with the given id, or null if there is none
+     */
+    @Override
+    public Employee getEmployee(long id) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.GET_EMPLOYEE, start, allocated, delegate.getEmployee(id));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.GET_EMPLOYEE, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Check if the given employee is present in the hierarchy. If the employee has been added as
+     * a manager or as an employee, return true. If not, return false.
+     *
+     * @param employee the employee to check for presence in the hierarchy
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasEmployee(Employee employee) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.HAS_EMPLOYEE, start, allocated, delegate.hasEmployee(employee));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.HAS_EMPLOYEE, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a representation of the management hierarchy as a map of managers to sets of employees,
+     * representing direct management relationships, i.e. all employees in a given manager's set should
+     * have that manager in its manager field.
+     *
+     * @return the entire management hierarchy as a map from managers to the set of employees directly under
+     * their supervision.
+     */
+    @Override
+    public Map<Manager, Set<Employee>> getHierarchy() {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.GET_HIERARCHY, start, allocated, delegate.getHierarchy());
+        } catch (RuntimeException | Error e) {
+            failed(Operation.GET_HIERARCHY, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the chain of command for a given employee, represented by a list of managers. The first
+     * element of the list should be the given employee's direct manager, the second element should be
+     * that manager's direct manager, and so on.
+     *
+     * @param employee the employee whose chain of command is to be retrieved
+     * @return a list of managers that represents the chain of command for the given employee.
+     * If the employee is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    public List<Manager> getChainOfCommand(Employee employee) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.GET_CHAIN_OF_COMMAND, start, allocated, delegate.getChainOfCommand(employee));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.GET_CHAIN_OF_COMMAND, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the chains of command of many employees at once. Each manager is looked at once per batch
+     * however many of the employees report to them, and the chains share the path above every manager they
+     * have in common.
+     *
+     * @param employees the employees whose chains of command are to be retrieved
+     * @return a map from each of the given employees to their chain of command, as
+     * {@link #getChainOfCommand(Employee)} would list it; employees not present in the hierarchy map to an
+     * empty chain
+     */
+    @Override
+    public Map<Employee, List<Manager>> getChainsOfCommand(Collection<? extends Employee> employees) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.GET_CHAINS_OF_COMMAND, start, allocated, delegate.getChainsOfCommand(employees));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.GET_CHAINS_OF_COMMAND, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the first manager shared by the chains of command of two employees, i.e. the closest manager
+     * that both employees ultimately report to.
+     *
+     * @param first  one of the employees
+     * @param second the other employee
+     * @return the lowest manager present in both chains of command, or null if the chains do not meet or
+     * either employee is not present in the hierarchy.
+     */
+    @Override
+    public Manager lowestCommonManager(Employee first, Employee second) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.LOWEST_COMMON_MANAGER, start, allocated, delegate.lowestCommonManager(first, second));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.LOWEST_COMMON_MANAGER, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Check if the given manager appears anywhere in the given employee's chain of command.
+     *
+     * @param employee the employee whose chain of command is to be searched
+     * @param manager  the manager to look for
+     * @return true if the employee reports to the manager, directly or indirectly, false otherwise.
+     */
+    @Override
+    public boolean isInChainOfCommand(Employee employee, Manager manager) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.IS_IN_CHAIN_OF_COMMAND, start, allocated, delegate.isInChainOfCommand(employee, manager));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.IS_IN_CHAIN_OF_COMMAND, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Given a manager, retrieve every employee who reports to that manager, directly or indirectly.
+     *
+     * @param manager the manager whose organization is to be retrieved.
+     * @return a set of employees in the hierarchy that have the given manager in their chain of command.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> getAllReports(Manager manager) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.GET_ALL_REPORTS, start, allocated, delegate.getAllReports(manager));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.GET_ALL_REPORTS, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * @param manager the manager whose organization is to be counted.
+     * @return the number of employees who report to the given manager, directly or indirectly, or 0 if the
+     * manager is not present in the hierarchy.
+     */
+    @Override
+    public int getHeadcount(Manager manager) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.GET_HEADCOUNT, start, allocated, delegate.getHeadcount(manager));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.GET_HEADCOUNT, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Finds every employee in the hierarchy holding the given title.
+     *
+     * @param title the title to look for
+     * @return a set of the employees in the hierarchy whose title equals the given title
+     */
+    @Override
+    public Set<Employee> findByTitle(String title) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.FIND_BY_TITLE, start, allocated, delegate.findByTitle(title));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.FIND_BY_TITLE, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Finds every employee in the given manager's organization holding the given title.
+     *
+     * @param title   the title to look for
+     * @param manager the manager whose organization is to be searched
+     * @return a set of the employees reporting to the manager, directly or indirectly, whose title equals
+     * the given title. If the manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> findByTitle(String title, Manager manager) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.FIND_BY_TITLE_WITHIN, start, allocated, delegate.findByTitle(title, manager));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.FIND_BY_TITLE_WITHIN, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Finds every employee in the hierarchy whose name starts with the given prefix, ignoring case.
+     *
+     * @param prefix the start of the names to look for
+     * @return a list of the matching employees, ordered by name without regard to case
+     */
+    @Override
+    public List<Employee> findByNamePrefix(String prefix) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.FIND_BY_NAME_PREFIX, start, allocated, delegate.findByNamePrefix(prefix));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.FIND_BY_NAME_PREFIX, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Finds every employee in the given manager's organization whose name starts with the given prefix,
+     * ignoring case.
+     *
+     * @param prefix  the start of the names to look for
+     * @param manager the manager whose organization is to be searched
+     * @return a list of the matching employees reporting to the manager, directly or indirectly, ordered by
+     * name without regard to case. If the manager is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    public List<Employee> findByNamePrefix(String prefix, Manager manager) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.FIND_BY_NAME_PREFIX_WITHIN, start, allocated, delegate.findByNamePrefix(prefix, manager));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.FIND_BY_NAME_PREFIX_WITHIN, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Streams every employee in the hierarchy, as {@link #getEmployees()} would list them. The stream reads
+     * the hierarchy as it is consumed, so the hierarchy must not change until the stream is done with.
+     *
+     * @return a stream of all employees in the hierarchy
+     */
+    @Override
+    public Stream<Employee> employees() {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.EMPLOYEES, start, allocated, delegate.employees());
+        } catch (RuntimeException | Error e) {
+            failed(Operation.EMPLOYEES, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Streams the employees who report directly to the given manager, as {@link #getUnderlings(Manager)}
+     * would list them. The hierarchy must not change until the stream is done with.
+     *
+     * @param manager the manager whose underlings are to be streamed
+     * @return a stream of the manager's direct reports, empty if the manager is not present in the hierarchy
+     */
+    @Override
+    public Stream<Employee> underlings(Manager manager) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.UNDERLINGS, start, allocated, delegate.underlings(manager));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.UNDERLINGS, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Streams every employee who reports to the given manager, directly or indirectly, as
+     * {@link #getAllReports(Manager)} would list them. The organization is walked as the stream is consumed,
+     * so short-circuiting operations such as {@code findFirst} or {@code limit} only visit what they need.
+     * The hierarchy must not change until the stream is done with.
+     *
+     * @param manager the manager whose organization is to be streamed
+     * @return a stream of the manager's organization, empty if the manager is not present in the hierarchy
+     */
+    @Override
+    public Stream<Employee> allReports(Manager manager) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.ALL_REPORTS, start, allocated, delegate.allReports(manager));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.ALL_REPORTS, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Streams the chain of command of the given employee, starting with their direct manager, as
+     * {@link #getChainOfCommand(Employee)} would list it. The hierarchy must not change until the stream is
+     * done with.
+     *
+     * @param employee the employee whose chain of command is to be streamed
+     * @return an ordered stream of the employee's managers, empty if the employee is not present in the
+     * hierarchy
+     */
+    @Override
+    public Stream<Manager> chainOfCommand(Employee employee) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.CHAIN_OF_COMMAND, start, allocated, delegate.chainOfCommand(employee));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.CHAIN_OF_COMMAND, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Captures the current state of the hierarchy as an immutable snapshot. Later changes to the hierarchy
+     * are not reflected in the snapshot.
+     *
+     * @return a snapshot of the managers and employees currently in the hierarchy
+     */
+    @Override
+    public HierarchySnapshot snapshot() {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.SNAPSHOT, start, allocated, delegate.snapshot());
+        } catch (RuntimeException | Error e) {
+            failed(Operation.SNAPSHOT, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Removes a given employee from the hierarchy. A manager can only be removed once nobody is filed
+     * under them any more; transfer their reports first. A removed manager is no longer registered.
+     *
+     * @param employee the employee to remove from the hierarchy
+     * @return true if the employee was removed, false if they were not present or still have reports.
+     */
+    @Override
+    public boolean removeEmployee(Employee employee) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.REMOVE_EMPLOYEE, start, allocated, delegate.removeEmployee(employee));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.REMOVE_EMPLOYEE, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Moves a given employee, together with everyone who reports to them, under a new manager, and records
+     * the new manager in the employee's manager field. The move is refused if the new manager reports to
+     * the employee, since the chain of command would then loop.
+     *
+     * @param employee   the employee to move
+     * @param newManager the manager the employee should report to from now on
+     * @return true if the employee was moved, false if either person is not present in the hierarchy, the
+     * employee already reports to the new manager, or the move would close a loop.
+     */
+    @Override
+    public boolean transferEmployee(Employee employee, Manager newManager) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.TRANSFER_EMPLOYEE, start, allocated, delegate.transferEmployee(employee, newManager));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.TRANSFER_EMPLOYEE, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces a given grunt with a new {@link Manager} of the same id, name, title and manager, registered as
+     * a manager in the same place in the hierarchy. The grunt itself is no longer present in the hierarchy
+     * afterwards.
+     *
+     * @param grunt the grunt to promote
+     * @return the manager that took the grunt's place, or null if the grunt is not present in the hierarchy.
+     */
+    @Override
+    public Manager promoteToManager(Grunt grunt) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.PROMOTE_TO_MANAGER, start, allocated, delegate.promoteToManager(grunt));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.PROMOTE_TO_MANAGER, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Changes a given employee's title and reports the change to subscribers.
+     *
+     * @param employee the employee whose title is to be changed
+     * @param title    the new title
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean retitleEmployee(Employee employee, String title) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return measured(Operation.RETITLE_EMPLOYEE, start, allocated, delegate.retitleEmployee(employee, title));
+        } catch (RuntimeException | Error e) {
+            failed(Operation.RETITLE_EMPLOYEE, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the sequence number of the last change made to the decorated hierarchy
+     */
+    @Override
+    public long getSequence() {
+        return delegate.getSequence();
+    }
+
+    /**
+     * Registers a listener with the decorated hierarchy.
+     *
+     * @param listener      the listener to call with each batch of changes
+     * @param afterSequence the sequence number of the last change the listener has already seen
+     * @return the subscription, to be closed when the listener is no longer interested
+     */
+    @Override
+    public HierarchySubscription subscribe(HierarchyListener listener, long afterSequence) {
+        return delegate.subscribe(listener, afterSequence);
+    }
+
+    private <T extends Collection<?>> T measured(Operation operation, long start, long allocated, T result) {
+        finish(operation, start, allocated, result == null ? HierarchyMetrics.UNKNOWN : result.size());
+        return result;
+    }
+
+    private <T extends Map<?, ?>> T measured(Operation operation, long start, long allocated, T result) {
+        finish(operation, start, allocated, result == null ? HierarchyMetrics.UNKNOWN : result.size());
+        return result;
+    }
+
+    private <T> T measured(Operation operation, long start, long allocated, T result) {
+        finish(operation, start, allocated, HierarchyMetrics.UNKNOWN);
+        return result;
+    }
+
+    private boolean measured(Operation operation, long start, long allocated, boolean result) {
+        finish(operation, start, allocated, HierarchyMetrics.UNKNOWN);
+        return result;
+    }
+
+    private int measured(Operation operation, long start, long allocated, int result) {
+        finish(operation, start, allocated, HierarchyMetrics.UNKNOWN);
+        return result;
+    }
+
+    private void finish(Operation operation, long start, long allocated, long resultSize) {
+        long nanos = System.nanoTime() - start;
+        long bytes = allocated == HierarchyMetrics.UNKNOWN ? HierarchyMetrics.UNKNOWN : allocatedBytes() - allocated;
+        metrics.record(operation, nanos, resultSize, bytes);
+        if (FLIGHT_RECORDER && nanos >= slowCallNanos) {
+            SlowCallEvent.commit(operation, nanos, resultSize, bytes);
+        }
+    }
+
+    private void failed(Operation operation, long start, Throwable failure) {
+        metrics.failed(operation, System.nanoTime() - start, failure);
+    }
+
+    private long allocatedBytes() {
+        return allocations == null ? HierarchyMetrics.UNKNOWN
+                : allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return the platform's thread bean if it can measure allocations, switching the measurement on, or
+     * null if it cannot
+     */
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+                return null;
+            }
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (!threads.isThreadAllocatedMemorySupported()) {
+                return null;
+            }
+            if (!threads.isThreadAllocatedMemoryEnabled()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+            return threads;
+        } catch (LinkageError | UnsupportedOperationException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static boolean isPresent(String className) {
+        try {
+            Class.forName(className, false, InstrumentedManagementHierarchy.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
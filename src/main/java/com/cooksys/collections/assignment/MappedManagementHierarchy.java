@@ -0,0 +1,484 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A read-only {@link ManagementHierarchy} that answers queries directly from a memory-mapped
+ * {@link HierarchyFile}. Opening a file only validates its header; the tree is never deserialized, and
+ * because the mapping is read-only the operating system can share one copy of the file between every
+ * process that opens it.
+ *
+ * The people in the file are identified by dense int ids, and the id-based methods of this class read the
+ * file without creating any objects. The {@link ManagementHierarchy} methods hand out {@link Manager} and
+ * {@link Grunt} objects that are created the first time each id is needed and reused after that. They carry
+ * the employee ids stored in the file, so any employee equal to one that was written is recognized when
+ * passed in as an argument, and {@link #getEmployee(long)} finds people by binary search over the file. The
+ * {@code add} methods throw {@link UnsupportedOperationException}.
+ */
+public class MappedManagementHierarchy implements ManagementHierarchy {
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int managerCount;
+    private final int employeeIdBase;
+    private final int byEmployeeIdBase;
+    private final int parentBase;
+    private final int reportStartBase;
+    private final int reportBase;
+    private final int stringStartBase;
+    private final int flagBase;
+    private final int poolBase;
+
+    private final Employee[] materialized;
+
+    private MappedManagementHierarchy(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HierarchyFile.HEADER_SIZE || buffer.getInt(0) != HierarchyFile.MAGIC) {
+            throw new IOException("Not a hierarchy file");
+        }
+        if (buffer.getInt(4) != HierarchyFile.VERSION) {
+            throw new IOException("Unsupported hierarchy file version " + buffer.getInt(4));
+        }
+        count = buffer.getInt(8);
+        managerCount = buffer.getInt(12);
+        int reportTotal = buffer.getInt(16);
+        int poolSize = buffer.getInt(20);
+        employeeIdBase = HierarchyFile.HEADER_SIZE;
+        byEmployeeIdBase = employeeIdBase + 8 * count;
+        parentBase = byEmployeeIdBase + 4 * count;
+        reportStartBase = parentBase + 4 * count;
+        reportBase = reportStartBase + 4 * (count + 1);
+        stringStartBase = reportBase + 4 * reportTotal;
+        flagBase = stringStartBase + 4 * (2 * count + 1);
+        poolBase = flagBase + count;
+        if (count < 0 || (long) poolBase + poolSize > buffer.capacity()) {
+            throw new IOException("Truncated hierarchy file");
+        }
+        materialized = new Employee[count];
+    }
+
+    /**
+     * Maps the given hierarchy file into memory.
+     *
+     * @param path the file to open
+     * @return a hierarchy reading from the file
+     * @throws IOException if the file cannot be mapped or is not a valid hierarchy file
+     */
+    public static MappedManagementHierarchy open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedManagementHierarchy(buffer);
+        }
+    }
+
+    /**
+     * @return the number of people in the file
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param id a person's id
+     * @return the person's employee id
+     */
+    public long employeeId(int id) {
+        return buffer.getLong(employeeIdBase + 8 * id);
+    }
+
+    /**
+     * @param employeeId an employee id
+     * @return the id of the person with the given employee id, or -1 if there is nobody with it in the file
+     */
+    public int find(long employeeId) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int id = buffer.getInt(byEmployeeIdBase + 4 * middle);
+            long found = employeeId(id);
+            if (found < employeeId) {
+                low = middle + 1;
+            } else if (found > employeeId) {
+                high = middle - 1;
+            } else {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param id a person's id
+     * @return the id of the person's manager, or -1 if the person is at the top of the hierarchy
+     */
+    public int parentId(int id) {
+        return buffer.getInt(parentBase + 4 * id);
+    }
+
+    /**
+     * @param id a person's id
+     * @return true if the person is registered as a manager
+     */
+    public boolean isManagerId(int id) {
+        return (buffer.get(flagBase + id) & HierarchyFile.MANAGER) != 0;
+    }
+
+    /**
+     * @param id a person's id
+     * @return the number of people reporting directly to the person
+     */
+    public int reportCount(int id) {
+        return buffer.getInt(reportStartBase + 4 * (id + 1)) - buffer.getInt(reportStartBase + 4 * id);
+    }
+
+    /**
+     * @param id    a person's id
+     * @param index the position of the report, from 0 to {@link #reportCount(int)} - 1
+     * @return the id of the person's report at that position
+     */
+    public int reportId(int id, int index) {
+        return buffer.getInt(reportBase + 4 * (buffer.getInt(reportStartBase + 4 * id) + index));
+    }
+
+    /**
+     * @param id a person's id
+     * @return the person's name
+     */
+    public String name(int id) {
+        return string(id, 0, HierarchyFile.NULL_NAME);
+    }
+
+    /**
+     * @param id a person's id
+     * @return the person's title
+     */
+    public String title(int id) {
+        return string(id, 1, HierarchyFile.NULL_TITLE);
+    }
+
+    /**
+     * @param employee an employee
+     * @return the id of the given person, or -1 if there is no employee equal to them in the file
+     */
+    public int idOf(Object employee) {
+        if (!(employee instanceof Employee)) {
+            return -1;
+        }
+        int id = find(((Employee) employee).getId());
+        if (id < 0 || ((buffer.get(flagBase + id) & HierarchyFile.MANAGER_TYPE) != 0) != employee instanceof Manager) {
+            return -1;
+        }
+        return id;
+    }
+
+    /**
+     * @param id a person's id
+     * @return the object representing the person, created on first use together with their managers
+     */
+    public synchronized Employee employee(int id) {
+        Employee result = materialized[id];
+        if (result == null) {
+            int parent = parentId(id);
+            Manager manager = parent < 0 || parent == id ? null : (Manager) employee(parent);
+            result = (buffer.get(flagBase + id) & HierarchyFile.MANAGER_TYPE) != 0
+                    ? new Manager(employeeId(id), name(id), title(id), manager)
+                    : new Grunt(employeeId(id), name(id), title(id), manager);
+            materialized[id] = result;
+        }
+        return result;
+    }
+
+    /**
+     * The hierarchy file is read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addManager(Manager manager) {
+        throw new UnsupportedOperationException("MappedManagementHierarchy is read-only");
+    }
+
+    /**
+     * Retrieves a set of all managers already included in the hierarchy.
+     *
+     * @return a set of the managers already added to the hierarchy. If no managers have been added yet,
+     * returns an empty set.
+     */
+    @Override
+    public Set<Manager> getManagers() {
+        return new AbstractSet<Manager>() {
+            @Override
+            public boolean contains(Object o) {
+                int id = idOf(o);
+                return id >= 0 && isManagerId(id);
+            }
+
+            @Override
+            public Iterator<Manager> iterator() {
+                return new IdIterator<Manager>() {
+                    @Override
+                    boolean accept(int id) {
+                        return isManagerId(id);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return managerCount;
+            }
+        };
+    }
+
+    /**
+     * Check if the given manager has been added to the hierarchy.
+     *
+     * @param manager the manager to check for presence in the hierarchy.
+     * @return true if the manager is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasManager(Manager manager) {
+        int id = idOf(manager);
+        return id >= 0 && isManagerId(id);
+    }
+
+    /**
+     * Given a manager, retrieve the set of employees who report directly to that manager.
+     *
+     * @param manager the manager whose underlings are to be retrieved.
+     * @return a set of employees in the hierarchy for which the given manager is their direct superior.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> getUnderlings(Manager manager) {
+        int id = idOf(manager);
+        return id >= 0 && isManagerId(id) ? new ReportSet(id) : Collections.<Employee>emptySet();
+    }
+
+    /**
+     * The hierarchy file is read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addEmployee(Employee employee) {
+        throw new UnsupportedOperationException("MappedManagementHierarchy is read-only");
+    }
+
+    /**
+     * @return the set of all employees in the hierarchy
+     */
+    @Override
+    public Set<Employee> getEmployees() {
+        return new AbstractSet<Employee>() {
+            @Override
+            public boolean contains(Object o) {
+                return idOf(o) >= 0;
+            }
+
+            @Override
+            public Iterator<Employee> iterator() {
+                return new IdIterator<Employee>() {
+                    @Override
+                    boolean accept(int id) {
+                        return true;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Finds the member of the hierarchy with the given id.
+     *
+     * @param id the id of the employee to find
+     * @return the employee in the hierarchy with the given id, or null if there is none
+     */
+    @Override
+    public Employee getEmployee(long id) {
+        int found = find(id);
+        return found < 0 ? null : employee(found);
+    }
+
+    /**
+     * Check if the given employee is present in the hierarchy. If the employee has been added as
+     * a manager or as an employee, return true. If not, return false.
+     *
+     * @param employee the employee to check for presence in the hierarchy
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasEmployee(Employee employee) {
+        return idOf(employee) >= 0;
+    }
+
+    /**
+     * Returns a representation of the management hierarchy as a map of managers to sets of employees,
+     * representing direct management relationships, i.e. all employees in a given manager's set should
+     * have that manager in its manager field.
+     *
+     * @return the entire management hierarchy as a map from managers to the set of employees directly under
+     * their supervision.
+     */
+    @Override
+    public Map<Manager, Set<Employee>> getHierarchy() {
+        Map<Manager, Set<Employee>> result = new HashMap<>(managerCount * 4 / 3 + 1);
+        for (int id = 0; id < count; id++) {
+            if (isManagerId(id)) {
+                result.put((Manager) employee(id), new ReportSet(id));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the chain of command for a given employee, represented by a list of managers. The first
+     * element of the list should be the given employee's direct manager, the second element should be
+     * that manager's direct manager, and so on.
+     *
+     * @param employee the employee whose chain of command is to be retrieved
+     * @return a list of managers that represents the chain of command for the given employee.
+     * If the employee is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    public List<Manager> getChainOfCommand(Employee employee) {
+        List<Manager> result = new ArrayList<>();
+        int id = idOf(employee);
+        if (id >= 0) {
+            for (int p = parentId(id); p >= 0 && result.size() < count; p = parentId(p)) {
+                result.add((Manager) employee(p));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check if the given manager appears anywhere in the given employee's chain of command.
+     *
+     * @param employee the employee whose chain of command is to be searched
+     * @param manager  the manager to look for
+     * @return true if the employee reports to the manager, directly or indirectly, false otherwise.
+     */
+    @Override
+    public boolean isInChainOfCommand(Employee employee, Manager manager) {
+        int id = idOf(employee);
+        int ancestor = idOf(manager);
+        if (id < 0 || ancestor < 0) {
+            return false;
+        }
+        int steps = 0;
+        for (int p = parentId(id); p >= 0 && steps < count; p = parentId(p), steps++) {
+            if (p == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String string(int id, int which, byte nullFlag) {
+        if ((buffer.get(flagBase + id) & nullFlag) != 0) {
+            return null;
+        }
+        int start = buffer.getInt(stringStartBase + 4 * (2 * id + which));
+        int end = buffer.getInt(stringStartBase + 4 * (2 * id + which + 1));
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(poolBase + start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Walks the ids in order, handing out the objects for those it accepts.
+     */
+    private abstract class IdIterator<E extends Employee> implements Iterator<E> {
+        private int next = -1;
+
+        abstract boolean accept(int id);
+
+        @Override
+        public boolean hasNext() {
+            if (next < 0) {
+                next = find(0);
+            }
+            return next < count;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            E result = (E) employee(next);
+            next = find(next + 1);
+            return result;
+        }
+
+        private int find(int from) {
+            while (from < count && !accept(from)) {
+                from++;
+            }
+            return from;
+        }
+    }
+
+    /**
+     * The direct reports of one manager, read from the file.
+     */
+    private final class ReportSet extends AbstractSet<Employee> {
+        private final int manager;
+
+        ReportSet(int manager) {
+            this.manager = manager;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            int id = idOf(o);
+            return id >= 0 && parentId(id) == manager;
+        }
+
+        @Override
+        public Iterator<Employee> iterator() {
+            return new Iterator<Employee>() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size();
+                }
+
+                @Override
+                public Employee next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return employee(reportId(manager, index++));
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return reportCount(manager);
+        }
+    }
+}
@@ -0,0 +1,800 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.ChainOfCommand;
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+
+import java.util.*;
+
+/**
+ * A {@link ManagementHierarchy} split into shards, each holding whole organizations, so that no single heap
+ * has to hold everyone. The shards are reached through a {@link ShardTransport}.
+ *
+ * Upper management forms the spine: the managers registered without being filed under anyone, and every
+ * manager whose organization is too large for one shard, together with their direct reports. The spine is
+ * kept here, and everyone below it lives in exactly one shard. Each direct report of a spine manager who is
+ * not in the spine themselves is the root of an organization held by one shard, filed there under a replica
+ * of their spine manager. Queries about anyone below the spine are therefore answered by the one shard
+ * holding them: a chain of command is the shard's chain up to the spine, continued from the spine, and the
+ * underlings and organization of a manager below the spine are the shard's. Only queries about the spine
+ * managers' organizations, and about the whole hierarchy, ask every shard involved.
+ *
+ * A new organization goes to the least loaded shard with room for it, and a new shard is opened when none
+ * has. When a shard grows beyond its capacity, its roots whose organizations are still too large for any
+ * shard join the spine, their reports becoming roots in their place, and whole organizations are moved to
+ * other shards until the shard fits again. Where someone is found is worked out from the manager fields, so
+ * only the spine and the roots of the organizations are indexed here.
+ *
+ * The hierarchy is not thread-safe, and the transport's shards must be empty when it is created.
+ */
+public class PartitionedManagementHierarchy implements ManagementHierarchy {
+    /**
+     * The number of employees a shard holds before it is rebalanced, unless configured otherwise.
+     */
+    public static final int DEFAULT_SHARD_CAPACITY = 1 << 16;
+
+    private final ShardTransport transport;
+    private final int shardCapacity;
+    private final ReferenceManagementHierarchy spine = new ReferenceManagementHierarchy();
+    /**
+     * The spine managers not filed under anyone.
+     */
+    private final Set<Manager> tops = new HashSet<>();
+    private final Map<Employee, Shard> roots = new HashMap<>();
+    private final List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Creates a hierarchy keeping its shards in this process, with the default capacity.
+     */
+    public PartitionedManagementHierarchy() {
+        this(new InProcessShardTransport(), DEFAULT_SHARD_CAPACITY);
+    }
+
+    /**
+     * @param transport     reaches the shards; any shards it already has must be empty
+     * @param shardCapacity the number of employees a shard holds before it is rebalanced
+     */
+    public PartitionedManagementHierarchy(ShardTransport transport, int shardCapacity) {
+        if (transport == null) {
+            throw new NullPointerException("transport");
+        }
+        if (shardCapacity < 1) {
+            throw new IllegalArgumentException("Shard capacity " + shardCapacity);
+        }
+        this.transport = transport;
+        this.shardCapacity = shardCapacity;
+        for (int i = 0; i < transport.getShardCount(); i++) {
+            shards.add(new Shard(transport.getShard(i)));
+        }
+    }
+
+    /**
+     * One shard and what is known here about its contents.
+     */
+    private static final class Shard {
+        private final ManagementHierarchy hierarchy;
+        private final Set<Employee> roots = new HashSet<>();
+        /**
+         * The number of employees the shard holds, not counting replicas of spine managers.
+         */
+        private int size;
+
+        Shard(ManagementHierarchy hierarchy) {
+            this.hierarchy = hierarchy;
+        }
+    }
+
+    /**
+     * @return the number of shards the hierarchy is split into
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * @param index the index of a shard
+     * @return the number of employees held by the shard
+     */
+    public int getShardSize(int index) {
+        return shards.get(index).size;
+    }
+
+    /**
+     * @return the managers of the spine, which are kept here rather than in a shard
+     */
+    public Set<Manager> getSpine() {
+        return spine.getManagers();
+    }
+
+    /**
+     * Adds a given manager to the hierarchy. If the manager is already included in the hierarchy,
+     * return false and leave the hierarchy unchanged. Otherwise, include the manager in the hierarchy
+     * and return true.
+     *
+     * @param manager the manager to add to the hierarchy.
+     * @return true if the manager was successfully added to the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean addManager(Manager manager) {
+        if (manager == null || hasManager(manager)) {
+            return false;
+        }
+        Shard shard = shardOf(manager);
+        if (shard != null && shard.hierarchy.hasEmployee(manager)) {
+            return shard.hierarchy.addManager(manager);
+        }
+        spine.addManager(manager);
+        tops.add(manager);
+        return true;
+    }
+
+    /**
+     * Retrieves a set of all managers already included in the hierarchy.
+     *
+     * @return a set of the managers already added to the hierarchy. If no managers have been added yet,
+     * returns an empty set.
+     */
+    @Override
+    public Set<Manager> getManagers() {
+        Set<Manager> result = spine.getManagers();
+        for (Shard shard : shards) {
+            result.addAll(shard.hierarchy.getManagers());
+        }
+        return result;
+    }
+
+    /**
+     * Check if the given manager has been added to the hierarchy.
+     *
+     * @param manager the manager to check for presence in the hierarchy.
+     * @return true if the manager is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasManager(Manager manager) {
+        if (manager == null) {
+            return false;
+        }
+        if (spine.hasManager(manager)) {
+            return true;
+        }
+        Shard shard = shardOf(manager);
+        return shard != null && shard.hierarchy.hasManager(manager);
+    }
+
+    /**
+     * Given a manager, retrieve the set of employees who report directly to that manager.
+     *
+     * @param manager the manager whose underlings are to be retrieved.
+     * @return a set of employees in the hierarchy for which the given manager is their direct superior.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> getUnderlings(Manager manager) {
+        if (manager == null) {
+            return new HashSet<>();
+        }
+        if (spine.hasManager(manager)) {
+            return spine.getUnderlings(manager);
+        }
+        Shard shard = shardOf(manager);
+        return shard != null ? shard.hierarchy.getUnderlings(manager) : new HashSet<>();
+    }
+
+    /**
+     * Adds a given employee to the hierarchy. If the employee's manager is present in the hierarchy,
+     * include the employee and return true. Otherwise, return false and leave the hierarchy unchanged.
+     *
+     * @param employee the employee to add to the hierarchy
+     * @return true if the employee was added successfully, false otherwise.
+     */
+    @Override
+    public boolean addEmployee(Employee employee) {
+        if (employee == null || !hasManager(employee.getManager())) {
+            return false;
+        }
+        Set<Manager> registered = new HashSet<>();
+        if (tops.contains(employee)) {
+            if (employee.equals(employee.getManager())
+                    || getChainOfCommand(employee.getManager()).contains(employee)) {
+                return false;
+            }
+            file(extract(employee, registered), registered);
+            return true;
+        }
+        if (hasEmployee(employee)) {
+            return false;
+        }
+        file(Collections.singletonList(employee), registered);
+        return true;
+    }
+
+    /**
+     * @return the set of all employees in the hierarchy
+     */
+    @Override
+    public Set<Employee> getEmployees() {
+        Set<Employee> result = spine.getEmployees();
+        for (Shard shard : shards) {
+            result.addAll(shard.hierarchy.getEmployees());
+        }
+        return result;
+    }
+
+    /**
+     * Finds the member of the hierarchy with the given id. An id says nothing about where its owner is held,
+     * and no index of everyone is kept here, so the spine and then each shard is asked in turn; each of them
+     * answers from its own index.
+     *
+     * @param id the id of the employee to find
+     * @return the employee in the hierarchy with the given id, or null if there is none
+     */
+    @Override
+    public Employee getEmployee(long id) {
+        Employee result = spine.getEmployee(id);
+        for (int i = 0; result == null && i < shards.size(); i++) {
+            result = shards.get(i).hierarchy.getEmployee(id);
+        }
+        return result;
+    }
+
+    /**
+     * Check if the given employee is present in the hierarchy. If the employee has been added as
+     * a manager or as an employee, return true. If not, return false.
+     *
+     * @param employee the employee to check for presence in the hierarchy
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasEmployee(Employee employee) {
+        if (employee == null) {
+            return false;
+        }
+        if (inSpine(employee)) {
+            return true;
+        }
+        Shard shard = shardOf(employee);
+        return shard != null && shard.hierarchy.hasEmployee(employee);
+    }
+
+    /**
+     * Returns a representation of the management hierarchy as a map of managers to sets of employees,
+     * representing direct management relationships, i.e. all employees in a given manager's set should
+     * have that manager in its manager field.
+     *
+     * @return the entire management hierarchy as a map from managers to the set of employees directly under
+     * their supervision.
+     */
+    @Override
+    public Map<Manager, Set<Employee>> getHierarchy() {
+        Map<Manager, Set<Employee>> result = new HashMap<>();
+        for (Map.Entry<Manager, Set<Employee>> entry : spine.getHierarchy().entrySet()) {
+            result.put(entry.getKey(), new HashSet<>(entry.getValue()));
+        }
+        for (Shard shard : shards) {
+            for (Map.Entry<Manager, Set<Employee>> entry : shard.hierarchy.getHierarchy().entrySet()) {
+                // replicas of spine managers only list the reports filed in that shard
+                if (!spine.hasManager(entry.getKey())) {
+                    result.put(entry.getKey(), new HashSet<>(entry.getValue()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the chain of command for a given employee, represented by a list of managers. The first
+     * element of the list should be the given employee's direct manager, the second element should be
+     * that manager's direct manager, and so on.
+     *
+     * The part of the chain above the spine is shared by everyone reporting to the same spine manager.
+     *
+     * @param employee the employee whose chain of command is to be retrieved
+     * @return a list of managers that represents the chain of command for the given employee.
+     * If the employee is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    public List<Manager> getChainOfCommand(Employee employee) {
+        if (employee == null) {
+            return ChainOfCommand.empty();
+        }
+        if (inSpine(employee)) {
+            return spine.getChainOfCommand(employee);
+        }
+        Shard shard = shardOf(employee);
+        if (shard == null) {
+            return ChainOfCommand.empty();
+        }
+        List<Manager> local = shard.hierarchy.getChainOfCommand(employee);
+        int top = 0;
+        while (top < local.size() - 1 && !spine.hasManager(local.get(top))) {
+            top++;
+        }
+        if (local.isEmpty() || !spine.hasManager(local.get(top))) {
+            return ChainOfCommand.empty();
+        }
+        // the root of the organization is filed in the spine, which has the chain above them cached
+        List<Manager> chain = spine.getChainOfCommand(top == 0 ? employee : local.get(top - 1));
+        if (top == 0) {
+            return chain;
+        }
+        ChainOfCommand result = (ChainOfCommand) chain;
+        for (int i = top - 1; i >= 0; i--) {
+            result = result.under(local.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the chains of command of many employees at once. Everyone reporting to the same spine manager
+     * shares the part of their chain above the spine, and each chain is answered by a single shard.
+     *
+     * @param employees the employees whose chains of command are to be retrieved
+     * @return a map from each of the given employees to their chain of command, as
+     * {@link #getChainOfCommand(Employee)} would list it; employees not present in the hierarchy map to an
+     * empty chain
+     */
+    @Override
+    public Map<Employee, List<Manager>> getChainsOfCommand(Collection<? extends Employee> employees) {
+        Map<Employee, List<Manager>> result = new HashMap<>(Math.max(16, (int) (employees.size() / 0.75f) + 1));
+        for (Employee employee : employees) {
+            if (!result.containsKey(employee)) {
+                result.put(employee, getChainOfCommand(employee));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Given a manager, retrieve every employee who reports to that manager, directly or indirectly.
+     *
+     * @param manager the manager whose organization is to be retrieved.
+     * @return a set of employees in the hierarchy that have the given manager in their chain of command.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> getAllReports(Manager manager) {
+        if (manager == null || !spine.hasManager(manager)) {
+            Shard shard = manager == null ? null : shardOf(manager);
+            return shard != null ? shard.hierarchy.getAllReports(manager) : new HashSet<>();
+        }
+        List<Employee> organizations = new ArrayList<>();
+        Set<Employee> result = new HashSet<>(spineReports(manager, organizations));
+        for (Employee root : organizations) {
+            result.addAll(roots.get(root).hierarchy.getAllReports((Manager) root));
+        }
+        return result;
+    }
+
+    /**
+     * @param manager the manager whose organization is to be counted.
+     * @return the number of employees who report to the given manager, directly or indirectly, or 0 if the
+     * manager is not present in the hierarchy.
+     */
+    @Override
+    public int getHeadcount(Manager manager) {
+        if (manager == null || !spine.hasManager(manager)) {
+            Shard shard = manager == null ? null : shardOf(manager);
+            return shard != null ? shard.hierarchy.getHeadcount(manager) : 0;
+        }
+        List<Employee> organizations = new ArrayList<>();
+        int result = spineReports(manager, organizations).size();
+        for (Employee root : organizations) {
+            result += roots.get(root).hierarchy.getHeadcount((Manager) root);
+        }
+        return result;
+    }
+
+    /**
+     * Finds every employee in the hierarchy holding the given title.
+     *
+     * @param title the title to look for
+     * @return a set of the employees in the hierarchy whose title equals the given title
+     */
+    @Override
+    public Set<Employee> findByTitle(String title) {
+        Set<Employee> result = spine.findByTitle(title);
+        for (Shard shard : shards) {
+            result.addAll(shard.hierarchy.findByTitle(title));
+        }
+        return result;
+    }
+
+    /**
+     * Finds every employee in the given manager's organization holding the given title.
+     *
+     * @param title   the title to look for
+     * @param manager the manager whose organization is to be searched
+     * @return a set of the employees reporting to the manager, directly or indirectly, whose title equals
+     * the given title. If the manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> findByTitle(String title, Manager manager) {
+        if (manager == null || !spine.hasManager(manager)) {
+            Shard shard = manager == null ? null : shardOf(manager);
+            return shard != null ? shard.hierarchy.findByTitle(title, manager) : new HashSet<>();
+        }
+        List<Employee> organizations = new ArrayList<>();
+        Set<Employee> result = new HashSet<>();
+        for (Employee e : spineReports(manager, organizations)) {
+            if (Objects.equals(title, e.getTitle())) {
+                result.add(e);
+            }
+        }
+        for (Employee root : organizations) {
+            result.addAll(roots.get(root).hierarchy.findByTitle(title, (Manager) root));
+        }
+        return result;
+    }
+
+    /**
+     * Finds every employee in the hierarchy whose name starts with the given prefix, ignoring case.
+     *
+     * @param prefix the start of the names to look for
+     * @return a list of the matching employees, ordered by name without regard to case
+     */
+    @Override
+    public List<Employee> findByNamePrefix(String prefix) {
+        Set<Employee> found = new HashSet<>(spine.findByNamePrefix(prefix));
+        for (Shard shard : shards) {
+            found.addAll(shard.hierarchy.findByNamePrefix(prefix));
+        }
+        return ManagementHierarchy.namesStartingWith(prefix, found);
+    }
+
+    /**
+     * Finds every employee in the given manager's organization whose name starts with the given prefix,
+     * ignoring case.
+     *
+     * @param prefix  the start of the names to look for
+     * @param manager the manager whose organization is to be searched
+     * @return a list of the matching employees reporting to the manager, directly or indirectly, ordered by
+     * name without regard to case. If the manager is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    public List<Employee> findByNamePrefix(String prefix, Manager manager) {
+        if (manager == null || !spine.hasManager(manager)) {
+            Shard shard = manager == null ? null : shardOf(manager);
+            return shard != null ? shard.hierarchy.findByNamePrefix(prefix, manager) : new ArrayList<>();
+        }
+        List<Employee> organizations = new ArrayList<>();
+        List<Employee> found = new ArrayList<>(spineReports(manager, organizations));
+        for (Employee root : organizations) {
+            found.addAll(roots.get(root).hierarchy.findByNamePrefix(prefix, (Manager) root));
+        }
+        return ManagementHierarchy.namesStartingWith(prefix, found);
+    }
+
+    /**
+     * Removes a given employee from the hierarchy. A manager can only be removed once nobody is filed
+     * under them any more; transfer their reports first. A removed manager is no longer registered.
+     *
+     * @param employee the employee to remove from the hierarchy
+     * @return true if the employee was removed, false if they were not present or still have reports.
+     */
+    @Override
+    public boolean removeEmployee(Employee employee) {
+        if (employee == null) {
+            return false;
+        }
+        if (inSpine(employee)) {
+            if (spine.hasReports((Manager) employee)) {
+                return false;
+            }
+            removeFromSpine((Manager) employee);
+            return true;
+        }
+        Shard shard = shardOf(employee);
+        if (shard == null || !shard.hierarchy.removeEmployee(employee)) {
+            return false;
+        }
+        shard.size--;
+        if (roots.remove(employee) != null) {
+            shard.roots.remove(employee);
+            spine.removeEmployee(employee);
+        }
+        return true;
+    }
+
+    /**
+     * Moves a given employee, together with everyone who reports to them, under a new manager, and records
+     * the new manager in the employee's manager field. The move is refused if the new manager reports to
+     * the employee, since the chain of command would then loop.
+     *
+     * A move within one shard is made by the shard; anything else moves the organization as a whole, which
+     * may rebalance the shard it lands in.
+     *
+     * @param employee   the employee to move
+     * @param newManager the manager the employee should report to from now on
+     * @return true if the employee was moved, false if either person is not present in the hierarchy, the
+     * employee already reports to the new manager, or the move would close a loop.
+     */
+    @Override
+    public boolean transferEmployee(Employee employee, Manager newManager) {
+        if (employee == null || !hasEmployee(employee) || !hasManager(newManager) || employee.equals(newManager)
+                || newManager.equals(filedUnder(employee)) || getChainOfCommand(newManager).contains(employee)) {
+            return false;
+        }
+        Shard from = spine.hasManager(newManager) || inSpine(employee) ? null : shardOf(employee);
+        if (from != null && !from.roots.contains(employee) && from == shardOf(newManager)) {
+            return from.hierarchy.transferEmployee(employee, newManager);
+        }
+        Set<Manager> registered = new HashSet<>();
+        List<Employee> organization = extract(employee, registered);
+        employee.setManager(newManager);
+        file(organization, registered);
+        return true;
+    }
+
+    /**
+     * Replaces a given grunt with a new {@link Manager} of the same id, name and title, reporting to the manager
+     * the grunt was filed under, registered as a manager in the same place in the hierarchy. The grunt itself
+     * is no longer present in the hierarchy afterwards.
+     *
+     * @param grunt the grunt to promote
+     * @return the manager that took the grunt's place, or null if the grunt is not present in the hierarchy.
+     */
+    @Override
+    public Manager promoteToManager(Grunt grunt) {
+        Manager manager = grunt == null ? null : filedUnder(grunt);
+        if (manager == null || !removeEmployee(grunt)) {
+            return null;
+        }
+        Manager promoted = new Manager(grunt.getId(), grunt.getName(), grunt.getTitle(), manager);
+        addManager(promoted);
+        addEmployee(promoted);
+        return promoted;
+    }
+
+    /**
+     * @return the manager the given member is filed under, by the spine or by the shard holding them, or null
+     * if they are filed under nobody
+     */
+    private Manager filedUnder(Employee employee) {
+        if (tops.contains(employee)) {
+            return null;
+        }
+        if (inSpine(employee) || roots.containsKey(employee)) {
+            return spine.filedUnder(employee);
+        }
+        Shard shard = shardOf(employee);
+        List<Manager> chain = shard == null ? ChainOfCommand.empty() : shard.hierarchy.getChainOfCommand(employee);
+        return chain.isEmpty() ? null : chain.get(0);
+    }
+
+    /**
+     * Finds the shard holding an employee below the spine by following the manager fields up to the root of
+     * their organization.
+     *
+     * @return the shard the employee would be in, or null if the manager fields reach the spine or run out
+     * first
+     */
+    private Shard shardOf(Employee employee) {
+        for (Employee e = employee; e != null; e = e.getManager()) {
+            Shard shard = roots.get(e);
+            if (shard != null) {
+                return shard;
+            }
+            if (inSpine(e)) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lists the part of a spine manager's organization that is in the spine, i.e. the spine managers below
+     * them and their direct reports.
+     *
+     * @param manager       a spine manager
+     * @param organizations receives the roots of the organizations held by shards that report to the manager
+     * @return everyone in the spine reporting to the manager, directly or indirectly
+     */
+    private List<Employee> spineReports(Manager manager, List<Employee> organizations) {
+        List<Employee> result = new ArrayList<>();
+        Deque<Manager> pending = new ArrayDeque<>();
+        pending.push(manager);
+        while (!pending.isEmpty()) {
+            for (Employee e : spine.getUnderlings(pending.pop())) {
+                result.add(e);
+                if (inSpine(e)) {
+                    pending.push((Manager) e);
+                } else if (e instanceof Manager && roots.containsKey(e)) {
+                    organizations.add(e);
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean inSpine(Employee employee) {
+        return employee instanceof Manager && spine.hasManager((Manager) employee);
+    }
+
+    /**
+     * Takes an employee and their whole organization out of the spine and the shards.
+     *
+     * @param top        the employee to take out
+     * @param registered receives the managers of the organization that were registered
+     * @return the organization, each employee listed after their manager and the given employee first
+     */
+    private List<Employee> extract(Employee top, Set<Manager> registered) {
+        List<Employee> organization = new ArrayList<>();
+        // where each member of the organization is held, null for the spine
+        List<Shard> held = new ArrayList<>();
+        organization.add(top);
+        held.add(inSpine(top) ? null : shardOf(top));
+        for (int i = 0; i < organization.size(); i++) {
+            Employee e = organization.get(i);
+            Shard shard = held.get(i);
+            if (shard == null) {
+                registered.add((Manager) e);
+                for (Employee report : spine.getUnderlings((Manager) e)) {
+                    organization.add(report);
+                    held.add(inSpine(report) ? null : roots.get(report));
+                }
+            } else if (e instanceof Manager && shard.hierarchy.hasManager((Manager) e)) {
+                registered.add((Manager) e);
+                for (Employee report : shard.hierarchy.getUnderlings((Manager) e)) {
+                    organization.add(report);
+                    held.add(shard);
+                }
+            }
+        }
+        for (int i = organization.size() - 1; i >= 0; i--) {
+            Employee e = organization.get(i);
+            Shard shard = held.get(i);
+            if (shard == null) {
+                removeFromSpine((Manager) e);
+            } else {
+                shard.hierarchy.removeEmployee(e);
+                shard.size--;
+                if (roots.remove(e) != null) {
+                    shard.roots.remove(e);
+                    spine.removeEmployee(e);
+                }
+            }
+        }
+        return organization;
+    }
+
+    /**
+     * Removes a spine manager without reports, together with their replicas in the shards.
+     */
+    private void removeFromSpine(Manager manager) {
+        spine.removeEmployee(manager);
+        tops.remove(manager);
+        for (Shard shard : shards) {
+            if (shard.hierarchy.hasManager(manager)) {
+                shard.hierarchy.removeEmployee(manager);
+            }
+        }
+    }
+
+    /**
+     * Files an organization taken out by {@link #extract(Employee, Set)} under the manager in its first
+     * member's manager field, which must be present. Below the spine the organization joins its manager's
+     * shard; under a spine manager it becomes the root of an organization in the least loaded shard with
+     * room for it. The shard it lands in is rebalanced if that takes it beyond its capacity.
+     */
+    private void file(List<Employee> organization, Set<Manager> registered) {
+        Employee top = organization.get(0);
+        Manager manager = top.getManager();
+        Shard shard;
+        if (spine.hasManager(manager)) {
+            shard = shardWithRoom(organization.size());
+            if (!shard.hierarchy.hasManager(manager)) {
+                shard.hierarchy.addManager(manager);
+            }
+            spine.addEmployee(top);
+            roots.put(top, shard);
+            shard.roots.add(top);
+        } else {
+            shard = shardOf(manager);
+        }
+        for (Employee e : organization) {
+            if (registered.contains(e)) {
+                shard.hierarchy.addManager((Manager) e);
+            }
+            shard.hierarchy.addEmployee(e);
+        }
+        shard.size += organization.size();
+        if (shard.size > shardCapacity) {
+            rebalance(shard);
+        }
+    }
+
+    /**
+     * @return the least loaded shard with room for the given number of employees, opening a new shard if
+     * there is none
+     */
+    private Shard shardWithRoom(int size) {
+        Shard best = null;
+        for (Shard shard : shards) {
+            if (shard.size + size <= shardCapacity && (best == null || shard.size < best.size)) {
+                best = shard;
+            }
+        }
+        if (best == null) {
+            best = new Shard(transport.getShard(transport.addShard()));
+            shards.add(best);
+        }
+        return best;
+    }
+
+    /**
+     * Brings a shard back within its capacity. Roots whose organizations do not fit in any shard join the
+     * spine, and then the largest organizations are moved to other shards until the shard fits.
+     */
+    private void rebalance(Shard shard) {
+        Map<Manager, Set<Employee>> tree = shard.hierarchy.getHierarchy();
+        Map<Employee, Integer> sizes = new HashMap<>();
+        Deque<Employee> pending = new ArrayDeque<>(shard.roots);
+        List<Employee> movable = new ArrayList<>();
+        while (!pending.isEmpty()) {
+            Employee root = pending.pop();
+            int size = organizationSize(root, tree, sizes);
+            if (size <= shardCapacity) {
+                movable.add(root);
+                continue;
+            }
+            // too large for any shard; the root joins the spine and their reports become roots in place
+            Manager manager = (Manager) root;
+            roots.remove(manager);
+            shard.roots.remove(manager);
+            shard.size--;
+            spine.addManager(manager);
+            for (Employee report : tree.get(manager)) {
+                roots.put(report, shard);
+                shard.roots.add(report);
+                spine.addEmployee(report);
+                pending.push(report);
+            }
+        }
+        movable.sort((a, b) -> Integer.compare(sizes.get(b), sizes.get(a)));
+        for (Employee root : movable) {
+            if (shard.size <= shardCapacity) {
+                break;
+            }
+            Set<Manager> registered = new HashSet<>();
+            file(extract(root, registered), registered);
+        }
+    }
+
+    /**
+     * Counts an employee and everyone in the given shard hierarchy who reports to them, remembering the
+     * counts of every manager on the way.
+     */
+    private static int organizationSize(Employee top, Map<Manager, Set<Employee>> tree, Map<Employee, Integer> sizes) {
+        Integer known = sizes.get(top);
+        if (known != null) {
+            return known;
+        }
+        Deque<Employee> pending = new ArrayDeque<>();
+        pending.push(top);
+        while (!pending.isEmpty()) {
+            Employee e = pending.peek();
+            Set<Employee> reports = e instanceof Manager ? tree.get(e) : null;
+            if (reports == null) {
+                sizes.put(pending.pop(), 1);
+                continue;
+            }
+            boolean ready = true;
+            for (Employee report : reports) {
+                if (!sizes.containsKey(report)) {
+                    pending.push(report);
+                    ready = false;
+                }
+            }
+            if (ready) {
+                int size = 1;
+                for (Employee report : reports) {
+                    size += sizes.get(report);
+                }
+                sizes.put(pending.pop(), size);
+            }
+        }
+        return sizes.get(top);
+    }
+}
@@ -1,13 +1,31 @@
 package com.cooksys.collections.assignment;
 
+import com.cooksys.collections.ChainOfCommand;
 import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
 import com.cooksys.collections.ManagementHierarchy;
 import com.cooksys.collections.Manager;
 
 import java.util.*;
+import java.util.stream.Stream;
 
 public class ReferenceManagementHierarchy implements ManagementHierarchy {
     private Map<Manager, Set<Employee>> map = new HashMap<>();
+    /**
+     * The manager whose set each filed employee is in, which can differ from their manager field once that
+     * has been set directly.
+     */
+    private final Map<Employee, Manager> filed = new HashMap<>();
+    /**
+     * Everyone present, registered or filed, mapped to themselves so that they can be found by id with an
+     * {@link EmployeeKey}.
+     */
+    private final Map<Employee, Employee> members = new HashMap<>();
+    /**
+     * Chains follow where everyone is filed, and the manager fields of registered managers filed under nobody.
+     */
+    private final ChainCache chains = new ChainCache(this::filedUnder, this::hasManager);
+
     /**
      * Adds a given manager to the hierarchy. If the manager is already included in the hierarchy,
      * return false and leave the hierarchy unchanged. Otherwise, include the manager in the hierarchy
@@ -18,7 +36,13 @@ public class ReferenceManagementHierarchy implements ManagementHierarchy {
      */
     @Override
     public boolean addManager(Manager manager) {
-        return manager != null && !hasManager(manager) && map.put(manager, new HashSet<>()) == null;
+        if (manager == null || hasManager(manager)) {
+            return false;
+        }
+        map.put(manager, new HashSet<>());
+        members.putIfAbsent(manager, manager);
+        chains.invalidate(manager);
+        return true;
     }
 
     /**
@@ -64,7 +88,16 @@ public class ReferenceManagementHierarchy implements ManagementHierarchy {
      */
     @Override
     public boolean addEmployee(Employee employee) {
-        return employee != null && hasManager(employee.getManager()) && map.get(employee.getManager()).add(employee);
+        if (employee == null || !hasManager(employee.getManager()) || filed.containsKey(employee)) {
+            return false;
+        }
+        map.get(employee.getManager()).add(employee);
+        filed.put(employee, employee.getManager());
+        members.putIfAbsent(employee, employee);
+        if (employee instanceof Manager) {
+            chains.invalidate((Manager) employee);
+        }
+        return true;
     }
 
     /**
@@ -72,12 +105,18 @@ public class ReferenceManagementHierarchy implements ManagementHierarchy {
      */
     @Override
     public Set<Employee> getEmployees() {
-        Set<Employee> result = new HashSet<>();
-        for (Manager m : getManagers()) {
-            result.add(m);
-            result.addAll(getUnderlings(m));
-        }
-        return result;
+        return new HashSet<>(members.keySet());
+    }
+
+    /**
+     * Finds the member of the hierarchy with the given id.
+     *
+     * @param id the id of the employee to find
+     * @return the employee in the hierarchy with the given id, or null if there is none
+     */
+    @Override
+    public Employee getEmployee(long id) {
+        return members.get(new EmployeeKey(id));
     }
 
     /**
@@ -89,7 +128,7 @@ public class ReferenceManagementHierarchy implements ManagementHierarchy {
      */
     @Override
     public boolean hasEmployee(Employee employee) {
-        return getEmployees().contains(employee);
+        return employee != null && members.containsKey(employee);
     }
 
     /**
@@ -116,11 +155,139 @@ public class ReferenceManagementHierarchy implements ManagementHierarchy {
      */
     @Override
     public List<Manager> getChainOfCommand(Employee employee) {
-        List<Manager> result = new ArrayList<>();
-        if (employee != null && hasEmployee(employee) && hasManager(employee.getManager())) {
-            result.add(employee.getManager());
-            result.addAll(getChainOfCommand(employee.getManager()));
+        return hasEmployee(employee) ? chains.under(filedUnder(employee)) : ChainOfCommand.empty();
+    }
+
+    /**
+     * Retrieves the chains of command of many employees at once. Chains are shared between everyone under
+     * the same manager and stay cached between calls, so each manager is looked at once at most.
+     *
+     * @param employees the employees whose chains of command are to be retrieved
+     * @return a map from each of the given employees to their chain of command, as
+     * {@link #getChainOfCommand(Employee)} would list it; employees not present in the hierarchy map to an
+     * empty chain
+     */
+    @Override
+    public Map<Employee, List<Manager>> getChainsOfCommand(Collection<? extends Employee> employees) {
+        Map<Employee, List<Manager>> result = new HashMap<>(Math.max(16, (int) (employees.size() / 0.75f) + 1));
+        for (Employee employee : employees) {
+            if (!result.containsKey(employee)) {
+                result.put(employee, getChainOfCommand(employee));
+            }
         }
         return result;
     }
+
+    /**
+     * Streams every employee in the hierarchy, as {@link #getEmployees()} would list them. The stream reads
+     * the hierarchy as it is consumed, so the hierarchy must not change until the stream is done with.
+     *
+     * @return a stream of all employees in the hierarchy
+     */
+    @Override
+    public Stream<Employee> employees() {
+        return members.keySet().stream();
+    }
+
+    /**
+     * Streams the employees who report directly to the given manager, as {@link #getUnderlings(Manager)}
+     * would list them. The hierarchy must not change until the stream is done with.
+     *
+     * @param manager the manager whose underlings are to be streamed
+     * @return a stream of the manager's direct reports, empty if the manager is not present in the hierarchy
+     */
+    @Override
+    public Stream<Employee> underlings(Manager manager) {
+        return hasManager(manager) ? map.get(manager).stream() : Stream.<Employee>empty();
+    }
+
+    /**
+     * Removes a given employee from the hierarchy. A manager can only be removed once nobody is filed
+     * under them any more; transfer their reports first. A removed manager is no longer registered.
+     *
+     * @param employee the employee to remove from the hierarchy
+     * @return true if the employee was removed, false if they were not present or still have reports.
+     */
+    @Override
+    public boolean removeEmployee(Employee employee) {
+        if (employee == null || !hasEmployee(employee)
+                || employee instanceof Manager && hasReports((Manager) employee)) {
+            return false;
+        }
+        if (map.remove(employee) != null) {
+            chains.forget((Manager) employee);
+        }
+        Manager manager = filed.remove(employee);
+        if (manager != null) {
+            map.get(manager).remove(employee);
+        }
+        members.remove(employee);
+        return true;
+    }
+
+    /**
+     * Moves a given employee, together with everyone who reports to them, under a new manager, and records
+     * the new manager in the employee's manager field. The move is refused if the new manager reports to
+     * the employee, since the chain of command would then loop.
+     *
+     * @param employee   the employee to move
+     * @param newManager the manager the employee should report to from now on
+     * @return true if the employee was moved, false if either person is not present in the hierarchy, the
+     * employee already reports to the new manager, or the move would close a loop.
+     */
+    @Override
+    public boolean transferEmployee(Employee employee, Manager newManager) {
+        if (employee == null || !hasEmployee(employee) || !hasManager(newManager) || employee.equals(newManager)
+                || newManager.equals(filed.get(employee)) || getChainOfCommand(newManager).contains(employee)) {
+            return false;
+        }
+        Manager manager = filed.put(employee, newManager);
+        if (manager != null) {
+            map.get(manager).remove(employee);
+        }
+        employee.setManager(newManager);
+        if (employee instanceof Manager) {
+            chains.invalidate((Manager) employee);
+        }
+        return map.get(newManager).add(employee);
+    }
+
+    /**
+     * Replaces a given grunt with a new {@link Manager} of the same id, name and title, reporting to the manager
+     * the grunt was filed under, registered as a manager in the same place in the hierarchy. The grunt itself
+     * is no longer present in the hierarchy afterwards.
+     *
+     * @param grunt the grunt to promote
+     * @return the manager that took the grunt's place, or null if the grunt is not present in the hierarchy.
+     */
+    @Override
+    public Manager promoteToManager(Grunt grunt) {
+        Manager manager = grunt == null ? null : filed.get(grunt);
+        if (manager == null || !removeEmployee(grunt)) {
+            return null;
+        }
+        Manager promoted = new Manager(grunt.getId(), grunt.getName(), grunt.getTitle(), manager);
+        addManager(promoted);
+        addEmployee(promoted);
+        return promoted;
+    }
+
+    /**
+     * @param manager a manager, possibly not registered
+     * @return true if anyone is filed under the manager
+     */
+    boolean hasReports(Manager manager) {
+        Set<Employee> reports = map.get(manager);
+        return reports != null && !reports.isEmpty();
+    }
+
+    /**
+     * @param employee a member of the hierarchy
+     * @return the manager the employee is filed under, or their manager field if they are a registered manager
+     * filed under nobody
+     */
+    Manager filedUnder(Employee employee) {
+        Manager manager = filed.get(employee);
+        return manager != null ? manager : employee.getManager();
+    }
 }
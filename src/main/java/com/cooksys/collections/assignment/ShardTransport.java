@@ -0,0 +1,36 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.ManagementHierarchy;
+
+/**
+ * Reaches the shards of a {@link PartitionedManagementHierarchy}. Each shard is seen as a
+ * {@link ManagementHierarchy} of its own, which may live in this process or be a proxy for one held
+ * elsewhere.
+ *
+ * A shard must keep its members the way {@link ReferenceManagementHierarchy} does: a chain of command starts
+ * from the manager someone is filed under and runs up to the first manager not registered in the shard, a
+ * manager may be registered without being filed under anyone, and
+ * {@link ManagementHierarchy#removeEmployee(com.cooksys.collections.Employee)} is supported. Every change asks a shard whether someone is present, and lookups by id ask every shard, so
+ * {@link ManagementHierarchy#hasEmployee(com.cooksys.collections.Employee)} and
+ * {@link ManagementHierarchy#getEmployee(long)} should be answered from an index rather than a scan.
+ */
+public interface ShardTransport {
+    /**
+     * @return the number of shards opened so far
+     */
+    int getShardCount();
+
+    /**
+     * @param index the index of a shard, counting from 0 in the order the shards were opened
+     * @return the hierarchy held by the shard
+     * @throws IndexOutOfBoundsException if no shard has that index
+     */
+    ManagementHierarchy getShard(int index);
+
+    /**
+     * Opens a new, empty shard.
+     *
+     * @return the index of the new shard
+     */
+    int addShard();
+}
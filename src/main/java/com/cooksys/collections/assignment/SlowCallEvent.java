@@ -0,0 +1,45 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.HierarchyMetrics;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The Flight Recorder event committed by {@link InstrumentedManagementHierarchy} for a call slower than its
+ * threshold. Only loaded on runtimes that have the Flight Recorder API.
+ */
+@Name("com.cooksys.collections.SlowCall")
+@Label("Slow Hierarchy Call")
+@Category({"Collections", "Management Hierarchy"})
+@Description("A call to a management hierarchy that took longer than the instrumentation's threshold")
+final class SlowCallEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Result Size")
+    long resultSize;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocated;
+
+    static void commit(HierarchyMetrics.Operation operation, long nanos, long resultSize, long allocatedBytes) {
+        SlowCallEvent event = new SlowCallEvent();
+        if (event.isEnabled()) {
+            event.operation = operation.name();
+            event.elapsed = nanos;
+            event.resultSize = resultSize;
+            event.allocated = allocatedBytes;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,904 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.ChainOfCommand;
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.persistent.PersistentHashSet;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * A {@link ManagementHierarchy} that remembers its past, so that every query can be answered as it would have
+ * been at any earlier time through {@link #asOf(long)}.
+ *
+ * Each change starts a new {@link Period} for the employee it concerns: who they were filed under, whether
+ * they were a registered manager, their name and title, and the time from which that held until their next
+ * change or departure. An employee's periods are kept in time order and found by binary search, so the
+ * hierarchy as of any time is read from the periods covering that time. Each manager's direct reports are
+ * also kept as a {@link PersistentHashSet} per change, every version sharing what it did not change with the
+ * one before, so a manager's reports at any time are found by binary search too. Storage grows with the
+ * number of changes rather than with the number of points in time anyone might ask about.
+ *
+ * Titles changed through {@link #retitleEmployee(Employee, String)} start a new period, so the past is
+ * searched by the titles people held then. A name or title set on an employee directly is only recorded
+ * from that employee's next change. The employees returned for a past time are the ones held by the
+ * hierarchy, carrying their current names and titles; their periods tell what they were then.
+ *
+ * A manager registered before their own manager is kept waiting and filed under them once they are
+ * registered, as {@link IndexedManagementHierarchy} does. Times come from the hierarchy's clock in
+ * milliseconds since the epoch and never go backwards; of several changes to one employee within the same
+ * millisecond, only the last one is seen from that millisecond on.
+ *
+ * The hierarchy is not thread-safe.
+ */
+public class TemporalManagementHierarchy implements ManagementHierarchy {
+    private final Clock clock;
+    private long lastTime = Long.MIN_VALUE;
+    /**
+     * The periods of each person by id, so a grunt's history carries on as the manager they are promoted to.
+     */
+    private final Map<Long, List<Period>> histories = new HashMap<>();
+    /**
+     * The versions of each manager's direct reports, in time order.
+     */
+    private final Map<Manager, List<Reports>> filedUnder = new HashMap<>();
+    private final Map<Employee, Period> current = new HashMap<>();
+    private final Map<Manager, Set<Employee>> reports = new HashMap<>();
+    /**
+     * Registered managers filed under nobody, by the manager in their manager field.
+     */
+    private final Map<Manager, Set<Manager>> waiting = new HashMap<>();
+
+    /**
+     * Creates a hierarchy timing its changes by the system clock.
+     */
+    public TemporalManagementHierarchy() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * @param clock the clock giving the time of each change
+     */
+    public TemporalManagementHierarchy(Clock clock) {
+        if (clock == null) {
+            throw new NullPointerException("clock");
+        }
+        this.clock = clock;
+    }
+
+    /**
+     * A stretch of time during which an employee was present in the hierarchy without changing.
+     */
+    public static final class Period {
+        private final Employee employee;
+        private final Manager manager;
+        private final boolean registeredManager;
+        private final String name;
+        private final String title;
+        private final long from;
+        private long to = Long.MAX_VALUE;
+
+        Period(Employee employee, Manager manager, boolean registeredManager, long from) {
+            this.employee = employee;
+            this.manager = manager;
+            this.registeredManager = registeredManager;
+            this.name = employee.getName();
+            this.title = employee.getTitle();
+            this.from = from;
+        }
+
+        /**
+         * @return the employee the period belongs to
+         */
+        public Employee getEmployee() {
+            return employee;
+        }
+
+        /**
+         * @return the manager the employee was filed under, or null if they were filed under nobody
+         */
+        public Manager getManager() {
+            return manager;
+        }
+
+        /**
+         * @return true if the employee was registered as a manager
+         */
+        public boolean isRegisteredManager() {
+            return registeredManager;
+        }
+
+        /**
+         * @return the employee's name when the period started
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the employee's title when the period started
+         */
+        public String getTitle() {
+            return title;
+        }
+
+        /**
+         * @return the time the period started, in milliseconds since the epoch
+         */
+        public long getFrom() {
+            return from;
+        }
+
+        /**
+         * @return the time the period ended, exclusive, or {@code Long.MAX_VALUE} if it has not ended yet
+         */
+        public long getTo() {
+            return to;
+        }
+
+        /**
+         * @param time a time in milliseconds since the epoch
+         * @return true if the period covers the given time
+         */
+        public boolean contains(long time) {
+            return from <= time && time < to;
+        }
+
+        @Override
+        public String toString() {
+            return "Period{" +
+                    "employee=" + name +
+                    ", manager=" + (manager == null ? null : manager.getName()) +
+                    ", registeredManager=" + registeredManager +
+                    ", from=" + from +
+                    ", to=" + (to == Long.MAX_VALUE ? "now" : String.valueOf(to)) +
+                    '}';
+        }
+    }
+
+    /**
+     * A manager's direct reports from one time until the next version.
+     */
+    private static final class Reports {
+        private final long from;
+        private final PersistentHashSet<Employee> employees;
+
+        Reports(long from, PersistentHashSet<Employee> employees) {
+            this.from = from;
+            this.employees = employees;
+        }
+    }
+
+    /**
+     * Returns a read-only view of the hierarchy as it was at the given time. The view answers every query
+     * from the recorded periods and keeps answering for the same time however the hierarchy changes later.
+     *
+     * @param time the time to look at, in milliseconds since the epoch
+     * @return the hierarchy as of the given time
+     */
+    public ManagementHierarchy asOf(long time) {
+        return new AsOf(time);
+    }
+
+    /**
+     * @param time the time to look at
+     * @return the hierarchy as of the given time
+     * @see #asOf(long)
+     */
+    public ManagementHierarchy asOf(Instant time) {
+        return asOf(time.toEpochMilli());
+    }
+
+    /**
+     * @param employee the employee whose history is to be retrieved
+     * @return the periods during which the employee's id was present in the hierarchy, in time order,
+     * including those as the grunt they were promoted from, or an empty list if they never were
+     */
+    public List<Period> getHistory(Employee employee) {
+        List<Period> history = employee == null ? null : histories.get(employee.getId());
+        return history == null ? Collections.<Period>emptyList() : Collections.unmodifiableList(history);
+    }
+
+    /**
+     * @param employee the employee to look up
+     * @param time     the time to look at, in milliseconds since the epoch
+     * @return the period of the employee's history covering the given time, or null if they were not present
+     * then
+     */
+    public Period getPeriod(Employee employee, long time) {
+        Period period = employee == null ? null : periodOf(employee.getId(), time);
+        return period != null && period.employee.equals(employee) ? period : null;
+    }
+
+    /**
+     * Adds a given manager to the hierarchy. If the manager is already included in the hierarchy,
+     * return false and leave the hierarchy unchanged. Otherwise, include the manager in the hierarchy
+     * and return true.
+     *
+     * @param manager the manager to add to the hierarchy.
+     * @return true if the manager was successfully added to the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean addManager(Manager manager) {
+        if (manager == null || hasManager(manager)) {
+            return false;
+        }
+        long time = now();
+        Period period = current.get(manager);
+        if (period != null) {
+            begin(manager, period.manager, true, time);
+        } else {
+            Manager boss = manager.getManager();
+            boolean filed = hasManager(boss) && !boss.equals(manager);
+            begin(manager, filed ? boss : null, true, time);
+            if (!filed && boss != null) {
+                Set<Manager> set = waiting.get(boss);
+                if (set == null) {
+                    set = new HashSet<>();
+                    waiting.put(boss, set);
+                }
+                set.add(manager);
+            }
+        }
+        Set<Manager> adopted = waiting.remove(manager);
+        if (adopted != null) {
+            List<Manager> chain = getChainOfCommand(manager);
+            for (Manager m : adopted) {
+                Period waited = current.get(m);
+                if (waited != null && waited.manager == null && manager.equals(m.getManager())
+                        && !m.equals(manager) && !chain.contains(m)) {
+                    begin(m, manager, true, time);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves a set of all managers already included in the hierarchy.
+     *
+     * @return a set of the managers already added to the hierarchy. If no managers have been added yet,
+     * returns an empty set.
+     */
+    @Override
+    public Set<Manager> getManagers() {
+        return new HashSet<>(reports.keySet());
+    }
+
+    /**
+     * Check if the given manager has been added to the hierarchy.
+     *
+     * @param manager the manager to check for presence in the hierarchy.
+     * @return true if the manager is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasManager(Manager manager) {
+        return manager != null && reports.containsKey(manager);
+    }
+
+    /**
+     * Given a manager, retrieve the set of employees who report directly to that manager.
+     *
+     * @param manager the manager whose underlings are to be retrieved.
+     * @return a set of employees in the hierarchy for which the given manager is their direct superior.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> getUnderlings(Manager manager) {
+        return hasManager(manager) ? new HashSet<>(reports.get(manager)) : new HashSet<>();
+    }
+
+    /**
+     * Adds a given employee to the hierarchy. If the employee's manager is present in the hierarchy,
+     * include the employee and return true. Otherwise, return false and leave the hierarchy unchanged.
+     *
+     * A registered manager filed under nobody is filed under their manager, unless that would close a loop.
+     *
+     * @param employee the employee to add to the hierarchy
+     * @return true if the employee was added successfully, false otherwise.
+     */
+    @Override
+    public boolean addEmployee(Employee employee) {
+        if (employee == null || !hasManager(employee.getManager())) {
+            return false;
+        }
+        Manager boss = employee.getManager();
+        Period period = current.get(employee);
+        if (period != null) {
+            if (period.manager != null || boss.equals(employee) || getChainOfCommand(boss).contains(employee)) {
+                return false;
+            }
+            begin(employee, boss, true, now());
+            return true;
+        }
+        begin(employee, boss, false, now());
+        return true;
+    }
+
+    /**
+     * @return the set of all employees in the hierarchy
+     */
+    @Override
+    public Set<Employee> getEmployees() {
+        return new HashSet<>(current.keySet());
+    }
+
+    /**
+     * Finds the member of the hierarchy with the given id.
+     *
+     * @param id the id of the employee to find
+     * @return the employee in the hierarchy with the given id, or null if there is none
+     */
+    @Override
+    public Employee getEmployee(long id) {
+        Period period = current.get(new EmployeeKey(id));
+        return period == null ? null : period.employee;
+    }
+
+    /**
+     * Check if the given employee is present in the hierarchy. If the employee has been added as
+     * a manager or as an employee, return true. If not, return false.
+     *
+     * @param employee the employee to check for presence in the hierarchy
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasEmployee(Employee employee) {
+        return employee != null && current.containsKey(employee);
+    }
+
+    /**
+     * Returns a representation of the management hierarchy as a map of managers to sets of employees,
+     * representing direct management relationships, i.e. all employees in a given manager's set should
+     * have that manager in its manager field.
+     *
+     * @return the entire management hierarchy as a map from managers to the set of employees directly under
+     * their supervision.
+     */
+    @Override
+    public Map<Manager, Set<Employee>> getHierarchy() {
+        Map<Manager, Set<Employee>> result = new HashMap<>(Math.max(16, (int) (reports.size() / 0.75f) + 1));
+        for (Map.Entry<Manager, Set<Employee>> entry : reports.entrySet()) {
+            result.put(entry.getKey(), new HashSet<>(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the chain of command for a given employee, represented by a list of managers. The first
+     * element of the list should be the given employee's direct manager, the second element should be
+     * that manager's direct manager, and so on.
+     *
+     * @param employee the employee whose chain of command is to be retrieved
+     * @return a list of managers that represents the chain of command for the given employee.
+     * If the employee is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    public List<Manager> getChainOfCommand(Employee employee) {
+        List<Period> path = new ArrayList<>();
+        for (Period p = employee == null ? null : current.get(employee); p != null && p.manager != null;
+             p = current.get(p.manager)) {
+            path.add(p);
+        }
+        return chainOf(path);
+    }
+
+    /**
+     * Retrieves the chains of command of many employees at once, following the recorded periods rather than
+     * the employees' manager fields.
+     *
+     * @param employees the employees whose chains of command are to be retrieved
+     * @return a map from each of the given employees to their chain of command, as
+     * {@link #getChainOfCommand(Employee)} would list it; employees not present in the hierarchy map to an
+     * empty chain
+     */
+    @Override
+    public Map<Employee, List<Manager>> getChainsOfCommand(Collection<? extends Employee> employees) {
+        return chainsOf(this, employees);
+    }
+
+    /**
+     * Removes a given employee from the hierarchy. A manager can only be removed once nobody is filed
+     * under them any more; transfer their reports first. A removed manager is no longer registered.
+     * Their history is kept.
+     *
+     * @param employee the employee to remove from the hierarchy
+     * @return true if the employee was removed, false if they were not present or still have reports.
+     */
+    @Override
+    public boolean removeEmployee(Employee employee) {
+        Period period = employee == null ? null : current.get(employee);
+        if (period == null || period.registeredManager && !reports.get(employee).isEmpty()) {
+            return false;
+        }
+        end(period, now());
+        return true;
+    }
+
+    /**
+     * Moves a given employee, together with everyone who reports to them, under a new manager, and records
+     * the new manager in the employee's manager field. The move is refused if the new manager reports to
+     * the employee, since the chain of command would then loop.
+     *
+     * @param employee   the employee to move
+     * @param newManager the manager the employee should report to from now on
+     * @return true if the employee was moved, false if either person is not present in the hierarchy, the
+     * employee already reports to the new manager, or the move would close a loop.
+     */
+    @Override
+    public boolean transferEmployee(Employee employee, Manager newManager) {
+        Period period = employee == null ? null : current.get(employee);
+        if (period == null || !hasManager(newManager) || employee.equals(newManager)
+                || newManager.equals(period.manager) || getChainOfCommand(newManager).contains(employee)) {
+            return false;
+        }
+        employee.setManager(newManager);
+        begin(employee, newManager, period.registeredManager, now());
+        return true;
+    }
+
+    /**
+     * Replaces a given grunt with a new {@link Manager} of the same id, name, title and manager, registered as
+     * a manager in the same place in the hierarchy. The grunt itself is no longer present in the hierarchy
+     * afterwards.
+     *
+     * @param grunt the grunt to promote
+     * @return the manager that took the grunt's place, or null if the grunt is not present in the hierarchy.
+     */
+    @Override
+    public Manager promoteToManager(Grunt grunt) {
+        Period period = grunt == null ? null : current.get(grunt);
+        if (period == null || !removeEmployee(grunt)) {
+            return null;
+        }
+        Manager promoted = new Manager(grunt.getId(), grunt.getName(), grunt.getTitle(), period.manager);
+        begin(promoted, period.manager, true, lastTime);
+        return promoted;
+    }
+
+    /**
+     * Changes a given employee's title, starting a new period so that the hierarchy as of earlier times
+     * keeps the old one.
+     *
+     * @param employee the employee whose title is to be changed
+     * @param title    the new title
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean retitleEmployee(Employee employee, String title) {
+        Period period = employee == null ? null : current.get(employee);
+        if (period == null) {
+            return false;
+        }
+        period.employee.setTitle(title);
+        begin(period.employee, period.manager, period.registeredManager, now());
+        return true;
+    }
+
+    /**
+     * @return the time of a change made now, never earlier than the last one
+     */
+    private long now() {
+        lastTime = Math.max(lastTime, clock.millis());
+        return lastTime;
+    }
+
+    /**
+     * Starts a new period for an employee, ending their current one.
+     */
+    private void begin(Employee employee, Manager manager, boolean registered, long time) {
+        Period previous = current.get(employee);
+        Manager previousManager = previous == null ? null : previous.manager;
+        if (previous != null) {
+            previous.to = time;
+            if (previousManager != null) {
+                reports.get(previousManager).remove(employee);
+                if (!previousManager.equals(manager)) {
+                    file(previousManager, employee, false, time);
+                }
+            }
+        }
+        Period period = new Period(employee, manager, registered, time);
+        List<Period> history = histories.get(employee.getId());
+        if (history == null) {
+            history = new ArrayList<>(1);
+            histories.put(employee.getId(), history);
+        }
+        history.add(period);
+        current.put(employee, period);
+        if (manager != null) {
+            if (!manager.equals(previousManager)) {
+                file(manager, employee, true, time);
+            }
+            reports.get(manager).add(employee);
+        }
+        if (registered && !reports.containsKey(employee)) {
+            reports.put((Manager) employee, new HashSet<>());
+        }
+    }
+
+    /**
+     * Ends an employee's current period, taking them out of the hierarchy.
+     */
+    private void end(Period period, long time) {
+        period.to = time;
+        current.remove(period.employee);
+        if (period.manager != null) {
+            reports.get(period.manager).remove(period.employee);
+            file(period.manager, period.employee, false, time);
+        }
+        if (period.registeredManager) {
+            reports.remove(period.employee);
+        }
+    }
+
+    /**
+     * Records a new version of a manager's direct reports with the given employee joining or leaving them,
+     * replacing the last version if it started at the same time.
+     */
+    private void file(Manager manager, Employee employee, boolean joining, long time) {
+        List<Reports> versions = filedUnder.get(manager);
+        if (versions == null) {
+            versions = new ArrayList<>();
+            filedUnder.put(manager, versions);
+        }
+        int last = versions.size() - 1;
+        PersistentHashSet<Employee> employees = last < 0 ? PersistentHashSet.<Employee>empty()
+                : versions.get(last).employees;
+        Reports next = new Reports(time, joining ? employees.plus(employee) : employees.minus(employee));
+        if (last >= 0 && versions.get(last).from == time) {
+            versions.set(last, next);
+        } else {
+            versions.add(next);
+        }
+    }
+
+    /**
+     * @return the period of the history of the given id covering the given time, or null if there is none
+     */
+    private Period periodOf(long id, long time) {
+        List<Period> history = histories.get(id);
+        if (history == null) {
+            return null;
+        }
+        int index = countStarted(history, p -> p.from, time) - 1;
+        return index >= 0 && history.get(index).contains(time) ? history.get(index) : null;
+    }
+
+    /**
+     * @return the number of the given items, in order of their start, that started at or before the given
+     * time
+     */
+    private static <T> int countStarted(List<T> items, ToLongFunction<? super T> start, long time) {
+        int low = 0;
+        int high = items.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (start.applyAsLong(items.get(middle)) <= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param path the periods of an employee and their managers up the chain, the employee's first
+     * @return the managers the periods were filed under, as a chain of command
+     */
+    private static ChainOfCommand chainOf(List<Period> path) {
+        ChainOfCommand chain = ChainOfCommand.empty();
+        for (int i = path.size() - 1; i >= 0; i--) {
+            chain = chain.under(path.get(i).manager);
+        }
+        return chain;
+    }
+
+    private static Map<Employee, List<Manager>> chainsOf(ManagementHierarchy hierarchy,
+                                                        Collection<? extends Employee> employees) {
+        Map<Employee, List<Manager>> result = new HashMap<>(Math.max(16, (int) (employees.size() / 0.75f) + 1));
+        for (Employee employee : employees) {
+            if (!result.containsKey(employee)) {
+                result.put(employee, hierarchy.getChainOfCommand(employee));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The hierarchy as of one point in time, read from the recorded periods.
+     */
+    private final class AsOf implements ManagementHierarchy {
+        private final long time;
+
+        AsOf(long time) {
+            this.time = time;
+        }
+
+        /**
+         * The past cannot be changed.
+         *
+         * @throws UnsupportedOperationException always
+         */
+        @Override
+        public boolean addManager(Manager manager) {
+            throw new UnsupportedOperationException("The past cannot be changed");
+        }
+
+        /**
+         * Retrieves a set of all managers already included in the hierarchy.
+         *
+         * @return a set of the managers already added to the hierarchy. If no managers have been added yet,
+         * returns an empty set.
+         */
+        @Override
+        public Set<Manager> getManagers() {
+            Set<Manager> result = new HashSet<>();
+            for (List<Period> history : histories.values()) {
+                Period period = at(history);
+                if (period != null && period.registeredManager) {
+                    result.add((Manager) period.employee);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Check if the given manager has been added to the hierarchy.
+         *
+         * @param manager the manager to check for presence in the hierarchy.
+         * @return true if the manager is present in the hierarchy, false otherwise.
+         */
+        @Override
+        public boolean hasManager(Manager manager) {
+            Period period = manager == null ? null : getPeriod(manager, time);
+            return period != null && period.registeredManager;
+        }
+
+        /**
+         * Given a manager, retrieve the set of employees who report directly to that manager.
+         *
+         * @param manager the manager whose underlings are to be retrieved.
+         * @return a set of employees in the hierarchy for which the given manager is their direct superior.
+         * If the given manager is not present in the hierarchy, returns an empty set.
+         */
+        @Override
+        public Set<Employee> getUnderlings(Manager manager) {
+            List<Reports> versions = manager == null ? null : filedUnder.get(manager);
+            int index = versions == null ? -1 : countStarted(versions, r -> r.from, time) - 1;
+            return index < 0 ? PersistentHashSet.<Employee>empty() : versions.get(index).employees;
+        }
+
+        /**
+         * The past cannot be changed.
+         *
+         * @throws UnsupportedOperationException always
+         */
+        @Override
+        public boolean addEmployee(Employee employee) {
+            throw new UnsupportedOperationException("The past cannot be changed");
+        }
+
+        /**
+         * @return the set of all employees in the hierarchy
+         */
+        @Override
+        public Set<Employee> getEmployees() {
+            Set<Employee> result = new HashSet<>();
+            for (List<Period> history : histories.values()) {
+                Period period = at(history);
+                if (period != null) {
+                    result.add(period.employee);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Finds the member of the hierarchy with the given id.
+         *
+         * @param id the id of the employee to find
+         * @return the employee in the hierarchy with the given id, or null if there is none
+         */
+        @Override
+        public Employee getEmployee(long id) {
+            Period period = periodOf(id, time);
+            return period == null ? null : period.employee;
+        }
+
+        /**
+         * Check if the given employee is present in the hierarchy. If the employee has been added as
+         * a manager or as an employee, return true. If not, return false.
+         *
+         * @param employee the employee to check for presence in the hierarchy
+         * @return true if the employee is present in the hierarchy, false otherwise.
+         */
+        @Override
+        public boolean hasEmployee(Employee employee) {
+            return employee != null && getPeriod(employee, time) != null;
+        }
+
+        /**
+         * Returns a representation of the management hierarchy as a map of managers to sets of employees,
+         * representing direct management relationships, i.e. all employees in a given manager's set should
+         * have that manager in its manager field.
+         *
+         * @return the entire management hierarchy as a map from managers to the set of employees directly under
+         * their supervision.
+         */
+        @Override
+        public Map<Manager, Set<Employee>> getHierarchy() {
+            Map<Manager, Set<Employee>> result = new HashMap<>();
+            for (List<Period> history : histories.values()) {
+                Period period = at(history);
+                if (period == null) {
+                    continue;
+                }
+                if (period.registeredManager && !result.containsKey(period.employee)) {
+                    result.put((Manager) period.employee, new HashSet<>());
+                }
+                if (period.manager != null) {
+                    Set<Employee> set = result.get(period.manager);
+                    if (set == null) {
+                        set = new HashSet<>();
+                        result.put(period.manager, set);
+                    }
+                    set.add(period.employee);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the chain of command for a given employee, represented by a list of managers. The first
+         * element of the list should be the given employee's direct manager, the second element should be
+         * that manager's direct manager, and so on.
+         *
+         * @param employee the employee whose chain of command is to be retrieved
+         * @return a list of managers that represents the chain of command for the given employee.
+         * If the employee is not present in the hierarchy, returns an empty list.
+         */
+        @Override
+        public List<Manager> getChainOfCommand(Employee employee) {
+            List<Period> path = new ArrayList<>();
+            for (Period p = employee == null ? null : getPeriod(employee, time); p != null && p.manager != null;
+                 p = getPeriod(p.manager, time)) {
+                path.add(p);
+            }
+            return chainOf(path);
+        }
+
+        /**
+         * Retrieves the chains of command of many employees at once, following the recorded periods rather
+         * than the employees' manager fields.
+         *
+         * @param employees the employees whose chains of command are to be retrieved
+         * @return a map from each of the given employees to their chain of command, as
+         * {@link #getChainOfCommand(Employee)} would list it; employees not present in the hierarchy map to
+         * an empty chain
+         */
+        @Override
+        public Map<Employee, List<Manager>> getChainsOfCommand(Collection<? extends Employee> employees) {
+            return chainsOf(this, employees);
+        }
+
+        /**
+         * Finds every employee in the hierarchy holding the given title at this time.
+         *
+         * @param title the title to look for
+         * @return a set of the employees in the hierarchy whose title equals the given title
+         */
+        @Override
+        public Set<Employee> findByTitle(String title) {
+            return titled(title, present());
+        }
+
+        /**
+         * Finds every employee in the given manager's organization holding the given title at this time.
+         *
+         * @param title   the title to look for
+         * @param manager the manager whose organization is to be searched
+         * @return a set of the employees reporting to the manager, directly or indirectly, whose title equals
+         * the given title. If the manager is not present in the hierarchy, returns an empty set.
+         */
+        @Override
+        public Set<Employee> findByTitle(String title, Manager manager) {
+            return titled(title, periodsOf(getAllReports(manager)));
+        }
+
+        /**
+         * Finds every employee in the hierarchy whose name at this time starts with the given prefix,
+         * ignoring case.
+         *
+         * @param prefix the start of the names to look for
+         * @return a list of the matching employees, ordered by name without regard to case
+         */
+        @Override
+        public List<Employee> findByNamePrefix(String prefix) {
+            return named(prefix, present());
+        }
+
+        /**
+         * Finds every employee in the given manager's organization whose name at this time starts with the
+         * given prefix, ignoring case.
+         *
+         * @param prefix  the start of the names to look for
+         * @param manager the manager whose organization is to be searched
+         * @return a list of the matching employees reporting to the manager, directly or indirectly, ordered
+         * by name without regard to case. If the manager is not present in the hierarchy, returns an empty
+         * list.
+         */
+        @Override
+        public List<Employee> findByNamePrefix(String prefix, Manager manager) {
+            return named(prefix, periodsOf(getAllReports(manager)));
+        }
+
+        private Period at(List<Period> history) {
+            int index = countStarted(history, p -> p.from, time) - 1;
+            return index >= 0 && history.get(index).contains(time) ? history.get(index) : null;
+        }
+
+        /**
+         * @return the periods of everyone present at this time
+         */
+        private List<Period> present() {
+            List<Period> result = new ArrayList<>();
+            for (List<Period> history : histories.values()) {
+                Period period = at(history);
+                if (period != null) {
+                    result.add(period);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @return the periods of those of the given employees present at this time
+         */
+        private List<Period> periodsOf(Collection<? extends Employee> employees) {
+            List<Period> result = new ArrayList<>(employees.size());
+            for (Employee e : employees) {
+                Period period = getPeriod(e, time);
+                if (period != null) {
+                    result.add(period);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static Set<Employee> titled(String title, List<Period> periods) {
+        Set<Employee> result = new HashSet<>();
+        for (Period period : periods) {
+            if (Objects.equals(title, period.title)) {
+                result.add(period.employee);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the employees of the given periods whose name then started with the given prefix, ignoring
+     * case, ordered by that name without regard to case
+     */
+    private static List<Employee> named(String prefix, List<Period> periods) {
+        List<Period> matches = new ArrayList<>();
+        for (Period period : periods) {
+            if (period.name != null && period.name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                matches.add(period);
+            }
+        }
+        matches.sort(Comparator.comparing((Period p) -> p.name, String.CASE_INSENSITIVE_ORDER));
+        List<Employee> result = new ArrayList<>(matches.size());
+        for (Period period : matches) {
+            result.add(period.employee);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,101 @@
+package com.cooksys.collections.assignment;
+
+import com.cooksys.collections.Employee;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Walks a run of the Euler tour kept by {@link IndexedManagementHierarchy}, reporting the employee of every
+ * node in it. The run is described by the token it starts at and the number of nodes it holds, so every part
+ * knows its exact size.
+ *
+ * Splitting hands out whole subtrees from the front of the run, stepping over each one through its
+ * {@link HierarchyNode#end} token and its {@link HierarchyNode#headcount}, until about half the run is covered.
+ * A subtree too big to hand out whole is split open instead: its manager goes to the front part and the walk
+ * carries on among the manager's reports. A split therefore costs time proportional to the siblings and
+ * levels it steps over, not to the people in them.
+ */
+final class TourSpliterator implements Spliterator<Employee> {
+    private TourToken position;
+    private int remaining;
+
+    /**
+     * @param first the token the run starts at
+     * @param size  the number of nodes in the run
+     */
+    TourSpliterator(TourToken first, int size) {
+        this.position = first;
+        this.remaining = size;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Employee> action) {
+        if (remaining == 0) {
+            return false;
+        }
+        HierarchyNode node = nextNode();
+        position = node.next;
+        remaining--;
+        action.accept(node.employee);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Employee> action) {
+        for (; remaining > 0; remaining--) {
+            HierarchyNode node = nextNode();
+            position = node.next;
+            action.accept(node.employee);
+        }
+    }
+
+    @Override
+    public Spliterator<Employee> trySplit() {
+        int target = remaining / 2;
+        if (target == 0) {
+            return null;
+        }
+        TourToken first = nextNode();
+        TourToken at = first;
+        int taken = 0;
+        while (taken < target) {
+            while (!(at instanceof HierarchyNode)) {
+                at = at.next;
+            }
+            HierarchyNode node = (HierarchyNode) at;
+            if (taken + node.headcount + 1 <= target) {
+                taken += node.headcount + 1;
+                at = node.end.next;
+            } else if (taken == 0) {
+                taken = 1;
+                at = node.next;
+            } else {
+                break;
+            }
+        }
+        position = at;
+        remaining -= taken;
+        return new TourSpliterator(first, taken);
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return DISTINCT | NONNULL | SIZED | SUBSIZED;
+    }
+
+    /**
+     * Skips the end tokens in front of the next node, which must exist.
+     */
+    private HierarchyNode nextNode() {
+        while (!(position instanceof HierarchyNode)) {
+            position = position.next;
+        }
+        return (HierarchyNode) position;
+    }
+}
@@ -0,0 +1,30 @@
+package com.cooksys.collections.assignment;
+
+/**
+ * A position in the Euler tour kept by {@link IndexedManagementHierarchy}. Every node enters the tour as
+ * itself and leaves it through its {@link HierarchyNode#end} token, with the tours of its reports in between,
+ * so a manager's entire organization is the contiguous run of tokens between those two positions.
+ */
+class TourToken {
+    TourToken prev;
+    TourToken next;
+
+    /**
+     * Moves the run of tokens from {@code first} to {@code last} inclusive so that it sits just before
+     * this token. The run must not contain this token.
+     */
+    void spliceBefore(TourToken first, TourToken last) {
+        if (first.prev != null) {
+            first.prev.next = last.next;
+        }
+        if (last.next != null) {
+            last.next.prev = first.prev;
+        }
+        first.prev = prev;
+        last.next = this;
+        if (prev != null) {
+            prev.next = first;
+        }
+        prev = last;
+    }
+}
@@ -0,0 +1,21 @@
+package com.cooksys.collections.io;
+
+/**
+ * The text formats {@link HierarchyWriter} and {@link HierarchyReader} exchange hierarchies in. Both hold one
+ * record per employee, in any order, with the employee's id, whether they are a {@code manager} or a
+ * {@code grunt}, their name and title, and the id of their manager.
+ */
+public enum HierarchyFormat {
+    /**
+     * Comma-separated values following RFC 4180, starting with the header line
+     * {@code id,type,name,title,managerId}. Fields holding a comma, a quote or a line break are quoted, and
+     * quotes inside them doubled. An empty field stands for null; an empty string is written as {@code ""}.
+     */
+    CSV,
+    /**
+     * One JSON object per line, such as
+     * {@code {"id":2,"type":"manager","name":"Frank","title":"Manager","managerId":1}}. Missing fields and
+     * {@code null} stand for null, and fields not listed here are ignored when reading.
+     */
+    JSON_LINES
+}
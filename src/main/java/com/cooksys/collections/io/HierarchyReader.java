@@ -0,0 +1,476 @@
+package com.cooksys.collections.io;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.HierarchyBulkLoader;
+import com.cooksys.collections.assignment.IndexedManagementHierarchy;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Reads the records of a {@link HierarchyFormat} back into employees, one at a time, so that an export can be
+ * fed into a {@link HierarchyBulkLoader} without ever being held in memory as text or records. Every employee
+ * is created with the id recorded for them, so they are equal to the employees that were written.
+ *
+ * Records may come in any order. A record whose manager has not been read yet refers to a stand-in
+ * {@link Manager} with the manager's id, which is filled in when the manager's own record arrives, so apart
+ * from the employees themselves the reader only remembers the managers it has seen and the ids of the grunts,
+ * to refuse any id defined twice. Stand-ins still waiting
+ * at the end of the input are reported by {@link #getMissingManagerIds()}; their reports come out as orphans
+ * of the bulk loader.
+ */
+public final class HierarchyReader implements Closeable {
+    private final Reader in;
+    private final HierarchyFormat format;
+    private final Map<Long, Manager> managers = new HashMap<>();
+    private final Set<Long> grunts = new HashSet<>();
+    private final Set<Long> missing = new HashSet<>();
+    private final StringBuilder text = new StringBuilder();
+    private int pushedBack = -2;
+    private long line = 1;
+    private long recordLine = 1;
+    private boolean started;
+
+    private long id;
+    private Boolean manager;
+    private String name;
+    private String title;
+    private Long managerId;
+
+    /**
+     * Creates a reader of UTF-8 text.
+     *
+     * @param stream the stream to read from
+     * @param format the format to read
+     */
+    public HierarchyReader(InputStream stream, HierarchyFormat format) {
+        this(new InputStreamReader(stream, StandardCharsets.UTF_8), format);
+    }
+
+    /**
+     * @param in     the reader to read from
+     * @param format the format to read
+     */
+    public HierarchyReader(Reader in, HierarchyFormat format) {
+        if (format == null) {
+            throw new NullPointerException("format");
+        }
+        this.in = in instanceof BufferedReader ? in : new BufferedReader(in, 1 << 16);
+        this.format = format;
+    }
+
+    /**
+     * Bulk loads a hierarchy from a file.
+     *
+     * @param path   the file to read
+     * @param format the format of the file
+     * @return a new hierarchy holding everyone in the file
+     * @throws IOException if the file cannot be read or is not in the given format
+     */
+    public static IndexedManagementHierarchy read(Path path, HierarchyFormat format) throws IOException {
+        try (HierarchyReader reader = new HierarchyReader(Files.newInputStream(path), format)) {
+            return reader.readAll(new HierarchyBulkLoader()).build();
+        }
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the employee the record describes, or null at the end of the input
+     * @throws IOException if the input cannot be read, is not in the reader's format, or defines an id twice
+     */
+    public Employee read() throws IOException {
+        recordLine = line;
+        boolean found = format == HierarchyFormat.CSV ? readCsv() : readJson();
+        return found ? resolve() : null;
+    }
+
+    /**
+     * Reads every remaining record into the given loader.
+     *
+     * @param loader the loader to add the employees to
+     * @return the given loader
+     * @throws IOException if the input cannot be read or is not in the reader's format
+     */
+    public HierarchyBulkLoader readAll(HierarchyBulkLoader loader) throws IOException {
+        for (Employee e = read(); e != null; e = read()) {
+            loader.add(e);
+        }
+        return loader;
+    }
+
+    /**
+     * @return the ids given as a manager by some record read so far, for which no manager record has been read
+     */
+    public Set<Long> getMissingManagerIds() {
+        return Collections.unmodifiableSet(missing);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Employee resolve() throws IOException {
+        if (grunts.contains(id)) {
+            throw error("Duplicate id " + id);
+        }
+        Manager boss = null;
+        if (managerId != null) {
+            if (grunts.contains(managerId)) {
+                throw error("Grunt " + managerId + " is somebody's manager");
+            }
+            boss = managers.get(managerId);
+            if (boss == null) {
+                boss = new Manager(managerId, null, null, null);
+                managers.put(managerId, boss);
+                missing.add(managerId);
+            }
+        }
+        Manager known = managers.get(id);
+        if (known != null && !(manager && missing.remove(id))) {
+            throw error(manager || !missing.contains(id) ? "Duplicate id " + id
+                    : "Grunt " + id + " is somebody's manager");
+        }
+        if (!manager) {
+            grunts.add(id);
+            return new Grunt(id, name, title, boss);
+        }
+        if (known == null) {
+            known = new Manager(id, name, title, boss);
+            managers.put(id, known);
+        } else {
+            known.setName(name);
+            known.setTitle(title);
+            known.setManager(boss);
+        }
+        return known;
+    }
+
+    private boolean readCsv() throws IOException {
+        if (!started) {
+            started = true;
+            if (peek() == -1) {
+                return false;
+            }
+            StringBuilder header = new StringBuilder();
+            for (int c = next(); c != '\n' && c != -1; c = next()) {
+                if (c != '\r') {
+                    header.append((char) c);
+                }
+            }
+            if (!HierarchyWriter.CSV_HEADER.contentEquals(header)) {
+                throw error("Expected the header " + HierarchyWriter.CSV_HEADER);
+            }
+        }
+        if (peek() == -1) {
+            return false;
+        }
+        recordLine = line;
+        String[] fields = new String[5];
+        int n = 0;
+        boolean more = true;
+        while (more) {
+            if (n == fields.length) {
+                throw error("More than " + fields.length + " fields");
+            }
+            fields[n++] = csvField();
+            int c = next();
+            if (c == '\r' && peek() == '\n') {
+                c = next();
+            }
+            more = c == ',';
+        }
+        if (n != fields.length) {
+            throw error("Expected " + fields.length + " fields but found " + n);
+        }
+        id = parseId(fields[0]);
+        manager = parseType(fields[1]);
+        name = fields[2];
+        title = fields[3];
+        managerId = fields[4] == null ? null : parseId(fields[4]);
+        return true;
+    }
+
+    /**
+     * Reads one field, leaving the character that ends it unread.
+     *
+     * @return the field's text, or null for an empty unquoted field
+     */
+    private String csvField() throws IOException {
+        text.setLength(0);
+        if (peek() != '"') {
+            for (int c = peek(); c != ',' && c != '\n' && c != '\r' && c != -1; c = peek()) {
+                if (c == '"') {
+                    throw error("Quote inside an unquoted field");
+                }
+                text.append((char) next());
+            }
+            return text.length() == 0 ? null : text.toString();
+        }
+        next();
+        while (true) {
+            int c = next();
+            if (c == -1) {
+                throw error("Unterminated quoted field");
+            }
+            if (c == '"') {
+                if (peek() != '"') {
+                    break;
+                }
+                next();
+            }
+            text.append((char) c);
+        }
+        int c = peek();
+        if (c != ',' && c != '\n' && c != '\r' && c != -1) {
+            throw error("Text after a quoted field");
+        }
+        return text.toString();
+    }
+
+    private boolean readJson() throws IOException {
+        do {
+            text.setLength(0);
+            recordLine = line;
+            int c = next();
+            if (c == -1) {
+                return false;
+            }
+            for (; c != '\n' && c != -1; c = next()) {
+                text.append((char) c);
+            }
+        } while (isBlank(text));
+
+        Long recordId = null;
+        manager = null;
+        name = null;
+        title = null;
+        managerId = null;
+        int[] at = {skipSpace(0)};
+        expect(at, '{');
+        if (peekJson(at) == '}') {
+            at[0]++;
+        } else {
+            boolean more = true;
+            while (more) {
+                at[0] = skipSpace(at[0]);
+                String key = jsonString(at);
+                at[0] = skipSpace(at[0]);
+                expect(at, ':');
+                at[0] = skipSpace(at[0]);
+                switch (key) {
+                    case "id":
+                        recordId = jsonId(at, false);
+                        break;
+                    case "type":
+                        String type = peekJson(at) == 'n' ? jsonLiteral(at, "null") : jsonString(at);
+                        manager = type == null ? null : parseType(type);
+                        break;
+                    case "name":
+                        name = peekJson(at) == 'n' ? jsonLiteral(at, "null") : jsonString(at);
+                        break;
+                    case "title":
+                        title = peekJson(at) == 'n' ? jsonLiteral(at, "null") : jsonString(at);
+                        break;
+                    case "managerId":
+                        managerId = jsonId(at, true);
+                        break;
+                    default:
+                        skipJsonValue(at);
+                        break;
+                }
+                at[0] = skipSpace(at[0]);
+                char c = peekJson(at);
+                at[0]++;
+                if (c != ',' && c != '}') {
+                    throw error("Expected ',' or '}' at column " + at[0]);
+                }
+                more = c == ',';
+            }
+        }
+        if (skipSpace(at[0]) != text.length()) {
+            throw error("Text after the record");
+        }
+        if (recordId == null || manager == null) {
+            throw error("Record without an id and type");
+        }
+        id = recordId;
+        return true;
+    }
+
+    private Long jsonId(int[] at, boolean nullable) throws IOException {
+        if (nullable && peekJson(at) == 'n') {
+            jsonLiteral(at, "null");
+            return null;
+        }
+        int start = at[0];
+        while (at[0] < text.length() && (text.charAt(at[0]) == '-' || Character.isDigit(text.charAt(at[0])))) {
+            at[0]++;
+        }
+        return parseId(text.substring(start, at[0]));
+    }
+
+    private String jsonString(int[] at) throws IOException {
+        expect(at, '"');
+        StringBuilder result = new StringBuilder();
+        while (true) {
+            if (at[0] >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char c = text.charAt(at[0]++);
+            if (c == '"') {
+                return result.toString();
+            }
+            if (c != '\\') {
+                result.append(c);
+                continue;
+            }
+            char escape = peekJson(at);
+            at[0]++;
+            switch (escape) {
+                case '"':
+                case '\\':
+                case '/':
+                    result.append(escape);
+                    break;
+                case 'b':
+                    result.append('\b');
+                    break;
+                case 'f':
+                    result.append('\f');
+                    break;
+                case 'n':
+                    result.append('\n');
+                    break;
+                case 'r':
+                    result.append('\r');
+                    break;
+                case 't':
+                    result.append('\t');
+                    break;
+                case 'u':
+                    if (at[0] + 4 > text.length()) {
+                        throw error("Truncated escape");
+                    }
+                    try {
+                        result.append((char) Integer.parseInt(text.substring(at[0], at[0] + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Bad escape \\u" + text.substring(at[0], at[0] + 4));
+                    }
+                    at[0] += 4;
+                    break;
+                default:
+                    throw error("Bad escape \\" + escape);
+            }
+        }
+    }
+
+    private String jsonLiteral(int[] at, String literal) throws IOException {
+        if (!text.substring(at[0], Math.min(text.length(), at[0] + literal.length())).equals(literal)) {
+            throw error("Expected " + literal + " at column " + (at[0] + 1));
+        }
+        at[0] += literal.length();
+        return null;
+    }
+
+    /**
+     * Skips a string, number, boolean or null. Records are flat, so objects and arrays are not accepted.
+     */
+    private void skipJsonValue(int[] at) throws IOException {
+        char c = peekJson(at);
+        if (c == '"') {
+            jsonString(at);
+        } else if (c == 't') {
+            jsonLiteral(at, "true");
+        } else if (c == 'f') {
+            jsonLiteral(at, "false");
+        } else if (c == 'n') {
+            jsonLiteral(at, "null");
+        } else if (c == '-' || Character.isDigit(c)) {
+            while (at[0] < text.length() && "+-.eE0123456789".indexOf(text.charAt(at[0])) >= 0) {
+                at[0]++;
+            }
+        } else {
+            throw error("Unexpected '" + c + "' at column " + (at[0] + 1));
+        }
+    }
+
+    private void expect(int[] at, char expected) throws IOException {
+        if (peekJson(at) != expected) {
+            throw error("Expected '" + expected + "' at column " + (at[0] + 1));
+        }
+        at[0]++;
+    }
+
+    private char peekJson(int[] at) throws IOException {
+        if (at[0] >= text.length()) {
+            throw error("Unexpected end of record");
+        }
+        return text.charAt(at[0]);
+    }
+
+    private int skipSpace(int at) {
+        while (at < text.length() && Character.isWhitespace(text.charAt(at))) {
+            at++;
+        }
+        return at;
+    }
+
+    private static boolean isBlank(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isWhitespace(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long parseId(String value) throws IOException {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw error("Bad id '" + value + "'");
+        }
+    }
+
+    private boolean parseType(String value) throws IOException {
+        if ("manager".equals(value)) {
+            return true;
+        }
+        if ("grunt".equals(value)) {
+            return false;
+        }
+        throw error("Bad type '" + value + "'");
+    }
+
+    private int peek() throws IOException {
+        if (pushedBack == -2) {
+            pushedBack = in.read();
+        }
+        return pushedBack;
+    }
+
+    private int next() throws IOException {
+        int c = peek();
+        pushedBack = -2;
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private IOException error(String message) {
+        return new IOException("Line " + recordLine + ": " + message);
+    }
+}
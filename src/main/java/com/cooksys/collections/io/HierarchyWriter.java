@@ -0,0 +1,249 @@
+package com.cooksys.collections.io;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes employees as records of a {@link HierarchyFormat}, one at a time, straight to a character stream.
+ * Each record refers to the employee's manager by id only, and nothing is collected or built up between
+ * records. {@link #writeAll(ManagementHierarchy)} walks the hierarchy through
+ * {@link ManagementHierarchy#employees()}, so a hierarchy that streams its members lazily is written without
+ * being copied first. It records the manager each member is filed under, the head of their chain of command,
+ * which can differ from their manager field after that was set directly to someone the hierarchy could not
+ * move them under; hierarchies that cache chains of command answer this in constant time.
+ *
+ * Output is buffered; {@link #flush()} or {@link #close()} the writer when done.
+ */
+public final class HierarchyWriter implements Closeable, Flushable {
+    static final String CSV_HEADER = "id,type,name,title,managerId";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+    private final HierarchyFormat format;
+    private final char[] digits = new char[20];
+    private long count;
+
+    /**
+     * Creates a writer producing UTF-8 text.
+     *
+     * @param stream the stream to write to
+     * @param format the format to write
+     * @throws IOException if the stream cannot be written
+     */
+    public HierarchyWriter(OutputStream stream, HierarchyFormat format) throws IOException {
+        this(new OutputStreamWriter(stream, StandardCharsets.UTF_8), format);
+    }
+
+    /**
+     * @param out    the writer to write to
+     * @param format the format to write
+     * @throws IOException if the writer cannot be written
+     */
+    public HierarchyWriter(Writer out, HierarchyFormat format) throws IOException {
+        if (format == null) {
+            throw new NullPointerException("format");
+        }
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, 1 << 16);
+        this.format = format;
+        if (format == HierarchyFormat.CSV) {
+            this.out.write(CSV_HEADER);
+            this.out.write('\n');
+        }
+    }
+
+    /**
+     * Writes every member of the given hierarchy to a file, replacing any file already at that path.
+     *
+     * @param hierarchy the hierarchy to write
+     * @param path      the file to write
+     * @param format    the format to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(ManagementHierarchy hierarchy, Path path, HierarchyFormat format) throws IOException {
+        try (HierarchyWriter writer = new HierarchyWriter(Files.newOutputStream(path), format)) {
+            writer.writeAll(hierarchy);
+        }
+    }
+
+    /**
+     * Writes one record for the given employee.
+     *
+     * @param employee the employee to write
+     * @throws IOException if the record cannot be written
+     */
+    public void write(Employee employee) throws IOException {
+        write(employee, employee.getManager());
+    }
+
+    /**
+     * Writes one record for the given employee, reporting to the given manager rather than the one in their
+     * manager field.
+     *
+     * @param employee the employee to write
+     * @param manager  the manager to record for them, or null for none
+     * @throws IOException if the record cannot be written
+     */
+    public void write(Employee employee, Manager manager) throws IOException {
+        if (format == HierarchyFormat.CSV) {
+            writeLong(employee.getId());
+            out.write(employee instanceof Manager ? ",manager," : ",grunt,");
+            writeCsvString(employee.getName());
+            out.write(',');
+            writeCsvString(employee.getTitle());
+            out.write(',');
+            if (manager != null) {
+                writeLong(manager.getId());
+            }
+        } else {
+            out.write("{\"id\":");
+            writeLong(employee.getId());
+            out.write(employee instanceof Manager ? ",\"type\":\"manager\",\"name\":" : ",\"type\":\"grunt\",\"name\":");
+            writeJsonString(employee.getName());
+            out.write(",\"title\":");
+            writeJsonString(employee.getTitle());
+            out.write(",\"managerId\":");
+            if (manager == null) {
+                out.write("null");
+            } else {
+                writeLong(manager.getId());
+            }
+            out.write('}');
+        }
+        out.write('\n');
+        count++;
+    }
+
+    /**
+     * Writes one record for every member of the given hierarchy.
+     *
+     * @param hierarchy the hierarchy to write
+     * @return the number of records written
+     * @throws IOException if a record cannot be written
+     */
+    public long writeAll(ManagementHierarchy hierarchy) throws IOException {
+        long before = count;
+        for (Iterator<Employee> i = hierarchy.employees().iterator(); i.hasNext(); ) {
+            Employee employee = i.next();
+            List<Manager> chain = hierarchy.getChainOfCommand(employee);
+            // members filed under nobody registered keep their field, so waiting managers are reattached
+            write(employee, chain.isEmpty() ? employee.getManager() : chain.get(0));
+        }
+        return count - before;
+    }
+
+    /**
+     * @return the number of records written so far
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            out.write(Long.toString(value));
+            return;
+        }
+        boolean negative = value < 0;
+        long rest = negative ? -value : value;
+        int start = digits.length;
+        do {
+            digits[--start] = (char) ('0' + rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+        if (negative) {
+            digits[--start] = '-';
+        }
+        out.write(digits, start, digits.length - start);
+    }
+
+    private void writeCsvString(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.isEmpty();
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        int from = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                out.write(value, from, i + 1 - from);
+                from = i;
+            }
+        }
+        out.write(value, from, value.length() - from);
+        out.write('"');
+    }
+
+    private void writeJsonString(String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        int from = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            out.write(value, from, i - from);
+            from = i + 1;
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    out.write("\\u00");
+                    out.write(HEX[c >> 4]);
+                    out.write(HEX[c & 0xF]);
+                    break;
+            }
+        }
+        out.write(value, from, value.length() - from);
+        out.write('"');
+    }
+}
@@ -0,0 +1,372 @@
+package com.cooksys.collections.persistent;
+
+import java.util.*;
+
+/**
+ * An immutable hash map stored as a hash array mapped trie. {@link #plus(Object, Object)} and
+ * {@link #minus(Object)} return a new map that shares every part of the trie they did not have to change
+ * with this one, so an update costs O(log32 n) time and space no matter how large the map is, and older
+ * versions stay valid and unchanged.
+ *
+ * Keys must not be null; values may be. All of the {@link Map} mutators throw
+ * {@link UnsupportedOperationException}.
+ *
+ * @param <K> the type of keys in the map
+ * @param <V> the type of values in the map
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+    private static final Object NOT_FOUND = new Object();
+
+    private final Node root;
+    private final int size;
+    private Set<Entry<K, V>> entrySet;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * @param key   the key to associate the value with
+     * @param value the value to associate with the key
+     * @return a map with the given mapping in addition to, or in place of, the mappings of this map. If the
+     * key is already mapped to the same value, returns this map.
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        int hash = hash(Objects.requireNonNull(key));
+        boolean[] added = new boolean[1];
+        Node newRoot = root == null
+                ? BitmapNode.EMPTY.plus(hash, key, value, 0, added)
+                : root.plus(hash, key, value, 0, added);
+        return newRoot == root ? this : new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * @param key the key to remove
+     * @return a map with the mappings of this map except for the given key. If the key is not mapped,
+     * returns this map.
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (root == null || key == null) {
+            return this;
+        }
+        Node newRoot = root.minus(hash(key), key, 0);
+        return newRoot == root ? this : newRoot == null ? PersistentHashMap.<K, V>empty()
+                : new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return root != null && key != null && root.find(hash(key), key, 0) != NOT_FOUND;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Object value = root == null || key == null ? NOT_FOUND : root.find(hash(key), key, 0);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    /**
+     * Finds the key this map holds that equals the given one, which need not be the same object, or even of
+     * the same type as long as its hash code agrees.
+     *
+     * @param key the key to look for
+     * @return the equal key held by this map, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public K keyOf(Object key) {
+        Object found = root == null || key == null ? NOT_FOUND : root.findKey(hash(key), key, 0);
+        return found == NOT_FOUND ? null : (K) found;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        Set<Entry<K, V>> result = entrySet;
+        if (result == null) {
+            result = new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+            entrySet = result;
+        }
+        return result;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * A trie node. Its array holds key/value pairs, where a null key means the value is a child node.
+     */
+    private abstract static class Node {
+        final Object[] array;
+
+        Node(Object[] array) {
+            this.array = array;
+        }
+
+        abstract Object find(int hash, Object key, int shift);
+
+        abstract Object findKey(int hash, Object key, int shift);
+
+        abstract Node plus(int hash, Object key, Object value, int shift, boolean[] added);
+
+        abstract Node minus(int hash, Object key, int shift);
+    }
+
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+
+        BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        @Override
+        Object find(int hash, Object key, int shift) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object k = array[i];
+            if (k == null) {
+                return ((Node) array[i + 1]).find(hash, key, shift + 5);
+            }
+            return key.equals(k) ? array[i + 1] : NOT_FOUND;
+        }
+
+        @Override
+        Object findKey(int hash, Object key, int shift) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object k = array[i];
+            if (k == null) {
+                return ((Node) array[i + 1]).findKey(hash, key, shift + 5);
+            }
+            return key.equals(k) ? k : NOT_FOUND;
+        }
+
+        @Override
+        Node plus(int hash, Object key, Object value, int shift, boolean[] added) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] copy = new Object[array.length + 2];
+                System.arraycopy(array, 0, copy, 0, i);
+                copy[i] = key;
+                copy[i + 1] = value;
+                System.arraycopy(array, i, copy, i + 2, array.length - i);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, copy);
+            }
+            Object k = array[i];
+            Object v = array[i + 1];
+            if (k == null) {
+                Node child = ((Node) v).plus(hash, key, value, shift + 5, added);
+                return child == v ? this : with(i, null, child);
+            }
+            if (key.equals(k)) {
+                return value == v ? this : with(i, k, value);
+            }
+            added[0] = true;
+            return with(i, null, pair(shift + 5, k, v, hash, key, value));
+        }
+
+        @Override
+        Node minus(int hash, Object key, int shift) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object k = array[i];
+            if (k == null) {
+                Node child = ((Node) array[i + 1]).minus(hash, key, shift + 5);
+                if (child == array[i + 1]) {
+                    return this;
+                }
+                if (child != null) {
+                    return with(i, null, child);
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+
+        private Node with(int i, Object key, Object value) {
+            Object[] copy = array.clone();
+            copy[i] = key;
+            copy[i + 1] = value;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private static Node pair(int shift, Object k1, Object v1, int h2, Object k2, Object v2) {
+            int h1 = hash(k1);
+            if (h1 == h2) {
+                return new CollisionNode(h1, new Object[]{k1, v1, k2, v2});
+            }
+            boolean[] ignored = new boolean[1];
+            return EMPTY.plus(h1, k1, v1, shift, ignored).plus(h2, k2, v2, shift, ignored);
+        }
+    }
+
+    private static final class CollisionNode extends Node {
+        final int hash;
+
+        CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        @Override
+        Object find(int hash, Object key, int shift) {
+            int i = indexOf(hash, key);
+            return i < 0 ? NOT_FOUND : array[i + 1];
+        }
+
+        @Override
+        Object findKey(int hash, Object key, int shift) {
+            int i = indexOf(hash, key);
+            return i < 0 ? NOT_FOUND : array[i];
+        }
+
+        @Override
+        Node plus(int hash, Object key, Object value, int shift, boolean[] added) {
+            if (hash != this.hash) {
+                int bit = 1 << ((this.hash >>> shift) & 31);
+                return new BitmapNode(bit, new Object[]{null, this}).plus(hash, key, value, shift, added);
+            }
+            int i = indexOf(hash, key);
+            if (i >= 0) {
+                if (array[i + 1] == value) {
+                    return this;
+                }
+                Object[] copy = array.clone();
+                copy[i + 1] = value;
+                return new CollisionNode(hash, copy);
+            }
+            Object[] copy = Arrays.copyOf(array, array.length + 2);
+            copy[array.length] = key;
+            copy[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        Node minus(int hash, Object key, int shift) {
+            int i = indexOf(hash, key);
+            if (i < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new CollisionNode(hash, copy);
+        }
+
+        private int indexOf(int hash, Object key) {
+            if (hash == this.hash) {
+                for (int i = 0; i < array.length; i += 2) {
+                    if (key.equals(array[i])) {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final Object[][] arrays = new Object[8][];
+        private final int[] positions = new int[8];
+        private int depth = -1;
+        private Entry<K, V> next;
+
+        EntryIterator(Node root) {
+            if (root != null) {
+                push(root);
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            Entry<K, V> result = next;
+            if (result == null) {
+                throw new NoSuchElementException();
+            }
+            advance();
+            return result;
+        }
+
+        private void push(Node node) {
+            arrays[++depth] = node.array;
+            positions[depth] = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int p = positions[depth];
+                if (p >= array.length) {
+                    arrays[depth--] = null;
+                    continue;
+                }
+                positions[depth] = p + 2;
+                if (array[p] == null) {
+                    push((Node) array[p + 1]);
+                } else {
+                    next = new SimpleImmutableEntry<>((K) array[p], (V) array[p + 1]);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.cooksys.collections.persistent;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+/**
+ * An immutable hash set backed by a {@link PersistentHashMap}. {@link #plus(Object)} and {@link #minus(Object)}
+ * return new sets that share structure with this one.
+ *
+ * @param <E> the type of elements in the set
+ */
+public final class PersistentHashSet<E> extends AbstractSet<E> {
+    private static final PersistentHashSet<?> EMPTY = new PersistentHashSet<>(PersistentHashMap.empty());
+
+    private final PersistentHashMap<E, Boolean> map;
+
+    private PersistentHashSet(PersistentHashMap<E, Boolean> map) {
+        this.map = map;
+    }
+
+    /**
+     * @return the empty set
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentHashSet<E> empty() {
+        return (PersistentHashSet<E>) EMPTY;
+    }
+
+    /**
+     * @param element the element to add
+     * @return a set containing the elements of this set and the given element, or this set if it already
+     * contains the element
+     */
+    public PersistentHashSet<E> plus(E element) {
+        PersistentHashMap<E, Boolean> result = map.plus(element, Boolean.TRUE);
+        return result == map ? this : new PersistentHashSet<>(result);
+    }
+
+    /**
+     * @param element the element to remove
+     * @return a set containing the elements of this set except the given element, or this set if it does
+     * not contain the element
+     */
+    public PersistentHashSet<E> minus(Object element) {
+        PersistentHashMap<E, Boolean> result = map.minus(element);
+        return result == map ? this : result.isEmpty() ? PersistentHashSet.<E>empty() : new PersistentHashSet<>(result);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return map.containsKey(o);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return map.keySet().iterator();
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+}
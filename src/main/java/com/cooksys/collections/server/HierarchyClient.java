@@ -0,0 +1,583 @@
+package com.cooksys.collections.server;
+
+import com.cooksys.collections.ChainOfCommand;
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A read-only {@link ManagementHierarchy} whose queries are answered by a {@link HierarchyServer}. Adding
+ * employees, and every other change, is not supported; the hierarchy is changed where it is hosted.
+ *
+ * All requests share one connection and are pipelined: a request is sent as soon as it is made, without
+ * waiting for the answers to earlier ones, and a background thread hands each answer to whoever is waiting
+ * for it. The client can therefore be used from any number of threads at once, and the asynchronous
+ * methods let a single thread keep many requests in flight. The batch queries
+ * {@link #getChainsOfCommand(Collection)} and {@link #getUnderlings(Collection)} answer many lookups with a
+ * single request, or with one request per {@value Protocol#MAX_BATCH} employees for larger batches.
+ *
+ * Employees are sent by id, and the ones returned are copies equal to those in the hosted hierarchy. The
+ * client remembers the managers it has seen, so that everyone's manager field refers to the same copy, and
+ * brings that copy up to date whenever the manager is seen again; grunts are copied afresh for every answer.
+ * A manager who has not been seen yet is represented by a copy carrying only their id until they are.
+ */
+public final class HierarchyClient implements ManagementHierarchy, Closeable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final Queue<Pending<?>> pending = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Manager> managers = new ConcurrentHashMap<>();
+    private final Thread reader;
+    private volatile IOException failure;
+
+    /**
+     * Connects to a server.
+     *
+     * @param address the address the server is listening on
+     * @throws IOException if the server cannot be reached
+     */
+    public HierarchyClient(InetSocketAddress address) throws IOException {
+        socket = new Socket(address.getAddress(), address.getPort());
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), Protocol.BUFFER_SIZE));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), Protocol.BUFFER_SIZE));
+        reader = new Thread(this::readAnswers, "hierarchy-client-" + socket.getLocalPort());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Closes the connection. Requests still waiting for an answer fail.
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Always refused; the hierarchy can only be changed where it is hosted.
+     *
+     * @param manager the manager to add to the hierarchy.
+     * @return never
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addManager(Manager manager) {
+        throw new UnsupportedOperationException("addManager");
+    }
+
+    /**
+     * Retrieves a set of all managers already included in the hierarchy.
+     *
+     * @return a set of the managers already added to the hierarchy. If no managers have been added yet,
+     * returns an empty set.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<Manager> getManagers() {
+        return (Set<Manager>) (Set<?>) await(request(Protocol.GET_MANAGERS, null, this::readSet));
+    }
+
+    /**
+     * Check if the given manager has been added to the hierarchy.
+     *
+     * @param manager the manager to check for presence in the hierarchy.
+     * @return true if the manager is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasManager(Manager manager) {
+        return await(request(Protocol.HAS_MANAGER, ids(manager), DataInputStream::readBoolean));
+    }
+
+    /**
+     * Given a manager, retrieve the set of employees who report directly to that manager.
+     *
+     * @param manager the manager whose underlings are to be retrieved.
+     * @return a set of employees in the hierarchy for which the given manager is their direct superior.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> getUnderlings(Manager manager) {
+        return await(getUnderlingsAsync(manager));
+    }
+
+    /**
+     * Requests the employees who report directly to a manager without waiting for the answer.
+     *
+     * @param manager the manager whose underlings are to be retrieved
+     * @return the future answer of {@link #getUnderlings(Manager)}
+     */
+    public CompletableFuture<Set<Employee>> getUnderlingsAsync(Manager manager) {
+        return request(Protocol.GET_UNDERLINGS, ids(manager), this::readSet);
+    }
+
+    /**
+     * Retrieves the direct reports of many managers at once, with as few requests as the batch limit allows.
+     *
+     * @param managers the managers whose underlings are to be retrieved
+     * @return a map from each of the given managers to their underlings, as {@link #getUnderlings(Manager)}
+     * would list them
+     */
+    @Override
+    public Map<Manager, Set<Employee>> getUnderlings(Collection<? extends Manager> managers) {
+        List<Manager> asked = new ArrayList<>(managers);
+        List<Set<Employee>> answers = batched(Protocol.GET_UNDERLINGS_BATCH, asked, this::readSet);
+        Map<Manager, Set<Employee>> result = new HashMap<>(Math.max(16, (int) (asked.size() / 0.75f) + 1));
+        for (int i = 0; i < asked.size(); i++) {
+            result.put(asked.get(i), answers.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Always refused; the hierarchy can only be changed where it is hosted.
+     *
+     * @param employee the employee to add to the hierarchy
+     * @return never
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addEmployee(Employee employee) {
+        throw new UnsupportedOperationException("addEmployee");
+    }
+
+    /**
+     * @return the set of all employees in the hierarchy
+     */
+    @Override
+    public Set<Employee> getEmployees() {
+        return await(request(Protocol.GET_EMPLOYEES, null, this::readSet));
+    }
+
+    /**
+     * Finds the member of the hierarchy with the given id.
+     *
+     * @param id the id of the employee to find
+     * @return the employee in the hierarchy with the given id, or null if there is none
+     */
+    @Override
+    public Employee getEmployee(long id) {
+        return await(getEmployeeAsync(id));
+    }
+
+    /**
+     * Requests the member of the hierarchy with the given id without waiting for the answer.
+     *
+     * @param id the id of the employee to find
+     * @return the future answer of {@link #getEmployee(long)}
+     */
+    public CompletableFuture<Employee> getEmployeeAsync(long id) {
+        return request(Protocol.GET_EMPLOYEE, output -> {
+            output.writeBoolean(true);
+            output.writeLong(id);
+        }, this::readEmployee);
+    }
+
+    /**
+     * Check if the given employee is present in the hierarchy. If the employee has been added as
+     * a manager or as an employee, return true. If not, return false.
+     *
+     * @param employee the employee to check for presence in the hierarchy
+     * @return true if the employee is present in the hierarchy, false otherwise.
+     */
+    @Override
+    public boolean hasEmployee(Employee employee) {
+        return await(request(Protocol.HAS_EMPLOYEE, ids(employee), DataInputStream::readBoolean));
+    }
+
+    /**
+     * Returns a representation of the management hierarchy as a map of managers to sets of employees,
+     * representing direct management relationships, i.e. all employees in a given manager's set should
+     * have that manager in its manager field.
+     *
+     * @return the entire management hierarchy as a map from managers to the set of employees directly under
+     * their supervision.
+     */
+    @Override
+    public Map<Manager, Set<Employee>> getHierarchy() {
+        return await(request(Protocol.GET_HIERARCHY, null, input -> {
+            int count = input.readInt();
+            Map<Manager, Set<Employee>> result = new HashMap<>(Math.max(16, (int) (count / 0.75f) + 1));
+            for (int i = 0; i < count; i++) {
+                Manager manager = (Manager) readEmployee(input);
+                result.put(manager, readSet(input));
+            }
+            return result;
+        }));
+    }
+
+    /**
+     * Returns the chain of command for a given employee, represented by a list of managers. The first
+     * element of the list should be the given employee's direct manager, the second element should be
+     * that manager's direct manager, and so on.
+     *
+     * @param employee the employee whose chain of command is to be retrieved
+     * @return a list of managers that represents the chain of command for the given employee.
+     * If the employee is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    public List<Manager> getChainOfCommand(Employee employee) {
+        return await(getChainOfCommandAsync(employee));
+    }
+
+    /**
+     * Requests the chain of command of an employee without waiting for the answer.
+     *
+     * @param employee the employee whose chain of command is to be retrieved
+     * @return the future answer of {@link #getChainOfCommand(Employee)}
+     */
+    public CompletableFuture<List<Manager>> getChainOfCommandAsync(Employee employee) {
+        return request(Protocol.GET_CHAIN_OF_COMMAND, ids(employee), this::readChain);
+    }
+
+    /**
+     * Retrieves the chains of command of many employees at once, with as few requests as the batch limit
+     * allows.
+     *
+     * @param employees the employees whose chains of command are to be retrieved
+     * @return a map from each of the given employees to their chain of command, as
+     * {@link #getChainOfCommand(Employee)} would list it; employees not present in the hierarchy map to an
+     * empty chain
+     */
+    @Override
+    public Map<Employee, List<Manager>> getChainsOfCommand(Collection<? extends Employee> employees) {
+        List<Employee> asked = new ArrayList<>(employees);
+        List<List<Manager>> answers = batched(Protocol.GET_CHAINS_OF_COMMAND, asked, this::readChain);
+        Map<Employee, List<Manager>> result = new HashMap<>(Math.max(16, (int) (asked.size() / 0.75f) + 1));
+        for (int i = 0; i < asked.size(); i++) {
+            result.put(asked.get(i), answers.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first manager shared by the chains of command of two employees, i.e. the closest manager
+     * that both employees ultimately report to.
+     *
+     * @param first  one of the employees
+     * @param second the other employee
+     * @return the lowest manager present in both chains of command, or null if the chains do not meet or
+     * either employee is not present in the hierarchy.
+     */
+    @Override
+    public Manager lowestCommonManager(Employee first, Employee second) {
+        return (Manager) await(request(Protocol.LOWEST_COMMON_MANAGER, ids(first, second), this::readEmployee));
+    }
+
+    /**
+     * Check if the given manager appears anywhere in the given employee's chain of command.
+     *
+     * @param employee the employee whose chain of command is to be searched
+     * @param manager  the manager to look for
+     * @return true if the employee reports to the manager, directly or indirectly, false otherwise.
+     */
+    @Override
+    public boolean isInChainOfCommand(Employee employee, Manager manager) {
+        return await(request(Protocol.IS_IN_CHAIN_OF_COMMAND, ids(employee, manager), DataInputStream::readBoolean));
+    }
+
+    /**
+     * Given a manager, retrieve every employee who reports to that manager, directly or indirectly.
+     *
+     * @param manager the manager whose organization is to be retrieved.
+     * @return a set of employees in the hierarchy that have the given manager in their chain of command.
+     * If the given manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> getAllReports(Manager manager) {
+        return await(request(Protocol.GET_ALL_REPORTS, ids(manager), this::readSet));
+    }
+
+    /**
+     * @param manager the manager whose organization is to be counted.
+     * @return the number of employees who report to the given manager, directly or indirectly, or 0 if the
+     * manager is not present in the hierarchy.
+     */
+    @Override
+    public int getHeadcount(Manager manager) {
+        return await(request(Protocol.GET_HEADCOUNT, ids(manager), DataInputStream::readInt));
+    }
+
+    /**
+     * Finds every employee in the hierarchy holding the given title.
+     *
+     * @param title the title to look for
+     * @return a set of the employees in the hierarchy whose title equals the given title
+     */
+    @Override
+    public Set<Employee> findByTitle(String title) {
+        return await(request(Protocol.FIND_BY_TITLE, search(title, false, null), this::readSet));
+    }
+
+    /**
+     * Finds every employee in the given manager's organization holding the given title.
+     *
+     * @param title   the title to look for
+     * @param manager the manager whose organization is to be searched
+     * @return a set of the employees reporting to the manager, directly or indirectly, whose title equals
+     * the given title. If the manager is not present in the hierarchy, returns an empty set.
+     */
+    @Override
+    public Set<Employee> findByTitle(String title, Manager manager) {
+        return await(request(Protocol.FIND_BY_TITLE, search(title, true, manager), this::readSet));
+    }
+
+    /**
+     * Finds every employee in the hierarchy whose name starts with the given prefix, ignoring case.
+     *
+     * @param prefix the start of the names to look for
+     * @return a list of the matching employees, ordered by name without regard to case
+     */
+    @Override
+    public List<Employee> findByNamePrefix(String prefix) {
+        return await(request(Protocol.FIND_BY_NAME_PREFIX, search(prefix, false, null), this::readList));
+    }
+
+    /**
+     * Finds every employee in the given manager's organization whose name starts with the given prefix,
+     * ignoring case.
+     *
+     * @param prefix  the start of the names to look for
+     * @param manager the manager whose organization is to be searched
+     * @return a list of the matching employees reporting to the manager, directly or indirectly, ordered by
+     * name without regard to case. If the manager is not present in the hierarchy, returns an empty list.
+     */
+    @Override
+    public List<Employee> findByNamePrefix(String prefix, Manager manager) {
+        return await(request(Protocol.FIND_BY_NAME_PREFIX, search(prefix, true, manager), this::readList));
+    }
+
+    /**
+     * Writes the arguments of a request.
+     */
+    private interface Arguments {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads the result of an answer.
+     */
+    private interface Decoder<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private static final class Pending<T> {
+        private final Decoder<T> decoder;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Pending(Decoder<T> decoder) {
+            this.decoder = decoder;
+        }
+    }
+
+    /**
+     * Sends a request, queueing its decoder in the same order so that the reader can match the answer.
+     */
+    private <T> CompletableFuture<T> request(byte op, Arguments arguments, Decoder<T> decoder) {
+        Pending<T> request = new Pending<>(decoder);
+        synchronized (out) {
+            IOException failed = failure;
+            if (failed != null) {
+                request.future.completeExceptionally(failed);
+                return request.future;
+            }
+            pending.add(request);
+            try {
+                out.writeByte(op);
+                if (arguments != null) {
+                    arguments.write(out);
+                }
+                out.flush();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        return request.future;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void readAnswers() {
+        try {
+            while (true) {
+                byte status = in.readByte();
+                Pending<?> request = pending.poll();
+                if (request == null) {
+                    throw new IOException("Answer to no request");
+                }
+                if (status == Protocol.ERROR) {
+                    request.future.completeExceptionally(new IOException("Server failed: " + Protocol.readString(in)));
+                } else {
+                    complete(request);
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private <T> void complete(Pending<T> request) throws IOException {
+        // decoded on the reader thread, so that the copies of managers are only ever made by one thread
+        request.future.complete(request.decoder.read(in));
+    }
+
+    private void fail(IOException e) {
+        synchronized (out) {
+            if (failure == null) {
+                failure = e;
+            }
+            for (Pending<?> request = pending.poll(); request != null; request = pending.poll()) {
+                request.future.completeExceptionally(failure);
+            }
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // already failing
+        }
+    }
+
+    /**
+     * Sends a batch query as pipelined requests of at most {@link Protocol#MAX_BATCH} employees each, and
+     * gathers their answers in the order the employees were given.
+     */
+    private <T> List<T> batched(byte op, List<? extends Employee> employees, Decoder<T> each) {
+        List<CompletableFuture<List<T>>> parts = new ArrayList<>(employees.size() / Protocol.MAX_BATCH + 1);
+        int from = 0;
+        do {
+            int to = Math.min(employees.size(), from + Protocol.MAX_BATCH);
+            parts.add(request(op, batch(employees.subList(from, to)), input -> {
+                int count = input.readInt();
+                List<T> result = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    result.add(each.read(input));
+                }
+                return result;
+            }));
+            from = to;
+        } while (from < employees.size());
+        List<T> answers = new ArrayList<>(employees.size());
+        for (CompletableFuture<List<T>> part : parts) {
+            answers.addAll(await(part));
+        }
+        return answers;
+    }
+
+    private static Arguments ids(Employee... employees) {
+        return output -> {
+            for (Employee e : employees) {
+                Protocol.writeId(output, e);
+            }
+        };
+    }
+
+    private static Arguments batch(List<? extends Employee> employees) {
+        return output -> {
+            output.writeInt(employees.size());
+            for (Employee e : employees) {
+                Protocol.writeId(output, e);
+            }
+        };
+    }
+
+    private static Arguments search(String text, boolean scoped, Manager manager) {
+        return output -> {
+            Protocol.writeString(output, text);
+            output.writeBoolean(scoped);
+            Protocol.writeId(output, manager);
+        };
+    }
+
+    private Set<Employee> readSet(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        Set<Employee> result = new HashSet<>(Math.max(16, (int) (count / 0.75f) + 1));
+        for (int i = 0; i < count; i++) {
+            result.add(readEmployee(input));
+        }
+        return result;
+    }
+
+    private List<Employee> readList(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        List<Employee> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(readEmployee(input));
+        }
+        return result;
+    }
+
+    private List<Manager> readChain(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        Manager[] managers = new Manager[count];
+        for (int i = 0; i < count; i++) {
+            managers[i] = (Manager) readEmployee(input);
+        }
+        ChainOfCommand chain = ChainOfCommand.empty();
+        for (int i = count - 1; i >= 0; i--) {
+            chain = chain.under(managers[i]);
+        }
+        return chain;
+    }
+
+    private Employee readEmployee(DataInputStream input) throws IOException {
+        byte type = input.readByte();
+        if (type == Protocol.NONE) {
+            return null;
+        }
+        long id = input.readLong();
+        String name = Protocol.readString(input);
+        String title = Protocol.readString(input);
+        Manager boss = input.readBoolean() ? manager(input.readLong()) : null;
+        if (type == Protocol.GRUNT) {
+            return new Grunt(id, name, title, boss);
+        }
+        Manager manager = managers.get(id);
+        if (manager == null) {
+            manager = new Manager(id, name, title, boss);
+            managers.put(id, manager);
+        } else {
+            manager.setName(name);
+            manager.setTitle(title);
+            manager.setManager(boss);
+        }
+        return manager;
+    }
+
+    private Manager manager(long id) {
+        Manager manager = managers.get(id);
+        if (manager == null) {
+            manager = new Manager(id, null, null, null);
+            managers.put(id, manager);
+        }
+        return manager;
+    }
+}
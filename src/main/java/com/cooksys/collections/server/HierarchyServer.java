@@ -0,0 +1,399 @@
+package com.cooksys.collections.server;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Hosts one {@link ManagementHierarchy} and answers its queries for {@link HierarchyClient}s over TCP, so
+ * that several processes can share a single copy of a hierarchy. Every connection is served by its own task
+ * on the server's executor, which by default starts a virtual thread per connection where the runtime has
+ * them and a platform thread otherwise.
+ *
+ * A connection's requests are answered one after the other in the order they arrive, and answers are only
+ * flushed once no further request is waiting to be read, so a client that pipelines its requests gets its
+ * answers back in as few writes as they arrived in.
+ *
+ * Unless the hierarchy is declared thread-safe, queries from different connections are serialized on the
+ * hierarchy. The server only queries the hierarchy; changes must be made to it directly, and are then
+ * serialized the same way if made while holding the hierarchy's monitor. Each answer is encoded in full
+ * before any of it is sent, so the monitor is never held while writing to a slow client, and a query that
+ * fails part way through is answered with an error rather than a truncated result.
+ *
+ * Employees arrive by id and are looked up with {@link ManagementHierarchy#getEmployee(long)} before every
+ * query, so the hosted hierarchy should answer that from an index rather than the interface's default scan.
+ * Every hierarchy in {@code com.cooksys.collections.assignment} does, except for
+ * {@code ConcreteManagementHierarchy}, whose sets are changed directly and can only be scanned. A batch
+ * naming more than {@value Protocol#MAX_BATCH} employees ends the connection.
+ */
+public final class HierarchyServer implements Closeable {
+    private final ManagementHierarchy hierarchy;
+    private final boolean threadSafe;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private ServerSocket socket;
+    private Thread acceptor;
+    private volatile boolean closed;
+
+    /**
+     * Creates a server for a hierarchy that is not thread-safe, on its own connection executor.
+     *
+     * @param hierarchy the hierarchy to host
+     */
+    public HierarchyServer(ManagementHierarchy hierarchy) {
+        this(hierarchy, false, newConnectionExecutor(), true);
+    }
+
+    /**
+     * Creates a server on the given executor, which is left running when the server is closed.
+     *
+     * @param hierarchy  the hierarchy to host
+     * @param threadSafe true if the hierarchy may be queried from several threads at once
+     * @param executor   the executor to serve each connection on; it needs a thread for every open connection
+     */
+    public HierarchyServer(ManagementHierarchy hierarchy, boolean threadSafe, ExecutorService executor) {
+        this(hierarchy, threadSafe, executor, false);
+    }
+
+    private HierarchyServer(ManagementHierarchy hierarchy, boolean threadSafe, ExecutorService executor,
+                            boolean ownsExecutor) {
+        if (hierarchy == null) {
+            throw new NullPointerException("hierarchy");
+        }
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        this.hierarchy = hierarchy;
+        this.threadSafe = threadSafe;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Creates an executor starting a virtual thread for every task when the runtime supports them, or else
+     * a daemon platform thread for every task, reusing idle ones.
+     *
+     * @return a new executor suited to serving connections
+     */
+    public static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "hierarchy-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Starts accepting connections on the given port of the loopback interface.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @return this server
+     * @throws IOException if the port cannot be bound
+     */
+    public HierarchyServer start(int port) throws IOException {
+        return start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Starts accepting connections on the given address.
+     *
+     * @param address the address to listen on
+     * @return this server
+     * @throws IOException if the address cannot be bound
+     */
+    public synchronized HierarchyServer start(SocketAddress address) throws IOException {
+        if (socket != null || closed) {
+            throw new IllegalStateException("The server has already been started");
+        }
+        socket = new ServerSocket();
+        socket.setReuseAddress(true);
+        socket.bind(address, 1024);
+        acceptor = new Thread(this::accept, "hierarchy-server-" + socket.getLocalPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    /**
+     * @return the address the server is listening on
+     */
+    public synchronized InetSocketAddress getAddress() {
+        if (socket == null) {
+            throw new IllegalStateException("The server has not been started");
+        }
+        return (InetSocketAddress) socket.getLocalSocketAddress();
+    }
+
+    /**
+     * @return the number of connections currently open
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Stops accepting connections and closes every open one. The executor is shut down if the server
+     * created it.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        ServerSocket listening;
+        synchronized (this) {
+            listening = socket;
+        }
+        try {
+            if (listening != null) {
+                listening.close();
+            }
+        } finally {
+            for (Socket connection : connections) {
+                try {
+                    connection.close();
+                } catch (IOException e) {
+                    // closing anyway
+                }
+            }
+            if (ownsExecutor) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private void accept() {
+        while (!closed) {
+            Socket connection;
+            try {
+                connection = socket.accept();
+            } catch (IOException e) {
+                return;
+            }
+            connections.add(connection);
+            try {
+                executor.execute(() -> serve(connection));
+            } catch (RejectedExecutionException e) {
+                connections.remove(connection);
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    private void serve(Socket connection) {
+        try {
+            connection.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(connection.getInputStream(), Protocol.BUFFER_SIZE));
+            BufferedOutputStream out = new BufferedOutputStream(connection.getOutputStream(), Protocol.BUFFER_SIZE);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(Protocol.BUFFER_SIZE);
+            DataOutputStream encoded = new DataOutputStream(buffer);
+            for (int op = in.read(); op >= 0; op = in.read()) {
+                Request request = read((byte) op, in);
+                buffer.reset();
+                try {
+                    if (threadSafe) {
+                        request.answer(encoded);
+                    } else {
+                        synchronized (hierarchy) {
+                            request.answer(encoded);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    buffer.reset();
+                    encoded.writeByte(Protocol.ERROR);
+                    Protocol.writeString(encoded, String.valueOf(e));
+                }
+                buffer.writeTo(out);
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (EOFException e) {
+            // the client went away in the middle of a request
+        } catch (IOException e) {
+            // the connection failed or the server was closed
+        } finally {
+            connections.remove(connection);
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * A request whose arguments have been read, ready to be answered.
+     */
+    private interface Request {
+        void answer(DataOutputStream out) throws IOException;
+    }
+
+    private Request read(byte op, DataInputStream in) throws IOException {
+        switch (op) {
+            case Protocol.GET_MANAGERS:
+                return out -> employees(out, hierarchy.getManagers());
+            case Protocol.HAS_MANAGER: {
+                Long[] id = ids(in, 1);
+                return out -> answer(out).writeBoolean(hierarchy.hasManager(manager(id[0])));
+            }
+            case Protocol.GET_UNDERLINGS: {
+                Long[] id = ids(in, 1);
+                return out -> employees(out, hierarchy.getUnderlings(manager(id[0])));
+            }
+            case Protocol.GET_UNDERLINGS_BATCH: {
+                Long[] ids = ids(in, in.readInt());
+                return out -> {
+                    List<Manager> managers = new ArrayList<>(ids.length);
+                    for (Long id : ids) {
+                        managers.add(manager(id));
+                    }
+                    Map<Manager, Set<Employee>> result = hierarchy.getUnderlings(managers);
+                    answer(out).writeInt(ids.length);
+                    for (Manager m : managers) {
+                        employeeList(out, result.get(m));
+                    }
+                };
+            }
+            case Protocol.GET_EMPLOYEES:
+                return out -> employees(out, hierarchy.getEmployees());
+            case Protocol.GET_EMPLOYEE: {
+                Long[] id = ids(in, 1);
+                return out -> Protocol.writeEmployee(answer(out), employee(id[0]));
+            }
+            case Protocol.HAS_EMPLOYEE: {
+                Long[] id = ids(in, 1);
+                return out -> answer(out).writeBoolean(hierarchy.hasEmployee(employee(id[0])));
+            }
+            case Protocol.GET_HIERARCHY:
+                return out -> {
+                    Map<Manager, Set<Employee>> result = hierarchy.getHierarchy();
+                    answer(out).writeInt(result.size());
+                    for (Map.Entry<Manager, Set<Employee>> entry : result.entrySet()) {
+                        Protocol.writeEmployee(out, entry.getKey());
+                        employeeList(out, entry.getValue());
+                    }
+                };
+            case Protocol.GET_CHAIN_OF_COMMAND: {
+                Long[] id = ids(in, 1);
+                return out -> employees(out, hierarchy.getChainOfCommand(employee(id[0])));
+            }
+            case Protocol.GET_CHAINS_OF_COMMAND: {
+                Long[] ids = ids(in, in.readInt());
+                return out -> {
+                    List<Employee> employees = new ArrayList<>(ids.length);
+                    for (Long id : ids) {
+                        employees.add(employee(id));
+                    }
+                    Map<Employee, List<Manager>> result = hierarchy.getChainsOfCommand(employees);
+                    answer(out).writeInt(ids.length);
+                    for (Employee e : employees) {
+                        employeeList(out, result.get(e));
+                    }
+                };
+            }
+            case Protocol.LOWEST_COMMON_MANAGER: {
+                Long[] id = ids(in, 2);
+                return out -> Protocol.writeEmployee(answer(out),
+                        hierarchy.lowestCommonManager(employee(id[0]), employee(id[1])));
+            }
+            case Protocol.IS_IN_CHAIN_OF_COMMAND: {
+                Long[] id = ids(in, 2);
+                return out -> answer(out).writeBoolean(
+                        hierarchy.isInChainOfCommand(employee(id[0]), manager(id[1])));
+            }
+            case Protocol.GET_ALL_REPORTS: {
+                Long[] id = ids(in, 1);
+                return out -> employees(out, hierarchy.getAllReports(manager(id[0])));
+            }
+            case Protocol.GET_HEADCOUNT: {
+                Long[] id = ids(in, 1);
+                return out -> answer(out).writeInt(hierarchy.getHeadcount(manager(id[0])));
+            }
+            case Protocol.FIND_BY_TITLE: {
+                String title = Protocol.readString(in);
+                boolean scoped = in.readBoolean();
+                Long[] id = ids(in, 1);
+                return out -> employees(out, scoped ? hierarchy.findByTitle(title, manager(id[0]))
+                        : hierarchy.findByTitle(title));
+            }
+            case Protocol.FIND_BY_NAME_PREFIX: {
+                String prefix = Protocol.readString(in);
+                boolean scoped = in.readBoolean();
+                Long[] id = ids(in, 1);
+                return out -> employees(out, scoped ? hierarchy.findByNamePrefix(prefix, manager(id[0]))
+                        : hierarchy.findByNamePrefix(prefix));
+            }
+            default:
+                throw new IOException("Unknown operation " + op);
+        }
+    }
+
+    /**
+     * Reads employee references, leaving null for each one that is null.
+     */
+    private static Long[] ids(DataInputStream in, int count) throws IOException {
+        if (count < 0 || count > Protocol.MAX_BATCH) {
+            throw new IOException("Batch of " + count + " employees");
+        }
+        Long[] ids = new Long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = in.readBoolean() ? in.readLong() : null;
+        }
+        return ids;
+    }
+
+    private Employee employee(Long id) {
+        return id == null ? null : hierarchy.getEmployee(id);
+    }
+
+    private Manager manager(Long id) {
+        Employee employee = employee(id);
+        return employee instanceof Manager ? (Manager) employee : null;
+    }
+
+    private static DataOutputStream answer(DataOutputStream out) throws IOException {
+        out.writeByte(Protocol.OK);
+        return out;
+    }
+
+    private static void employees(DataOutputStream out, Collection<? extends Employee> employees)
+            throws IOException {
+        employeeList(answer(out), employees);
+    }
+
+    private static void employeeList(DataOutputStream out, Collection<? extends Employee> employees)
+            throws IOException {
+        out.writeInt(employees.size());
+        for (Employee e : employees) {
+            Protocol.writeEmployee(out, e);
+        }
+    }
+
+    private static void closeQuietly(Socket connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // nothing more to do
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.cooksys.collections.server;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Manager;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The wire format shared by {@link HierarchyServer} and {@link HierarchyClient}.
+ *
+ * A request is an operation code followed by its arguments; the server answers every request with a status
+ * byte followed by either the result or an error message, in the order the requests arrived, so a client
+ * may send any number of requests before reading the first answer. Employees are sent as arguments by id
+ * only, and come back as records of id, type, name, title and manager id. Strings are written as a
+ * presence flag followed by modified UTF-8.
+ *
+ * A batch query carries a count followed by that many ids, and the count may not exceed {@link #MAX_BATCH}, so
+ * that a server never allocates more for a request than a well-behaved client would send; larger batches are
+ * split by the client.
+ */
+final class Protocol {
+    static final byte GET_MANAGERS = 1;
+    static final byte HAS_MANAGER = 2;
+    static final byte GET_UNDERLINGS = 3;
+    static final byte GET_UNDERLINGS_BATCH = 4;
+    static final byte GET_EMPLOYEES = 5;
+    static final byte GET_EMPLOYEE = 6;
+    static final byte HAS_EMPLOYEE = 7;
+    static final byte GET_HIERARCHY = 8;
+    static final byte GET_CHAIN_OF_COMMAND = 9;
+    static final byte GET_CHAINS_OF_COMMAND = 10;
+    static final byte LOWEST_COMMON_MANAGER = 11;
+    static final byte IS_IN_CHAIN_OF_COMMAND = 12;
+    static final byte GET_ALL_REPORTS = 13;
+    static final byte GET_HEADCOUNT = 14;
+    static final byte FIND_BY_TITLE = 15;
+    static final byte FIND_BY_NAME_PREFIX = 16;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    static final byte NONE = 0;
+    static final byte GRUNT = 1;
+    static final byte MANAGER = 2;
+
+    static final int BUFFER_SIZE = 1 << 16;
+    static final int MAX_BATCH = 1 << 16;
+
+    private Protocol() {
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Writes a reference to an employee, which may be null.
+     */
+    static void writeId(DataOutput out, Employee employee) throws IOException {
+        out.writeBoolean(employee != null);
+        if (employee != null) {
+            out.writeLong(employee.getId());
+        }
+    }
+
+    static void writeEmployee(DataOutput out, Employee employee) throws IOException {
+        if (employee == null) {
+            out.writeByte(NONE);
+            return;
+        }
+        out.writeByte(employee instanceof Manager ? MANAGER : GRUNT);
+        out.writeLong(employee.getId());
+        writeString(out, employee.getName());
+        writeString(out, employee.getTitle());
+        writeId(out, employee.getManager());
+    }
+}
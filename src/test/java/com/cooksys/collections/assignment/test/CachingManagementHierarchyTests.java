@@ -0,0 +1,159 @@
+package com.cooksys.collections.assignment.test;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.CachingManagementHierarchy;
+import com.cooksys.collections.assignment.IndexedManagementHierarchy;
+import com.cooksys.collections.assignment.ReferenceManagementHierarchy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CachingManagementHierarchyTests {
+    private Manager brad;
+    private Manager frank;
+    private Manager ed;
+    private Grunt peter;
+    private Grunt michael;
+    private Grunt mandy;
+    private Grunt chris;
+
+    @Before
+    public void setUp() throws Exception {
+        brad = new Manager("Brad", "COO", null);
+        frank = new Manager("Frank", "FastTrack'D Manager", brad);
+        ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+        peter = new Grunt("Peter", "Software Architect", frank);
+        michael = new Grunt("Michael", "Lead Instructor", frank);
+        mandy = new Grunt("Mandy", "FastTrack'D Recruiter", ed);
+        chris = new Grunt("Chris", "Student Advocate", ed);
+    }
+
+    private CachingManagementHierarchy populate(ManagementHierarchy delegate, int capacity) {
+        CachingManagementHierarchy hierarchy = new CachingManagementHierarchy(delegate, capacity);
+        hierarchy.addManager(brad);
+        hierarchy.addManager(frank);
+        hierarchy.addManager(ed);
+        for (Employee e : Arrays.asList(frank, ed, peter, michael, mandy, chris)) {
+            hierarchy.addEmployee(e);
+        }
+        return hierarchy;
+    }
+
+    @Test
+    public void cachedResultsTest() throws Exception {
+        CachingManagementHierarchy hierarchy = populate(new IndexedManagementHierarchy(), 100);
+        List<Manager> chain = hierarchy.getChainOfCommand(peter);
+        assertTrue(chain.equals(Arrays.asList(frank, brad)));
+        assertSame(chain, hierarchy.getChainOfCommand(peter));
+        assertEquals(6, hierarchy.getHeadcount(brad));
+        assertEquals(6, hierarchy.getHeadcount(brad));
+        assertEquals(2, hierarchy.getMissCount());
+        assertEquals(2, hierarchy.getHitCount());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void sharedResultsAreReadOnlyTest() throws Exception {
+        CachingManagementHierarchy hierarchy = populate(new IndexedManagementHierarchy(), 100);
+        hierarchy.getChainOfCommand(peter).clear();
+    }
+
+    @Test
+    public void preciseInvalidationTest() throws Exception {
+        preciseInvalidation(populate(new IndexedManagementHierarchy(), 100));
+    }
+
+    @Test
+    public void preciseInvalidationWithoutEventsTest() throws Exception {
+        preciseInvalidation(populate(new ReferenceManagementHierarchy(), 100));
+    }
+
+    private void preciseInvalidation(CachingManagementHierarchy hierarchy) {
+        List<Manager> peterChain = hierarchy.getChainOfCommand(peter);
+        List<Manager> mandyChain = hierarchy.getChainOfCommand(mandy);
+        Set<Employee> frankUnderlings = hierarchy.getUnderlings(frank);
+        int bradHeadcount = hierarchy.getHeadcount(brad);
+
+        assertTrue(hierarchy.transferEmployee(chris, frank));
+        assertSame(peterChain, hierarchy.getChainOfCommand(peter));
+        assertSame(mandyChain, hierarchy.getChainOfCommand(mandy));
+        assertFalse(hierarchy.getUnderlings(frank).equals(frankUnderlings));
+        assertTrue(hierarchy.getUnderlings(frank).contains(chris));
+        assertFalse(hierarchy.getUnderlings(ed).contains(chris));
+        assertEquals(bradHeadcount, hierarchy.getHeadcount(brad));
+        assertEquals(1, hierarchy.getHeadcount(ed));
+
+        assertTrue(hierarchy.transferEmployee(ed, frank));
+        assertSame(peterChain, hierarchy.getChainOfCommand(peter));
+        assertTrue(hierarchy.getChainOfCommand(mandy).equals(Arrays.asList(ed, frank, brad)));
+        assertEquals(5, hierarchy.getHeadcount(frank));
+
+        Manager promoted = hierarchy.promoteToManager(michael);
+        assertTrue(hierarchy.getUnderlings(frank).contains(promoted));
+        assertFalse(hierarchy.getUnderlings(frank).contains(michael));
+        assertTrue(hierarchy.getChainOfCommand(michael).isEmpty());
+
+        assertTrue(hierarchy.removeEmployee(mandy));
+        assertEquals(4, hierarchy.getHeadcount(frank));
+        assertTrue(hierarchy.getAllReports(ed).isEmpty());
+        assertTrue(hierarchy.getInvalidationCount() > 0);
+    }
+
+    @Test
+    public void filedManagerWithoutEventsTest() throws Exception {
+        CachingManagementHierarchy hierarchy = populate(new ReferenceManagementHierarchy(), 100);
+        assertTrue(hierarchy.getUnderlings(frank).contains(peter));
+        assertTrue(hierarchy.getUnderlings(frank).contains(michael));
+        assertEquals(2, hierarchy.getHeadcount(frank));
+
+        // the fields now point at ed, but the delegate still files both under frank
+        peter.setManager(ed);
+        michael.setManager(ed);
+        assertTrue(hierarchy.transferEmployee(peter, ed));
+        assertFalse(hierarchy.getUnderlings(frank).contains(peter));
+        assertTrue(hierarchy.getUnderlings(ed).contains(peter));
+        assertEquals(1, hierarchy.getHeadcount(frank));
+
+        assertTrue(hierarchy.removeEmployee(michael));
+        assertTrue(hierarchy.getUnderlings(frank).isEmpty());
+        assertEquals(0, hierarchy.getHeadcount(frank));
+
+        mandy.setManager(frank);
+        Manager promoted = hierarchy.promoteToManager(mandy);
+        assertEquals(ed, promoted.getManager());
+        assertFalse(hierarchy.getUnderlings(ed).contains(mandy));
+        assertTrue(hierarchy.getUnderlings(ed).contains(promoted));
+    }
+
+    @Test
+    public void waitingReportsTest() throws Exception {
+        CachingManagementHierarchy hierarchy = new CachingManagementHierarchy(new IndexedManagementHierarchy(), 100);
+        hierarchy.addManager(frank);
+        hierarchy.addEmployee(peter);
+        assertTrue(hierarchy.getChainOfCommand(peter).equals(Collections.singletonList(frank)));
+        assertEquals(0, hierarchy.getHeadcount(brad));
+        hierarchy.addManager(brad);
+        assertTrue(hierarchy.getChainOfCommand(peter).equals(Arrays.asList(frank, brad)));
+        assertEquals(2, hierarchy.getHeadcount(brad));
+    }
+
+    @Test
+    public void evictionTest() throws Exception {
+        CachingManagementHierarchy hierarchy = populate(new IndexedManagementHierarchy(), 2);
+        hierarchy.getChainOfCommand(peter);
+        hierarchy.getChainOfCommand(mandy);
+        hierarchy.getChainOfCommand(peter);
+        hierarchy.getChainOfCommand(chris);
+        assertEquals(1, hierarchy.getEvictionCount());
+        assertEquals(2, hierarchy.getCacheSize());
+        hierarchy.getChainOfCommand(peter);
+        assertEquals(2, hierarchy.getHitCount());
+        hierarchy.getChainOfCommand(mandy);
+        assertEquals(2, hierarchy.getHitCount());
+    }
+}
@@ -1,5 +1,6 @@
 package com.cooksys.collections.assignment.test;
 
+import com.cooksys.collections.ChainOfCommand;
 import com.cooksys.collections.Employee;
 import com.cooksys.collections.Grunt;
 import com.cooksys.collections.ManagementHierarchy;
@@ -232,4 +233,54 @@ public class ConcreteManagementHierarchyTests {
         assertTrue(hierarchy.getChainOfCommand(peter).equals(peterChain));
         assertTrue(hierarchy.getChainOfCommand(chris).equals(chrisChain));
     }
+
+    @Test
+    public void sharedChainsTest() throws Exception {
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        List<Manager> chain = hierarchy.getChainOfCommand(peter);
+        assertTrue(chain.equals(peterChain));
+        assertSame(chain, hierarchy.getChainOfCommand(peter));
+        assertSame(chain, hierarchy.getChainOfCommand(michael));
+        assertSame(chain, hierarchy.getChainOfCommand(dillon));
+        assertSame(((ChainOfCommand) chain).above(), ((ChainOfCommand) hierarchy.getChainOfCommand(chris)).above());
+        assertSame(hierarchy.getChainOfCommand(frank), ((ChainOfCommand) chain).above());
+    }
+
+    @Test
+    public void chainInvalidationTest() throws Exception {
+        ConcreteManagementHierarchy concrete = (ConcreteManagementHierarchy) hierarchy;
+        hierarchy.addManager(frank);
+        hierarchy.addManager(ed);
+        for (Employee e : Arrays.asList(frank, ed, peter, chris)) {
+            hierarchy.addEmployee(e);
+        }
+        // chains follow the manager fields, whether or not the managers above have joined
+        List<Manager> chain = hierarchy.getChainOfCommand(peter);
+        assertTrue(chain.equals(peterChain));
+        hierarchy.addManager(brad);
+        assertSame(chain, hierarchy.getChainOfCommand(peter));
+
+        // a middle manager moved directly
+        ed.setManager(frank);
+        assertTrue(hierarchy.getChainOfCommand(chris).equals(Arrays.asList(ed, frank, brad)));
+        assertSame(chain, hierarchy.getChainOfCommand(peter));
+        ed.setManager(brad);
+        assertTrue(hierarchy.getChainOfCommand(chris).equals(chrisChain));
+
+        // a grunt moved directly is looked up under their new manager
+        peter.setManager(ed);
+        assertTrue(hierarchy.getChainOfCommand(peter).equals(chrisChain));
+
+        // people removed through the live sets, or the sets replaced, have no chain any more
+        concrete.getEs().remove(chris);
+        assertTrue(hierarchy.getChainOfCommand(chris).isEmpty());
+        concrete.setEs(new HashSet<>(Collections.singleton(chris)));
+        assertTrue(hierarchy.getChainOfCommand(peter).isEmpty());
+        assertTrue(hierarchy.getChainOfCommand(chris).equals(chrisChain));
+    }
 }
@@ -0,0 +1,113 @@
+package com.cooksys.collections.assignment.test;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.ConcurrentManagementHierarchy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentManagementHierarchyTests {
+    private static final int MANAGERS = 2000;
+    private static final int GRUNTS = 20000;
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+
+    private ConcurrentManagementHierarchy hierarchy;
+    private List<Manager> managers;
+    private List<Employee> grunts;
+
+    @Before
+    public void setUp() throws Exception {
+        hierarchy = new ConcurrentManagementHierarchy();
+        Random random = new Random(42);
+        managers = new ArrayList<>();
+        for (int i = 0; i < MANAGERS; i++) {
+            Manager boss = managers.isEmpty() ? null : managers.get(random.nextInt(managers.size()));
+            managers.add(new Manager("Manager " + i, "Manager", boss));
+        }
+        grunts = new ArrayList<>();
+        for (int i = 0; i < GRUNTS; i++) {
+            grunts.add(new Grunt("Grunt " + i, "Grunt", managers.get(random.nextInt(MANAGERS))));
+        }
+        Collections.shuffle(managers, random);
+    }
+
+    @Test
+    public void concurrentReadersAndWritersTest() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+
+        for (int w = 0; w < WRITERS; w++) {
+            final int offset = w;
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int i = offset; i < MANAGERS; i += WRITERS) {
+                    assertTrue(hierarchy.addManager(managers.get(i)));
+                }
+                for (int i = offset; i < GRUNTS; i += WRITERS) {
+                    Employee grunt = grunts.get(i);
+                    while (!hierarchy.addEmployee(grunt)) {
+                        assertFalse(hierarchy.hasEmployee(grunt));
+                        Thread.yield();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            final Random random = new Random(r);
+            readers.add(pool.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    Employee grunt = grunts.get(random.nextInt(GRUNTS));
+                    boolean present = hierarchy.hasEmployee(grunt);
+                    List<Manager> chain = hierarchy.getChainOfCommand(grunt);
+                    if (present) {
+                        assertFalse(chain.isEmpty());
+                    }
+                    assertTrue(expectedChain(grunt).subList(0, chain.size()).equals(chain));
+
+                    Manager manager = managers.get(random.nextInt(MANAGERS));
+                    for (Employee e : hierarchy.getUnderlings(manager)) {
+                        assertSame(manager, e.getManager());
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> f : writers) {
+            f.get(60, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        for (Future<?> f : readers) {
+            f.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(MANAGERS + GRUNTS, hierarchy.getEmployees().size());
+        assertEquals(MANAGERS, hierarchy.getManagers().size());
+        for (Employee grunt : grunts) {
+            assertTrue(hierarchy.getChainOfCommand(grunt).equals(expectedChain(grunt)));
+        }
+    }
+
+    private static List<Manager> expectedChain(Employee employee) {
+        List<Manager> chain = new ArrayList<>();
+        for (Manager m = employee.getManager(); m != null; m = m.getManager()) {
+            chain.add(m);
+        }
+        return chain;
+    }
+}
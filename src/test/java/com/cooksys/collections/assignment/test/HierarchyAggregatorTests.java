@@ -0,0 +1,156 @@
+package com.cooksys.collections.assignment.test;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.HierarchyReducer;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.ConcreteManagementHierarchy;
+import com.cooksys.collections.assignment.HierarchyAggregator;
+import com.cooksys.collections.assignment.HierarchyBulkLoader;
+import com.cooksys.collections.assignment.IndexedManagementHierarchy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class HierarchyAggregatorTests {
+    private HierarchyAggregator aggregator;
+
+    private Manager brad;
+    private Manager frank;
+    private Manager ed;
+    private Grunt peter;
+    private Grunt michael;
+    private Grunt mandy;
+    private Grunt chris;
+
+    @Before
+    public void setUp() throws Exception {
+        aggregator = new HierarchyAggregator();
+        brad = new Manager("Brad", "COO", null);
+        frank = new Manager("Frank", "FastTrack'D Manager", brad);
+        ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+        peter = new Grunt("Peter", "Software Architect", frank);
+        michael = new Grunt("Michael", "Lead Instructor", frank);
+        mandy = new Grunt("Mandy", "FastTrack'D Recruiter", ed);
+        chris = new Grunt("Chris", "Lead Instructor", ed);
+    }
+
+    private ManagementHierarchy populate(ManagementHierarchy hierarchy) {
+        hierarchy.addManager(brad);
+        hierarchy.addManager(frank);
+        hierarchy.addManager(ed);
+        for (Employee e : Arrays.asList(frank, ed, peter, michael, mandy, chris)) {
+            hierarchy.addEmployee(e);
+        }
+        return hierarchy;
+    }
+
+    @Test
+    public void headcountTest() throws Exception {
+        for (ManagementHierarchy hierarchy : Arrays.asList(populate(new IndexedManagementHierarchy()),
+                populate(new ConcreteManagementHierarchy()))) {
+            Map<Manager, Integer> headcount = aggregator.aggregate(hierarchy, HierarchyReducer.headcount());
+            assertEquals(3, headcount.size());
+            assertEquals(Integer.valueOf(6), headcount.get(brad));
+            assertEquals(Integer.valueOf(2), headcount.get(frank));
+            assertEquals(Integer.valueOf(2), headcount.get(ed));
+        }
+    }
+
+    @Test
+    public void stockReducersTest() throws Exception {
+        ManagementHierarchy hierarchy = populate(new IndexedManagementHierarchy());
+        Manager idle = new Manager("Idle", "Manager", brad);
+        hierarchy.addManager(idle);
+        hierarchy.addEmployee(idle);
+
+        Map<Manager, Integer> depth = aggregator.aggregate(hierarchy, HierarchyReducer.depth());
+        assertEquals(Integer.valueOf(2), depth.get(brad));
+        assertEquals(Integer.valueOf(1), depth.get(frank));
+        assertEquals(Integer.valueOf(0), depth.get(idle));
+
+        Map<Manager, Integer> span = aggregator.aggregate(hierarchy, HierarchyReducer.directReports());
+        assertEquals(Integer.valueOf(3), span.get(brad));
+        assertEquals(Integer.valueOf(2), span.get(ed));
+        assertEquals(Integer.valueOf(0), span.get(idle));
+
+        Map<Manager, Map<String, Integer>> titles = aggregator.aggregate(hierarchy, HierarchyReducer.titleCounts());
+        assertEquals(Integer.valueOf(2), titles.get(brad).get("Lead Instructor"));
+        assertEquals(Integer.valueOf(1), titles.get(brad).get("Manager"));
+        assertEquals(Integer.valueOf(1), titles.get(ed).get("Lead Instructor"));
+        assertNull(titles.get(ed).get("Software Architect"));
+        assertTrue(titles.get(idle).isEmpty());
+    }
+
+    @Test
+    public void orderedCombineTest() throws Exception {
+        ManagementHierarchy hierarchy = populate(new IndexedManagementHierarchy());
+        HierarchyReducer<String> names = HierarchyReducer.of("", Employee::getName, String::concat,
+                (m, organization) -> "(" + organization + ")");
+        Map<Manager, String> result = aggregator.aggregate(hierarchy, names);
+        StringBuilder expected = new StringBuilder();
+        for (Employee e : hierarchy.getUnderlings(brad)) {
+            expected.append(e.getName()).append('(');
+            for (Employee report : hierarchy.getUnderlings((Manager) e)) {
+                expected.append(report.getName());
+            }
+            expected.append(')');
+        }
+        assertEquals(expected.toString(), result.get(brad));
+    }
+
+    @Test
+    public void parallelTest() throws Exception {
+        List<Employee> people = new ArrayList<>();
+        Manager top = new Manager("Top", "CEO", null);
+        people.add(top);
+        Random random = new Random(15);
+        List<Manager> managers = new ArrayList<>(Collections.singletonList(top));
+        for (int i = 0; i < 20000; i++) {
+            Manager manager = managers.get(random.nextInt(managers.size()));
+            if (random.nextInt(4) == 0) {
+                Manager m = new Manager("M" + i, "Title " + random.nextInt(5), manager);
+                managers.add(m);
+                people.add(m);
+            } else {
+                people.add(new Grunt("G" + i, "Title " + random.nextInt(5), manager));
+            }
+        }
+        // a long chain, deeper than any thread's stack would allow for nested tasks
+        Manager bottom = top;
+        for (int i = 0; i < 50000; i++) {
+            bottom = new Manager("C" + i, "Title", bottom);
+            people.add(bottom);
+        }
+        ManagementHierarchy hierarchy = new HierarchyBulkLoader().addAll(people).build();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Map<Manager, Integer> sequential = new HierarchyAggregator(pool, Integer.MAX_VALUE)
+                    .aggregate(hierarchy, HierarchyReducer.headcount());
+            Map<Manager, Integer> parallel = new HierarchyAggregator(pool, 0)
+                    .aggregate(hierarchy, HierarchyReducer.headcount());
+            assertEquals(sequential, parallel);
+            assertEquals(hierarchy.getManagers().size(), parallel.size());
+            assertEquals(Integer.valueOf(people.size() - 1), parallel.get(top));
+            for (Manager m : managers) {
+                assertEquals(hierarchy.getHeadcount(m), parallel.get(m).intValue());
+            }
+
+            Map<Manager, Map<String, Integer>> titles = new HierarchyAggregator(pool, 16)
+                    .aggregate(hierarchy, HierarchyReducer.titleCounts());
+            int total = 0;
+            for (int count : titles.get(top).values()) {
+                total += count;
+            }
+            assertEquals(people.size() - 1, total);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.cooksys.collections.assignment.test;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.HierarchyBulkLoader;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class HierarchyBulkLoaderTests {
+    private HierarchyBulkLoader loader;
+
+    private Manager brad;
+    private Manager frank;
+    private Manager ed;
+    private Grunt peter;
+    private Grunt michael;
+    private Grunt mandy;
+
+    @Before
+    public void setUp() throws Exception {
+        loader = new HierarchyBulkLoader();
+        brad = new Manager("Brad", "COO", null);
+        frank = new Manager("Frank", "FastTrack'D Manager", brad);
+        peter = new Grunt("Peter", "Software Architect", frank);
+        michael = new Grunt("Michael", "Lead Instructor", frank);
+        ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+        mandy = new Grunt("Mandy", "FastTrack'D Recruiter", ed);
+    }
+
+    @Test
+    public void buildInAnyOrderTest() throws Exception {
+        ManagementHierarchy hierarchy = loader.addAll(Arrays.asList(peter, mandy, frank, michael, ed, brad)).build();
+
+        assertTrue(hierarchy.getManagers().equals(new HashSet<>(Arrays.asList(brad, frank, ed))));
+        assertTrue(hierarchy.getUnderlings(brad).equals(new HashSet<>(Arrays.asList(frank, ed))));
+        assertTrue(hierarchy.getUnderlings(frank).equals(new HashSet<>(Arrays.<Employee>asList(peter, michael))));
+        assertTrue(hierarchy.getChainOfCommand(peter).equals(Arrays.asList(frank, brad)));
+        assertEquals(5, hierarchy.getHeadcount(brad));
+        assertTrue(hierarchy.getAllReports(ed).equals(Collections.singleton(mandy)));
+        assertTrue(loader.getOrphans().isEmpty());
+    }
+
+    @Test
+    public void orphansTest() throws Exception {
+        ManagementHierarchy hierarchy = loader.addAll(Arrays.asList(peter, mandy, frank, michael)).build();
+
+        assertTrue(loader.getOrphans().equals(new HashSet<>(Arrays.asList(frank, mandy))));
+        assertTrue(hierarchy.hasManager(frank));
+        assertFalse(hierarchy.hasEmployee(mandy));
+        assertTrue(hierarchy.getChainOfCommand(peter).equals(Collections.singletonList(frank)));
+    }
+
+    @Test
+    public void loopTest() throws Exception {
+        brad.setManager(frank);
+        ManagementHierarchy hierarchy = loader.addAll(Arrays.asList(peter, frank, brad, ed, mandy)).build();
+
+        assertEquals(5, hierarchy.getEmployees().size());
+        assertTrue(hierarchy.getChainOfCommand(mandy).containsAll(Arrays.asList(ed, brad)));
+        assertTrue(hierarchy.getChainOfCommand(peter).contains(frank));
+        List<Manager> chain = hierarchy.getChainOfCommand(mandy);
+        Manager top = chain.get(chain.size() - 1);
+        assertTrue(hierarchy.getChainOfCommand(top).isEmpty());
+        assertEquals(4, hierarchy.getHeadcount(top));
+    }
+}
@@ -0,0 +1,201 @@
+package com.cooksys.collections.assignment.test;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.HierarchyBulkLoader;
+import com.cooksys.collections.assignment.IndexedManagementHierarchy;
+import com.cooksys.collections.io.HierarchyFormat;
+import com.cooksys.collections.io.HierarchyReader;
+import com.cooksys.collections.io.HierarchyWriter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class HierarchyIOTests {
+    private Manager brad;
+    private Manager frank;
+    private Manager ed;
+    private Grunt peter;
+    private Grunt michael;
+    private Grunt mandy;
+    private Grunt chris;
+
+    @Before
+    public void setUp() throws Exception {
+        brad = new Manager("Brad", "COO", null);
+        frank = new Manager("Frank", "FastTrack'D Manager", brad);
+        ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+        peter = new Grunt("Peter, \"Pete\"", "Software Architect", frank);
+        michael = new Grunt("Michael", "Lead\r\nInstructor", frank);
+        mandy = new Grunt("Mandy", null, ed);
+        chris = new Grunt("", "Student Advocate \u00e9\u0001", ed);
+    }
+
+    private IndexedManagementHierarchy populate() {
+        return new HierarchyBulkLoader()
+                .addAll(Arrays.asList(brad, frank, ed, peter, michael, mandy, chris))
+                .build();
+    }
+
+    private static String write(ManagementHierarchy hierarchy, HierarchyFormat format) throws IOException {
+        StringWriter text = new StringWriter();
+        try (HierarchyWriter writer = new HierarchyWriter(text, format)) {
+            assertEquals(hierarchy.employees().count(), writer.writeAll(hierarchy));
+        }
+        return text.toString();
+    }
+
+    private static List<Employee> read(String text, HierarchyFormat format) throws IOException {
+        List<Employee> employees = new ArrayList<>();
+        try (HierarchyReader reader = new HierarchyReader(new StringReader(text), format)) {
+            for (Employee e = reader.read(); e != null; e = reader.read()) {
+                employees.add(e);
+            }
+        }
+        return employees;
+    }
+
+    @Test
+    public void roundTripTest() throws Exception {
+        ManagementHierarchy hierarchy = populate();
+        for (HierarchyFormat format : HierarchyFormat.values()) {
+            IndexedManagementHierarchy copy;
+            try (HierarchyReader reader = new HierarchyReader(new StringReader(write(hierarchy, format)), format)) {
+                copy = reader.readAll(new HierarchyBulkLoader()).build();
+                assertTrue(reader.getMissingManagerIds().isEmpty());
+            }
+            assertEquals(hierarchy.getHierarchy(), copy.getHierarchy());
+            for (Employee e : Arrays.asList(brad, frank, ed, peter, michael, mandy, chris)) {
+                Employee read = copy.getEmployee(e.getId());
+                assertEquals(e, read);
+                assertNotSame(e, read);
+                assertEquals(e.getClass(), read.getClass());
+                assertEquals(e.getName(), read.getName());
+                assertEquals(e.getTitle(), read.getTitle());
+                assertEquals(e.getManager(), read.getManager());
+            }
+            assertEquals(Arrays.asList(frank, brad), copy.getChainOfCommand(peter));
+        }
+    }
+
+    @Test
+    public void forwardReferencesTest() throws Exception {
+        ManagementHierarchy hierarchy = populate();
+        for (HierarchyFormat format : HierarchyFormat.values()) {
+            StringWriter text = new StringWriter();
+            try (HierarchyWriter writer = new HierarchyWriter(text, format)) {
+                for (Employee e : Arrays.asList(chris, peter, frank, michael, brad, mandy, ed)) {
+                    writer.write(e);
+                }
+            }
+            List<Employee> employees = read(text.toString(), format);
+            Map<Long, Employee> byId = new HashMap<>();
+            for (Employee e : employees) {
+                byId.put(e.getId(), e);
+            }
+            assertSame(byId.get(ed.getId()), byId.get(chris.getId()).getManager());
+            assertSame(byId.get(brad.getId()), byId.get(frank.getId()).getManager());
+            assertEquals("Ed", byId.get(ed.getId()).getName());
+            assertEquals(hierarchy.getHierarchy(), new HierarchyBulkLoader().addAll(employees).build().getHierarchy());
+        }
+    }
+
+    @Test
+    public void filedManagerTest() throws Exception {
+        IndexedManagementHierarchy hierarchy = populate();
+        peter.setManager(new Manager("Olivia", "Consultant", null));
+        assertTrue(hierarchy.hasEmployee(peter));
+        for (HierarchyFormat format : HierarchyFormat.values()) {
+            IndexedManagementHierarchy copy;
+            try (HierarchyReader reader = new HierarchyReader(new StringReader(write(hierarchy, format)), format)) {
+                copy = reader.readAll(new HierarchyBulkLoader()).build();
+                assertTrue(reader.getMissingManagerIds().isEmpty());
+            }
+            assertEquals(7, copy.getEmployees().size());
+            assertEquals(Arrays.asList(frank, brad), copy.getChainOfCommand(peter));
+        }
+    }
+
+    @Test
+    public void missingManagersTest() throws Exception {
+        String text = "id,type,name,title,managerId\r\n"
+                + "1,manager,Brad,COO,\r\n"
+                + "2,grunt,Peter,Software Architect,1\r\n"
+                + "3,grunt,Mandy,Recruiter,9\r\n";
+        HierarchyBulkLoader loader;
+        try (HierarchyReader reader = new HierarchyReader(new StringReader(text), HierarchyFormat.CSV)) {
+            loader = reader.readAll(new HierarchyBulkLoader());
+            assertEquals(Collections.singleton(9L), reader.getMissingManagerIds());
+        }
+        IndexedManagementHierarchy hierarchy = loader.build();
+        assertEquals(1, loader.getOrphans().size());
+        assertEquals("Mandy", loader.getOrphans().iterator().next().getName());
+        assertEquals(1, hierarchy.getHeadcount((Manager) hierarchy.getEmployee(1)));
+    }
+
+    @Test
+    public void jsonLinesTest() throws Exception {
+        String text = "\n{ \"managerId\" : null, \"extra\": [1], \"id\": 1, \"type\": \"manager\", \"name\": \"Brad\" }\n";
+        try {
+            read(text, HierarchyFormat.JSON_LINES);
+            fail("nested values are not part of a record");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().startsWith("Line 2"));
+        }
+        text = "{\"id\":1,\"type\":\"manager\",\"name\":\"Br\\u0061d\",\"salary\":1.5e3,\"title\":null}\n\n";
+        List<Employee> employees = read(text, HierarchyFormat.JSON_LINES);
+        assertEquals(1, employees.size());
+        assertEquals("Brad", employees.get(0).getName());
+        assertNull(employees.get(0).getTitle());
+        assertNull(employees.get(0).getManager());
+    }
+
+    @Test
+    public void malformedInputTest() throws Exception {
+        String header = "id,type,name,title,managerId\n";
+        List<String> csv = Arrays.asList(
+                "id,name\n",
+                header + "1,manager,Brad,COO\n",
+                header + "x,manager,Brad,COO,\n",
+                header + "1,boss,Brad,COO,\n",
+                header + "1,manager,\"Brad,COO,\n",
+                header + "1,manager,\"Brad\"x,COO,\n",
+                header + "1,manager,Brad,COO,\n1,manager,Ed,CTO,\n",
+                header + "1,manager,Brad,COO,\n1,grunt,Ed,CTO,\n",
+                header + "2,grunt,Ed,CTO,1\n1,grunt,Brad,COO,\n",
+                header + "1,manager,Brad,COO,\n2,grunt,Ed,CTO,1\n2,grunt,Ed,CTO,1\n",
+                header + "1,manager,Brad,COO,\n2,grunt,Ed,CTO,1\n2,manager,Ed,CTO,1\n",
+                header + "1,manager,Brad,COO,\n2,grunt,Ed,CTO,1\n3,grunt,Peter,Architect,2\n");
+        for (String text : csv) {
+            try {
+                read(text, HierarchyFormat.CSV);
+                fail(text);
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().startsWith("Line "));
+            }
+        }
+        List<String> json = Arrays.asList(
+                "{\"id\":1}\n",
+                "{\"id\":1,\"type\":\"manager\"\n",
+                "{\"id\":1,\"type\":\"manager\"} x\n",
+                "{\"id\":1,\"type\":\"manager\",\"name\":\"\\q\"}\n");
+        for (String text : json) {
+            try {
+                read(text, HierarchyFormat.JSON_LINES);
+                fail(text);
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().startsWith("Line "));
+            }
+        }
+        assertTrue(read("", HierarchyFormat.CSV).isEmpty());
+        assertTrue(read(header, HierarchyFormat.CSV).isEmpty());
+    }
+}
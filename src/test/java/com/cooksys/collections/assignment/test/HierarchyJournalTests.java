@@ -0,0 +1,185 @@
+package com.cooksys.collections.assignment.test;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.HierarchyJournal;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class HierarchyJournalTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+
+    private Manager brad;
+    private Manager frank;
+    private Manager ed;
+    private Grunt peter;
+    private Grunt michael;
+    private Grunt mandy;
+    private Grunt chris;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder("journal").toPath();
+        brad = new Manager("Brad", "COO", null);
+        frank = new Manager("Frank", "FastTrack'D Manager", brad);
+        ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+        peter = new Grunt("Peter", "Software Architect", frank);
+        michael = new Grunt("Michael", "Lead Instructor", frank);
+        mandy = new Grunt("Mandy", "FastTrack'D Recruiter", ed);
+        chris = new Grunt("Chris", "Student Advocate", ed);
+    }
+
+    private void populate(ManagementHierarchy hierarchy) {
+        hierarchy.addManager(brad);
+        hierarchy.addManager(frank);
+        hierarchy.addManager(ed);
+        for (Employee e : Arrays.asList(frank, ed, peter, michael, mandy, chris)) {
+            hierarchy.addEmployee(e);
+        }
+    }
+
+    private void reorganize(ManagementHierarchy hierarchy) {
+        hierarchy.transferEmployee(ed, frank);
+        hierarchy.retitleEmployee(mandy, "Senior Recruiter");
+        hierarchy.removeEmployee(chris);
+        hierarchy.promoteToManager(peter);
+    }
+
+    /**
+     * Describes a hierarchy by name, since recovery creates new employee objects.
+     */
+    private static Map<String, String> describe(ManagementHierarchy hierarchy) {
+        Map<String, String> result = new TreeMap<>();
+        for (Employee e : hierarchy.getEmployees()) {
+            Manager m = e.getManager();
+            result.put(e.getName(), e.getTitle() + " / " + (m == null ? null : m.getName()) + " / "
+                    + hierarchy.getManagers().contains(e) + " / " + hierarchy.getChainOfCommand(e).size());
+        }
+        return result;
+    }
+
+    @Test
+    public void recoverTest() throws Exception {
+        Map<String, String> expected;
+        try (HierarchyJournal journal = HierarchyJournal.open(directory)) {
+            assertTrue(journal.getHierarchy().getEmployees().isEmpty());
+            populate(journal.getHierarchy());
+            reorganize(journal.getHierarchy());
+            expected = describe(journal.getHierarchy());
+        }
+        try (HierarchyJournal journal = HierarchyJournal.open(directory)) {
+            assertEquals(expected, describe(journal.getHierarchy()));
+            assertEquals(5, journal.getHierarchy().getHeadcount(firstManagerNamed(journal, "Brad")));
+        }
+    }
+
+    @Test
+    public void compactionTest() throws Exception {
+        Map<String, String> expected;
+        try (HierarchyJournal journal = HierarchyJournal.open(directory, 0, 1)) {
+            populate(journal.getHierarchy());
+            reorganize(journal.getHierarchy());
+            expected = describe(journal.getHierarchy());
+        }
+        assertTrue(Files.exists(directory.resolve("hierarchy.snapshot")));
+        assertEquals(16, Files.size(directory.resolve("hierarchy.journal")));
+        try (HierarchyJournal journal = HierarchyJournal.open(directory, 0, Long.MAX_VALUE)) {
+            assertEquals(expected, describe(journal.getHierarchy()));
+            journal.getHierarchy().retitleEmployee(firstManagerNamed(journal, "Ed"), "Director");
+        }
+        try (HierarchyJournal journal = HierarchyJournal.open(directory)) {
+            assertEquals("Director", firstManagerNamed(journal, "Ed").getTitle());
+        }
+    }
+
+    @Test
+    public void tornTailTest() throws Exception {
+        Map<String, String> expected;
+        try (HierarchyJournal journal = HierarchyJournal.open(directory)) {
+            populate(journal.getHierarchy());
+            expected = describe(journal.getHierarchy());
+        }
+        Files.write(directory.resolve("hierarchy.journal"), new byte[]{0, 0, 0, 40, 1, 2, 3},
+                StandardOpenOption.APPEND);
+        try (HierarchyJournal journal = HierarchyJournal.open(directory)) {
+            assertEquals(expected, describe(journal.getHierarchy()));
+            reorganize(journal.getHierarchy());
+            expected = describe(journal.getHierarchy());
+        }
+        try (HierarchyJournal journal = HierarchyJournal.open(directory)) {
+            assertEquals(expected, describe(journal.getHierarchy()));
+        }
+    }
+
+    @Test
+    public void groupCommitTest() throws Exception {
+        Path copy = folder.newFolder("copy").toPath();
+        try (HierarchyJournal journal = HierarchyJournal.open(directory, 5, Long.MAX_VALUE)) {
+            populate(journal.getHierarchy());
+            journal.awaitDurable(journal.getHierarchy().getSequence());
+            Files.copy(directory.resolve("hierarchy.journal"), copy.resolve("hierarchy.journal"));
+            try (HierarchyJournal recovered = HierarchyJournal.open(copy)) {
+                assertEquals(describe(journal.getHierarchy()), describe(recovered.getHierarchy()));
+            }
+        }
+    }
+
+    @Test
+    public void identityTest() throws Exception {
+        try (HierarchyJournal journal = HierarchyJournal.open(directory)) {
+            populate(journal.getHierarchy());
+            chris.setName("Christopher");
+            chris.setManager(frank);
+        }
+        try (HierarchyJournal journal = HierarchyJournal.open(directory)) {
+            ManagementHierarchy recovered = journal.getHierarchy();
+            assertTrue(recovered.getEmployees().equals(new HashSet<>(Arrays.asList(brad, frank, ed, peter, michael,
+                    mandy, chris))));
+            assertNotSame(chris, recovered.getEmployee(chris.getId()));
+            assertEquals("Christopher", recovered.getEmployee(chris.getId()).getName());
+            assertTrue(recovered.getUnderlings(frank).contains(chris));
+            assertTrue(recovered.getChainOfCommand(chris).equals(Arrays.asList(frank, brad)));
+        }
+    }
+
+    @Test
+    public void compactAfterDirectManagerChangeTest() throws Exception {
+        Manager outsider = new Manager("Olivia", "Consultant", null);
+        try (HierarchyJournal journal = HierarchyJournal.open(directory, 0, Long.MAX_VALUE)) {
+            populate(journal.getHierarchy());
+            peter.setManager(outsider);
+            frank.setManager(outsider);
+            journal.compact();
+        }
+        try (HierarchyJournal journal = HierarchyJournal.open(directory)) {
+            ManagementHierarchy recovered = journal.getHierarchy();
+            assertEquals(7, recovered.getEmployees().size());
+            assertTrue(recovered.getChainOfCommand(peter).equals(Arrays.asList(frank, brad)));
+            assertEquals(frank, recovered.getEmployee(peter.getId()).getManager());
+            assertEquals(6, recovered.getHeadcount(brad));
+        }
+    }
+
+    private static Manager firstManagerNamed(HierarchyJournal journal, String name) {
+        for (Manager m : journal.getHierarchy().getManagers()) {
+            if (name.equals(m.getName())) {
+                return m;
+            }
+        }
+        throw new AssertionError(name);
+    }
+}
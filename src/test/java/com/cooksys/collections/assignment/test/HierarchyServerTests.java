@@ -0,0 +1,348 @@
+package com.cooksys.collections.assignment.test;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.CompactManagementHierarchy;
+import com.cooksys.collections.assignment.ConcurrentManagementHierarchy;
+import com.cooksys.collections.assignment.IndexedManagementHierarchy;
+import com.cooksys.collections.assignment.PersistentManagementHierarchy;
+import com.cooksys.collections.assignment.ReferenceManagementHierarchy;
+import com.cooksys.collections.server.HierarchyClient;
+import com.cooksys.collections.server.HierarchyServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class HierarchyServerTests {
+    private ManagementHierarchy hierarchy;
+    private HierarchyServer server;
+
+    private Manager brad;
+    private Manager frank;
+    private Manager ed;
+    private Grunt peter;
+    private Grunt michael;
+    private Grunt mandy;
+    private Grunt chris;
+
+    @Before
+    public void setUp() throws Exception {
+        brad = new Manager("Brad", "COO", null);
+        frank = new Manager("Frank", "FastTrack'D Manager", brad);
+        ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+        peter = new Grunt("Peter", "Software Architect", frank);
+        michael = new Grunt("Michael", "Lead Instructor", frank);
+        mandy = new Grunt("Mandy", "FastTrack'D Recruiter", ed);
+        chris = new Grunt("Chris", "Lead Instructor", ed);
+
+        hierarchy = new IndexedManagementHierarchy();
+        hierarchy.addManager(brad);
+        hierarchy.addManager(frank);
+        hierarchy.addManager(ed);
+        for (Employee e : Arrays.asList(frank, ed, peter, michael, mandy, chris)) {
+            hierarchy.addEmployee(e);
+        }
+        server = new HierarchyServer(hierarchy).start(0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void queriesTest() throws Exception {
+        try (HierarchyClient client = new HierarchyClient(server.getAddress())) {
+            assertEquals(hierarchy.getManagers(), client.getManagers());
+            assertEquals(hierarchy.getEmployees(), client.getEmployees());
+            assertEquals(hierarchy.getHierarchy(), client.getHierarchy());
+            assertTrue(client.hasManager(frank));
+            assertFalse(client.hasManager(new Manager("Nobody", "Manager", null)));
+            assertTrue(client.hasEmployee(chris));
+            assertFalse(client.hasEmployee(null));
+            assertEquals(hierarchy.getUnderlings(ed), client.getUnderlings(ed));
+            assertTrue(client.getUnderlings((Manager) null).isEmpty());
+            assertEquals(Arrays.asList(frank, brad), client.getChainOfCommand(peter));
+            assertTrue(client.getChainOfCommand(brad).isEmpty());
+            assertEquals(brad, client.lowestCommonManager(peter, mandy));
+            assertNull(client.lowestCommonManager(peter, null));
+            assertTrue(client.isInChainOfCommand(chris, brad));
+            assertFalse(client.isInChainOfCommand(chris, frank));
+            assertEquals(hierarchy.getAllReports(brad), client.getAllReports(brad));
+            assertEquals(6, client.getHeadcount(brad));
+            assertEquals(new HashSet<>(Arrays.asList(michael, chris)), client.findByTitle("Lead Instructor"));
+            assertEquals(Collections.singleton(chris), client.findByTitle("Lead Instructor", ed));
+            assertEquals(hierarchy.findByNamePrefix("m"), client.findByNamePrefix("m"));
+            assertEquals(Collections.singletonList(mandy), client.findByNamePrefix("m", ed));
+
+            Employee copy = client.getEmployee(peter.getId());
+            assertNotSame(peter, copy);
+            assertEquals(peter, copy);
+            assertEquals("Peter", copy.getName());
+            assertEquals("Software Architect", copy.getTitle());
+            assertEquals(frank, copy.getManager());
+            assertEquals("Frank", copy.getManager().getName());
+            assertSame(copy.getManager(), client.getChainOfCommand(michael).get(0));
+            assertNull(client.getEmployee(-1));
+        }
+    }
+
+    @Test
+    public void batchTest() throws Exception {
+        try (HierarchyClient client = new HierarchyClient(server.getAddress())) {
+            List<Employee> employees = Arrays.asList(peter, mandy, brad, new Grunt("Nobody", "Grunt", ed));
+            assertEquals(hierarchy.getChainsOfCommand(employees), client.getChainsOfCommand(employees));
+            List<Manager> managers = Arrays.asList(brad, frank, ed);
+            assertEquals(hierarchy.getUnderlings(managers), client.getUnderlings(managers));
+        }
+    }
+
+    @Test
+    public void largeBatchTest() throws Exception {
+        // more than one request's worth of ids, so the client has to split the batch
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < 70000; i++) {
+            employees.add(new Grunt("Nobody", "Grunt", ed));
+        }
+        employees.add(peter);
+        try (HierarchyClient client = new HierarchyClient(server.getAddress())) {
+            Map<Employee, List<Manager>> chains = client.getChainsOfCommand(employees);
+            assertEquals(employees.size(), chains.size());
+            assertEquals(Arrays.asList(frank, brad), chains.get(peter));
+            assertTrue(chains.get(employees.get(0)).isEmpty());
+            assertEquals(3, client.getUnderlings(Arrays.asList(brad, frank, ed)).size());
+        }
+    }
+
+    @Test
+    public void oversizeBatchTest() throws Exception {
+        try (Socket socket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort())) {
+            socket.setSoTimeout(5000);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeByte(10); // chains of command
+            out.writeInt((1 << 16) + 1); // one more than a batch may hold
+            out.flush();
+            // refused from the count alone, without waiting for the ids
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    public void extremeIdsTest() throws Exception {
+        // any id is allowed, so none can stand for a missing employee
+        Manager lowest = new Manager(Long.MIN_VALUE, "Lowest", "Manager", null);
+        Grunt highest = new Grunt(Long.MAX_VALUE, "Highest", "Grunt", lowest);
+        hierarchy.addManager(lowest);
+        hierarchy.addEmployee(highest);
+        try (HierarchyClient client = new HierarchyClient(server.getAddress())) {
+            assertTrue(client.hasManager(lowest));
+            assertFalse(client.hasManager(null));
+            assertEquals(Collections.singleton(highest), client.getUnderlings(lowest));
+            assertTrue(client.getUnderlings((Manager) null).isEmpty());
+            assertEquals(Collections.singletonList(lowest), client.getChainOfCommand(highest));
+            assertEquals(lowest, client.getEmployee(Long.MIN_VALUE));
+            assertEquals(lowest, client.lowestCommonManager(highest, highest));
+            assertNull(client.lowestCommonManager(highest, null));
+            Map<Employee, List<Manager>> chains = client.getChainsOfCommand(Arrays.asList(highest, null));
+            assertEquals(Collections.singletonList(lowest), chains.get(highest));
+            assertTrue(chains.get(null).isEmpty());
+        }
+    }
+
+    @Test
+    public void failedAnswerTest() throws Exception {
+        // the reports fail half way through being written out
+        ManagementHierarchy failing = new IndexedManagementHierarchy() {
+            @Override
+            public Set<Employee> getAllReports(Manager manager) {
+                Set<Employee> reports = super.getAllReports(manager);
+                return new AbstractSet<Employee>() {
+                    @Override
+                    public Iterator<Employee> iterator() {
+                        Iterator<Employee> it = reports.iterator();
+                        return new Iterator<Employee>() {
+                            @Override
+                            public boolean hasNext() {
+                                return true;
+                            }
+
+                            @Override
+                            public Employee next() {
+                                if (!it.hasNext()) {
+                                    throw new IllegalStateException("reports changed");
+                                }
+                                return it.next();
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return reports.size() + 1;
+                    }
+                };
+            }
+        };
+        failing.addManager(brad);
+        failing.addManager(frank);
+        failing.addEmployee(frank);
+        failing.addEmployee(peter);
+        try (HierarchyServer other = new HierarchyServer(failing).start(0);
+             HierarchyClient client = new HierarchyClient(other.getAddress())) {
+            try {
+                client.getAllReports(brad);
+                fail("Expected the failed query to fail");
+            } catch (UncheckedIOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("reports changed"));
+            }
+            // the connection is still in step
+            assertEquals(Arrays.asList(frank, brad), client.getChainOfCommand(peter));
+            assertEquals(2, client.getHeadcount(brad));
+        }
+    }
+
+    @Test
+    public void slowClientTest() throws Exception {
+        // a client that stops reading must not keep the hierarchy locked while its answers wait to be sent
+        for (int i = 0; i < 20000; i++) {
+            hierarchy.addEmployee(new Grunt("Grunt " + i, "Software Developer", frank));
+        }
+        try (Socket socket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort());
+             HierarchyClient client = new HierarchyClient(server.getAddress())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            for (int i = 0; i < 50; i++) {
+                out.writeByte(5); // every employee, never read
+            }
+            out.flush();
+            // wait for the answers to start, then give them time to fill the socket's buffers
+            assertEquals(0, socket.getInputStream().read());
+            Thread.sleep(200);
+            CompletableFuture<List<Manager>> chain = client.getChainOfCommandAsync(peter);
+            assertEquals(Arrays.asList(frank, brad), chain.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void idLookupTest() throws Exception {
+        // every hosted hierarchy should find people by id without listing everyone
+        List<ManagementHierarchy> hosted = Arrays.asList(
+                new ReferenceManagementHierarchy() {
+                    @Override
+                    public Set<Employee> getEmployees() {
+                        throw new AssertionError("scanned");
+                    }
+                },
+                new ConcurrentManagementHierarchy() {
+                    @Override
+                    public Set<Employee> getEmployees() {
+                        throw new AssertionError("scanned");
+                    }
+                },
+                new CompactManagementHierarchy() {
+                    @Override
+                    public Set<Employee> getEmployees() {
+                        throw new AssertionError("scanned");
+                    }
+                },
+                new PersistentManagementHierarchy() {
+                    @Override
+                    public Set<Employee> getEmployees() {
+                        throw new AssertionError("scanned");
+                    }
+                });
+        for (ManagementHierarchy h : hosted) {
+            h.addManager(brad);
+            h.addManager(frank);
+            h.addEmployee(frank);
+            h.addEmployee(peter);
+            assertSame(peter, h.getEmployee(peter.getId()));
+            assertSame(brad, h.getEmployee(brad.getId()));
+            assertNull(h.getEmployee(mandy.getId()));
+            try (HierarchyServer other = new HierarchyServer(h).start(0);
+                 HierarchyClient client = new HierarchyClient(other.getAddress())) {
+                assertEquals(Arrays.asList(frank, brad), client.getChainOfCommand(peter));
+                assertTrue(client.hasEmployee(frank));
+                assertFalse(client.hasEmployee(mandy));
+            }
+        }
+    }
+
+    @Test
+    public void pipeliningTest() throws Exception {
+        try (HierarchyClient client = new HierarchyClient(server.getAddress())) {
+            List<Employee> everyone = new ArrayList<>(hierarchy.getEmployees());
+            everyone.add(brad);
+            List<CompletableFuture<List<Manager>>> chains = new ArrayList<>();
+            List<CompletableFuture<Employee>> found = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                Employee e = everyone.get(i % everyone.size());
+                chains.add(client.getChainOfCommandAsync(e));
+                found.add(client.getEmployeeAsync(e.getId()));
+            }
+            for (int i = 0; i < 200; i++) {
+                Employee e = everyone.get(i % everyone.size());
+                assertEquals(hierarchy.getChainOfCommand(e), chains.get(i).join());
+                assertEquals(e, found.get(i).join());
+            }
+        }
+    }
+
+    @Test
+    public void concurrentClientsTest() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(threads.submit(() -> {
+                    try (HierarchyClient client = new HierarchyClient(server.getAddress())) {
+                        for (int i = 0; i < 100; i++) {
+                            assertEquals(Arrays.asList(ed, brad), client.getChainOfCommand(mandy));
+                            assertEquals(2, client.getHeadcount(frank));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @Test
+    public void closedServerTest() throws Exception {
+        try (HierarchyClient client = new HierarchyClient(server.getAddress())) {
+            assertEquals(6, client.getHeadcount(brad));
+            server.close();
+            try {
+                client.getHeadcount(brad);
+                fail("Expected the closed connection to fail the query");
+            } catch (UncheckedIOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void readOnlyTest() throws Exception {
+        try (HierarchyClient client = new HierarchyClient(server.getAddress())) {
+            client.addEmployee(new Grunt("New", "Grunt", frank));
+        }
+    }
+}
@@ -0,0 +1,900 @@
+package com.cooksys.collections.assignment.test;
+
+import com.cooksys.collections.ChainOfCommand;
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.EmployeeListener;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.HierarchyChange;
+import com.cooksys.collections.HierarchySubscription;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.IndexedManagementHierarchy;
+import com.cooksys.collections.assignment.ReferenceManagementHierarchy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class IndexedManagementHierarchyTests {
+    private ManagementHierarchy hierarchy;
+
+    private Set<Manager> managers;
+    private Set<Employee> bradUnderlings;
+    private Set<Employee> frankUnderlings;
+    private Set<Employee> edUnderlings;
+    private Set<Employee> underlings;
+    private Set<Employee> employees;
+
+    private Map<Manager, Set<Employee>> map;
+    private List<Manager> peterChain;
+    private List<Manager> chrisChain;
+
+    private Manager brad;
+
+    private Manager frank;
+
+    private Grunt peter;
+    private Grunt michael;
+    private Grunt dillon;
+
+    private Manager ed;
+
+    private Grunt mandy;
+    private Grunt chris;
+
+    @Before
+    public void setUp() throws Exception {
+        hierarchy = new IndexedManagementHierarchy();
+        brad = new Manager("Brad", "COO", null);
+
+        frank = new Manager("Frank", "FastTrack'D Manager", brad);
+        peter = new Grunt("Peter", "Software Architect", frank);
+        michael = new Grunt("Michael", "Lead Instructor", frank);
+        dillon = new Grunt("Dillon", "Instructor-in-Training", frank);
+
+        ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+        mandy = new Grunt("Mandy", "FastTrack'D Recruiter", ed);
+        chris = new Grunt("Chris", "Student Advocate", ed);
+
+        managers = new HashSet<>();
+        managers.add(brad);
+        managers.add(frank);
+        managers.add(ed);
+
+        bradUnderlings = new HashSet<>();
+        bradUnderlings.add(frank);
+        bradUnderlings.add(ed);
+
+        frankUnderlings = new HashSet<>();
+        frankUnderlings.add(peter);
+        frankUnderlings.add(michael);
+        frankUnderlings.add(dillon);
+
+        edUnderlings = new HashSet<>();
+        edUnderlings.add(mandy);
+        edUnderlings.add(chris);
+
+        underlings = new HashSet<>();
+        underlings.addAll(bradUnderlings);
+        underlings.addAll(frankUnderlings);
+        underlings.addAll(edUnderlings);
+
+        employees = new HashSet<>();
+        employees.addAll(managers);
+        employees.addAll(underlings);
+
+        map = new HashMap<>();
+        map.put(brad, bradUnderlings);
+        map.put(frank, frankUnderlings);
+        map.put(ed, edUnderlings);
+
+        peterChain = new ArrayList<>();
+        peterChain.add(frank);
+        peterChain.add(brad);
+
+        chrisChain = new ArrayList<>();
+        chrisChain.add(ed);
+        chrisChain.add(brad);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        hierarchy = null;
+        brad = null;
+        frank = null;
+        peter = null;
+        michael = null;
+        dillon = null;
+        ed = null;
+        mandy = null;
+        chris = null;
+        managers = null;
+        bradUnderlings = null;
+        frankUnderlings = null;
+        edUnderlings = null;
+        underlings = null;
+        employees = null;
+        map = null;
+        peterChain = null;
+        chrisChain = null;
+    }
+
+    @Test
+    public void addManagerTest() throws Exception {
+        assertTrue(hierarchy.addManager(brad));
+        assertFalse(hierarchy.addManager(brad));
+
+        assertTrue(hierarchy.addManager(frank));
+        assertFalse(hierarchy.addManager(frank));
+
+        assertTrue(hierarchy.addManager(ed));
+        assertFalse(hierarchy.addManager(ed));
+    }
+
+    @Test
+    public void getManagersTest() throws Exception {
+        assertNotNull(hierarchy.getManagers());
+        assertTrue(hierarchy.getManagers().size() == 0);
+
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+
+        assertFalse(hierarchy.getManagers().isEmpty());
+        assertTrue(hierarchy.getManagers().size() == 3);
+        assertTrue(hierarchy.getManagers().equals(managers));
+    }
+
+    @Test
+    public void hasManagerTest() throws Exception {
+        assertFalse(hierarchy.hasManager(brad));
+        hierarchy.addManager(brad);
+        assertTrue(hierarchy.hasManager(brad));
+    }
+
+    @Test
+    public void getUnderlingsTest() throws Exception {
+        assertNotNull(hierarchy.getUnderlings(brad));
+        assertTrue(hierarchy.getUnderlings(brad).isEmpty());
+
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+
+        for (Employee e : underlings) {
+            hierarchy.addEmployee(e);
+        }
+
+        assertTrue(hierarchy.getUnderlings(brad).equals(bradUnderlings));
+        assertTrue(hierarchy.getUnderlings(frank).equals(frankUnderlings));
+        assertTrue(hierarchy.getUnderlings(ed).equals(edUnderlings));
+    }
+
+    @Test
+    public void addEmployeeTest() throws Exception {
+        assertFalse(hierarchy.addEmployee(brad));
+        assertFalse(hierarchy.addEmployee(frank));
+
+        hierarchy.addManager(brad);
+        assertTrue(hierarchy.addEmployee(frank));
+        assertFalse(hierarchy.addEmployee(frank));
+        assertFalse(hierarchy.addEmployee(mandy));
+    }
+
+    @Test
+    public void getEmployeesTest() throws Exception {
+        assertNotNull(hierarchy.getEmployees());
+        assertTrue(hierarchy.getEmployees().isEmpty());
+
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+
+        assertTrue(hierarchy.getEmployees().equals(employees));
+    }
+
+    @Test
+    public void hasEmployeeTest() throws Exception {
+        assertFalse(hierarchy.hasEmployee(brad));
+        hierarchy.addManager(brad);
+        assertTrue(hierarchy.hasEmployee(brad));
+        hierarchy.addEmployee(frank);
+        assertTrue(hierarchy.hasEmployee(frank));
+    }
+
+    @Test
+    public void getHierarchyTest() throws Exception {
+        assertNotNull(hierarchy.getHierarchy());
+        assertTrue(hierarchy.getHierarchy().isEmpty());
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        assertTrue(hierarchy.getHierarchy().equals(map));
+    }
+
+    @Test
+    public void getChainOfCommandTest() throws Exception {
+        assertNotNull(hierarchy.getChainOfCommand(peter));
+        assertTrue(hierarchy.getChainOfCommand(peter).isEmpty());
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        assertNotNull(hierarchy.getChainOfCommand(brad));
+        assertTrue(hierarchy.getChainOfCommand(brad).isEmpty());
+        assertTrue(hierarchy.getChainOfCommand(peter).equals(peterChain));
+        assertTrue(hierarchy.getChainOfCommand(chris).equals(chrisChain));
+    }
+
+    @Test
+    public void managerAddedBeforeOwnManagerTest() throws Exception {
+        hierarchy.addManager(frank);
+        hierarchy.addEmployee(peter);
+        assertTrue(hierarchy.getChainOfCommand(peter).equals(Collections.singletonList(frank)));
+        assertTrue(hierarchy.getUnderlings(brad).isEmpty());
+
+        hierarchy.addManager(brad);
+        assertTrue(hierarchy.getChainOfCommand(peter).equals(peterChain));
+        assertTrue(hierarchy.getUnderlings(brad).equals(Collections.singleton(frank)));
+    }
+
+    @Test
+    public void chainOfCommandLoopTest() throws Exception {
+        Manager alice = new Manager("Alice", "Director", null);
+        Manager bob = new Manager("Bob", "Director", alice);
+        alice.setManager(bob);
+
+        hierarchy.addManager(alice);
+        hierarchy.addManager(bob);
+        assertTrue(hierarchy.getChainOfCommand(bob).equals(Collections.singletonList(alice)));
+        assertTrue(hierarchy.getChainOfCommand(alice).isEmpty());
+    }
+
+    @Test
+    public void lowestCommonManagerTest() throws Exception {
+        assertNull(hierarchy.lowestCommonManager(peter, chris));
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        assertEquals(brad, hierarchy.lowestCommonManager(peter, chris));
+        assertEquals(frank, hierarchy.lowestCommonManager(peter, dillon));
+        assertEquals(brad, hierarchy.lowestCommonManager(frank, peter));
+        assertNull(hierarchy.lowestCommonManager(brad, peter));
+    }
+
+    @Test
+    public void isInChainOfCommandTest() throws Exception {
+        assertFalse(hierarchy.isInChainOfCommand(peter, brad));
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        assertTrue(hierarchy.isInChainOfCommand(peter, frank));
+        assertTrue(hierarchy.isInChainOfCommand(peter, brad));
+        assertFalse(hierarchy.isInChainOfCommand(peter, ed));
+        assertFalse(hierarchy.isInChainOfCommand(brad, brad));
+        assertFalse(hierarchy.isInChainOfCommand(frank, null));
+    }
+
+    @Test
+    public void getAllReportsTest() throws Exception {
+        assertNotNull(hierarchy.getAllReports(brad));
+        assertTrue(hierarchy.getAllReports(brad).isEmpty());
+        hierarchy.addManager(frank);
+        for (Employee e : frankUnderlings) {
+            hierarchy.addEmployee(e);
+        }
+        hierarchy.addManager(ed);
+        hierarchy.addManager(brad);
+        for (Employee e : edUnderlings) {
+            hierarchy.addEmployee(e);
+        }
+        assertTrue(hierarchy.getAllReports(brad).equals(underlings));
+        assertTrue(hierarchy.getAllReports(frank).equals(frankUnderlings));
+        assertTrue(hierarchy.getAllReports(ed).equals(edUnderlings));
+    }
+
+    @Test
+    public void getHeadcountTest() throws Exception {
+        assertEquals(0, hierarchy.getHeadcount(brad));
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        assertEquals(7, hierarchy.getHeadcount(brad));
+        assertEquals(3, hierarchy.getHeadcount(frank));
+        assertEquals(2, hierarchy.getHeadcount(ed));
+    }
+
+    @Test
+    public void removeEmployeeTest() throws Exception {
+        assertFalse(hierarchy.removeEmployee(peter));
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        assertFalse(hierarchy.removeEmployee(frank));
+        assertTrue(hierarchy.removeEmployee(peter));
+        assertFalse(hierarchy.removeEmployee(peter));
+        assertFalse(hierarchy.hasEmployee(peter));
+        assertTrue(hierarchy.getChainOfCommand(peter).isEmpty());
+        assertEquals(2, hierarchy.getUnderlings(frank).size());
+        assertEquals(6, hierarchy.getHeadcount(brad));
+
+        assertTrue(hierarchy.removeEmployee(michael));
+        assertTrue(hierarchy.removeEmployee(dillon));
+        assertTrue(hierarchy.removeEmployee(frank));
+        assertFalse(hierarchy.hasManager(frank));
+        assertTrue(hierarchy.getUnderlings(brad).equals(Collections.singleton(ed)));
+        assertEquals(3, hierarchy.getHeadcount(brad));
+        assertTrue(hierarchy.getAllReports(brad).equals(new HashSet<>(Arrays.asList(ed, mandy, chris))));
+    }
+
+    @Test
+    public void transferEmployeeTest() throws Exception {
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        assertTrue(hierarchy.transferEmployee(ed, frank));
+        assertFalse(hierarchy.transferEmployee(ed, frank));
+        assertTrue(ed.getManager() == frank);
+        assertTrue(hierarchy.getUnderlings(brad).equals(Collections.singleton(frank)));
+        assertTrue(hierarchy.getUnderlings(frank).contains(ed));
+        assertTrue(hierarchy.getChainOfCommand(chris).equals(Arrays.asList(ed, frank, brad)));
+        assertEquals(7, hierarchy.getHeadcount(brad));
+        assertEquals(6, hierarchy.getHeadcount(frank));
+        assertEquals(frank, hierarchy.lowestCommonManager(peter, mandy));
+        assertTrue(hierarchy.isInChainOfCommand(mandy, frank));
+        assertTrue(hierarchy.getAllReports(frank).containsAll(edUnderlings));
+
+        assertFalse(hierarchy.transferEmployee(frank, ed));
+        assertFalse(hierarchy.transferEmployee(brad, brad));
+        assertTrue(hierarchy.transferEmployee(ed, brad));
+        assertTrue(hierarchy.getChainOfCommand(chris).equals(chrisChain));
+        assertEquals(3, hierarchy.getHeadcount(frank));
+    }
+
+    @Test
+    public void promoteToManagerTest() throws Exception {
+        assertNull(hierarchy.promoteToManager(peter));
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        Manager promoted = hierarchy.promoteToManager(peter);
+        assertNotNull(promoted);
+        assertEquals(peter.getName(), promoted.getName());
+        assertEquals(peter.getId(), promoted.getId());
+        assertNotEquals(peter, promoted);
+        assertSame(promoted, hierarchy.getEmployee(peter.getId()));
+        assertTrue(hierarchy.hasManager(promoted));
+        assertFalse(hierarchy.hasEmployee(peter));
+        assertTrue(hierarchy.getUnderlings(frank).contains(promoted));
+        assertEquals(7, hierarchy.getHeadcount(brad));
+
+        Grunt intern = new Grunt("Ian", "Intern", promoted);
+        assertTrue(hierarchy.addEmployee(intern));
+        assertTrue(hierarchy.getChainOfCommand(intern).equals(Arrays.asList(promoted, frank, brad)));
+        assertEquals(8, hierarchy.getHeadcount(brad));
+    }
+
+    @Test
+    public void changeEventsTest() throws Exception {
+        List<List<HierarchyChange>> batches = new ArrayList<>();
+        HierarchySubscription subscription = hierarchy.subscribe(batches::add);
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        assertEquals(employees.size(), batches.size());
+        long sequence = 0;
+        for (List<HierarchyChange> batch : batches) {
+            assertEquals(1, batch.size());
+            assertEquals(++sequence, batch.get(0).getSequence());
+            assertEquals(HierarchyChange.Type.ADDED, batch.get(0).getType());
+        }
+        assertEquals(sequence, hierarchy.getSequence());
+
+        batches.clear();
+        assertTrue(hierarchy.transferEmployee(ed, frank));
+        assertTrue(hierarchy.retitleEmployee(mandy, "Senior Recruiter"));
+        assertTrue(hierarchy.removeEmployee(chris));
+        assertEquals(3, batches.size());
+        HierarchyChange moved = batches.get(0).get(0);
+        assertEquals(HierarchyChange.Type.MOVED, moved.getType());
+        assertTrue(moved.getPreviousManager() == brad && moved.getManager() == frank);
+        HierarchyChange retitled = batches.get(1).get(0);
+        assertEquals(HierarchyChange.Type.TITLE_CHANGED, retitled.getType());
+        assertEquals("FastTrack'D Recruiter", retitled.getPreviousTitle());
+        assertEquals("Senior Recruiter", mandy.getTitle());
+        assertEquals(HierarchyChange.Type.REMOVED, batches.get(2).get(0).getType());
+
+        batches.clear();
+        Manager promoted = hierarchy.promoteToManager(peter);
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals(HierarchyChange.Type.REMOVED, batches.get(0).get(0).getType());
+        assertTrue(batches.get(0).get(1).getEmployee() == promoted);
+
+        subscription.close();
+        hierarchy.retitleEmployee(dillon, "Instructor");
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void batchTest() throws Exception {
+        List<List<HierarchyChange>> batches = new ArrayList<>();
+        hierarchy.subscribe(batches::add);
+        ((IndexedManagementHierarchy) hierarchy).batch(() -> {
+            for (Manager m : managers) {
+                hierarchy.addManager(m);
+            }
+            for (Employee e : employees) {
+                hierarchy.addEmployee(e);
+            }
+            assertTrue(batches.isEmpty());
+        });
+        assertEquals(1, batches.size());
+        assertEquals(hierarchy.getSequence(), batches.get(0).size());
+    }
+
+    @Test
+    public void failingListenerTest() throws Exception {
+        List<List<HierarchyChange>> batches = new ArrayList<>();
+        IllegalStateException first = new IllegalStateException("first");
+        IllegalStateException second = new IllegalStateException("second");
+        hierarchy.subscribe(changes -> {
+            throw first;
+        });
+        hierarchy.subscribe(batches::add);
+        hierarchy.subscribe(changes -> {
+            throw second;
+        });
+        try {
+            hierarchy.addManager(brad);
+            fail("Expected the listener's failure to be rethrown");
+        } catch (IllegalStateException e) {
+            assertSame(first, e);
+            assertArrayEquals(new Throwable[]{second}, e.getSuppressed());
+        }
+        assertTrue(hierarchy.hasManager(brad));
+        assertEquals(1, batches.size());
+        assertEquals(brad, batches.get(0).get(0).getEmployee());
+    }
+
+    @Test
+    public void resumeFromSequenceTest() throws Exception {
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        List<HierarchyChange> seen = new ArrayList<>();
+        hierarchy.subscribe(seen::addAll, 3);
+        assertEquals(hierarchy.getSequence() - 3, seen.size());
+        assertEquals(4, seen.get(0).getSequence());
+
+        hierarchy.retitleEmployee(brad, "CEO");
+        assertEquals(hierarchy.getSequence(), seen.get(seen.size() - 1).getSequence());
+
+        try {
+            hierarchy.subscribe(seen::addAll, hierarchy.getSequence() + 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void streamsTest() throws Exception {
+        assertEquals(0, hierarchy.allReports(brad).count());
+        assertEquals(0, hierarchy.chainOfCommand(peter).count());
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        assertTrue(hierarchy.employees().collect(Collectors.toSet()).equals(employees));
+        assertTrue(hierarchy.underlings(frank).collect(Collectors.toSet()).equals(frankUnderlings));
+        assertTrue(hierarchy.allReports(brad).collect(Collectors.toSet()).equals(underlings));
+        assertTrue(hierarchy.allReports(ed).collect(Collectors.toSet()).equals(edUnderlings));
+        assertTrue(hierarchy.chainOfCommand(peter).collect(Collectors.toList()).equals(peterChain));
+        assertEquals(frank, hierarchy.chainOfCommand(peter).findFirst().get());
+        assertEquals(2, hierarchy.allReports(brad).limit(2).count());
+
+        Spliterator<Employee> reports = hierarchy.allReports(brad).spliterator();
+        assertEquals(7, reports.getExactSizeIfKnown());
+        assertTrue(reports.hasCharacteristics(Spliterator.DISTINCT));
+        assertEquals(2, hierarchy.chainOfCommand(chris).spliterator().getExactSizeIfKnown());
+    }
+
+    @Test
+    public void batchQueriesTest() throws Exception {
+        Grunt stranger = new Grunt("Stranger", "Visitor", brad);
+        List<Employee> batch = Arrays.asList(peter, michael, chris, frank, brad, peter, stranger);
+        for (ManagementHierarchy h : Arrays.asList(hierarchy, new ReferenceManagementHierarchy())) {
+            for (Manager m : managers) {
+                h.addManager(m);
+            }
+            for (Employee e : employees) {
+                h.addEmployee(e);
+            }
+            Map<Employee, List<Manager>> chains = h.getChainsOfCommand(batch);
+            assertEquals(6, chains.size());
+            for (Employee e : batch) {
+                assertTrue(chains.get(e).equals(h.getChainOfCommand(e)));
+            }
+            assertTrue(chains.get(peter).equals(peterChain));
+            assertTrue(chains.get(chris).equals(chrisChain));
+            assertTrue(chains.get(stranger).isEmpty());
+            // everyone under Frank shares his chain, which runs through Brad's
+            assertSame(chains.get(frank), chains.get(peter).subList(1, 2));
+            assertSame(chains.get(peter), chains.get(michael));
+            assertSame(chains.get(frank), ((ChainOfCommand) chains.get(chris)).above());
+
+            Map<Manager, Set<Employee>> reports = h.getUnderlings(
+                    Arrays.asList(frank, ed, frank, new Manager("Nobody", "", null)));
+            assertEquals(3, reports.size());
+            assertTrue(reports.get(frank).equals(frankUnderlings));
+            assertTrue(reports.get(ed).equals(edUnderlings));
+        }
+    }
+
+    @Test
+    public void sharedChainsTest() throws Exception {
+        for (ManagementHierarchy h : Arrays.asList(hierarchy, new ReferenceManagementHierarchy())) {
+            Manager frank = new Manager("Frank", "FastTrack'D Manager", brad);
+            Manager ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+            Grunt peter = new Grunt("Peter", "Software Architect", frank);
+            Grunt michael = new Grunt("Michael", "Lead Instructor", frank);
+            Grunt chris = new Grunt("Chris", "Student Advocate", ed);
+            h.addManager(frank);
+            h.addEmployee(peter);
+            assertTrue(h.getChainOfCommand(peter).equals(Collections.singletonList(frank)));
+            h.addManager(brad);
+            h.addManager(ed);
+            for (Employee e : Arrays.asList(frank, ed, michael, chris)) {
+                h.addEmployee(e);
+            }
+
+            List<Manager> peterChain = h.getChainOfCommand(peter);
+            assertTrue(peterChain.equals(Arrays.asList(frank, brad)));
+            assertSame(peterChain, h.getChainOfCommand(peter));
+            assertSame(peterChain, h.getChainOfCommand(michael));
+            assertSame(h.getChainOfCommand(frank), ((ChainOfCommand) peterChain).above());
+            assertSame(h.getChainOfCommand(frank), ((ChainOfCommand) h.getChainOfCommand(chris)).above());
+            try {
+                peterChain.clear();
+                fail("chains are shared");
+            } catch (UnsupportedOperationException expected) {
+            }
+
+            assertTrue(h.transferEmployee(ed, frank));
+            assertTrue(h.getChainOfCommand(chris).equals(Arrays.asList(ed, frank, brad)));
+            assertSame(peterChain, h.getChainOfCommand(peter));
+            assertSame(peterChain, ((ChainOfCommand) h.getChainOfCommand(chris)).above());
+
+            // the indexed hierarchy follows the change; the reference one keeps ed filed under frank
+            ed.setManager(brad);
+            assertTrue(h.getChainOfCommand(chris).equals(h == hierarchy ? Arrays.asList(ed, brad)
+                    : Arrays.asList(ed, frank, brad)));
+            assertTrue(h.getUnderlings(h == hierarchy ? brad : frank).contains(ed));
+            assertSame(peterChain, h.getChainOfCommand(peter));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void chainComparisonTest() throws Exception {
+        Manager frank = new Manager("Frank", "FastTrack'D Manager", brad);
+        Manager ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+        ChainOfCommand top = ChainOfCommand.empty().under(brad);
+        ChainOfCommand chain = top.under(frank);
+        assertTrue(chain.equals(Arrays.asList(frank, brad)));
+        assertTrue(Arrays.asList(frank, brad).equals(chain));
+        assertTrue(chain.equals(ChainOfCommand.empty().under(brad).under(frank)));
+        assertFalse(chain.equals(top.under(ed)));
+        assertFalse(chain.equals(top));
+        assertFalse(chain.equals(Arrays.asList(frank, ed)));
+        assertFalse(chain.equals(Collections.singleton(frank)));
+        assertEquals(Arrays.asList(frank, brad).hashCode(), chain.hashCode());
+        assertEquals(1, chain.indexOf(brad));
+        assertEquals(-1, chain.indexOf(ed));
+        assertEquals(-1, chain.indexOf(null));
+        assertEquals(0, chain.under(brad).indexOf(brad));
+        assertEquals(2, chain.under(brad).lastIndexOf(brad));
+
+        // long chains are compared and searched in one walk rather than one walk per element
+        List<Manager> managers = new ArrayList<>();
+        ChainOfCommand deep = ChainOfCommand.empty();
+        ChainOfCommand copy = ChainOfCommand.empty();
+        for (int i = 0; i < 100000; i++) {
+            Manager m = new Manager("Manager " + i, "Manager", null);
+            managers.add(0, m);
+            deep = deep.under(m);
+            copy = copy.under(m);
+        }
+        assertTrue(deep.equals(copy));
+        assertTrue(deep.equals(new ArrayList<>(managers)));
+        assertTrue(deep.under(frank).equals(deep.under(frank)));
+        assertFalse(deep.under(frank).equals(deep.under(ed)));
+        assertEquals(managers.size() - 1, deep.indexOf(managers.get(managers.size() - 1)));
+        assertEquals(managers.size() - 1, deep.lastIndexOf(managers.get(managers.size() - 1)));
+    }
+
+    @Test
+    public void unlistenedManagerChainTest() throws Exception {
+        ReferenceManagementHierarchy h = new ReferenceManagementHierarchy();
+        Manager ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+        Manager silent = new Manager("Sam", "Manager", brad) {
+            @Override
+            public void addListener(EmployeeListener listener) {
+                throw new UnsupportedOperationException("addListener");
+            }
+        };
+        Grunt chris = new Grunt("Chris", "Student Advocate", silent);
+        h.addManager(brad);
+        h.addManager(ed);
+        h.addManager(silent);
+        // filed under nobody, so the chain follows the manager field
+        for (Employee e : Arrays.asList(ed, chris)) {
+            h.addEmployee(e);
+        }
+        assertTrue(h.getChainOfCommand(chris).equals(Arrays.asList(silent, brad)));
+        silent.setManager(ed);
+        assertTrue(h.getChainOfCommand(chris).equals(Arrays.asList(silent, ed, brad)));
+    }
+
+    @Test
+    public void referenceFilingTest() throws Exception {
+        ReferenceManagementHierarchy h = new ReferenceManagementHierarchy();
+        Manager frank = new Manager("Frank", "FastTrack'D Manager", brad);
+        Grunt peter = new Grunt("Peter", "Software Architect", frank);
+        h.addManager(brad);
+        h.addManager(frank);
+        h.addEmployee(frank);
+        assertFalse(h.hasEmployee(peter));
+        assertTrue(h.addEmployee(peter));
+        peter.setManager(brad);
+        assertFalse(h.addEmployee(peter));
+        assertTrue(h.getUnderlings(frank).contains(peter));
+        assertFalse(h.getUnderlings(brad).contains(peter));
+        assertEquals(Arrays.asList(frank, brad), h.getChainOfCommand(peter));
+        assertTrue(h.removeEmployee(peter));
+        assertFalse(h.hasEmployee(peter));
+        assertTrue(h.getUnderlings(frank).isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList(brad, frank)), h.getEmployees());
+    }
+
+    @Test
+    public void parallelStreamsTest() throws Exception {
+        Random random = new Random(16);
+        List<Manager> tree = new ArrayList<>(Collections.singletonList(brad));
+        hierarchy.addManager(brad);
+        for (int i = 0; i < 5000; i++) {
+            Manager boss = tree.get(random.nextInt(tree.size()));
+            Employee e;
+            if (random.nextInt(3) == 0) {
+                Manager m = new Manager("M" + i, "Manager", boss);
+                hierarchy.addManager(m);
+                tree.add(m);
+                e = m;
+            } else {
+                e = new Grunt("G" + i, "Grunt", boss);
+            }
+            hierarchy.addEmployee(e);
+        }
+        Manager bottom = brad;
+        for (int i = 0; i < 2000; i++) {
+            bottom = new Manager("C" + i, "Manager", bottom);
+            hierarchy.addManager(bottom);
+            hierarchy.addEmployee(bottom);
+        }
+
+        for (Manager m : Arrays.asList(brad, tree.get(1), tree.get(tree.size() - 1), bottom)) {
+            Set<Employee> expected = hierarchy.getAllReports(m);
+            List<Employee> streamed = hierarchy.allReports(m).parallel().collect(Collectors.toList());
+            assertEquals(expected.size(), streamed.size());
+            assertTrue(new HashSet<>(streamed).equals(expected));
+            assertEquals(expected.size(), countSplitting(hierarchy.allReports(m).spliterator()));
+        }
+
+        List<Manager> chain = hierarchy.getChainOfCommand(bottom);
+        assertTrue(hierarchy.chainOfCommand(bottom).parallel().collect(Collectors.toList()).equals(chain));
+        assertEquals(chain.size(), countSplitting(hierarchy.chainOfCommand(bottom).spliterator()));
+    }
+
+    /**
+     * Splits the given spliterator all the way down, checking that every part knows its exact size.
+     */
+    private static long countSplitting(Spliterator<?> spliterator) {
+        long size = spliterator.getExactSizeIfKnown();
+        Spliterator<?> prefix = spliterator.trySplit();
+        if (prefix == null) {
+            long[] count = new long[1];
+            spliterator.forEachRemaining(e -> count[0]++);
+            assertEquals(size, count[0]);
+            return count[0];
+        }
+        assertEquals(size, prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown());
+        return countSplitting(prefix) + countSplitting(spliterator);
+    }
+
+    @Test
+    public void findByTitleTest() throws Exception {
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        Grunt lisa = new Grunt("Lisa", "Lead Instructor", ed);
+        hierarchy.addEmployee(lisa);
+
+        Set<Employee> instructors = hierarchy.findByTitle("Lead Instructor");
+        assertTrue(instructors.equals(new HashSet<>(Arrays.asList(michael, lisa))));
+        assertTrue(hierarchy.findByTitle("Lead Instructor", ed).equals(Collections.singleton(lisa)));
+        assertTrue(hierarchy.findByTitle("COO", brad).isEmpty());
+        assertTrue(hierarchy.findByTitle("Lead Instructor", peter.getManager()).contains(michael));
+        assertTrue(hierarchy.findByTitle("Janitor").isEmpty());
+
+        hierarchy.retitleEmployee(chris, "Lead Instructor");
+        hierarchy.removeEmployee(michael);
+        assertTrue(instructors.equals(new HashSet<>(Arrays.asList(chris, lisa))));
+        assertTrue(hierarchy.findByTitle("Student Advocate").isEmpty());
+        assertTrue(hierarchy.findByTitle("Lead Instructor", ed).equals(instructors));
+    }
+
+    @Test
+    public void findByNamePrefixTest() throws Exception {
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        Grunt mike = new Grunt("mike", "Instructor", ed);
+        hierarchy.addEmployee(mike);
+
+        assertTrue(hierarchy.findByNamePrefix("Mi").equals(Arrays.asList(michael, mike)));
+        assertTrue(hierarchy.findByNamePrefix("mIcH").equals(Collections.singletonList(michael)));
+        assertTrue(hierarchy.findByNamePrefix("M").equals(Arrays.asList(mandy, michael, mike)));
+        assertTrue(hierarchy.findByNamePrefix("Mi", ed).equals(Collections.singletonList(mike)));
+        assertTrue(hierarchy.findByNamePrefix("B", brad).isEmpty());
+        assertTrue(hierarchy.findByNamePrefix("Z").isEmpty());
+        assertEquals(hierarchy.getEmployees().size(), hierarchy.findByNamePrefix("").size());
+
+        ManagementHierarchy reference = new ReferenceManagementHierarchy();
+        for (Manager m : managers) {
+            reference.addManager(m);
+        }
+        for (Employee e : hierarchy.getEmployees()) {
+            reference.addEmployee(e);
+        }
+        for (String prefix : Arrays.asList("", "m", "Mi", "ED", "x")) {
+            assertTrue(reference.findByNamePrefix(prefix).equals(hierarchy.findByNamePrefix(prefix)));
+            for (Manager m : managers) {
+                assertTrue(reference.findByNamePrefix(prefix, m).equals(hierarchy.findByNamePrefix(prefix, m)));
+            }
+        }
+
+        hierarchy.removeEmployee(michael);
+        assertTrue(hierarchy.findByNamePrefix("mi").equals(Collections.singletonList(mike)));
+    }
+
+    @Test
+    public void scopedSearchTest() throws Exception {
+        hierarchy.addManager(brad);
+        hierarchy.addManager(frank);
+        hierarchy.addEmployee(frank);
+        Manager small = new Manager("Sam", "Manager", brad);
+        hierarchy.addManager(small);
+        hierarchy.addEmployee(small);
+        hierarchy.addEmployee(new Grunt("Paula", "Analyst", small));
+        for (int i = 0; i < 100; i++) {
+            hierarchy.addEmployee(new Grunt("Pat " + i, "Analyst", frank));
+        }
+        assertEquals(1, hierarchy.findByNamePrefix("Pa", small).size());
+        assertEquals("Paula", hierarchy.findByNamePrefix("pa", small).get(0).getName());
+        assertEquals(100, hierarchy.findByNamePrefix("pat", frank).size());
+        assertEquals(1, hierarchy.findByTitle("Analyst", small).size());
+        assertEquals(100, hierarchy.findByTitle("Analyst", frank).size());
+        assertEquals(101, hierarchy.findByTitle("Analyst", brad).size());
+    }
+
+    @Test
+    public void identityTest() throws Exception {
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        Grunt samePeter = new Grunt(peter.getId(), "Pete", "Architect", ed);
+        assertEquals(peter, samePeter);
+        assertEquals(peter.hashCode(), samePeter.hashCode());
+        assertNotEquals(peter, new Manager(peter.getId(), "Peter", "Software Architect", frank));
+        assertFalse(hierarchy.addEmployee(samePeter));
+        assertTrue(hierarchy.hasEmployee(samePeter));
+        assertSame(peter, hierarchy.getEmployee(peter.getId()));
+        assertSame(brad, hierarchy.getEmployee(brad.getId()));
+        assertNull(hierarchy.getEmployee(new Grunt("Nobody", "Nothing", null).getId()));
+        assertTrue(new Grunt("Next", "Grunt", null).getId() > samePeter.getId());
+
+        assertTrue(hierarchy.retitleEmployee(samePeter, "Chief Architect"));
+        assertEquals("Chief Architect", peter.getTitle());
+        assertTrue(hierarchy.removeEmployee(samePeter));
+        assertFalse(hierarchy.hasEmployee(peter));
+        assertNull(hierarchy.getEmployee(peter.getId()));
+    }
+
+    @Test
+    public void directMutationTest() throws Exception {
+        for (Manager m : managers) {
+            hierarchy.addManager(m);
+        }
+        for (Employee e : employees) {
+            hierarchy.addEmployee(e);
+        }
+        List<HierarchyChange> seen = new ArrayList<>();
+        hierarchy.subscribe(seen::addAll);
+
+        michael.setTitle("Instructor");
+        assertTrue(hierarchy.findByTitle("Lead Instructor").isEmpty());
+        assertTrue(hierarchy.findByTitle("Instructor").equals(Collections.singleton(michael)));
+        assertEquals(HierarchyChange.Type.TITLE_CHANGED, seen.get(0).getType());
+        assertEquals("Lead Instructor", seen.get(0).getPreviousTitle());
+
+        michael.setName("Mitch");
+        assertTrue(hierarchy.findByNamePrefix("Mic").isEmpty());
+        assertTrue(hierarchy.findByNamePrefix("Mit").equals(Collections.singletonList(michael)));
+        assertEquals(HierarchyChange.Type.RENAMED, seen.get(1).getType());
+
+        michael.setManager(ed);
+        assertTrue(hierarchy.getUnderlings(ed).contains(michael));
+        assertFalse(hierarchy.getUnderlings(frank).contains(michael));
+        assertTrue(hierarchy.getChainOfCommand(michael).equals(chrisChain));
+        assertEquals(HierarchyChange.Type.MOVED, seen.get(2).getType());
+        assertEquals(3, seen.size());
+
+        // a move that would close a loop leaves the hierarchy as it was
+        brad.setManager(frank);
+        assertTrue(hierarchy.getChainOfCommand(frank).equals(Collections.singletonList(brad)));
+        assertTrue(hierarchy.getChainOfCommand(brad).isEmpty());
+        assertEquals(3, seen.size());
+
+        hierarchy.removeEmployee(mandy);
+        mandy.setTitle("Former Recruiter");
+        assertTrue(hierarchy.findByTitle("Former Recruiter").isEmpty());
+        assertEquals(4, seen.size());
+    }
+}
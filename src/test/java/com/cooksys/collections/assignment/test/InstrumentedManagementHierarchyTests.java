@@ -0,0 +1,158 @@
+package com.cooksys.collections.assignment.test;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.HierarchyMetrics.Operation;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.Histogram;
+import com.cooksys.collections.assignment.HierarchyStatistics;
+import com.cooksys.collections.assignment.IndexedManagementHierarchy;
+import com.cooksys.collections.assignment.InstrumentedManagementHierarchy;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class InstrumentedManagementHierarchyTests {
+    private HierarchyStatistics statistics;
+
+    private Manager brad;
+    private Manager frank;
+    private Manager ed;
+    private Grunt peter;
+    private Grunt michael;
+    private Grunt mandy;
+    private Grunt chris;
+
+    @Before
+    public void setUp() throws Exception {
+        statistics = new HierarchyStatistics();
+        brad = new Manager("Brad", "COO", null);
+        frank = new Manager("Frank", "FastTrack'D Manager", brad);
+        ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+        peter = new Grunt("Peter", "Software Architect", frank);
+        michael = new Grunt("Michael", "Lead Instructor", frank);
+        mandy = new Grunt("Mandy", "FastTrack'D Recruiter", ed);
+        chris = new Grunt("Chris", "Student Advocate", ed);
+    }
+
+    private ManagementHierarchy populate(ManagementHierarchy hierarchy) {
+        hierarchy.addManager(brad);
+        hierarchy.addManager(frank);
+        hierarchy.addManager(ed);
+        for (Employee e : Arrays.asList(frank, ed, peter, michael, mandy, chris)) {
+            hierarchy.addEmployee(e);
+        }
+        return hierarchy;
+    }
+
+    @Test
+    public void callStatisticsTest() throws Exception {
+        ManagementHierarchy hierarchy = populate(new InstrumentedManagementHierarchy(
+                new IndexedManagementHierarchy(), statistics, Long.MAX_VALUE, true));
+        assertTrue(hierarchy.getChainOfCommand(peter).equals(Arrays.asList(frank, brad)));
+        assertEquals(3, hierarchy.getHierarchy().size());
+        assertEquals(6, hierarchy.getHeadcount(brad));
+        hierarchy.getAllReports(brad);
+        hierarchy.getAllReports(ed);
+
+        assertEquals(3, statistics.get(Operation.ADD_MANAGER).getCalls());
+        assertEquals(6, statistics.get(Operation.ADD_EMPLOYEE).getCalls());
+        assertEquals(1, statistics.get(Operation.GET_HEADCOUNT).getCalls());
+        assertEquals(0, statistics.get(Operation.GET_HEADCOUNT).getResultSizes().getCount());
+        assertEquals(3, statistics.get(Operation.GET_HIERARCHY).getResultSizes().getMax());
+        assertEquals(2, statistics.get(Operation.GET_CHAIN_OF_COMMAND).getResultSizes().getMax());
+        Histogram reports = statistics.get(Operation.GET_ALL_REPORTS).getResultSizes();
+        assertEquals(2, reports.getCount());
+        assertEquals(8, reports.getTotal());
+        assertEquals(6, reports.getValueAtPercentile(100));
+        assertEquals(2, reports.getValueAtPercentile(50));
+        assertEquals(0, statistics.get(Operation.GET_MANAGERS).getCalls());
+        if (((InstrumentedManagementHierarchy) hierarchy).isTrackingAllocations()) {
+            assertEquals(1, statistics.get(Operation.GET_HIERARCHY).getAllocatedBytes().getCount());
+        }
+
+        try {
+            hierarchy.getChainsOfCommand(null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+        assertEquals(1, statistics.get(Operation.GET_CHAINS_OF_COMMAND).getCalls());
+        assertEquals(1, statistics.get(Operation.GET_CHAINS_OF_COMMAND).getFailures());
+
+        StringBuilder text = new StringBuilder();
+        statistics.writeTo(text);
+        assertTrue(text.indexOf("hierarchy_call_nanos_count{operation=\"ADD_EMPLOYEE\"} 6\n") >= 0);
+        assertTrue(text.indexOf("hierarchy_result_size{operation=\"GET_ALL_REPORTS\",quantile=\"1.0\"} 6\n") >= 0);
+        assertTrue(text.indexOf("hierarchy_call_failures_total{operation=\"GET_CHAINS_OF_COMMAND\"} 1\n") >= 0);
+        assertTrue(text.indexOf("GET_MANAGERS") < 0);
+    }
+
+    @Test
+    public void histogramTest() throws Exception {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        for (long value = 1; value <= 100000; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(100002, histogram.getCount());
+        assertEquals(Histogram.MAX_VALUE, histogram.getMax());
+        assertEquals(Histogram.MAX_VALUE, histogram.getValueAtPercentile(100));
+        for (double percentile : new double[]{1, 25, 50, 90, 99, 99.9}) {
+            double exact = percentile / 100 * 100002;
+            long estimate = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + estimate, Math.abs(estimate - exact) <= exact / 32 + 1);
+        }
+        Histogram small = new Histogram();
+        for (long value = 0; value < 64; value++) {
+            small.record(value);
+        }
+        assertEquals(31, small.getValueAtPercentile(50));
+        assertEquals(63, small.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void flightRecorderTest() throws Exception {
+        Path file = Files.createTempFile("hierarchy", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.cooksys.collections.SlowCall");
+            recording.start();
+            ManagementHierarchy hierarchy = populate(new InstrumentedManagementHierarchy(
+                    new IndexedManagementHierarchy(), statistics, 0, false));
+            hierarchy.getAllReports(brad);
+            recording.stop();
+            recording.dump(file);
+        }
+        try {
+            List<RecordedEvent> events = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals("com.cooksys.collections.SlowCall")) {
+                    events.add(event);
+                }
+            }
+            assertEquals(10, events.size());
+            RecordedEvent last = events.get(events.size() - 1);
+            for (RecordedEvent event : events) {
+                if (event.getStartTime().isAfter(last.getStartTime())) {
+                    last = event;
+                }
+            }
+            assertEquals("GET_ALL_REPORTS", last.getString("operation"));
+            assertEquals(6, last.getLong("resultSize"));
+            assertEquals(-1, last.getLong("allocated"));
+            assertTrue(last.getLong("elapsed") >= 0);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.cooksys.collections.assignment.test;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.HierarchyFile;
+import com.cooksys.collections.assignment.IndexedManagementHierarchy;
+import com.cooksys.collections.assignment.MappedManagementHierarchy;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MappedManagementHierarchyTests {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MappedManagementHierarchy hierarchy;
+    private ManagementHierarchy source;
+
+    @Before
+    public void setUp() throws Exception {
+        Manager brad = new Manager("Brad", "COO", null);
+        Manager frank = new Manager("Frank", "FastTrack'D Manager", brad);
+        Manager ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+        source = new IndexedManagementHierarchy();
+        source.addManager(brad);
+        source.addManager(frank);
+        source.addManager(ed);
+        source.addEmployee(new Grunt("Peter", "Software Architect", frank));
+        source.addEmployee(new Grunt("Michael", "Lead Instructor", frank));
+        source.addEmployee(new Grunt("Mandy", null, ed));
+
+        File file = folder.newFile("org.bin");
+        HierarchyFile.write(source, file.toPath());
+        hierarchy = MappedManagementHierarchy.open(file.toPath());
+    }
+
+    @Test
+    public void roundTripTest() throws Exception {
+        assertEquals(6, hierarchy.getEmployees().size());
+        assertEquals(3, hierarchy.getManagers().size());
+
+        Map<String, Employee> byName = new HashMap<>();
+        for (Employee e : hierarchy.getEmployees()) {
+            byName.put(e.getName(), e);
+        }
+        Manager brad = (Manager) byName.get("Brad");
+        Manager frank = (Manager) byName.get("Frank");
+        Employee peter = byName.get("Peter");
+
+        assertTrue(byName.get("Michael") instanceof Grunt);
+        assertNull(byName.get("Mandy").getTitle());
+        assertEquals("Software Architect", peter.getTitle());
+        assertSame(frank, peter.getManager());
+        assertTrue(hierarchy.getChainOfCommand(peter).equals(Arrays.asList(frank, brad)));
+        assertTrue(hierarchy.getUnderlings(brad).equals(new HashSet<>(Arrays.asList(frank, byName.get("Ed")))));
+        assertEquals(5, hierarchy.getHeadcount(brad));
+        assertTrue(hierarchy.isInChainOfCommand(peter, brad));
+    }
+
+    @Test
+    public void identityTest() throws Exception {
+        for (Employee original : source.getEmployees()) {
+            Employee read = hierarchy.getEmployee(original.getId());
+            assertEquals(original, read);
+            assertEquals(original.getName(), read.getName());
+            assertTrue(hierarchy.hasEmployee(original));
+            assertSame(read, hierarchy.employee(hierarchy.idOf(original)));
+        }
+        for (Manager original : source.getManagers()) {
+            assertTrue(hierarchy.hasManager(original));
+            assertEquals(source.getUnderlings(original), hierarchy.getUnderlings(original));
+        }
+        Employee some = source.getEmployees().iterator().next();
+        assertFalse(hierarchy.hasEmployee(some instanceof Manager
+                ? new Grunt(some.getId(), "Other", null, null)
+                : new Manager(some.getId(), "Other", null, null)));
+        assertNull(hierarchy.getEmployee(new Grunt("Nobody", "Nothing", null).getId()));
+
+        File again = folder.newFile("again.bin");
+        HierarchyFile.write(hierarchy, again.toPath());
+        assertEquals(source.getHierarchy(), MappedManagementHierarchy.open(again.toPath()).getHierarchy());
+    }
+
+    @Test
+    public void foreignEmployeesTest() throws Exception {
+        Manager stranger = new Manager("Brad", "COO", null);
+        assertFalse(hierarchy.hasEmployee(stranger));
+        assertTrue(hierarchy.getUnderlings(stranger).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFilesTest() throws Exception {
+        File file = folder.newFile("other.bin");
+        Files.write(file.toPath(), "not a hierarchy file at all".getBytes("UTF-8"));
+        MappedManagementHierarchy.open(file.toPath());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void readOnlyTest() throws Exception {
+        hierarchy.addManager(new Manager("Dana", "CTO", null));
+    }
+}
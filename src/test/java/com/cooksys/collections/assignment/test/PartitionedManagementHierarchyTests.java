@@ -0,0 +1,279 @@
+package com.cooksys.collections.assignment.test;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.HierarchyMetrics.Operation;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.HierarchyStatistics;
+import com.cooksys.collections.assignment.InProcessShardTransport;
+import com.cooksys.collections.assignment.InstrumentedManagementHierarchy;
+import com.cooksys.collections.assignment.PartitionedManagementHierarchy;
+import com.cooksys.collections.assignment.ReferenceManagementHierarchy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PartitionedManagementHierarchyTests {
+    private Manager brad;
+    private Manager frank;
+    private Manager ed;
+    private Grunt peter;
+    private Grunt michael;
+    private Grunt mandy;
+    private Grunt chris;
+
+    @Before
+    public void setUp() throws Exception {
+        brad = new Manager("Brad", "COO", null);
+        frank = new Manager("Frank", "FastTrack'D Manager", brad);
+        ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+        peter = new Grunt("Peter", "Software Architect", frank);
+        michael = new Grunt("Michael", "Lead Instructor", frank);
+        mandy = new Grunt("Mandy", "FastTrack'D Recruiter", ed);
+        chris = new Grunt("Chris", "Lead Instructor", ed);
+    }
+
+    private ManagementHierarchy populate(ManagementHierarchy hierarchy) {
+        hierarchy.addManager(brad);
+        hierarchy.addManager(frank);
+        hierarchy.addManager(ed);
+        for (Employee e : Arrays.asList(frank, ed, peter, michael, mandy, chris)) {
+            hierarchy.addEmployee(e);
+        }
+        return hierarchy;
+    }
+
+    @Test
+    public void spineTest() throws Exception {
+        PartitionedManagementHierarchy hierarchy = new PartitionedManagementHierarchy();
+        populate(hierarchy);
+        assertEquals(Collections.singleton(brad), hierarchy.getSpine());
+        assertEquals(1, hierarchy.getShardCount());
+        assertEquals(6, hierarchy.getShardSize(0));
+
+        assertEquals(Arrays.asList(frank, brad), hierarchy.getChainOfCommand(peter));
+        assertEquals(Collections.singletonList(brad), hierarchy.getChainOfCommand(ed));
+        assertTrue(hierarchy.getChainOfCommand(brad).isEmpty());
+        assertSame(hierarchy.getChainOfCommand(peter).subList(1, 2), hierarchy.getChainOfCommand(chris).subList(1, 2));
+        assertEquals(new HashSet<>(Arrays.asList(frank, ed)), hierarchy.getUnderlings(brad));
+        assertEquals(new HashSet<>(Arrays.asList(mandy, chris)), hierarchy.getUnderlings(ed));
+        assertEquals(new HashSet<>(Arrays.asList(brad, frank, ed)), hierarchy.getManagers());
+        assertEquals(populate(new ReferenceManagementHierarchy()).getHierarchy(), hierarchy.getHierarchy());
+        assertEquals(6, hierarchy.getHeadcount(brad));
+        assertEquals(new HashSet<>(Arrays.asList(michael, chris)), hierarchy.findByTitle("Lead Instructor"));
+        assertEquals(Collections.singletonList(mandy), hierarchy.findByNamePrefix("m", ed));
+        assertEquals(brad, hierarchy.lowestCommonManager(peter, mandy));
+        assertEquals(peter, hierarchy.getEmployee(peter.getId()));
+
+        assertFalse(hierarchy.addEmployee(peter));
+        assertFalse(hierarchy.addManager(frank));
+        assertFalse(hierarchy.hasEmployee(new Grunt("Nobody", "Grunt", frank)));
+        assertTrue(hierarchy.getChainOfCommand(new Grunt("Nobody", "Grunt", frank)).isEmpty());
+    }
+
+    @Test
+    public void waitingReportsTest() throws Exception {
+        PartitionedManagementHierarchy hierarchy = new PartitionedManagementHierarchy();
+        hierarchy.addManager(frank);
+        hierarchy.addEmployee(peter);
+        hierarchy.addEmployee(michael);
+        assertEquals(Collections.singletonList(frank), hierarchy.getChainOfCommand(peter));
+        hierarchy.addManager(brad);
+        assertTrue(hierarchy.addEmployee(frank));
+        assertEquals(Arrays.asList(frank, brad), hierarchy.getChainOfCommand(peter));
+        assertEquals(3, hierarchy.getHeadcount(brad));
+        assertFalse(hierarchy.getSpine().contains(frank));
+    }
+
+    @Test
+    public void rebalancingTest() throws Exception {
+        PartitionedManagementHierarchy hierarchy = new PartitionedManagementHierarchy(new InProcessShardTransport(), 50);
+        List<Employee> people = randomHierarchy(hierarchy, 2000, 7);
+        // a chain longer than a shard holds
+        Manager bottom = (Manager) people.get(0);
+        for (int i = 0; i < 120; i++) {
+            bottom = new Manager("C" + i, "Chain", bottom);
+            hierarchy.addManager(bottom);
+            hierarchy.addEmployee(bottom);
+            people.add(bottom);
+        }
+
+        assertTrue(hierarchy.getShardCount() > 1);
+        for (int i = 0; i < hierarchy.getShardCount(); i++) {
+            assertTrue(hierarchy.getShardSize(i) <= 50);
+        }
+        assertTrue(hierarchy.getSpine().size() < people.size() / 10);
+        assertMatches(people, hierarchy);
+    }
+
+    @Test
+    public void changesTest() throws Exception {
+        PartitionedManagementHierarchy hierarchy = new PartitionedManagementHierarchy(new InProcessShardTransport(), 40);
+        List<Employee> people = randomHierarchy(hierarchy, 1000, 11);
+        Random random = new Random(3);
+        for (int i = 0; i < 300; i++) {
+            Employee e = people.get(1 + random.nextInt(people.size() - 1));
+            Employee target = people.get(random.nextInt(people.size()));
+            if (target instanceof Manager && hierarchy.hasManager((Manager) target)) {
+                boolean loops = target.equals(e) || hierarchy.getChainOfCommand(target).contains(e)
+                        || target.equals(e.getManager());
+                assertEquals(!loops, hierarchy.transferEmployee(e, (Manager) target));
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            Employee e = people.get(1 + random.nextInt(people.size() - 1));
+            if (e instanceof Grunt && hierarchy.hasEmployee(e)) {
+                if (random.nextBoolean()) {
+                    assertTrue(hierarchy.removeEmployee(e));
+                } else {
+                    people.add(hierarchy.promoteToManager((Grunt) e));
+                }
+            }
+        }
+        List<Employee> present = new ArrayList<>();
+        for (Employee e : people) {
+            if (hierarchy.hasEmployee(e)) {
+                present.add(e);
+            }
+        }
+        assertMatches(present, hierarchy);
+        for (int i = 0; i < hierarchy.getShardCount(); i++) {
+            assertTrue(hierarchy.getShardSize(i) <= 40);
+        }
+    }
+
+    @Test
+    public void routingTest() throws Exception {
+        List<HierarchyStatistics> statistics = new ArrayList<>();
+        PartitionedManagementHierarchy hierarchy = new PartitionedManagementHierarchy(new InProcessShardTransport(() -> {
+            HierarchyStatistics shard = new HierarchyStatistics();
+            statistics.add(shard);
+            return new InstrumentedManagementHierarchy(new ReferenceManagementHierarchy(), shard);
+        }), 100);
+        List<Employee> people = randomHierarchy(hierarchy, 1000, 5);
+        assertTrue(statistics.size() > 2);
+
+        for (Employee e : people) {
+            long[] before = calls(statistics);
+            hierarchy.getChainOfCommand(e);
+            if (e instanceof Manager && !hierarchy.getSpine().contains(e)) {
+                hierarchy.getUnderlings((Manager) e);
+                hierarchy.getAllReports((Manager) e);
+            }
+            long[] after = calls(statistics);
+            int touched = 0;
+            for (int i = 0; i < before.length; i++) {
+                if (after[i] != before[i]) {
+                    touched++;
+                }
+            }
+            assertTrue(touched <= 1);
+        }
+    }
+
+    @Test
+    public void filedManagerTest() throws Exception {
+        PartitionedManagementHierarchy hierarchy = (PartitionedManagementHierarchy) populate(
+                new PartitionedManagementHierarchy());
+        // the manager fields now disagree with where everyone is filed
+        peter.setManager(ed);
+        michael.setManager(ed);
+        Manager promoted = hierarchy.promoteToManager(michael);
+        assertEquals(frank, promoted.getManager());
+        assertTrue(hierarchy.getUnderlings(frank).contains(promoted));
+        assertTrue(hierarchy.transferEmployee(peter, ed));
+        assertTrue(hierarchy.getUnderlings(ed).contains(peter));
+        assertEquals(Collections.singleton(promoted), hierarchy.getUnderlings(frank));
+        assertTrue(hierarchy.removeEmployee(promoted));
+        assertFalse(hierarchy.removeEmployee(brad));
+        assertTrue(hierarchy.removeEmployee(frank));
+    }
+
+    @Test
+    public void lookupTest() throws Exception {
+        // shards that would have to list everyone to find someone fail the test
+        PartitionedManagementHierarchy hierarchy = new PartitionedManagementHierarchy(new InProcessShardTransport(
+                () -> new ReferenceManagementHierarchy() {
+                    @Override
+                    public Set<Employee> getEmployees() {
+                        throw new AssertionError("scanned");
+                    }
+                }), 100);
+        List<Employee> people = randomHierarchy(hierarchy, 1000, 9);
+        assertTrue(hierarchy.getShardCount() > 2);
+        for (Employee e : people) {
+            assertSame(e, hierarchy.getEmployee(e.getId()));
+            assertFalse(hierarchy.addEmployee(e));
+        }
+        Grunt stranger = new Grunt("Stranger", "Grunt", (Manager) people.get(0));
+        assertNull(hierarchy.getEmployee(stranger.getId()));
+        assertFalse(hierarchy.hasEmployee(stranger));
+    }
+
+    private static long[] calls(List<HierarchyStatistics> statistics) {
+        long[] result = new long[statistics.size()];
+        for (int i = 0; i < result.length; i++) {
+            for (Operation operation : Operation.values()) {
+                result[i] += statistics.get(i).get(operation).getCalls();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a random hierarchy of the given size, managers and then reports, the way an import would.
+     */
+    private static List<Employee> randomHierarchy(ManagementHierarchy hierarchy, int size, long seed) {
+        Random random = new Random(seed);
+        Manager top = new Manager("Top", "CEO", null);
+        List<Employee> people = new ArrayList<>(Collections.singletonList(top));
+        List<Manager> managers = new ArrayList<>(Collections.singletonList(top));
+        hierarchy.addManager(top);
+        for (int i = 1; i < size; i++) {
+            Manager manager = managers.get(random.nextInt(managers.size()));
+            Employee e;
+            if (random.nextInt(4) == 0) {
+                e = new Manager("M" + i, "Title " + random.nextInt(5), manager);
+                managers.add((Manager) e);
+                hierarchy.addManager((Manager) e);
+            } else {
+                e = new Grunt("G" + i, "Title " + random.nextInt(5), manager);
+            }
+            assertTrue(hierarchy.addEmployee(e));
+            people.add(e);
+        }
+        return people;
+    }
+
+    /**
+     * Checks every query against a reference hierarchy holding the same people.
+     */
+    private static void assertMatches(List<Employee> people, PartitionedManagementHierarchy hierarchy) {
+        ReferenceManagementHierarchy expected = new ReferenceManagementHierarchy();
+        for (Employee e : people) {
+            if (e instanceof Manager && hierarchy.hasManager((Manager) e)) {
+                expected.addManager((Manager) e);
+            }
+        }
+        for (Employee e : people) {
+            expected.addEmployee(e);
+        }
+        assertEquals(expected.getEmployees(), hierarchy.getEmployees());
+        assertEquals(expected.getManagers(), hierarchy.getManagers());
+        assertEquals(expected.getHierarchy(), hierarchy.getHierarchy());
+        assertEquals(expected.getChainsOfCommand(people), hierarchy.getChainsOfCommand(people));
+        for (Manager m : expected.getManagers()) {
+            assertEquals(expected.getUnderlings(m), hierarchy.getUnderlings(m));
+            assertEquals(expected.getAllReports(m), hierarchy.getAllReports(m));
+            assertEquals(expected.getHeadcount(m), hierarchy.getHeadcount(m));
+            assertEquals(expected.findByTitle("Title 2", m), hierarchy.findByTitle("Title 2", m));
+            assertEquals(expected.findByNamePrefix("m1", m), hierarchy.findByNamePrefix("m1", m));
+        }
+        assertEquals(expected.findByTitle("Title 3"), hierarchy.findByTitle("Title 3"));
+        assertEquals(expected.findByNamePrefix("g2"), hierarchy.findByNamePrefix("g2"));
+    }
+}
@@ -0,0 +1,156 @@
+package com.cooksys.collections.assignment.test;
+
+import com.cooksys.collections.ChainOfCommand;
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.ReferenceManagementHierarchy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ReferenceManagementHierarchyTests {
+    private ReferenceManagementHierarchy hierarchy;
+
+    private Manager brad;
+    private Manager frank;
+    private Manager ed;
+    private Grunt peter;
+    private Grunt michael;
+    private Grunt mandy;
+    private Grunt chris;
+
+    @Before
+    public void setUp() throws Exception {
+        hierarchy = new ReferenceManagementHierarchy();
+        brad = new Manager("Brad", "COO", null);
+        frank = new Manager("Frank", "FastTrack'D Manager", brad);
+        ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+        peter = new Grunt("Peter", "Software Architect", frank);
+        michael = new Grunt("Michael", "Lead Instructor", frank);
+        mandy = new Grunt("Mandy", "FastTrack'D Recruiter", ed);
+        chris = new Grunt("Chris", "Student Advocate", ed);
+    }
+
+    private void populate() {
+        hierarchy.addManager(brad);
+        hierarchy.addManager(frank);
+        hierarchy.addManager(ed);
+        for (Employee e : Arrays.asList(frank, ed, peter, michael, mandy, chris)) {
+            hierarchy.addEmployee(e);
+        }
+    }
+
+    @Test
+    public void promoteFiledGruntTest() throws Exception {
+        populate();
+        peter.setManager(new Manager("Ghost", "Manager", null));
+        Manager promoted = hierarchy.promoteToManager(peter);
+        assertEquals(frank, promoted.getManager());
+        assertTrue(hierarchy.getUnderlings(frank).contains(promoted));
+        assertEquals(Arrays.asList(frank, brad), hierarchy.getChainOfCommand(promoted));
+        assertNull(hierarchy.promoteToManager(peter));
+    }
+
+    @Test
+    public void transferFiledEmployeeTest() throws Exception {
+        populate();
+        peter.setManager(ed);
+        assertTrue(hierarchy.getUnderlings(frank).contains(peter));
+        assertTrue(hierarchy.transferEmployee(peter, ed));
+        assertFalse(hierarchy.getUnderlings(frank).contains(peter));
+        assertTrue(hierarchy.getUnderlings(ed).contains(peter));
+        assertEquals(Arrays.asList(ed, brad), hierarchy.getChainOfCommand(peter));
+        assertFalse(hierarchy.transferEmployee(peter, ed));
+
+        // frank is still filed under brad, so brad cannot be moved under him
+        frank.setManager(null);
+        assertFalse(hierarchy.transferEmployee(brad, frank));
+    }
+
+    @Test
+    public void removeManagerWithReportsTest() throws Exception {
+        populate();
+        assertFalse(hierarchy.removeEmployee(frank));
+        assertTrue(hierarchy.transferEmployee(peter, ed));
+        assertTrue(hierarchy.transferEmployee(michael, ed));
+        assertTrue(hierarchy.removeEmployee(frank));
+        assertFalse(hierarchy.hasManager(frank));
+        assertEquals(Collections.singleton(ed), hierarchy.getUnderlings(brad));
+    }
+
+    @Test
+    public void employeesStreamTest() throws Exception {
+        populate();
+        assertEquals(7, hierarchy.employees().count());
+        assertEquals(hierarchy.getEmployees(), hierarchy.employees().collect(Collectors.toSet()));
+        assertTrue(hierarchy.transferEmployee(peter, ed));
+        assertTrue(hierarchy.transferEmployee(michael, ed));
+        assertTrue(hierarchy.removeEmployee(frank));
+        assertEquals(6, hierarchy.employees().count());
+        assertFalse(hierarchy.employees().anyMatch(frank::equals));
+    }
+
+    @Test
+    public void sharedChainsTest() throws Exception {
+        populate();
+        List<Manager> chain = hierarchy.getChainOfCommand(peter);
+        assertEquals(Arrays.asList(frank, brad), chain);
+        assertSame(chain, hierarchy.getChainOfCommand(peter));
+        assertSame(chain, hierarchy.getChainOfCommand(michael));
+        assertSame(hierarchy.getChainOfCommand(frank), ((ChainOfCommand) chain).above());
+        assertSame(((ChainOfCommand) chain).above(), ((ChainOfCommand) hierarchy.getChainOfCommand(mandy)).above());
+    }
+
+    @Test
+    public void chainInvalidationTest() throws Exception {
+        // frank and ed are registered but filed under nobody, so chains through them follow their manager fields
+        hierarchy.addManager(frank);
+        hierarchy.addManager(ed);
+        for (Employee e : Arrays.asList(peter, michael, chris)) {
+            hierarchy.addEmployee(e);
+        }
+        assertEquals(Collections.singletonList(frank), hierarchy.getChainOfCommand(peter));
+
+        // a top manager joining late lengthens the chains cut short at them, and leaving shortens them again
+        hierarchy.addManager(brad);
+        List<Manager> chain = hierarchy.getChainOfCommand(peter);
+        assertEquals(Arrays.asList(frank, brad), chain);
+        assertSame(chain, hierarchy.getChainOfCommand(michael));
+        assertTrue(hierarchy.removeEmployee(brad));
+        assertEquals(Collections.singletonList(frank), hierarchy.getChainOfCommand(peter));
+        assertEquals(Collections.singletonList(ed), hierarchy.getChainOfCommand(chris));
+        hierarchy.addManager(brad);
+        chain = hierarchy.getChainOfCommand(peter);
+        assertEquals(Arrays.asList(frank, brad), chain);
+
+        // a middle manager moved directly
+        ed.setManager(frank);
+        assertEquals(Arrays.asList(ed, frank, brad), hierarchy.getChainOfCommand(chris));
+        assertSame(chain, hierarchy.getChainOfCommand(peter));
+        ed.setManager(brad);
+        assertEquals(Arrays.asList(ed, brad), hierarchy.getChainOfCommand(chris));
+
+        // once filed, a manager keeps the chain they are filed in whatever their field says
+        assertTrue(hierarchy.addEmployee(frank));
+        frank.setManager(null);
+        assertEquals(Arrays.asList(frank, brad), hierarchy.getChainOfCommand(peter));
+
+        // a transfer moves everyone below along
+        assertTrue(hierarchy.transferEmployee(frank, ed));
+        assertEquals(Arrays.asList(frank, ed, brad), hierarchy.getChainOfCommand(peter));
+        assertSame(hierarchy.getChainOfCommand(peter), hierarchy.getChainOfCommand(michael));
+        assertEquals(Arrays.asList(ed, brad), hierarchy.getChainOfCommand(chris));
+
+        // a removed manager's chain is gone
+        assertTrue(hierarchy.transferEmployee(peter, ed));
+        assertTrue(hierarchy.transferEmployee(michael, ed));
+        assertTrue(hierarchy.removeEmployee(frank));
+        assertTrue(hierarchy.getChainOfCommand(frank).isEmpty());
+        assertSame(hierarchy.getChainOfCommand(chris), hierarchy.getChainOfCommand(peter));
+    }
+}
@@ -0,0 +1,269 @@
+package com.cooksys.collections.assignment.test;
+
+import com.cooksys.collections.Employee;
+import com.cooksys.collections.Grunt;
+import com.cooksys.collections.ManagementHierarchy;
+import com.cooksys.collections.Manager;
+import com.cooksys.collections.assignment.TemporalManagementHierarchy;
+import com.cooksys.collections.assignment.TemporalManagementHierarchy.Period;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TemporalManagementHierarchyTests {
+    private SettableClock clock;
+    private TemporalManagementHierarchy hierarchy;
+
+    private Manager brad;
+    private Manager frank;
+    private Manager ed;
+    private Grunt peter;
+    private Grunt michael;
+    private Grunt mandy;
+    private Grunt chris;
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new SettableClock();
+        hierarchy = new TemporalManagementHierarchy(clock);
+        brad = new Manager("Brad", "COO", null);
+        frank = new Manager("Frank", "FastTrack'D Manager", brad);
+        ed = new Manager("Ed", "Recruitment and Placement Manager", brad);
+        peter = new Grunt("Peter", "Software Architect", frank);
+        michael = new Grunt("Michael", "Lead Instructor", frank);
+        mandy = new Grunt("Mandy", "FastTrack'D Recruiter", ed);
+        chris = new Grunt("Chris", "Student Advocate", ed);
+    }
+
+    private void populate() {
+        hierarchy.addManager(brad);
+        hierarchy.addManager(frank);
+        hierarchy.addManager(ed);
+        for (Employee e : Arrays.asList(frank, ed, peter, michael, mandy, chris)) {
+            hierarchy.addEmployee(e);
+        }
+    }
+
+    @Test
+    public void asOfTest() throws Exception {
+        clock.time = 100;
+        populate();
+        clock.time = 200;
+        assertTrue(hierarchy.transferEmployee(chris, frank));
+        clock.time = 300;
+        assertTrue(hierarchy.removeEmployee(mandy));
+        clock.time = 400;
+        Manager promoted = hierarchy.promoteToManager(michael);
+
+        ManagementHierarchy before = hierarchy.asOf(50);
+        assertTrue(before.getEmployees().isEmpty());
+        assertTrue(before.getChainOfCommand(peter).isEmpty());
+
+        ManagementHierarchy start = hierarchy.asOf(150);
+        assertEquals(new HashSet<>(Arrays.asList(brad, frank, ed)), start.getManagers());
+        assertEquals(7, start.getEmployees().size());
+        assertEquals(Arrays.asList(ed, brad), start.getChainOfCommand(chris));
+        assertEquals(new HashSet<>(Arrays.asList(mandy, chris)), start.getUnderlings(ed));
+        assertEquals(6, start.getHeadcount(brad));
+        assertEquals(brad, start.lowestCommonManager(peter, chris));
+
+        ManagementHierarchy moved = hierarchy.asOf(Instant.ofEpochMilli(250));
+        assertEquals(Arrays.asList(frank, brad), moved.getChainOfCommand(chris));
+        assertEquals(Collections.singleton(mandy), moved.getUnderlings(ed));
+        assertEquals(frank, moved.lowestCommonManager(peter, chris));
+        assertTrue(moved.hasEmployee(mandy));
+
+        ManagementHierarchy removed = hierarchy.asOf(350);
+        assertFalse(removed.hasEmployee(mandy));
+        assertTrue(removed.getUnderlings(ed).isEmpty());
+        assertTrue(removed.hasEmployee(michael));
+        assertFalse(removed.hasManager(promoted));
+
+        ManagementHierarchy now = hierarchy.asOf(400);
+        assertFalse(now.hasEmployee(michael));
+        assertTrue(now.hasManager(promoted));
+        assertEquals(hierarchy.getHierarchy(), now.getHierarchy());
+        assertEquals(hierarchy.getEmployees(), now.getEmployees());
+        assertEquals(hierarchy.getManagers(), now.getManagers());
+        assertEquals(michael.getId(), promoted.getId());
+        assertEquals(promoted, now.getEmployee(michael.getId()));
+        assertEquals(michael, removed.getEmployee(michael.getId()));
+        assertEquals(2, hierarchy.getHistory(promoted).size());
+        assertFalse(hierarchy.getHistory(michael).get(0).isRegisteredManager());
+        assertNull(hierarchy.getPeriod(michael, 400));
+        assertEquals(promoted, hierarchy.getPeriod(promoted, 400).getEmployee());
+
+        List<Period> history = hierarchy.getHistory(chris);
+        assertEquals(2, history.size());
+        assertEquals(ed, history.get(0).getManager());
+        assertEquals(100, history.get(0).getFrom());
+        assertEquals(200, history.get(0).getTo());
+        assertEquals(frank, history.get(1).getManager());
+        assertEquals(Long.MAX_VALUE, history.get(1).getTo());
+        assertEquals(ed, hierarchy.getPeriod(chris, 199).getManager());
+        assertEquals(frank, hierarchy.getPeriod(chris, 200).getManager());
+        assertNull(hierarchy.getPeriod(mandy, 300));
+        assertTrue(hierarchy.getHistory(new Grunt("Nobody", "Grunt", brad)).isEmpty());
+    }
+
+    @Test
+    public void titlesAndNamesTest() throws Exception {
+        clock.time = 100;
+        populate();
+        clock.time = 200;
+        assertTrue(hierarchy.retitleEmployee(chris, "Lead Instructor"));
+        clock.time = 300;
+        michael.setName("Mike");
+        assertTrue(hierarchy.transferEmployee(michael, ed));
+
+        ManagementHierarchy start = hierarchy.asOf(150);
+        assertEquals(Collections.singleton(michael), start.findByTitle("Lead Instructor"));
+        assertEquals(Collections.singleton(chris), start.findByTitle("Student Advocate", ed));
+        assertEquals(Arrays.asList(mandy, michael), start.findByNamePrefix("m"));
+
+        ManagementHierarchy retitled = hierarchy.asOf(250);
+        assertEquals(new HashSet<>(Arrays.asList(michael, chris)), retitled.findByTitle("Lead Instructor"));
+        assertTrue(retitled.findByTitle("Student Advocate").isEmpty());
+        assertEquals(Collections.singletonList(michael), retitled.findByNamePrefix("mic", frank));
+
+        ManagementHierarchy renamed = hierarchy.asOf(350);
+        assertTrue(renamed.findByNamePrefix("mic").isEmpty());
+        assertEquals(Collections.singletonList(michael), renamed.findByNamePrefix("mik", ed));
+        assertEquals(hierarchy.findByTitle("Lead Instructor"), renamed.findByTitle("Lead Instructor"));
+
+        List<Period> history = hierarchy.getHistory(chris);
+        assertEquals(2, history.size());
+        assertEquals("Student Advocate", history.get(0).getTitle());
+        assertEquals("Lead Instructor", history.get(1).getTitle());
+        assertEquals(ed, history.get(1).getManager());
+        assertEquals("Michael", hierarchy.getPeriod(michael, 299).getName());
+        assertEquals("Mike", hierarchy.getPeriod(michael, 300).getName());
+        assertFalse(hierarchy.retitleEmployee(new Grunt("Nobody", "Grunt", brad), "Anything"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void readOnlyPastTest() throws Exception {
+        populate();
+        hierarchy.asOf(clock.time).addEmployee(new Grunt("New", "Grunt", frank));
+    }
+
+    @Test
+    public void waitingManagersTest() throws Exception {
+        clock.time = 10;
+        hierarchy.addManager(frank);
+        hierarchy.addEmployee(peter);
+        assertEquals(Collections.singletonList(frank), hierarchy.getChainOfCommand(peter));
+        clock.time = 20;
+        hierarchy.addManager(brad);
+        assertEquals(Arrays.asList(frank, brad), hierarchy.getChainOfCommand(peter));
+        assertEquals(2, hierarchy.getHeadcount(brad));
+        assertEquals(Collections.singletonList(frank), hierarchy.asOf(15).getChainOfCommand(peter));
+        assertEquals(0, hierarchy.asOf(15).getHeadcount(brad));
+    }
+
+    @Test
+    public void sameMillisecondTest() throws Exception {
+        clock.time = 10;
+        populate();
+        assertTrue(hierarchy.transferEmployee(chris, frank));
+        assertTrue(hierarchy.transferEmployee(chris, ed));
+        assertEquals(Arrays.asList(ed, brad), hierarchy.asOf(10).getChainOfCommand(chris));
+        assertFalse(hierarchy.asOf(10).getUnderlings(frank).contains(chris));
+        clock.time = 5;
+        assertTrue(hierarchy.removeEmployee(peter));
+        assertEquals(10, hierarchy.getHistory(peter).get(0).getTo());
+    }
+
+    @Test
+    public void replayTest() throws Exception {
+        Random random = new Random(21);
+        Manager top = new Manager("Top", "CEO", null);
+        List<Employee> people = new ArrayList<>(Collections.singletonList(top));
+        List<Manager> managers = new ArrayList<>(Collections.singletonList(top));
+        hierarchy.addManager(top);
+        Map<Long, Map<Manager, Set<Employee>>> states = new HashMap<>();
+        Map<Long, List<Employee>> everyone = new HashMap<>();
+        Map<Long, Map<Employee, List<Manager>>> chains = new HashMap<>();
+        int changes = 1;
+        for (int step = 1; step <= 2000; step++) {
+            clock.time = step * 10L;
+            int action = random.nextInt(10);
+            if (action < 5 || people.size() < 10) {
+                Manager manager = managers.get(random.nextInt(managers.size()));
+                if (!hierarchy.hasManager(manager)) {
+                    continue;
+                }
+                Employee e;
+                if (random.nextInt(3) == 0) {
+                    e = new Manager("M" + step, "Manager", manager);
+                    assertTrue(hierarchy.addManager((Manager) e));
+                    managers.add((Manager) e);
+                } else {
+                    e = new Grunt("G" + step, "Grunt", manager);
+                    assertTrue(hierarchy.addEmployee(e));
+                }
+                people.add(e);
+                changes++;
+            } else if (action < 8) {
+                Employee e = people.get(1 + random.nextInt(people.size() - 1));
+                Manager target = managers.get(random.nextInt(managers.size()));
+                if (hierarchy.transferEmployee(e, target)) {
+                    changes++;
+                }
+            } else {
+                Employee e = people.get(1 + random.nextInt(people.size() - 1));
+                // a removal ends a period rather than starting one
+                hierarchy.removeEmployee(e);
+            }
+            if (step % 100 == 0) {
+                states.put(clock.time, hierarchy.getHierarchy());
+                everyone.put(clock.time, new ArrayList<>(people));
+                chains.put(clock.time, hierarchy.getChainsOfCommand(people));
+            }
+        }
+
+        for (Map.Entry<Long, Map<Manager, Set<Employee>>> state : states.entrySet()) {
+            ManagementHierarchy past = hierarchy.asOf(state.getKey());
+            assertEquals(state.getValue(), past.getHierarchy());
+            assertEquals(state.getValue().keySet(), past.getManagers());
+            assertEquals(chains.get(state.getKey()), past.getChainsOfCommand(everyone.get(state.getKey())));
+            for (Manager m : state.getValue().keySet()) {
+                assertEquals(state.getValue().get(m), past.getUnderlings(m));
+            }
+        }
+        int periods = 0;
+        for (Employee e : people) {
+            periods += hierarchy.getHistory(e).size();
+        }
+        assertEquals(changes, periods);
+    }
+
+    /**
+     * A clock standing still at whatever time the test sets.
+     */
+    private static final class SettableClock extends Clock {
+        private long time;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException("withZone");
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(time);
+        }
+    }
+}